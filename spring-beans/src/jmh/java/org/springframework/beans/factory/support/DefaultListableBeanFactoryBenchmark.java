@@ -0,0 +1,131 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import org.springframework.beans.factory.config.BeanDefinition;
+
+/**
+ * Benchmarks for {@link DefaultListableBeanFactory#getBean} lookups
+ * of singleton and prototype beans, by name and by type.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+public class DefaultListableBeanFactoryBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({"10", "1000"})
+		public int beanCount;
+
+		public DefaultListableBeanFactory beanFactory;
+
+		public String beanName;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.beanFactory = new DefaultListableBeanFactory();
+			for (int i = 0; i < this.beanCount; i++) {
+				this.beanFactory.registerBeanDefinition("filler" + i, new RootBeanDefinition(FillerBean.class));
+			}
+			this.beanFactory.registerBeanDefinition("dependency", new RootBeanDefinition(Dependency.class));
+			RootBeanDefinition singleton = new RootBeanDefinition(SingletonBean.class);
+			singleton.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+			this.beanFactory.registerBeanDefinition("singleton", singleton);
+			RootBeanDefinition prototype = new RootBeanDefinition(PrototypeBean.class);
+			prototype.setScope(BeanDefinition.SCOPE_PROTOTYPE);
+			prototype.setAutowireMode(AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR);
+			this.beanFactory.registerBeanDefinition("prototype", prototype);
+			this.beanFactory.preInstantiateSingletons();
+			this.beanName = "filler" + (this.beanCount / 2);
+		}
+
+		@TearDown(Level.Trial)
+		public void tearDown() {
+			this.beanFactory.destroySingletons();
+		}
+	}
+
+
+	@Benchmark
+	public Object singletonByName(BenchmarkState state) {
+		return state.beanFactory.getBean(state.beanName);
+	}
+
+	@Benchmark
+	public Object singletonByType(BenchmarkState state) {
+		return state.beanFactory.getBean(SingletonBean.class);
+	}
+
+	@Benchmark
+	public Object prototypeByName(BenchmarkState state) {
+		return state.beanFactory.getBean("prototype");
+	}
+
+	@Benchmark
+	public Object prototypeByType(BenchmarkState state) {
+		return state.beanFactory.getBean(PrototypeBean.class);
+	}
+
+
+	public static class FillerBean {
+	}
+
+
+	public static class Dependency {
+	}
+
+
+	public static class SingletonBean {
+
+		private final Dependency dependency;
+
+		public SingletonBean(Dependency dependency) {
+			this.dependency = dependency;
+		}
+
+		public Dependency getDependency() {
+			return this.dependency;
+		}
+	}
+
+
+	public static class PrototypeBean {
+
+		private final SingletonBean singletonBean;
+
+		public PrototypeBean(SingletonBean singletonBean) {
+			this.singletonBean = singletonBean;
+		}
+
+		public SingletonBean getSingletonBean() {
+			return this.singletonBean;
+		}
+	}
+
+}
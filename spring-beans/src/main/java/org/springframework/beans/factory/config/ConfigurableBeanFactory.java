@@ -27,6 +27,7 @@ import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.HierarchicalBeanFactory;
 import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.core.convert.ConversionService;
+import org.springframework.core.metrics.ApplicationStartup;
 import org.springframework.lang.Nullable;
 import org.springframework.util.StringValueResolver;
 
@@ -276,6 +277,21 @@ public interface ConfigurableBeanFactory extends HierarchicalBeanFactory, Single
 	@Nullable
 	Scope getRegisteredScope(String scopeName);
 
+	/**
+	 * Set the {@code ApplicationStartup} for this bean factory.
+	 * <p>This allows the bean factory to record metrics during
+	 * bean creation, for example the time spent instantiating each bean.
+	 * @param applicationStartup the new application startup
+	 * @since 5.2
+	 */
+	void setApplicationStartup(ApplicationStartup applicationStartup);
+
+	/**
+	 * Return the {@code ApplicationStartup} for this bean factory.
+	 * @since 5.2
+	 */
+	ApplicationStartup getApplicationStartup();
+
 	/**
 	 * Provides a security access control context relevant to this factory.
 	 * @return the applicable AccessControlContext (never {@code null})
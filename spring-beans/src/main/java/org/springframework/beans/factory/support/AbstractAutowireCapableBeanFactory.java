@@ -76,6 +76,7 @@ import org.springframework.core.NamedThreadLocal;
 import org.springframework.core.ParameterNameDiscoverer;
 import org.springframework.core.PriorityOrdered;
 import org.springframework.core.ResolvableType;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
@@ -476,67 +477,76 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 	protected Object createBean(String beanName, RootBeanDefinition mbd, @Nullable Object[] args)
 			throws BeanCreationException {
 
-		if (logger.isTraceEnabled()) {
-			logger.trace("Creating instance of bean '" + beanName + "'");
-		}
-		RootBeanDefinition mbdToUse = mbd;
+		StartupStep beanCreation = getApplicationStartup().start("spring.beans.instantiate")
+				.tag("beanName", beanName);
+		try {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Creating instance of bean '" + beanName + "'");
+			}
+			RootBeanDefinition mbdToUse = mbd;
 
-		// Make sure bean class is actually resolved at this point, and
-		// clone the bean definition in case of a dynamically resolved Class
-		// which cannot be stored in the shared merged bean definition.
-		// 1. 确保此时的 bean 已经被解析了
-		// 如果获取的class 属性不为null，则克隆该 BeanDefinition
-		// 主要是因为该动态解析的 class 无法保存到共享的 BeanDefinition
-		Class<?> resolvedClass = resolveBeanClass(mbd, beanName);
-		if (resolvedClass != null && !mbd.hasBeanClass() && mbd.getBeanClassName() != null) {
-			mbdToUse = new RootBeanDefinition(mbd);
-			mbdToUse.setBeanClass(resolvedClass);
-		}
+			// Make sure bean class is actually resolved at this point, and
+			// clone the bean definition in case of a dynamically resolved Class
+			// which cannot be stored in the shared merged bean definition.
+			// 1. 确保此时的 bean 已经被解析了
+			// 如果获取的class 属性不为null，则克隆该 BeanDefinition
+			// 主要是因为该动态解析的 class 无法保存到共享的 BeanDefinition
+			Class<?> resolvedClass = resolveBeanClass(mbd, beanName);
+			if (resolvedClass != null && !mbd.hasBeanClass() && mbd.getBeanClassName() != null) {
+				mbdToUse = new RootBeanDefinition(mbd);
+				mbdToUse.setBeanClass(resolvedClass);
+			}
 
-		// Prepare method overrides.
-		try {
-			// 2. 验证和准备覆盖方法
-			mbdToUse.prepareMethodOverrides();
-		}
-		catch (BeanDefinitionValidationException ex) {
-			throw new BeanDefinitionStoreException(mbdToUse.getResourceDescription(),
-					beanName, "Validation of method overrides failed", ex);
-		}
+			// Prepare method overrides.
+			try {
+				// 2. 验证和准备覆盖方法
+				mbdToUse.prepareMethodOverrides();
+			}
+			catch (BeanDefinitionValidationException ex) {
+				throw new BeanDefinitionStoreException(mbdToUse.getResourceDescription(),
+						beanName, "Validation of method overrides failed", ex);
+			}
 
-		try {
-			// Give BeanPostProcessors a chance to return a proxy instead of the target bean instance.
-			// 3. 实例化的前置处理
-			// 给 BeanPostProcessors 一个机会用来返回一个代理类而不是真正的类实例
-			// AOP 的功能就是基于这个地方
-			Object bean = resolveBeforeInstantiation(beanName, mbdToUse);
-			// 短路判断
-			// 如果前置处理返回的结果不为空，那么会直接略过后续的bean的创建而直接返回结果。
-			// 我们熟悉的AOP功能就是基于这里判断的。
-			if (bean != null) {
-				return bean;
+			try {
+				// Give BeanPostProcessors a chance to return a proxy instead of the target bean instance.
+				// 3. 实例化的前置处理
+				// 给 BeanPostProcessors 一个机会用来返回一个代理类而不是真正的类实例
+				// AOP 的功能就是基于这个地方
+				Object bean = resolveBeforeInstantiation(beanName, mbdToUse);
+				// 短路判断
+				// 如果前置处理返回的结果不为空，那么会直接略过后续的bean的创建而直接返回结果。
+				// 我们熟悉的AOP功能就是基于这里判断的。
+				if (bean != null) {
+					beanCreation.tag("beanType", () -> bean.getClass().getName());
+					return bean;
+				}
+			}
+			catch (Throwable ex) {
+				throw new BeanCreationException(mbdToUse.getResourceDescription(), beanName,
+						"BeanPostProcessor before instantiation of bean failed", ex);
 			}
-		}
-		catch (Throwable ex) {
-			throw new BeanCreationException(mbdToUse.getResourceDescription(), beanName,
-					"BeanPostProcessor before instantiation of bean failed", ex);
-		}
 
-		try {
-			// 4. 创建 Bean 对象
-			Object beanInstance = doCreateBean(beanName, mbdToUse, args);
-			if (logger.isTraceEnabled()) {
-				logger.trace("Finished creating instance of bean '" + beanName + "'");
+			try {
+				// 4. 创建 Bean 对象
+				Object beanInstance = doCreateBean(beanName, mbdToUse, args);
+				beanCreation.tag("beanType", () -> beanInstance.getClass().getName());
+				if (logger.isTraceEnabled()) {
+					logger.trace("Finished creating instance of bean '" + beanName + "'");
+				}
+				return beanInstance;
+			}
+			catch (BeanCreationException | ImplicitlyAppearedSingletonException ex) {
+				// A previously detected exception with proper bean creation context already,
+				// or illegal singleton state to be communicated up to DefaultSingletonBeanRegistry.
+				throw ex;
+			}
+			catch (Throwable ex) {
+				throw new BeanCreationException(
+						mbdToUse.getResourceDescription(), beanName, "Unexpected exception during bean creation", ex);
 			}
-			return beanInstance;
-		}
-		catch (BeanCreationException | ImplicitlyAppearedSingletonException ex) {
-			// A previously detected exception with proper bean creation context already,
-			// or illegal singleton state to be communicated up to DefaultSingletonBeanRegistry.
-			throw ex;
 		}
-		catch (Throwable ex) {
-			throw new BeanCreationException(
-					mbdToUse.getResourceDescription(), beanName, "Unexpected exception during bean creation", ex);
+		finally {
+			beanCreation.end();
 		}
 	}
 
@@ -1895,29 +1905,36 @@ public abstract class AbstractAutowireCapableBeanFactory extends AbstractBeanFac
 			invokeAwareMethods(beanName, bean);
 		}
 
-		Object wrappedBean = bean;
-		// RootBeanDefinition 为空，或者 RootBeanDefinition 是由用户定义
-		// 2. 后处理器的初始化前处理
-		if (mbd == null || !mbd.isSynthetic()) {
-			wrappedBean = applyBeanPostProcessorsBeforeInitialization(wrappedBean, beanName);
-		}
-
+		StartupStep beanInitialization = getApplicationStartup().start("spring.beans.initialize")
+				.tag("beanName", beanName);
 		try {
-			// 3. 激活用户自定义的 init 方法
-			invokeInitMethods(beanName, wrappedBean, mbd);
-		}
-		catch (Throwable ex) {
-			throw new BeanCreationException(
-					(mbd != null ? mbd.getResourceDescription() : null),
-					beanName, "Invocation of init method failed", ex);
+			Object wrappedBean = bean;
+			// RootBeanDefinition 为空，或者 RootBeanDefinition 是由用户定义
+			// 2. 后处理器的初始化前处理
+			if (mbd == null || !mbd.isSynthetic()) {
+				wrappedBean = applyBeanPostProcessorsBeforeInitialization(wrappedBean, beanName);
+			}
+
+			try {
+				// 3. 激活用户自定义的 init 方法
+				invokeInitMethods(beanName, wrappedBean, mbd);
+			}
+			catch (Throwable ex) {
+				throw new BeanCreationException(
+						(mbd != null ? mbd.getResourceDescription() : null),
+						beanName, "Invocation of init method failed", ex);
+			}
+			// RootBeanDefinition 为空，或者 RootBeanDefinition 是由用户定义
+			// 4. 后处理器的初始化后处理
+			if (mbd == null || !mbd.isSynthetic()) {
+				wrappedBean = applyBeanPostProcessorsAfterInitialization(wrappedBean, beanName);
+			}
+
+			return wrappedBean;
 		}
-		// RootBeanDefinition 为空，或者 RootBeanDefinition 是由用户定义
-		// 4. 后处理器的初始化后处理
-		if (mbd == null || !mbd.isSynthetic()) {
-			wrappedBean = applyBeanPostProcessorsAfterInitialization(wrappedBean, beanName);
+		finally {
+			beanInitialization.end();
 		}
-
-		return wrappedBean;
 	}
 
 	private void invokeAwareMethods(final String beanName, final Object bean) {
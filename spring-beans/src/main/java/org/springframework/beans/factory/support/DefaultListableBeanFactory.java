@@ -27,10 +27,14 @@ import java.lang.ref.WeakReference;
 import java.lang.reflect.Method;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -40,11 +44,17 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Stream;
 import javax.inject.Provider;
 
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.BeansException;
+import org.springframework.beans.PropertyValue;
 import org.springframework.beans.TypeConverter;
 import org.springframework.beans.factory.BeanCreationException;
 import org.springframework.beans.factory.BeanCurrentlyInCreationException;
@@ -66,8 +76,10 @@ import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.BeanDefinitionHolder;
 import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.beans.factory.config.BeanReference;
 import org.springframework.beans.factory.config.ConfigurableBeanFactory;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues.ValueHolder;
 import org.springframework.beans.factory.config.DependencyDescriptor;
 import org.springframework.beans.factory.config.NamedBeanHolder;
 import org.springframework.core.OrderComparator;
@@ -180,6 +192,10 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	/** Whether bean definition metadata may be cached for all beans. */
 	private volatile boolean configurationFrozen = false;
 
+	/** Optional Executor for pre-instantiating independent singletons in parallel. */
+	@Nullable
+	private Executor preInstantiationExecutor;
+
 
 	/**
 	 * Create a new DefaultListableBeanFactory.
@@ -264,6 +280,39 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		return this.allowEagerClassLoading;
 	}
 
+	/**
+	 * Specify an {@link Executor} for pre-instantiating singletons in parallel.
+	 * <p>Default is none, creating all non-lazy singletons sequentially on the
+	 * calling thread in registration order. If specified, the dependency graph
+	 * between the singletons is derived from their bean definitions ("depends-on",
+	 * bean references and factory beans), and singletons whose dependencies have
+	 * been created are handed to the given Executor, so that independent subtrees
+	 * of the graph get created concurrently. Dependencies that are only discovered
+	 * at creation time (e.g. through autowiring) are waited for as needed.
+	 * <p>Singletons that are part of a circular reference, or that depend on one,
+	 * are created sequentially on the calling thread, just like singletons which
+	 * ran into a circular reference across threads during parallel creation.
+	 * {@link SmartInitializingSingleton} callbacks are always invoked sequentially
+	 * once all singletons have been created.
+	 * <p>The given Executor should be bounded, e.g. a fixed-size thread pool:
+	 * its size determines the degree of parallelism. Tasks rejected by the
+	 * Executor are run on the submitting thread.
+	 * @since 5.2
+	 * @see #preInstantiateSingletons()
+	 */
+	public void setPreInstantiationExecutor(@Nullable Executor preInstantiationExecutor) {
+		this.preInstantiationExecutor = preInstantiationExecutor;
+	}
+
+	/**
+	 * Return the {@link Executor} for pre-instantiating singletons in parallel, if any.
+	 * @since 5.2
+	 */
+	@Nullable
+	public Executor getPreInstantiationExecutor() {
+		return this.preInstantiationExecutor;
+	}
+
 	/**
 	 * Set a {@link java.util.Comparator} for dependency Lists and arrays.
 	 * @since 4.0
@@ -320,6 +369,7 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 			this.allowBeanDefinitionOverriding = otherListableFactory.allowBeanDefinitionOverriding;
 			this.allowEagerClassLoading = otherListableFactory.allowEagerClassLoading;
 			this.dependencyComparator = otherListableFactory.dependencyComparator;
+			this.preInstantiationExecutor = otherListableFactory.preInstantiationExecutor;
 			// A clone of the AutowireCandidateResolver since it is potentially BeanFactoryAware...
 			setAutowireCandidateResolver(BeanUtils.instantiateClass(getAutowireCandidateResolver().getClass()));
 			// Make resolvable dependencies (e.g. ResourceLoader) available here as well...
@@ -835,31 +885,12 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		List<String> beanNames = new ArrayList<>(this.beanDefinitionNames);
 
 		// Trigger initialization of all non-lazy singleton beans...
-		for (String beanName : beanNames) {
-			RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
-			if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
-				if (isFactoryBean(beanName)) {
-					Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
-					if (bean instanceof FactoryBean) {
-						final FactoryBean<?> factory = (FactoryBean<?>) bean;
-						boolean isEagerInit;
-						if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
-							isEagerInit = AccessController.doPrivileged((PrivilegedAction<Boolean>)
-											((SmartFactoryBean<?>) factory)::isEagerInit,
-									getAccessControlContext());
-						}
-						else {
-							isEagerInit = (factory instanceof SmartFactoryBean &&
-									((SmartFactoryBean<?>) factory).isEagerInit());
-						}
-						if (isEagerInit) {
-							getBean(beanName);
-						}
-					}
-				}
-				else {
-					getBean(beanName);
-				}
+		if (this.preInstantiationExecutor != null) {
+			new ParallelPreInstantiation(this.preInstantiationExecutor).preInstantiate(beanNames);
+		}
+		else {
+			for (String beanName : beanNames) {
+				preInstantiateSingleton(beanName);
 			}
 		}
 
@@ -882,6 +913,39 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 	}
 
 
+	/**
+	 * Instantiate the given bean if it is a non-lazy singleton,
+	 * including its object if it is an eagerly initializing FactoryBean.
+	 * @param beanName the name of the bean
+	 */
+	private void preInstantiateSingleton(String beanName) {
+		RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+		if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+			if (isFactoryBean(beanName)) {
+				Object bean = getBean(FACTORY_BEAN_PREFIX + beanName);
+				if (bean instanceof FactoryBean) {
+					final FactoryBean<?> factory = (FactoryBean<?>) bean;
+					boolean isEagerInit;
+					if (System.getSecurityManager() != null && factory instanceof SmartFactoryBean) {
+						isEagerInit = AccessController.doPrivileged((PrivilegedAction<Boolean>)
+										((SmartFactoryBean<?>) factory)::isEagerInit,
+								getAccessControlContext());
+					}
+					else {
+						isEagerInit = (factory instanceof SmartFactoryBean &&
+								((SmartFactoryBean<?>) factory).isEagerInit());
+					}
+					if (isEagerInit) {
+						getBean(beanName);
+					}
+				}
+			}
+			else {
+				getBean(beanName);
+			}
+		}
+	}
+
 	//---------------------------------------------------------------------
 	// Implementation of BeanDefinitionRegistry interface
 	//---------------------------------------------------------------------
@@ -2061,4 +2125,210 @@ public class DefaultListableBeanFactory extends AbstractAutowireCapableBeanFacto
 		}
 	}
 
+
+	/**
+	 * Pre-instantiates non-lazy singletons on a given {@link Executor}, following
+	 * the dependency graph declared by their bean definitions: a singleton is
+	 * handed to the Executor once all of its declared dependencies have been
+	 * created, with singletons in (or depending on) circular references as well
+	 * as singletons which ran into a circular reference across threads being
+	 * created sequentially afterwards.
+	 */
+	private class ParallelPreInstantiation {
+
+		private final Executor executor;
+
+		private final Map<String, Set<String>> dependentBeans = new HashMap<>();
+
+		private final Map<String, AtomicInteger> pendingDependencies = new HashMap<>();
+
+		private final Set<String> deferredBeans = Collections.newSetFromMap(new ConcurrentHashMap<>(16));
+
+		private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+		@Nullable
+		private ClassLoader classLoader;
+
+		@Nullable
+		private CountDownLatch remainingBeans;
+
+		public ParallelPreInstantiation(Executor executor) {
+			this.executor = executor;
+		}
+
+		public void preInstantiate(List<String> beanNames) {
+			Set<String> singletonNames = new LinkedHashSet<>();
+			for (String beanName : beanNames) {
+				RootBeanDefinition bd = getMergedLocalBeanDefinition(beanName);
+				if (!bd.isAbstract() && bd.isSingleton() && !bd.isLazyInit()) {
+					singletonNames.add(beanName);
+				}
+			}
+			List<String> readyBeans = new ArrayList<>();
+			for (String beanName : singletonNames) {
+				Set<String> dependencies = getDeclaredDependencies(getMergedLocalBeanDefinition(beanName));
+				dependencies.retainAll(singletonNames);
+				for (String dependency : dependencies) {
+					this.dependentBeans.computeIfAbsent(dependency, key -> new LinkedHashSet<>()).add(beanName);
+				}
+				this.pendingDependencies.put(beanName, new AtomicInteger(dependencies.size()));
+				if (dependencies.isEmpty()) {
+					readyBeans.add(beanName);
+				}
+			}
+			Set<String> parallelBeans = determineAcyclicBeans(readyBeans);
+
+			if (logger.isDebugEnabled()) {
+				logger.debug("Pre-instantiating " + parallelBeans.size() + " singletons in parallel and " +
+						(singletonNames.size() - parallelBeans.size()) + " sequentially in " + DefaultListableBeanFactory.this);
+			}
+			if (!parallelBeans.isEmpty()) {
+				this.classLoader = Thread.currentThread().getContextClassLoader();
+				this.remainingBeans = new CountDownLatch(parallelBeans.size());
+				boolean interrupted = false;
+				setConcurrentSingletonCreation(true);
+				try {
+					for (String beanName : readyBeans) {
+						submit(beanName);
+					}
+					while (true) {
+						try {
+							this.remainingBeans.await();
+							break;
+						}
+						catch (InterruptedException ex) {
+							// Stop scheduling further beans but let running creations complete.
+							interrupted = true;
+							this.failure.compareAndSet(null, new BeanCreationException(
+									"Interrupted during parallel pre-instantiation of singletons"));
+						}
+					}
+				}
+				finally {
+					setConcurrentSingletonCreation(false);
+					if (interrupted) {
+						Thread.currentThread().interrupt();
+					}
+				}
+				Throwable ex = this.failure.get();
+				if (ex instanceof RuntimeException) {
+					throw (RuntimeException) ex;
+				}
+				if (ex instanceof Error) {
+					throw (Error) ex;
+				}
+				if (ex != null) {
+					throw new BeanCreationException("Parallel pre-instantiation of singletons failed", ex);
+				}
+			}
+
+			// Circular references: create sequentially, in registration order.
+			for (String beanName : singletonNames) {
+				if (!parallelBeans.contains(beanName) || this.deferredBeans.contains(beanName)) {
+					preInstantiateSingleton(beanName);
+				}
+			}
+		}
+
+		private Set<String> getDeclaredDependencies(RootBeanDefinition bd) {
+			Set<String> dependencies = new LinkedHashSet<>();
+			String[] dependsOn = bd.getDependsOn();
+			if (dependsOn != null) {
+				for (String dependency : dependsOn) {
+					dependencies.add(transformedBeanName(dependency));
+				}
+			}
+			if (bd.getFactoryBeanName() != null) {
+				dependencies.add(transformedBeanName(bd.getFactoryBeanName()));
+			}
+			if (bd.hasPropertyValues()) {
+				for (PropertyValue pv : bd.getPropertyValues().getPropertyValues()) {
+					addReferencedBeanName(pv.getValue(), dependencies);
+				}
+			}
+			if (bd.hasConstructorArgumentValues()) {
+				for (ValueHolder valueHolder : bd.getConstructorArgumentValues().getIndexedArgumentValues().values()) {
+					addReferencedBeanName(valueHolder.getValue(), dependencies);
+				}
+				for (ValueHolder valueHolder : bd.getConstructorArgumentValues().getGenericArgumentValues()) {
+					addReferencedBeanName(valueHolder.getValue(), dependencies);
+				}
+			}
+			return dependencies;
+		}
+
+		private void addReferencedBeanName(@Nullable Object value, Set<String> dependencies) {
+			if (value instanceof BeanReference) {
+				dependencies.add(transformedBeanName(((BeanReference) value).getBeanName()));
+			}
+		}
+
+		/**
+		 * Determine the beans that can be reached from the given ready beans
+		 * in dependency order, i.e. excluding circular references.
+		 */
+		private Set<String> determineAcyclicBeans(List<String> readyBeans) {
+			Map<String, Integer> pendingCounts = new HashMap<>(this.pendingDependencies.size());
+			this.pendingDependencies.forEach((beanName, count) -> pendingCounts.put(beanName, count.get()));
+			Set<String> acyclicBeans = new LinkedHashSet<>(readyBeans);
+			Deque<String> queue = new ArrayDeque<>(readyBeans);
+			while (!queue.isEmpty()) {
+				for (String dependentBean : this.dependentBeans.getOrDefault(queue.poll(), Collections.emptySet())) {
+					int count = pendingCounts.merge(dependentBean, -1, Integer::sum);
+					if (count == 0) {
+						acyclicBeans.add(dependentBean);
+						queue.add(dependentBean);
+					}
+				}
+			}
+			return acyclicBeans;
+		}
+
+		private void submit(String beanName) {
+			try {
+				this.executor.execute(() -> preInstantiate(beanName));
+			}
+			catch (RejectedExecutionException ex) {
+				preInstantiate(beanName);
+			}
+		}
+
+		private void preInstantiate(String beanName) {
+			Thread currentThread = Thread.currentThread();
+			ClassLoader previousClassLoader = currentThread.getContextClassLoader();
+			try {
+				if (this.failure.get() == null) {
+					currentThread.setContextClassLoader(this.classLoader);
+					preInstantiateSingleton(beanName);
+				}
+			}
+			catch (BeansException ex) {
+				if (ex.contains(BeanCurrentlyInCreationException.class)) {
+					// Circular reference across threads: retry sequentially later on.
+					if (logger.isDebugEnabled()) {
+						logger.debug("Deferring creation of singleton bean '" + beanName +
+								"' after circular reference across threads: " + ex);
+					}
+					this.deferredBeans.add(beanName);
+				}
+				else {
+					this.failure.compareAndSet(null, ex);
+				}
+			}
+			catch (Throwable ex) {
+				this.failure.compareAndSet(null, ex);
+			}
+			finally {
+				currentThread.setContextClassLoader(previousClassLoader);
+				for (String dependentBean : this.dependentBeans.getOrDefault(beanName, Collections.emptySet())) {
+					if (this.pendingDependencies.get(dependentBean).decrementAndGet() == 0) {
+						submit(dependentBean);
+					}
+				}
+				Assert.state(this.remainingBeans != null, "No pre-instantiation in progress");
+				this.remainingBeans.countDown();
+			}
+		}
+	}
+
 }
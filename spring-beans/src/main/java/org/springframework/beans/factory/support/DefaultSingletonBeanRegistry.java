@@ -98,6 +98,15 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	private final Set<String> singletonsCurrentlyInCreation =
 			Collections.newSetFromMap(new ConcurrentHashMap<>(16));
 
+	/** Threads that are currently creating a singleton: bean name to creating thread. */
+	private final Map<String, Thread> singletonCreationThreads = new ConcurrentHashMap<>(16);
+
+	/** Threads waiting for a singleton in creation on another thread: thread to bean name. */
+	private final Map<Thread, String> singletonWaitingThreads = new ConcurrentHashMap<>(16);
+
+	/** Whether singletons may currently be created by several threads at the same time. */
+	private volatile boolean concurrentSingletonCreation = false;
+
 	/** Names of beans currently excluded from in creation checks. */
 	private final Set<String> inCreationCheckExclusions =
 			Collections.newSetFromMap(new ConcurrentHashMap<>(16));
@@ -200,7 +209,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		// singletonObjects : 单例缓存
 		Object singletonObject = this.singletonObjects.get(beanName);
 		// 缓存中不存在当前bean 并且 当前的bean正在创建
-		if (singletonObject == null && isSingletonCurrentlyInCreation(beanName)) {
+		if (singletonObject == null && isSingletonCurrentlyInCreationOnCurrentThread(beanName)) {
 			synchronized (this.singletonObjects) {
 				// 从提早曝光的缓存中获取
 				singletonObject = this.earlySingletonObjects.get(beanName);
@@ -234,6 +243,9 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 	 */
 	public Object getSingleton(String beanName, ObjectFactory<?> singletonFactory) {
 		Assert.notNull(beanName, "Bean name must not be null");
+		if (this.concurrentSingletonCreation) {
+			return getSingletonConcurrently(beanName, singletonFactory);
+		}
 		synchronized (this.singletonObjects) {
 			// 从缓存中获取beanName对应的bean实例
 			// 如果存在，直接返回
@@ -293,6 +305,143 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		}
 	}
 
+	/**
+	 * Variant of {@link #getSingleton(String, ObjectFactory)} for concurrent
+	 * singleton creation: the singleton lock is only held for checking and
+	 * registering the singleton, not while invoking the given factory.
+	 * <p>A thread asking for a singleton that is in creation on another thread
+	 * waits for that creation to complete, unless the other thread is (directly
+	 * or indirectly) waiting for a singleton in creation on the current thread:
+	 * in that case, a {@link BeanCurrentlyInCreationException} is thrown for the
+	 * caller to back off and retry sequentially, since early singleton references
+	 * are never exposed across threads. The same applies if the current thread
+	 * already holds the singleton mutex (e.g. while obtaining an object from a
+	 * singleton FactoryBean), since waiting on the mutex would release it for
+	 * other threads in the middle of the caller's atomic section.
+	 * @param beanName the name of the bean
+	 * @param singletonFactory the ObjectFactory to lazily create the singleton
+	 * with, if necessary
+	 * @return the registered singleton object
+	 * @see #setConcurrentSingletonCreation
+	 */
+	private Object getSingletonConcurrently(String beanName, ObjectFactory<?> singletonFactory) {
+		Thread currentThread = Thread.currentThread();
+		boolean holdsMutex = Thread.holdsLock(this.singletonObjects);
+		synchronized (this.singletonObjects) {
+			Object singletonObject = this.singletonObjects.get(beanName);
+			while (singletonObject == null) {
+				if (this.singletonsCurrentlyInDestruction) {
+					throw new BeanCreationNotAllowedException(beanName,
+							"Singleton bean creation not allowed while singletons of this factory are in destruction " +
+							"(Do not request a bean from a BeanFactory in a destroy method implementation!)");
+				}
+				Thread creatingThread = this.singletonCreationThreads.get(beanName);
+				if (creatingThread == null || creatingThread == currentThread) {
+					break;
+				}
+				if (isWaitingForCurrentThread(creatingThread)) {
+					throw new BeanCurrentlyInCreationException(beanName, "Requested bean is currently in creation " +
+							"on thread '" + creatingThread.getName() + "' which is waiting for a bean in creation " +
+							"on the current thread: Is there an unresolvable circular reference?");
+				}
+				if (holdsMutex) {
+					throw new BeanCurrentlyInCreationException(beanName, "Requested bean is currently in creation " +
+							"on thread '" + creatingThread.getName() + "' while the current thread holds the " +
+							"singleton mutex: Cannot wait for it without releasing the mutex");
+				}
+				this.singletonWaitingThreads.put(currentThread, beanName);
+				try {
+					this.singletonObjects.wait();
+				}
+				catch (InterruptedException ex) {
+					currentThread.interrupt();
+					throw new BeanCreationException(beanName,
+							"Interrupted while waiting for singleton creation on thread '" + creatingThread.getName() + "'");
+				}
+				finally {
+					this.singletonWaitingThreads.remove(currentThread);
+				}
+				singletonObject = this.singletonObjects.get(beanName);
+			}
+			if (singletonObject != null) {
+				return singletonObject;
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Creating shared instance of singleton bean '" + beanName + "'");
+			}
+			beforeSingletonCreation(beanName);
+		}
+
+		Object singletonObject = null;
+		boolean newSingleton = false;
+		try {
+			singletonObject = singletonFactory.getObject();
+			newSingleton = true;
+		}
+		catch (IllegalStateException ex) {
+			// Has the singleton object implicitly appeared in the meantime ->
+			// if yes, proceed with it since the exception indicates that state.
+			singletonObject = this.singletonObjects.get(beanName);
+			if (singletonObject == null) {
+				throw ex;
+			}
+		}
+		finally {
+			synchronized (this.singletonObjects) {
+				if (newSingleton) {
+					Object existingObject = this.singletonObjects.get(beanName);
+					if (existingObject != null) {
+						singletonObject = existingObject;
+					}
+					else {
+						addSingleton(beanName, singletonObject);
+					}
+				}
+				afterSingletonCreation(beanName);
+				this.singletonObjects.notifyAll();
+			}
+		}
+		return singletonObject;
+	}
+
+	/**
+	 * Determine whether the given thread is waiting, directly or through a chain
+	 * of other waiting threads, for a singleton in creation on the current thread.
+	 * @param thread the thread currently creating a requested singleton
+	 */
+	private boolean isWaitingForCurrentThread(Thread thread) {
+		Thread currentThread = Thread.currentThread();
+		Set<Thread> visited = new HashSet<>();
+		Thread candidate = thread;
+		while (candidate != null && visited.add(candidate)) {
+			String awaitedBeanName = this.singletonWaitingThreads.get(candidate);
+			if (awaitedBeanName == null) {
+				return false;
+			}
+			candidate = this.singletonCreationThreads.get(awaitedBeanName);
+			if (candidate == currentThread) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Specify whether singletons may be created by several threads at the same
+	 * time, e.g. during parallel pre-instantiation of singletons.
+	 * <p>In this mode, the singleton lock is not held while a singleton is being
+	 * created, so independent singletons can be created concurrently. A thread
+	 * asking for a singleton in creation on another thread waits for it, and early
+	 * singleton references (for resolving circular references) are only exposed
+	 * to the thread that created them.
+	 * @param concurrentSingletonCreation whether concurrent singleton creation is allowed
+	 * @since 5.2
+	 * @see #isSingletonCurrentlyInCreationOnCurrentThread
+	 */
+	protected void setConcurrentSingletonCreation(boolean concurrentSingletonCreation) {
+		this.concurrentSingletonCreation = concurrentSingletonCreation;
+	}
+
 	/**
 	 * Register an Exception that happened to get suppressed during the creation of a
 	 * singleton bean instance, e.g. a temporary circular reference resolution problem.
@@ -369,6 +518,20 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		return this.singletonsCurrentlyInCreation.contains(beanName);
 	}
 
+	/**
+	 * Return whether the specified singleton bean is currently in creation
+	 * on the current thread.
+	 * <p>Only differs from {@link #isSingletonCurrentlyInCreation} while
+	 * singletons are being created concurrently.
+	 * @param beanName the name of the bean
+	 * @since 5.2
+	 * @see #setConcurrentSingletonCreation
+	 */
+	protected boolean isSingletonCurrentlyInCreationOnCurrentThread(String beanName) {
+		return (isSingletonCurrentlyInCreation(beanName) && (!this.concurrentSingletonCreation ||
+				this.singletonCreationThreads.get(beanName) == Thread.currentThread()));
+	}
+
 	/**
 	 * Callback before singleton creation.
 	 * <p>The default implementation register the singleton as currently in creation.
@@ -379,6 +542,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		if (!this.inCreationCheckExclusions.contains(beanName) && !this.singletonsCurrentlyInCreation.add(beanName)) {
 			throw new BeanCurrentlyInCreationException(beanName);
 		}
+		this.singletonCreationThreads.put(beanName, Thread.currentThread());
 	}
 
 	/**
@@ -391,6 +555,7 @@ public class DefaultSingletonBeanRegistry extends SimpleAliasRegistry implements
 		if (!this.inCreationCheckExclusions.contains(beanName) && !this.singletonsCurrentlyInCreation.remove(beanName)) {
 			throw new IllegalStateException("Singleton '" + beanName + "' isn't currently in creation");
 		}
+		this.singletonCreationThreads.remove(beanName);
 	}
 
 
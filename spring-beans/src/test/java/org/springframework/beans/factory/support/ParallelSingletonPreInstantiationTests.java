@@ -0,0 +1,374 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.beans.factory.support;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Test;
+
+import org.springframework.beans.factory.BeanCreationException;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.BeanFactoryAware;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.SmartFactoryBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for parallel singleton pre-instantiation in {@link DefaultListableBeanFactory}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ParallelSingletonPreInstantiationTests {
+
+	private final ExecutorService executor = Executors.newFixedThreadPool(4);
+
+
+	@After
+	public void shutdownExecutor() {
+		this.executor.shutdownNow();
+	}
+
+
+	@Test
+	public void independentSingletonsAreCreatedConcurrently() {
+		DefaultListableBeanFactory bf = createBeanFactory();
+		CyclicBarrier barrier = new CyclicBarrier(4);
+		for (int i = 0; i < 4; i++) {
+			bf.registerBeanDefinition("bean" + i, BeanDefinitionBuilder.genericBeanDefinition(BarrierBean.class)
+					.addConstructorArgValue(barrier).getBeanDefinition());
+		}
+
+		bf.preInstantiateSingletons();
+
+		for (int i = 0; i < 4; i++) {
+			assertTrue(bf.getBean("bean" + i, BarrierBean.class).passed);
+		}
+	}
+
+	@Test
+	public void declaredDependenciesAreCreatedFirst() {
+		DefaultListableBeanFactory bf = createBeanFactory();
+		bf.registerBeanDefinition("c", BeanDefinitionBuilder.genericBeanDefinition(DependentBean.class)
+				.addPropertyReference("dependency", "b").getBeanDefinition());
+		bf.registerBeanDefinition("b", BeanDefinitionBuilder.genericBeanDefinition(DependentBean.class)
+				.addConstructorArgReference("a").getBeanDefinition());
+		bf.registerBeanDefinition("a", BeanDefinitionBuilder.genericBeanDefinition(DependentBean.class)
+				.getBeanDefinition());
+		bf.registerBeanDefinition("d", BeanDefinitionBuilder.genericBeanDefinition(DependentBean.class)
+				.addDependsOn("c").getBeanDefinition());
+
+		bf.preInstantiateSingletons();
+
+		DependentBean c = bf.getBean("c", DependentBean.class);
+		assertSame(bf.getBean("b"), c.dependency);
+		assertSame(bf.getBean("a"), c.dependency.dependency);
+		assertTrue(c.initializedDependency);
+		assertTrue(c.dependency.initializedDependency);
+		assertTrue(bf.getBean("d", DependentBean.class).initialized);
+	}
+
+	@Test
+	public void declaredCircularReferencesAreCreatedSequentially() {
+		DefaultListableBeanFactory bf = createBeanFactory();
+		bf.registerBeanDefinition("a", BeanDefinitionBuilder.genericBeanDefinition(DependentBean.class)
+				.addPropertyReference("dependency", "b").getBeanDefinition());
+		bf.registerBeanDefinition("b", BeanDefinitionBuilder.genericBeanDefinition(DependentBean.class)
+				.addPropertyReference("dependency", "a").getBeanDefinition());
+		bf.registerBeanDefinition("c", BeanDefinitionBuilder.genericBeanDefinition(DependentBean.class)
+				.addPropertyReference("dependency", "a").getBeanDefinition());
+
+		bf.preInstantiateSingletons();
+
+		DependentBean a = bf.getBean("a", DependentBean.class);
+		DependentBean b = bf.getBean("b", DependentBean.class);
+		assertSame(b, a.dependency);
+		assertSame(a, b.dependency);
+		assertSame(a, bf.getBean("c", DependentBean.class).dependency);
+	}
+
+	@Test
+	public void undeclaredCircularReferencesAreResolved() {
+		for (int run = 0; run < 50; run++) {
+			DefaultListableBeanFactory bf = createBeanFactory();
+			for (int i = 0; i < 8; i++) {
+				bf.registerBeanDefinition("bean" + i, BeanDefinitionBuilder.genericBeanDefinition(LookupBean.class)
+						.addPropertyValue("dependencyName", "bean" + ((i + 1) % 8)).getBeanDefinition());
+			}
+
+			bf.preInstantiateSingletons();
+
+			for (int i = 0; i < 8; i++) {
+				LookupBean bean = bf.getBean("bean" + i, LookupBean.class);
+				assertSame(bf.getBean("bean" + ((i + 1) % 8)), bean.dependency);
+			}
+		}
+	}
+
+	@Test
+	public void undeclaredDependenciesAreAwaited() {
+		for (int run = 0; run < 50; run++) {
+			DefaultListableBeanFactory bf = createBeanFactory();
+			for (int i = 7; i >= 0; i--) {
+				BeanDefinitionBuilder builder = BeanDefinitionBuilder.genericBeanDefinition(LookupBean.class);
+				if (i > 0) {
+					builder.addPropertyValue("dependencyName", "bean" + (i - 1));
+				}
+				bf.registerBeanDefinition("bean" + i, builder.getBeanDefinition());
+			}
+
+			bf.preInstantiateSingletons();
+
+			for (int i = 1; i < 8; i++) {
+				LookupBean bean = bf.getBean("bean" + i, LookupBean.class);
+				assertSame(bf.getBean("bean" + (i - 1)), bean.dependency);
+				assertTrue(bean.initializedDependency);
+			}
+		}
+	}
+
+	@Test
+	public void factoryBeanObjectIsCreatedOnceWhileDependencyIsInCreation() {
+		for (int run = 0; run < 20; run++) {
+			DefaultListableBeanFactory bf = createBeanFactory();
+			CountDownLatch productRequested = new CountDownLatch(1);
+			bf.registerBeanDefinition("slow", BeanDefinitionBuilder.genericBeanDefinition(SlowBean.class)
+					.addConstructorArgValue(productRequested).getBeanDefinition());
+			bf.registerBeanDefinition("product", BeanDefinitionBuilder.genericBeanDefinition(LookupFactoryBean.class)
+					.addConstructorArgValue(productRequested).getBeanDefinition());
+			for (int i = 0; i < 2; i++) {
+				bf.registerBeanDefinition("consumer" + i, BeanDefinitionBuilder.genericBeanDefinition(ProductConsumer.class)
+						.getBeanDefinition());
+			}
+
+			bf.preInstantiateSingletons();
+
+			Object product = bf.getBean("product");
+			assertSame(bf.getBean("slow"), ((DependentBean) product).dependency);
+			assertSame(product, bf.getBean("consumer0", ProductConsumer.class).product);
+			assertSame(product, bf.getBean("consumer1", ProductConsumer.class).product);
+			assertEquals(1, bf.getBean("&product", LookupFactoryBean.class).objectsCreated.get());
+		}
+	}
+
+	@Test
+	public void creationFailureIsPropagated() {
+		DefaultListableBeanFactory bf = createBeanFactory();
+		bf.registerBeanDefinition("a", new RootBeanDefinition(DependentBean.class));
+		bf.registerBeanDefinition("b", new RootBeanDefinition(FailingBean.class));
+		bf.registerBeanDefinition("c", BeanDefinitionBuilder.genericBeanDefinition(DependentBean.class)
+				.addPropertyReference("dependency", "a").getBeanDefinition());
+
+		try {
+			bf.preInstantiateSingletons();
+			fail("Should have thrown BeanCreationException");
+		}
+		catch (BeanCreationException ex) {
+			assertEquals("b", ex.getBeanName());
+		}
+		assertFalse(bf.containsSingleton("b"));
+	}
+
+	@Test
+	public void rejectedTasksAreRunOnSubmittingThread() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.setPreInstantiationExecutor(task -> {
+			throw new RejectedExecutionException();
+		});
+		bf.registerBeanDefinition("a", new RootBeanDefinition(DependentBean.class));
+		bf.registerBeanDefinition("b", BeanDefinitionBuilder.genericBeanDefinition(DependentBean.class)
+				.addPropertyReference("dependency", "a").getBeanDefinition());
+
+		bf.preInstantiateSingletons();
+
+		assertSame(bf.getBean("a"), bf.getBean("b", DependentBean.class).dependency);
+	}
+
+
+	private DefaultListableBeanFactory createBeanFactory() {
+		DefaultListableBeanFactory bf = new DefaultListableBeanFactory();
+		bf.setPreInstantiationExecutor(this.executor);
+		return bf;
+	}
+
+
+	public static class BarrierBean implements InitializingBean {
+
+		private final CyclicBarrier barrier;
+
+		boolean passed;
+
+		public BarrierBean(CyclicBarrier barrier) {
+			this.barrier = barrier;
+		}
+
+		@Override
+		public void afterPropertiesSet() throws Exception {
+			this.barrier.await(10, TimeUnit.SECONDS);
+			this.passed = true;
+		}
+	}
+
+
+	public static class DependentBean implements InitializingBean {
+
+		DependentBean dependency;
+
+		boolean initialized;
+
+		boolean initializedDependency;
+
+		public DependentBean() {
+		}
+
+		public DependentBean(DependentBean dependency) {
+			this.dependency = dependency;
+		}
+
+		public void setDependency(DependentBean dependency) {
+			this.dependency = dependency;
+		}
+
+		@Override
+		public void afterPropertiesSet() throws InterruptedException {
+			Thread.sleep(1);
+			this.initializedDependency = (this.dependency != null && this.dependency.initialized);
+			this.initialized = true;
+		}
+	}
+
+
+	public static class LookupBean implements BeanFactoryAware, InitializingBean {
+
+		private BeanFactory beanFactory;
+
+		private String dependencyName;
+
+		LookupBean dependency;
+
+		boolean initialized;
+
+		boolean initializedDependency;
+
+		@Override
+		public void setBeanFactory(BeanFactory beanFactory) {
+			this.beanFactory = beanFactory;
+		}
+
+		public void setDependencyName(String dependencyName) {
+			this.dependencyName = dependencyName;
+		}
+
+		@Override
+		public void afterPropertiesSet() {
+			if (this.dependencyName != null) {
+				this.dependency = this.beanFactory.getBean(this.dependencyName, LookupBean.class);
+				this.initializedDependency = this.dependency.initialized;
+			}
+			this.initialized = true;
+		}
+	}
+
+
+	public static class SlowBean extends DependentBean {
+
+		private final CountDownLatch productRequested;
+
+		public SlowBean(CountDownLatch productRequested) {
+			this.productRequested = productRequested;
+		}
+
+		@Override
+		public void afterPropertiesSet() throws InterruptedException {
+			this.productRequested.await(10, TimeUnit.SECONDS);
+			Thread.sleep(50);
+			super.afterPropertiesSet();
+		}
+	}
+
+
+	public static class LookupFactoryBean implements SmartFactoryBean<DependentBean>, BeanFactoryAware {
+
+		private final CountDownLatch productRequested;
+
+		private BeanFactory beanFactory;
+
+		final AtomicInteger objectsCreated = new AtomicInteger();
+
+		public LookupFactoryBean(CountDownLatch productRequested) {
+			this.productRequested = productRequested;
+		}
+
+		@Override
+		public void setBeanFactory(BeanFactory beanFactory) {
+			this.beanFactory = beanFactory;
+		}
+
+		@Override
+		public DependentBean getObject() {
+			this.productRequested.countDown();
+			DependentBean product = new DependentBean(this.beanFactory.getBean("slow", DependentBean.class));
+			this.objectsCreated.incrementAndGet();
+			return product;
+		}
+
+		@Override
+		public Class<?> getObjectType() {
+			return DependentBean.class;
+		}
+
+		@Override
+		public boolean isEagerInit() {
+			return true;
+		}
+	}
+
+
+	public static class ProductConsumer implements BeanFactoryAware, InitializingBean {
+
+		private BeanFactory beanFactory;
+
+		Object product;
+
+		@Override
+		public void setBeanFactory(BeanFactory beanFactory) {
+			this.beanFactory = beanFactory;
+		}
+
+		@Override
+		public void afterPropertiesSet() {
+			this.product = this.beanFactory.getBean("product");
+		}
+	}
+
+
+	public static class FailingBean implements InitializingBean {
+
+		@Override
+		public void afterPropertiesSet() {
+			throw new IllegalStateException("Expected failure");
+		}
+	}
+
+}
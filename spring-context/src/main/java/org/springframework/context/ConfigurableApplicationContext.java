@@ -24,6 +24,7 @@ import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.core.env.ConfigurableEnvironment;
 import org.springframework.core.env.Environment;
 import org.springframework.core.io.ProtocolResolver;
+import org.springframework.core.metrics.ApplicationStartup;
 import org.springframework.lang.Nullable;
 
 /**
@@ -86,6 +87,12 @@ public interface ConfigurableApplicationContext extends ApplicationContext, Life
 	 */
 	String SYSTEM_ENVIRONMENT_BEAN_NAME = "systemEnvironment";
 
+	/**
+	 * Name of the {@link ApplicationStartup} bean in the factory.
+	 * @since 5.2
+	 */
+	String APPLICATION_STARTUP_BEAN_NAME = "applicationStartup";
+
 
 	/**
 	 * 为 ApplicationContext 设置唯一id
@@ -126,6 +133,21 @@ public interface ConfigurableApplicationContext extends ApplicationContext, Life
 	@Override
 	ConfigurableEnvironment getEnvironment();
 
+	/**
+	 * Set the {@link ApplicationStartup} for this application context.
+	 * <p>This allows the application context to record metrics
+	 * during startup, and is propagated to its internal bean factory.
+	 * @param applicationStartup the new application startup
+	 * @since 5.2
+	 */
+	void setApplicationStartup(ApplicationStartup applicationStartup);
+
+	/**
+	 * Return the {@link ApplicationStartup} for this application context.
+	 * @since 5.2
+	 */
+	ApplicationStartup getApplicationStartup();
+
 	/**
 	 * 为 ApplicationContext 添加 BeanFactoryPostProcessor
 	 *
@@ -0,0 +1,588 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.beans.PropertyValue;
+import org.springframework.beans.factory.annotation.Lookup;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.config.BeanDefinitionHolder;
+import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
+import org.springframework.beans.factory.config.ConstructorArgumentValues;
+import org.springframework.beans.factory.config.ConstructorArgumentValues.ValueHolder;
+import org.springframework.beans.factory.config.RuntimeBeanReference;
+import org.springframework.beans.factory.config.TypedStringValue;
+import org.springframework.beans.factory.support.AbstractBeanDefinition;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.StandardAnnotationMetadata;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ObjectUtils;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Generates the Java source of an
+ * {@link org.springframework.context.ApplicationContextInitializer} that registers
+ * the bean definitions of a {@link GenericApplicationContext} ahead-of-time,
+ * typically as part of the build.
+ *
+ * <p>The given context is {@linkplain GenericApplicationContext#refreshForAotProcessing()
+ * processed} up to the point where all {@code @Configuration} classes have been parsed,
+ * component scanning has happened and {@code @Conditional} annotations have been
+ * evaluated. The resulting bean definitions are then written out as plain
+ * {@link RootBeanDefinition} registrations, using instance suppliers for beans with
+ * a public no-arg constructor, so that a context initialized with the generated
+ * class at runtime neither scans the classpath nor parses configuration classes:
+ *
+ * <pre class="code">
+ * GenericApplicationContext context = new GenericApplicationContext();
+ * new MyApplicationBeanDefinitions().initialize(context);
+ * context.refresh();</pre>
+ *
+ * <p>Note that conditions and profiles are evaluated against the build-time
+ * environment. Configuration classes are still enhanced through CGLIB at runtime,
+ * and other bean factory post-processors still apply as usual. Configuration
+ * declaring {@link PropertySource @PropertySource}, and bean definitions relying on
+ * scoped proxies, XML qualifiers, method overrides, programmatic instance suppliers
+ * or complex property values are not supported and are rejected with an
+ * {@link IllegalStateException}.
+ *
+ * <p>This class can also be used from the command line, see {@link #main(String[])}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see GenericApplicationContext#refreshForAotProcessing()
+ * @see PrecomputedImportRegistry
+ */
+public class BeanDefinitionSourceGenerator {
+
+	private static final int BEAN_DEFINITIONS_PER_METHOD = 100;
+
+	private static final String[] AUTOWIRE_MODES = {"AUTOWIRE_NO", "AUTOWIRE_BY_NAME",
+			"AUTOWIRE_BY_TYPE", "AUTOWIRE_CONSTRUCTOR", "AUTOWIRE_AUTODETECT"};
+
+	private static final String[] ROLES = {"ROLE_APPLICATION", "ROLE_SUPPORT", "ROLE_INFRASTRUCTURE"};
+
+
+	private final GenericApplicationContext context;
+
+	private boolean processed = false;
+
+
+	/**
+	 * Create a new {@code BeanDefinitionSourceGenerator} for the given context.
+	 * @param context the context holding the configuration classes to process,
+	 * which must not have been refreshed
+	 */
+	public BeanDefinitionSourceGenerator(GenericApplicationContext context) {
+		Assert.notNull(context, "GenericApplicationContext must not be null");
+		this.context = context;
+	}
+
+
+	/**
+	 * Generate the source of the initializer class with the given name.
+	 * @param className the fully qualified name of the class to generate
+	 * @return the Java source
+	 * @throws IllegalStateException if a bean definition cannot be generated
+	 */
+	public String generate(String className) {
+		StringBuilder source = new StringBuilder();
+		try {
+			generate(className, source);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return source.toString();
+	}
+
+	/**
+	 * Generate the source of the initializer class with the given name
+	 * to the given {@link Appendable}.
+	 * @param className the fully qualified name of the class to generate
+	 * @param out where to write the Java source to
+	 * @throws IOException in case of I/O errors
+	 * @throws IllegalStateException if a bean definition cannot be generated
+	 */
+	public void generate(String className, Appendable out) throws IOException {
+		Assert.hasText(className, "Class name must not be empty");
+		ConfigurableListableBeanFactory beanFactory = processContext();
+		SourceWriter writer = new SourceWriter(out);
+
+		List<String> beanNames = getBeanNamesToGenerate(beanFactory);
+		Map<String, String> imports = getImportingClasses(beanFactory, beanNames);
+		int methodCount = (beanNames.size() + BEAN_DEFINITIONS_PER_METHOD - 1) / BEAN_DEFINITIONS_PER_METHOD;
+
+		String packageName = ClassUtils.getPackageName(className);
+		if (!packageName.isEmpty()) {
+			writer.line("package " + packageName + ";").line();
+		}
+		writer.line("import org.springframework.beans.factory.config.AutowireCapableBeanFactory;");
+		writer.line("import org.springframework.beans.factory.config.BeanDefinition;");
+		writer.line("import org.springframework.beans.factory.config.ConstructorArgumentValues;");
+		writer.line("import org.springframework.beans.factory.config.RuntimeBeanReference;");
+		writer.line("import org.springframework.beans.factory.config.TypedStringValue;");
+		writer.line("import org.springframework.beans.factory.support.RootBeanDefinition;");
+		writer.line("import org.springframework.context.ApplicationContextInitializer;");
+		writer.line("import org.springframework.context.annotation.AnnotationConfigUtils;");
+		writer.line("import org.springframework.context.annotation.PrecomputedImportRegistry;");
+		writer.line("import org.springframework.context.support.GenericApplicationContext;");
+		writer.line("import org.springframework.util.ClassUtils;").line();
+		writer.line("/**");
+		writer.line(" * Registers bean definitions computed ahead-of-time.");
+		writer.line(" * <p>Generated by {@code " + getClass().getName() + "}: do not edit.");
+		writer.line(" */");
+		writer.line("@SuppressWarnings({\"deprecation\", \"unused\"})");
+		writer.line("public class " + ClassUtils.getShortName(className) +
+				" implements ApplicationContextInitializer<GenericApplicationContext> {").line();
+		writer.indent().line("@Override");
+		writer.line("public void initialize(GenericApplicationContext context) {").indent();
+		writer.line("AnnotationConfigUtils.registerAnnotationConfigProcessors(context);");
+		for (int i = 0; i < methodCount; i++) {
+			writer.line("registerBeanDefinitions" + i + "(context);");
+		}
+		if (!imports.isEmpty()) {
+			writer.line("PrecomputedImportRegistry importRegistry = " +
+					"new PrecomputedImportRegistry(context.getClassLoader());");
+			for (Map.Entry<String, String> entry : imports.entrySet()) {
+				writer.line("importRegistry.addImport(" + quote(entry.getKey()) + ", " + quote(entry.getValue()) + ");");
+			}
+			writer.line("importRegistry.registerWith(context.getBeanFactory());");
+		}
+		writer.outdent().line("}");
+
+		for (int i = 0; i < methodCount; i++) {
+			writer.line();
+			writer.line("private void registerBeanDefinitions" + i + "(GenericApplicationContext context) {").indent();
+			writer.line("ClassLoader classLoader = context.getClassLoader();");
+			writer.line("RootBeanDefinition bd;");
+			int end = Math.min(beanNames.size(), (i + 1) * BEAN_DEFINITIONS_PER_METHOD);
+			for (String beanName : beanNames.subList(i * BEAN_DEFINITIONS_PER_METHOD, end)) {
+				writer.line();
+				generateBeanDefinition(beanName, beanFactory, writer);
+			}
+			writer.outdent().line("}");
+		}
+		writer.line().outdent().line("}");
+	}
+
+	/**
+	 * Generate the source of the initializer class with the given name into
+	 * the given source directory, using the standard package layout.
+	 * @param sourceDirectory the root directory for generated sources
+	 * @param className the fully qualified name of the class to generate
+	 * @return the path of the generated source file
+	 * @throws IOException in case of I/O errors
+	 * @throws IllegalStateException if a bean definition cannot be generated
+	 */
+	public Path writeTo(Path sourceDirectory, String className) throws IOException {
+		Path file = sourceDirectory.resolve(className.replace('.', '/') + ".java");
+		Files.createDirectories(file.getParent());
+		Files.write(file, generate(className).getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+
+	private ConfigurableListableBeanFactory processContext() {
+		if (!this.processed) {
+			this.context.refreshForAotProcessing();
+			this.processed = true;
+		}
+		return this.context.getBeanFactory();
+	}
+
+	private List<String> getBeanNamesToGenerate(ConfigurableListableBeanFactory beanFactory) {
+		// Annotation config processors are registered by the generated code itself
+		Set<String> processorNames = new HashSet<>();
+		for (BeanDefinitionHolder holder : AnnotationConfigUtils.registerAnnotationConfigProcessors(
+				new DefaultListableBeanFactory(), null)) {
+			processorNames.add(holder.getBeanName());
+		}
+		List<String> beanNames = new ArrayList<>();
+		for (String beanName : beanFactory.getBeanDefinitionNames()) {
+			if (!processorNames.contains(beanName) && !beanFactory.getMergedBeanDefinition(beanName).isAbstract()) {
+				beanNames.add(beanName);
+			}
+		}
+		return beanNames;
+	}
+
+	private Map<String, String> getImportingClasses(ConfigurableListableBeanFactory beanFactory, List<String> beanNames) {
+		Map<String, String> imports = new LinkedHashMap<>();
+		Object singleton = (beanFactory.containsSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME) ?
+				beanFactory.getSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME) : null);
+		if (!(singleton instanceof ImportRegistry)) {
+			return imports;
+		}
+		ImportRegistry importRegistry = (ImportRegistry) singleton;
+		for (String beanName : beanNames) {
+			Class<?> beanClass = resolveBeanClass(beanName, beanFactory.getMergedBeanDefinition(beanName), beanFactory);
+			if (beanClass != null && ImportAware.class.isAssignableFrom(beanClass)) {
+				AnnotationMetadata importingClass = importRegistry.getImportingClassFor(beanClass.getName());
+				if (importingClass != null) {
+					imports.put(beanClass.getName(), importingClass.getClassName());
+				}
+			}
+		}
+		return imports;
+	}
+
+	private void generateBeanDefinition(String beanName, ConfigurableListableBeanFactory beanFactory,
+			SourceWriter writer) throws IOException {
+
+		BeanDefinition mbd = beanFactory.getMergedBeanDefinition(beanName);
+		Assert.state(mbd instanceof RootBeanDefinition, "Merged bean definition is not a RootBeanDefinition");
+		RootBeanDefinition bd = (RootBeanDefinition) mbd;
+		Class<?> beanClass = resolveBeanClass(beanName, bd, beanFactory);
+		checkSupported(beanName, bd, beanClass);
+
+		writer.line("// Bean " + quote(beanName));
+		writer.line("bd = new RootBeanDefinition();");
+		if (beanClass != null) {
+			writer.line("bd.setBeanClass(" + classExpression(beanClass) + ");");
+			if (canUseConstructorReference(bd, beanClass)) {
+				writer.line("bd.setInstanceSupplier(" + beanClass.getCanonicalName() + "::new);");
+			}
+		}
+		if (bd.getFactoryBeanName() != null) {
+			writer.line("bd.setFactoryBeanName(" + quote(bd.getFactoryBeanName()) + ");");
+		}
+		String factoryMethodName = bd.getFactoryMethodName();
+		if (factoryMethodName != null) {
+			Class<?> factoryClass = (bd.getFactoryBeanName() != null ?
+					resolveBeanClass(bd.getFactoryBeanName(),
+							beanFactory.getMergedBeanDefinition(bd.getFactoryBeanName()), beanFactory) : beanClass);
+			if (factoryClass != null && isUniqueMethodName(factoryClass, factoryMethodName)) {
+				writer.line("bd.setUniqueFactoryMethodName(" + quote(factoryMethodName) + ");");
+			}
+			else {
+				writer.line("bd.setFactoryMethodName(" + quote(factoryMethodName) + ");");
+			}
+		}
+		if (StringUtils.hasLength(bd.getScope()) && !BeanDefinition.SCOPE_SINGLETON.equals(bd.getScope())) {
+			writer.line("bd.setScope(" + quote(bd.getScope()) + ");");
+		}
+		if (bd.isLazyInit()) {
+			writer.line("bd.setLazyInit(true);");
+		}
+		if (bd.isPrimary()) {
+			writer.line("bd.setPrimary(true);");
+		}
+		if (!bd.isAutowireCandidate()) {
+			writer.line("bd.setAutowireCandidate(false);");
+		}
+		if (bd.getAutowireMode() != AbstractBeanDefinition.AUTOWIRE_NO) {
+			writer.line("bd.setAutowireMode(AutowireCapableBeanFactory." + AUTOWIRE_MODES[bd.getAutowireMode()] + ");");
+		}
+		if (bd.getDependencyCheck() != AbstractBeanDefinition.DEPENDENCY_CHECK_NONE) {
+			writer.line("bd.setDependencyCheck(" + bd.getDependencyCheck() + ");");
+		}
+		if (!ObjectUtils.isEmpty(bd.getDependsOn())) {
+			StringBuilder dependsOn = new StringBuilder();
+			for (String name : bd.getDependsOn()) {
+				dependsOn.append(dependsOn.length() > 0 ? ", " : "").append(quote(name));
+			}
+			writer.line("bd.setDependsOn(" + dependsOn + ");");
+		}
+		if (bd.getInitMethodName() != null) {
+			writer.line("bd.setInitMethodName(" + quote(bd.getInitMethodName()) + ");");
+		}
+		if (!bd.isEnforceInitMethod()) {
+			writer.line("bd.setEnforceInitMethod(false);");
+		}
+		if (bd.getDestroyMethodName() != null) {
+			writer.line("bd.setDestroyMethodName(" + quote(bd.getDestroyMethodName()) + ");");
+		}
+		if (!bd.isEnforceDestroyMethod()) {
+			writer.line("bd.setEnforceDestroyMethod(false);");
+		}
+		if (bd.isSynthetic()) {
+			writer.line("bd.setSynthetic(true);");
+		}
+		if (!bd.isNonPublicAccessAllowed()) {
+			writer.line("bd.setNonPublicAccessAllowed(false);");
+		}
+		if (!bd.isLenientConstructorResolution()) {
+			writer.line("bd.setLenientConstructorResolution(false);");
+		}
+		if (bd.getRole() != BeanDefinition.ROLE_APPLICATION) {
+			writer.line("bd.setRole(BeanDefinition." + ROLES[bd.getRole()] + ");");
+		}
+		for (String attributeName : bd.attributeNames()) {
+			Object attribute = bd.getAttribute(attributeName);
+			if (attribute instanceof String || attribute instanceof Boolean || attribute instanceof Integer) {
+				writer.line("bd.setAttribute(" + quote(attributeName) + ", " + literal(beanName, attribute) + ");");
+			}
+		}
+		ConstructorArgumentValues args = bd.getConstructorArgumentValues();
+		for (Map.Entry<Integer, ValueHolder> entry : args.getIndexedArgumentValues().entrySet()) {
+			writer.line("bd.getConstructorArgumentValues().addIndexedArgumentValue(" + entry.getKey() + ", " +
+					valueHolder(beanName, entry.getValue()) + ");");
+		}
+		for (ValueHolder valueHolder : args.getGenericArgumentValues()) {
+			writer.line("bd.getConstructorArgumentValues().addGenericArgumentValue(" +
+					valueHolder(beanName, valueHolder) + ");");
+		}
+		for (PropertyValue pv : bd.getPropertyValues().getPropertyValueList()) {
+			writer.line("bd.getPropertyValues().add(" + quote(pv.getName()) + ", " +
+					literal(beanName, pv.getValue()) + ");");
+		}
+		writer.line("context.registerBeanDefinition(" + quote(beanName) + ", bd);");
+	}
+
+	@Nullable
+	private Class<?> resolveBeanClass(String beanName, BeanDefinition bd, ConfigurableListableBeanFactory beanFactory) {
+		String beanClassName = bd.getBeanClassName();
+		if (beanClassName == null) {
+			return null;
+		}
+		try {
+			return ClassUtils.forName(beanClassName, beanFactory.getBeanClassLoader());
+		}
+		catch (ClassNotFoundException | LinkageError ex) {
+			throw new IllegalStateException("Cannot generate bean definition for bean '" + beanName +
+					"': bean class [" + beanClassName + "] not found", ex);
+		}
+	}
+
+	private void checkSupported(String beanName, RootBeanDefinition bd, @Nullable Class<?> beanClass) {
+		String reason = null;
+		if (bd.getInstanceSupplier() != null) {
+			reason = "instance suppliers cannot be generated";
+		}
+		else if (bd.getDecoratedDefinition() != null) {
+			reason = "decorated bean definitions such as scoped proxies are not supported";
+		}
+		else if (bd.hasMethodOverrides()) {
+			reason = "method overrides are not supported";
+		}
+		else if (!bd.getQualifiers().isEmpty()) {
+			reason = "qualifiers declared on the bean definition are not supported";
+		}
+		else if (bd.getRole() >= ROLES.length || bd.getAutowireMode() >= AUTOWIRE_MODES.length) {
+			reason = "unknown role or autowire mode";
+		}
+		else if (beanClass != null && bd.hasAttribute(ConfigurationClassUtils.CONFIGURATION_CLASS_ATTRIBUTE) &&
+				!AnnotationConfigUtils.attributesForRepeatable(new StandardAnnotationMetadata(beanClass, true),
+						PropertySources.class, PropertySource.class).isEmpty()) {
+			reason = "@PropertySource declarations are not supported";
+		}
+		if (reason != null) {
+			throw new IllegalStateException("Cannot generate bean definition for bean '" + beanName + "': " + reason);
+		}
+	}
+
+	private boolean canUseConstructorReference(RootBeanDefinition bd, Class<?> beanClass) {
+		if (bd.getFactoryMethodName() != null || bd.hasConstructorArgumentValues() ||
+				ConfigurationClassUtils.CONFIGURATION_CLASS_FULL.equals(
+						bd.getAttribute(ConfigurationClassUtils.CONFIGURATION_CLASS_ATTRIBUTE)) ||
+				!isPublic(beanClass) || beanClass.isInterface() || Modifier.isAbstract(beanClass.getModifiers()) ||
+				(beanClass.getEnclosingClass() != null && !Modifier.isStatic(beanClass.getModifiers()))) {
+			return false;
+		}
+		Constructor<?>[] constructors = beanClass.getDeclaredConstructors();
+		if (constructors.length != 1 || !Modifier.isPublic(constructors[0].getModifiers()) ||
+				constructors[0].getParameterCount() != 0) {
+			return false;
+		}
+		// @Lookup methods are only detected when the container resolves constructors
+		for (Method method : ReflectionUtils.getUniqueDeclaredMethods(beanClass)) {
+			if (method.isAnnotationPresent(Lookup.class)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isUniqueMethodName(Class<?> factoryClass, String methodName) {
+		int count = 0;
+		for (Method method : ReflectionUtils.getUniqueDeclaredMethods(factoryClass)) {
+			if (method.getName().equals(methodName)) {
+				count++;
+			}
+		}
+		return (count == 1);
+	}
+
+	private static boolean isPublic(Class<?> clazz) {
+		if (clazz.getCanonicalName() == null) {
+			return false;
+		}
+		for (Class<?> current = clazz; current != null; current = current.getEnclosingClass()) {
+			if (!Modifier.isPublic(current.getModifiers())) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static String classExpression(Class<?> clazz) {
+		if (isPublic(clazz) && !clazz.isArray()) {
+			return clazz.getCanonicalName() + ".class";
+		}
+		return "ClassUtils.resolveClassName(" + quote(clazz.getName()) + ", classLoader)";
+	}
+
+	private static String valueHolder(String beanName, ValueHolder valueHolder) {
+		return "new ConstructorArgumentValues.ValueHolder(" + literal(beanName, valueHolder.getValue()) + ", " +
+				(valueHolder.getType() != null ? quote(valueHolder.getType()) : "null") + ", " +
+				(valueHolder.getName() != null ? quote(valueHolder.getName()) : "null") + ")";
+	}
+
+	private static String literal(String beanName, @Nullable Object value) {
+		if (value == null) {
+			return "null";
+		}
+		if (value instanceof String) {
+			return quote((String) value);
+		}
+		if (value instanceof Boolean || value instanceof Integer) {
+			return value.toString();
+		}
+		if (value instanceof Long) {
+			return value + "L";
+		}
+		if (value instanceof TypedStringValue) {
+			TypedStringValue typedValue = (TypedStringValue) value;
+			String stringValue = (typedValue.getValue() != null ? quote(typedValue.getValue()) : "null");
+			return (typedValue.hasTargetType() || typedValue.getTargetTypeName() != null ?
+					"new TypedStringValue(" + stringValue + ", " + quote(typedValue.getTargetTypeName()) + ")" :
+					"new TypedStringValue(" + stringValue + ")");
+		}
+		if (value instanceof RuntimeBeanReference) {
+			RuntimeBeanReference reference = (RuntimeBeanReference) value;
+			return "new RuntimeBeanReference(" + quote(reference.getBeanName()) +
+					(reference.isToParent() ? ", true)" : ")");
+		}
+		if (value instanceof Class) {
+			return classExpression((Class<?>) value);
+		}
+		throw new IllegalStateException("Cannot generate bean definition for bean '" + beanName +
+				"': unsupported value of type [" + value.getClass().getName() + "]");
+	}
+
+	private static String quote(@Nullable String value) {
+		Assert.notNull(value, "Value must not be null");
+		StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			switch (ch) {
+				case '"':
+					sb.append("\\\"");
+					break;
+				case '\\':
+					sb.append("\\\\");
+					break;
+				case '\n':
+					sb.append("\\n");
+					break;
+				case '\r':
+					sb.append("\\r");
+					break;
+				case '\t':
+					sb.append("\\t");
+					break;
+				default:
+					if (ch < 0x20 || ch > 0x7e) {
+						sb.append(String.format("\\u%04x", (int) ch));
+					}
+					else {
+						sb.append(ch);
+					}
+			}
+		}
+		return sb.append('"').toString();
+	}
+
+
+	/**
+	 * Generate an initializer class from the command line, typically as part of a build.
+	 * <p>Expects the target source directory, the fully qualified name of the class to
+	 * generate and one or more {@code @Configuration} classes to process. Profiles can be
+	 * activated through the {@code spring.profiles.active} system property.
+	 * @param args the source directory, the class name and the configuration classes
+	 * @throws Exception if the configuration classes cannot be processed
+	 */
+	public static void main(String[] args) throws Exception {
+		if (args.length < 3) {
+			throw new IllegalArgumentException("Usage: BeanDefinitionSourceGenerator " +
+					"<source directory> <generated class name> <configuration class>...");
+		}
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		for (int i = 2; i < args.length; i++) {
+			context.register(ClassUtils.forName(args[i], context.getClassLoader()));
+		}
+		new BeanDefinitionSourceGenerator(context).writeTo(Paths.get(args[0]), args[1]);
+	}
+
+
+	/**
+	 * Minimal writer for indented lines of Java source.
+	 */
+	private static class SourceWriter {
+
+		private final Appendable out;
+
+		private String indent = "";
+
+		SourceWriter(Appendable out) {
+			this.out = out;
+		}
+
+		SourceWriter line(String line) throws IOException {
+			this.out.append(this.indent).append(line).append('\n');
+			return this;
+		}
+
+		SourceWriter line() throws IOException {
+			this.out.append('\n');
+			return this;
+		}
+
+		SourceWriter indent() {
+			this.indent += "\t";
+			return this;
+		}
+
+		SourceWriter outdent() {
+			this.indent = this.indent.substring(1);
+			return this;
+		}
+	}
+
+}
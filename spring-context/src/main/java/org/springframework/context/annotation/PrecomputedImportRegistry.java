@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.config.SingletonBeanRegistry;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.core.type.StandardAnnotationMetadata;
+import org.springframework.lang.Nullable;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link ImportRegistry} backed by import relationships that have been computed
+ * ahead-of-time, allowing {@link ImportAware} configuration classes to receive
+ * the metadata of their importing class without {@code @Configuration} class
+ * parsing at runtime.
+ *
+ * <p>Used by the code produced by {@link BeanDefinitionSourceGenerator}; the
+ * metadata of an importing class is introspected through reflection on demand.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see BeanDefinitionSourceGenerator
+ */
+public final class PrecomputedImportRegistry implements ImportRegistry {
+
+	@Nullable
+	private final ClassLoader classLoader;
+
+	private final Map<String, String> importingClassNames = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Create a new {@code PrecomputedImportRegistry}.
+	 * @param classLoader the ClassLoader to use for loading importing classes
+	 */
+	public PrecomputedImportRegistry(@Nullable ClassLoader classLoader) {
+		this.classLoader = classLoader;
+	}
+
+
+	/**
+	 * Record that the given class has been imported by the given importing class.
+	 * @param importedClass the fully qualified name of the imported class
+	 * @param importingClass the fully qualified name of the importing class
+	 */
+	public void addImport(String importedClass, String importingClass) {
+		this.importingClassNames.put(importedClass, importingClass);
+	}
+
+	/**
+	 * Register this import registry with the given bean factory, under the
+	 * name that {@link ConfigurationClassPostProcessor} uses for it.
+	 * @param registry the registry to register this instance with
+	 */
+	public void registerWith(SingletonBeanRegistry registry) {
+		registry.registerSingleton(ConfigurationClassPostProcessor.IMPORT_REGISTRY_BEAN_NAME, this);
+	}
+
+	@Override
+	@Nullable
+	public AnnotationMetadata getImportingClassFor(String importedClass) {
+		String importingClass = this.importingClassNames.get(importedClass);
+		if (importingClass == null) {
+			return null;
+		}
+		return new StandardAnnotationMetadata(ClassUtils.resolveClassName(importingClass, this.classLoader), true);
+	}
+
+	@Override
+	public void removeImportingClass(String importingClass) {
+		Iterator<String> it = this.importingClassNames.values().iterator();
+		while (it.hasNext()) {
+			if (it.next().equals(importingClass)) {
+				it.remove();
+			}
+		}
+	}
+
+}
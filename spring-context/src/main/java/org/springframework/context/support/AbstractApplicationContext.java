@@ -46,6 +46,7 @@ import org.springframework.context.ApplicationEvent;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.ApplicationEventPublisherAware;
 import org.springframework.context.ApplicationListener;
+import org.springframework.context.ApplicationStartupAware;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.EmbeddedValueResolverAware;
 import org.springframework.context.EnvironmentAware;
@@ -77,6 +78,8 @@ import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.ObjectUtils;
@@ -220,6 +223,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	@Nullable
 	private Set<ApplicationEvent> earlyApplicationEvents;
 
+	/** Application startup metrics. */
+	private ApplicationStartup applicationStartup = ApplicationStartup.DEFAULT;
+
 
 	/**
 	 * Create a new AbstractApplicationContext with no parent.
@@ -483,6 +489,17 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		}
 	}
 
+	@Override
+	public void setApplicationStartup(ApplicationStartup applicationStartup) {
+		Assert.notNull(applicationStartup, "ApplicationStartup must not be null");
+		this.applicationStartup = applicationStartup;
+	}
+
+	@Override
+	public ApplicationStartup getApplicationStartup() {
+		return this.applicationStartup;
+	}
+
 	@Override
 	public void addBeanFactoryPostProcessor(BeanFactoryPostProcessor postProcessor) {
 		Assert.notNull(postProcessor, "BeanFactoryPostProcessor must not be null");
@@ -516,79 +533,91 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 	@Override
 	public void refresh() throws BeansException, IllegalStateException {
 		synchronized (this.startupShutdownMonitor) {
-			// Prepare this context for refreshing.
-			// 准备上下文以进行刷新
-			prepareRefresh();
+			StartupStep contextRefresh = this.applicationStartup.start("spring.context.refresh");
+			try {
+				// Prepare this context for refreshing.
+				// 准备上下文以进行刷新
+				prepareRefresh();
 
-			// Tell the subclass to refresh the internal bean factory.
-			// 初始化BeanFactory，并进行xml文件读取
-			ConfigurableListableBeanFactory beanFactory = obtainFreshBeanFactory();
+				// Tell the subclass to refresh the internal bean factory.
+				// 初始化BeanFactory，并进行xml文件读取
+				ConfigurableListableBeanFactory beanFactory = obtainFreshBeanFactory();
 
-			// Prepare the bean factory for use in this context.
-			// 准备BeanFactory，对BeanFactory进行各种功能填充
-			prepareBeanFactory(beanFactory);
+				// Prepare the bean factory for use in this context.
+				// 准备BeanFactory，对BeanFactory进行各种功能填充
+				prepareBeanFactory(beanFactory);
 
-			try {
-				// Allows post-processing of the bean factory in context subclasses.
-				// 子类覆盖方法做额外的处理，即子类处理自定义的 BeanFactoryPostProcess
-				postProcessBeanFactory(beanFactory);
-
-				// Invoke factory processors registered as beans in the context.
-				// 激活各种 BeanFactoryPostProcessor
-				invokeBeanFactoryPostProcessors(beanFactory);
-
-				// Register bean processors that intercept bean creation.
-				// 注册拦截Bean创建BeanPostProcessor，这里只是注册，真正的调用在getBean的时候
-				registerBeanPostProcessors(beanFactory);
-
-				// Initialize message source for this context.
-				// 为上下文初始化Message源，即不同语言的消息体，国际化处理
-				initMessageSource();
-
-				// Initialize event multicaster for this context.
-				// 初始化应用消息广播器，并放入 applicationEventMulticaster bean 中
-				initApplicationEventMulticaster();
-
-				// Initialize other special beans in specific context subclasses.
-				// 留给子类来初始化其他的bean
-				onRefresh();
-
-				// Check for listener beans and register them.
-				// 在所有注册的bean中查找 Listener bean，注册到消息广播器中
-				registerListeners();
-
-				// Instantiate all remaining (non-lazy-init) singletons.
-				// 初始化剩下的单实例（非延迟加载）
-				finishBeanFactoryInitialization(beanFactory);
-
-				// Last step: publish corresponding event.
-				// 完成刷新过程，通知生命周期处理器 lifecycleProcessor 刷新过程
-				// 同时发出 ContextRefreshEvent 通知别人
-				finishRefresh();
-			}
+				try {
+					// Allows post-processing of the bean factory in context subclasses.
+					// 子类覆盖方法做额外的处理，即子类处理自定义的 BeanFactoryPostProcess
+					postProcessBeanFactory(beanFactory);
+
+					StartupStep beanPostProcess = this.applicationStartup.start("spring.context.beans.post-process");
+					try {
+						// Invoke factory processors registered as beans in the context.
+						// 激活各种 BeanFactoryPostProcessor
+						invokeBeanFactoryPostProcessors(beanFactory);
+
+						// Register bean processors that intercept bean creation.
+						// 注册拦截Bean创建BeanPostProcessor，这里只是注册，真正的调用在getBean的时候
+						registerBeanPostProcessors(beanFactory);
+					}
+					finally {
+						beanPostProcess.end();
+					}
 
-			catch (BeansException ex) {
-				if (logger.isWarnEnabled()) {
-					logger.warn("Exception encountered during context initialization - " +
-							"cancelling refresh attempt: " + ex);
+					// Initialize message source for this context.
+					// 为上下文初始化Message源，即不同语言的消息体，国际化处理
+					initMessageSource();
+
+					// Initialize event multicaster for this context.
+					// 初始化应用消息广播器，并放入 applicationEventMulticaster bean 中
+					initApplicationEventMulticaster();
+
+					// Initialize other special beans in specific context subclasses.
+					// 留给子类来初始化其他的bean
+					onRefresh();
+
+					// Check for listener beans and register them.
+					// 在所有注册的bean中查找 Listener bean，注册到消息广播器中
+					registerListeners();
+
+					// Instantiate all remaining (non-lazy-init) singletons.
+					// 初始化剩下的单实例（非延迟加载）
+					finishBeanFactoryInitialization(beanFactory);
+
+					// Last step: publish corresponding event.
+					// 完成刷新过程，通知生命周期处理器 lifecycleProcessor 刷新过程
+					// 同时发出 ContextRefreshEvent 通知别人
+					finishRefresh();
 				}
 
-				// Destroy already created singletons to avoid dangling resources.
-				// 销毁已经创建的bean
-				destroyBeans();
+				catch (BeansException ex) {
+					if (logger.isWarnEnabled()) {
+						logger.warn("Exception encountered during context initialization - " +
+								"cancelling refresh attempt: " + ex);
+					}
+
+					// Destroy already created singletons to avoid dangling resources.
+					// 销毁已经创建的bean
+					destroyBeans();
 
-				// Reset 'active' flag.
-				// 重置容器激活标签
-				cancelRefresh(ex);
+					// Reset 'active' flag.
+					// 重置容器激活标签
+					cancelRefresh(ex);
 
-				// Propagate exception to caller.
-				throw ex;
-			}
+					// Propagate exception to caller.
+					throw ex;
+				}
 
+				finally {
+					// Reset common introspection caches in Spring's core, since we
+					// might not ever need metadata for singleton beans anymore...
+					resetCommonCaches();
+				}
+			}
 			finally {
-				// Reset common introspection caches in Spring's core, since we
-				// might not ever need metadata for singleton beans anymore...
-				resetCommonCaches();
+				contextRefresh.end();
 			}
 		}
 	}
@@ -685,6 +714,7 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		beanFactory.ignoreDependencyInterface(ResourceLoaderAware.class);
 		beanFactory.ignoreDependencyInterface(ApplicationEventPublisherAware.class);
 		beanFactory.ignoreDependencyInterface(MessageSourceAware.class);
+		beanFactory.ignoreDependencyInterface(ApplicationStartupAware.class);
 		beanFactory.ignoreDependencyInterface(ApplicationContextAware.class);
 
 		// beanfactory interface not registered as resolvable type in a plain factory.
@@ -717,6 +747,9 @@ public abstract class AbstractApplicationContext extends DefaultResourceLoader
 		if (!beanFactory.containsLocalBean(SYSTEM_ENVIRONMENT_BEAN_NAME)) {
 			beanFactory.registerSingleton(SYSTEM_ENVIRONMENT_BEAN_NAME, getEnvironment().getSystemEnvironment());
 		}
+		if (!beanFactory.containsLocalBean(APPLICATION_STARTUP_BEAN_NAME)) {
+			beanFactory.registerSingleton(APPLICATION_STARTUP_BEAN_NAME, getApplicationStartup());
+		}
 	}
 
 	/**
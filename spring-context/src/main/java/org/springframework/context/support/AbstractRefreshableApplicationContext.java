@@ -23,6 +23,7 @@ import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextException;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.lang.Nullable;
 
 /**
@@ -132,13 +133,21 @@ public abstract class AbstractRefreshableApplicationContext extends AbstractAppl
 			DefaultListableBeanFactory beanFactory = createBeanFactory();
 			// 为了序列化指定id，如果需要的话，让这个BeanFactory从id反序列化到BeanFactory对象
 			beanFactory.setSerializationId(getId());
+			beanFactory.setApplicationStartup(getApplicationStartup());
 			// 定制 BeanFactory，设置相关属性，包括是否允许覆盖同名称的不同定义的对象以及循环依赖以及设置@Autowired和@Qualifier注解解析器
 			customizeBeanFactory(beanFactory);
 			// 加载BeanDefinitions 初始化 DocumentReader，进行xml文件读取和解析
 			// 该方法有不同的实现：
 			// AbstractXmlApplicationContext，进行xml文件读取和解析
 			// AnnotationConfigWebApplicationContext, 进行注解的解析。
-			loadBeanDefinitions(beanFactory);
+			StartupStep beanDefinitionLoading = getApplicationStartup().start("spring.context.bean-definitions.load");
+			try {
+				loadBeanDefinitions(beanFactory);
+			}
+			finally {
+				beanDefinitionLoading.tag("beanDefinitionCount", () -> String.valueOf(beanFactory.getBeanDefinitionCount()));
+				beanDefinitionLoading.end();
+			}
 			// 设置 Context 的 BeanFactory
 			synchronized (this.beanFactoryMonitor) {
 				this.beanFactory = beanFactory;
@@ -26,6 +26,7 @@ import org.springframework.beans.factory.config.BeanPostProcessor;
 import org.springframework.beans.factory.config.EmbeddedValueResolver;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.context.ApplicationEventPublisherAware;
+import org.springframework.context.ApplicationStartupAware;
 import org.springframework.context.ConfigurableApplicationContext;
 import org.springframework.context.EmbeddedValueResolverAware;
 import org.springframework.context.EnvironmentAware;
@@ -39,7 +40,8 @@ import org.springframework.util.StringValueResolver;
  * implementation that passes the ApplicationContext to beans that
  * implement the {@link EnvironmentAware}, {@link EmbeddedValueResolverAware},
  * {@link ResourceLoaderAware}, {@link ApplicationEventPublisherAware},
- * {@link MessageSourceAware} and/or {@link ApplicationContextAware} interfaces.
+ * {@link MessageSourceAware}, {@link ApplicationStartupAware} and/or
+ * {@link ApplicationContextAware} interfaces.
  *
  * <p>Implemented interfaces are satisfied in order of their mention above.
  *
@@ -82,7 +84,8 @@ class ApplicationContextAwareProcessor implements BeanPostProcessor {
 		if (System.getSecurityManager() != null &&
 				(bean instanceof EnvironmentAware || bean instanceof EmbeddedValueResolverAware ||
 						bean instanceof ResourceLoaderAware || bean instanceof ApplicationEventPublisherAware ||
-						bean instanceof MessageSourceAware || bean instanceof ApplicationContextAware)) {
+						bean instanceof MessageSourceAware || bean instanceof ApplicationStartupAware ||
+						bean instanceof ApplicationContextAware)) {
 			acc = this.applicationContext.getBeanFactory().getAccessControlContext();
 		}
 
@@ -116,6 +119,9 @@ class ApplicationContextAwareProcessor implements BeanPostProcessor {
 			if (bean instanceof MessageSourceAware) {
 				((MessageSourceAware) bean).setMessageSource(this.applicationContext);
 			}
+			if (bean instanceof ApplicationStartupAware) {
+				((ApplicationStartupAware) bean).setApplicationStartup(this.applicationContext.getApplicationStartup());
+			}
 			if (bean instanceof ApplicationContextAware) {
 				((ApplicationContextAware) bean).setApplicationContext(this.applicationContext);
 			}
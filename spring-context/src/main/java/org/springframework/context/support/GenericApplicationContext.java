@@ -36,6 +36,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
 import org.springframework.core.io.support.ResourcePatternResolver;
+import org.springframework.core.metrics.ApplicationStartup;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 
@@ -158,6 +159,18 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 		this.beanFactory.setParentBeanFactory(getInternalParentBeanFactory());
 	}
 
+	/**
+	 * Set the {@code ApplicationStartup} of this application context,
+	 * also setting it on the internal BeanFactory accordingly.
+	 * @since 5.2
+	 * @see org.springframework.beans.factory.config.ConfigurableBeanFactory#setApplicationStartup
+	 */
+	@Override
+	public void setApplicationStartup(ApplicationStartup applicationStartup) {
+		super.setApplicationStartup(applicationStartup);
+		this.beanFactory.setApplicationStartup(applicationStartup);
+	}
+
 	/**
 	 * Set whether it should be allowed to override bean definitions by registering
 	 * a different definition with the same name, automatically replacing the former.
@@ -269,6 +282,31 @@ public class GenericApplicationContext extends AbstractApplicationContext implem
 		this.beanFactory.setSerializationId(getId());
 	}
 
+	/**
+	 * Load the bean definitions of this context for ahead-of-time processing,
+	 * without refreshing it.
+	 * <p>This prepares the internal bean factory and invokes the
+	 * {@link org.springframework.beans.factory.support.BeanDefinitionRegistryPostProcessor
+	 * BeanDefinitionRegistryPostProcessors} only, most notably the parsing of
+	 * {@code @Configuration} classes and component scanning. Regular
+	 * {@link org.springframework.beans.factory.config.BeanFactoryPostProcessor
+	 * BeanFactoryPostProcessors} are not invoked and no application bean is
+	 * instantiated, so that the resulting bean definitions reflect the
+	 * configuration as declared rather than resolved against the current runtime.
+	 * <p>A context processed that way cannot be refreshed anymore.
+	 * @throws IllegalStateException if this context has already been refreshed
+	 * @since 5.2
+	 * @see org.springframework.context.annotation.BeanDefinitionSourceGenerator
+	 */
+	public void refreshForAotProcessing() {
+		prepareRefresh();
+		obtainFreshBeanFactory();
+		prepareBeanFactory(this.beanFactory);
+		postProcessBeanFactory(this.beanFactory);
+		PostProcessorRegistrationDelegate.invokeBeanDefinitionRegistryPostProcessors(
+				this.beanFactory, getBeanFactoryPostProcessors());
+	}
+
 	@Override
 	protected void cancelRefresh(BeansException ex) {
 		this.beanFactory.setSerializationId(null);
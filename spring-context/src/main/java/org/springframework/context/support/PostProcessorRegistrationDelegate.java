@@ -18,6 +18,7 @@ package org.springframework.context.support;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashSet;
 import java.util.List;
@@ -38,7 +39,10 @@ import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.core.OrderComparator;
 import org.springframework.core.Ordered;
 import org.springframework.core.PriorityOrdered;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
 import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
 
 /**
  * Delegate for AbstractApplicationContext's post-processor handling.
@@ -71,7 +75,8 @@ final class PostProcessorRegistrationDelegate {
 					// 并加入到 registryProcessors 集合中
 					BeanDefinitionRegistryPostProcessor registryProcessor =
 							(BeanDefinitionRegistryPostProcessor) postProcessor;
-					registryProcessor.postProcessBeanDefinitionRegistry(registry);
+					invokeBeanDefinitionRegistryPostProcessors(Collections.singletonList(registryProcessor), registry,
+							beanFactory.getApplicationStartup());
 					registryProcessors.add(registryProcessor);
 				}
 				else {
@@ -80,66 +85,7 @@ final class PostProcessorRegistrationDelegate {
 				}
 			}
 
-			// Do not initialize FactoryBeans here: We need to leave all regular beans
-			// uninitialized to let the bean factory post-processors apply to them!
-			// Separate between BeanDefinitionRegistryPostProcessors that implement
-			// PriorityOrdered, Ordered, and the rest.
-			// 用于保存当前处理的 BeanDefinitionRegistryPostProcessor
-			List<BeanDefinitionRegistryPostProcessor> currentRegistryProcessors = new ArrayList<>();
-
-			// First, invoke the BeanDefinitionRegistryPostProcessors that implement PriorityOrdered.
-			// 首先，处理实现了 PriorityOrdered (有限排序接口)的 BeanDefinitionRegistryPostProcessor
-			String[] postProcessorNames =
-					beanFactory.getBeanNamesForType(BeanDefinitionRegistryPostProcessor.class, true, false);
-			for (String ppName : postProcessorNames) {
-				if (beanFactory.isTypeMatch(ppName, PriorityOrdered.class)) {
-					currentRegistryProcessors.add(beanFactory.getBean(ppName, BeanDefinitionRegistryPostProcessor.class));
-					processedBeans.add(ppName);
-				}
-			}
-			// 排序
-			sortPostProcessors(currentRegistryProcessors, beanFactory);
-			// 加入 registryProcessors 集合
-			registryProcessors.addAll(currentRegistryProcessors);
-			// 实现了 PriorityOrdered 的 BeanDefinitionRegistryPostProcessor 执行 postProcessBeanDefinitionRegistry 方法
-			invokeBeanDefinitionRegistryPostProcessors(currentRegistryProcessors, registry);
-			// 清空 currentRegistryProcessors，以备下次使用
-			currentRegistryProcessors.clear();
-
-			// Next, invoke the BeanDefinitionRegistryPostProcessors that implement Ordered.
-			// 其次，调用是实现了 Ordered（普通排序接口）的 BeanDefinitionRegistryPostProcessors
-			// 逻辑和 上面一样
-			postProcessorNames = beanFactory.getBeanNamesForType(BeanDefinitionRegistryPostProcessor.class, true, false);
-			for (String ppName : postProcessorNames) {
-				if (!processedBeans.contains(ppName) && beanFactory.isTypeMatch(ppName, Ordered.class)) {
-					currentRegistryProcessors.add(beanFactory.getBean(ppName, BeanDefinitionRegistryPostProcessor.class));
-					processedBeans.add(ppName);
-				}
-			}
-			sortPostProcessors(currentRegistryProcessors, beanFactory);
-			registryProcessors.addAll(currentRegistryProcessors);
-			invokeBeanDefinitionRegistryPostProcessors(currentRegistryProcessors, registry);
-			currentRegistryProcessors.clear();
-
-			// Finally, invoke all other BeanDefinitionRegistryPostProcessors until no further ones appear.
-			// 最后调用其他的 BeanDefinitionRegistryPostProcessors
-			boolean reiterate = true;
-			while (reiterate) {
-				reiterate = false;
-				postProcessorNames = beanFactory.getBeanNamesForType(BeanDefinitionRegistryPostProcessor.class, true, false);
-				for (String ppName : postProcessorNames) {
-					// 没有包含在 processedBeans 中的（因为包含了的都已经处理了）
-					if (!processedBeans.contains(ppName)) {
-						currentRegistryProcessors.add(beanFactory.getBean(ppName, BeanDefinitionRegistryPostProcessor.class));
-						processedBeans.add(ppName);
-						reiterate = true;
-					}
-				}
-				sortPostProcessors(currentRegistryProcessors, beanFactory);
-				registryProcessors.addAll(currentRegistryProcessors);
-				invokeBeanDefinitionRegistryPostProcessors(currentRegistryProcessors, registry);
-				currentRegistryProcessors.clear();
-			}
+			registryProcessors.addAll(invokeBeanDefinitionRegistryPostProcessorBeans(beanFactory, registry, processedBeans));
 
 			// Now, invoke the postProcessBeanFactory callback of all processors handled so far.
 			// 调用所有 BeanDefinitionRegistryPostProcessor (包括手动注册和通过配置文件注册) 和 BeanFactoryPostProcessor(只有手动注册)的回调函数(postProcessBeanFactory())
@@ -206,6 +152,108 @@ final class PostProcessorRegistrationDelegate {
 		beanFactory.clearMetadataCache();
 	}
 
+	/**
+	 * Invoke only the {@link BeanDefinitionRegistryPostProcessor} callbacks, that is
+	 * the registry post-processors registered with the context instance followed by
+	 * the ones defined as beans, without invoking any
+	 * {@link BeanFactoryPostProcessor#postProcessBeanFactory} callback.
+	 * <p>This leaves the bean definitions in the state they are registered in,
+	 * before any placeholder resolution or other bean factory post-processing.
+	 * @since 5.2
+	 * @see GenericApplicationContext#refreshForAotProcessing()
+	 */
+	public static void invokeBeanDefinitionRegistryPostProcessors(
+			ConfigurableListableBeanFactory beanFactory, List<BeanFactoryPostProcessor> beanFactoryPostProcessors) {
+
+		Assert.isInstanceOf(BeanDefinitionRegistry.class, beanFactory);
+		BeanDefinitionRegistry registry = (BeanDefinitionRegistry) beanFactory;
+		for (BeanFactoryPostProcessor postProcessor : beanFactoryPostProcessors) {
+			if (postProcessor instanceof BeanDefinitionRegistryPostProcessor) {
+				invokeBeanDefinitionRegistryPostProcessors(
+						Collections.singletonList((BeanDefinitionRegistryPostProcessor) postProcessor), registry,
+						beanFactory.getApplicationStartup());
+			}
+		}
+		invokeBeanDefinitionRegistryPostProcessorBeans(beanFactory, registry, new HashSet<>());
+
+		// Clear cached merged bean definitions since the post-processors might have
+		// modified the original metadata, e.g. flagging configuration classes...
+		beanFactory.clearMetadataCache();
+	}
+
+	/**
+	 * Invoke the BeanDefinitionRegistryPostProcessors defined as beans, in order,
+	 * until no further ones appear.
+	 * @return the post-processors that have been invoked
+	 */
+	private static List<BeanDefinitionRegistryPostProcessor> invokeBeanDefinitionRegistryPostProcessorBeans(
+			ConfigurableListableBeanFactory beanFactory, BeanDefinitionRegistry registry, Set<String> processedBeans) {
+
+		List<BeanDefinitionRegistryPostProcessor> registryProcessors = new ArrayList<>();
+
+		// Do not initialize FactoryBeans here: We need to leave all regular beans
+		// uninitialized to let the bean factory post-processors apply to them!
+		// Separate between BeanDefinitionRegistryPostProcessors that implement
+		// PriorityOrdered, Ordered, and the rest.
+		// 用于保存当前处理的 BeanDefinitionRegistryPostProcessor
+		List<BeanDefinitionRegistryPostProcessor> currentRegistryProcessors = new ArrayList<>();
+
+		// First, invoke the BeanDefinitionRegistryPostProcessors that implement PriorityOrdered.
+		// 首先，处理实现了 PriorityOrdered (有限排序接口)的 BeanDefinitionRegistryPostProcessor
+		String[] postProcessorNames =
+				beanFactory.getBeanNamesForType(BeanDefinitionRegistryPostProcessor.class, true, false);
+		for (String ppName : postProcessorNames) {
+			if (beanFactory.isTypeMatch(ppName, PriorityOrdered.class)) {
+				currentRegistryProcessors.add(beanFactory.getBean(ppName, BeanDefinitionRegistryPostProcessor.class));
+				processedBeans.add(ppName);
+			}
+		}
+		// 排序
+		sortPostProcessors(currentRegistryProcessors, beanFactory);
+		registryProcessors.addAll(currentRegistryProcessors);
+		// 实现了 PriorityOrdered 的 BeanDefinitionRegistryPostProcessor 执行 postProcessBeanDefinitionRegistry 方法
+		invokeBeanDefinitionRegistryPostProcessors(currentRegistryProcessors, registry, beanFactory.getApplicationStartup());
+		// 清空 currentRegistryProcessors，以备下次使用
+		currentRegistryProcessors.clear();
+
+		// Next, invoke the BeanDefinitionRegistryPostProcessors that implement Ordered.
+		// 其次，调用是实现了 Ordered（普通排序接口）的 BeanDefinitionRegistryPostProcessors
+		// 逻辑和 上面一样
+		postProcessorNames = beanFactory.getBeanNamesForType(BeanDefinitionRegistryPostProcessor.class, true, false);
+		for (String ppName : postProcessorNames) {
+			if (!processedBeans.contains(ppName) && beanFactory.isTypeMatch(ppName, Ordered.class)) {
+				currentRegistryProcessors.add(beanFactory.getBean(ppName, BeanDefinitionRegistryPostProcessor.class));
+				processedBeans.add(ppName);
+			}
+		}
+		sortPostProcessors(currentRegistryProcessors, beanFactory);
+		registryProcessors.addAll(currentRegistryProcessors);
+		invokeBeanDefinitionRegistryPostProcessors(currentRegistryProcessors, registry, beanFactory.getApplicationStartup());
+		currentRegistryProcessors.clear();
+
+		// Finally, invoke all other BeanDefinitionRegistryPostProcessors until no further ones appear.
+		// 最后调用其他的 BeanDefinitionRegistryPostProcessors
+		boolean reiterate = true;
+		while (reiterate) {
+			reiterate = false;
+			postProcessorNames = beanFactory.getBeanNamesForType(BeanDefinitionRegistryPostProcessor.class, true, false);
+			for (String ppName : postProcessorNames) {
+				// 没有包含在 processedBeans 中的（因为包含了的都已经处理了）
+				if (!processedBeans.contains(ppName)) {
+					currentRegistryProcessors.add(beanFactory.getBean(ppName, BeanDefinitionRegistryPostProcessor.class));
+					processedBeans.add(ppName);
+					reiterate = true;
+				}
+			}
+			sortPostProcessors(currentRegistryProcessors, beanFactory);
+			registryProcessors.addAll(currentRegistryProcessors);
+			invokeBeanDefinitionRegistryPostProcessors(currentRegistryProcessors, registry, beanFactory.getApplicationStartup());
+			currentRegistryProcessors.clear();
+		}
+
+		return registryProcessors;
+	}
+
 	public static void registerBeanPostProcessors(
 			ConfigurableListableBeanFactory beanFactory, AbstractApplicationContext applicationContext) {
 
@@ -316,10 +364,18 @@ final class PostProcessorRegistrationDelegate {
 	 * Invoke the given BeanDefinitionRegistryPostProcessor beans.
 	 */
 	private static void invokeBeanDefinitionRegistryPostProcessors(
-			Collection<? extends BeanDefinitionRegistryPostProcessor> postProcessors, BeanDefinitionRegistry registry) {
+			Collection<? extends BeanDefinitionRegistryPostProcessor> postProcessors, BeanDefinitionRegistry registry,
+			ApplicationStartup applicationStartup) {
 
 		for (BeanDefinitionRegistryPostProcessor postProcessor : postProcessors) {
-			postProcessor.postProcessBeanDefinitionRegistry(registry);
+			StartupStep postProcessBeanDefRegistry = applicationStartup.start("spring.context.beandef-registry.post-process")
+					.tag("postProcessor", () -> postProcessor.getClass().getName());
+			try {
+				postProcessor.postProcessBeanDefinitionRegistry(registry);
+			}
+			finally {
+				postProcessBeanDefRegistry.end();
+			}
 		}
 	}
 
@@ -330,7 +386,14 @@ final class PostProcessorRegistrationDelegate {
 			Collection<? extends BeanFactoryPostProcessor> postProcessors, ConfigurableListableBeanFactory beanFactory) {
 
 		for (BeanFactoryPostProcessor postProcessor : postProcessors) {
-			postProcessor.postProcessBeanFactory(beanFactory);
+			StartupStep postProcessBeanFactory = beanFactory.getApplicationStartup().start("spring.context.bean-factory.post-process")
+					.tag("postProcessor", () -> postProcessor.getClass().getName());
+			try {
+				postProcessor.postProcessBeanFactory(beanFactory);
+			}
+			finally {
+				postProcessBeanFactory.end();
+			}
 		}
 	}
 
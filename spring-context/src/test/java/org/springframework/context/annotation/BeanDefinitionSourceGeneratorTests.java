@@ -0,0 +1,206 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.annotation;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+
+import javax.tools.JavaCompiler;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.context.ApplicationContextInitializer;
+import org.springframework.context.annotation.componentscan.simple.SimpleComponent;
+import org.springframework.context.support.GenericApplicationContext;
+import org.springframework.core.type.AnnotatedTypeMetadata;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.Assert.*;
+import static org.junit.Assume.*;
+
+/**
+ * Tests for {@link BeanDefinitionSourceGenerator}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class BeanDefinitionSourceGeneratorTests {
+
+	@Rule
+	public final TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+
+	@Test
+	public void generatesBeanDefinitionRegistrations() {
+		String source = generate(SampleConfig.class);
+
+		assertThat(source, containsString("package org.springframework.context.annotation.generated;"));
+		assertThat(source, containsString("public class SampleBeanDefinitions implements " +
+				"ApplicationContextInitializer<GenericApplicationContext>"));
+		assertThat(source, containsString("bd.setInstanceSupplier(" + SampleService.class.getCanonicalName() + "::new);"));
+		assertThat(source, containsString("bd.setFactoryBeanName(\"beanDefinitionSourceGeneratorTests.SampleConfig\");"));
+		assertThat(source, containsString("bd.setUniqueFactoryMethodName(\"testBean\");"));
+		assertThat(source, containsString("bd.setScope(\"prototype\");"));
+		assertThat(source, containsString("context.registerBeanDefinition(\"simpleComponent\", bd);"));
+		assertThat(source, not(containsString("\"disabledBean\"")));
+		assertThat(source, not(containsString("internalConfigurationAnnotationProcessor\", bd")));
+	}
+
+	@Test
+	public void generatedInitializerRegistersEquivalentContext() throws Exception {
+		GenericApplicationContext context = new GenericApplicationContext();
+		initializer(SampleConfig.class).initialize(context);
+		context.refresh();
+
+		TestBean testBean = context.getBean("testBean", TestBean.class);
+		assertEquals("sample", testBean.getName());
+		assertSame(testBean, context.getBean(SampleConfig.class).testBean());
+		assertNotSame(context.getBean("prototypeBean"), context.getBean("prototypeBean"));
+		assertSame(testBean, context.getBean(SampleService.class).testBean);
+		assertEquals("example", context.getBean("exampleBean"));
+		assertFalse(context.containsBean("disabledBean"));
+		assertEquals(SampleConfig.class.getName(),
+				context.getBean(ImportAwareConfig.class).importMetadata.getClassName());
+		assertEquals(BeanDefinition.ROLE_INFRASTRUCTURE,
+				context.getBeanFactory().getBeanDefinition("infrastructureBean").getRole());
+		context.close();
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void propertySourceIsRejected() {
+		generate(PropertySourceConfig.class);
+	}
+
+
+	private static String generate(Class<?> configClass) {
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.register(configClass);
+		return new BeanDefinitionSourceGenerator(context).generate(
+				"org.springframework.context.annotation.generated.SampleBeanDefinitions");
+	}
+
+	@SuppressWarnings("unchecked")
+	private ApplicationContextInitializer<GenericApplicationContext> initializer(Class<?> configClass)
+			throws Exception {
+
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		assumeNotNull(compiler);
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.register(configClass);
+		File sourceDir = this.temporaryFolder.newFolder("sources");
+		File classesDir = this.temporaryFolder.newFolder("classes");
+		String className = "org.springframework.context.annotation.generated.SampleBeanDefinitions";
+		Path sourceFile = new BeanDefinitionSourceGenerator(context).writeTo(sourceDir.toPath(), className);
+		compile(compiler, sourceFile, classesDir);
+
+		URLClassLoader classLoader = new URLClassLoader(
+				new URL[] {classesDir.toURI().toURL()}, getClass().getClassLoader());
+		return (ApplicationContextInitializer<GenericApplicationContext>)
+				classLoader.loadClass(className).newInstance();
+	}
+
+	private static void compile(JavaCompiler compiler, Path sourceFile, File classesDir) throws IOException {
+		try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, null)) {
+			Boolean success = compiler.getTask(null, fileManager, null,
+					Arrays.asList("-classpath", System.getProperty("java.class.path"),
+							"-d", classesDir.getAbsolutePath()),
+					null, fileManager.getJavaFileObjectsFromFiles(Collections.singletonList(sourceFile.toFile())))
+					.call();
+			assertTrue("Generated source does not compile:\n" + new String(Files.readAllBytes(sourceFile)), success);
+		}
+	}
+
+
+	@Configuration
+	@ComponentScan(basePackageClasses = SimpleComponent.class,
+			useDefaultFilters = false, includeFilters = @ComponentScan.Filter(
+					type = FilterType.ASSIGNABLE_TYPE, classes = SimpleComponent.class))
+	@Import({SampleService.class, ImportAwareConfig.class})
+	public static class SampleConfig {
+
+		@Bean
+		public TestBean testBean() {
+			return new TestBean("sample");
+		}
+
+		@Bean
+		@Scope("prototype")
+		public TestBean prototypeBean() {
+			return new TestBean("prototype");
+		}
+
+		@Bean
+		@Role(BeanDefinition.ROLE_INFRASTRUCTURE)
+		public static String infrastructureBean() {
+			return "infrastructure";
+		}
+
+		@Bean
+		@Conditional(NeverCondition.class)
+		public TestBean disabledBean() {
+			return new TestBean("disabled");
+		}
+	}
+
+
+	public static class SampleService {
+
+		@Autowired
+		TestBean testBean;
+	}
+
+
+	@Configuration
+	public static class ImportAwareConfig implements ImportAware {
+
+		AnnotationMetadata importMetadata;
+
+		@Override
+		public void setImportMetadata(AnnotationMetadata importMetadata) {
+			this.importMetadata = importMetadata;
+		}
+	}
+
+
+	@Configuration
+	@PropertySource("classpath:org/springframework/context/annotation/p1.properties")
+	public static class PropertySourceConfig {
+	}
+
+
+	static class NeverCondition implements Condition {
+
+		@Override
+		public boolean matches(ConditionContext context, AnnotatedTypeMetadata metadata) {
+			return false;
+		}
+	}
+
+}
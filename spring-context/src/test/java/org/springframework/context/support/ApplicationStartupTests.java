@@ -0,0 +1,185 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.context.support;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import org.springframework.beans.factory.config.BeanFactoryPostProcessor;
+import org.springframework.beans.factory.parsing.BeanDefinitionParsingException;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.metrics.BufferingApplicationStartup;
+import org.springframework.core.metrics.BufferingApplicationStartup.BufferedStartupStep;
+import org.springframework.core.metrics.StartupStep;
+import org.springframework.tests.sample.beans.TestBean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the {@link org.springframework.core.metrics.ApplicationStartup}
+ * steps recorded during an application context refresh.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ApplicationStartupTests {
+
+	@Test
+	public void refreshRecordsNestedSteps() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(1000);
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.setApplicationStartup(startup);
+		context.register(StartupConfig.class);
+		context.refresh();
+
+		assertSame(startup, context.getBean("applicationStartup"));
+		assertSame(startup, context.getBeanFactory().getApplicationStartup());
+
+		List<BufferedStartupStep> steps = startup.getBufferedSteps();
+		BufferedStartupStep refresh = findStep(steps, "spring.context.refresh", null);
+		assertNull(refresh.getParentId());
+		BufferedStartupStep postProcess = findStep(steps, "spring.context.beans.post-process", null);
+		assertEquals(Long.valueOf(refresh.getId()), postProcess.getParentId());
+
+		BufferedStartupStep parse = findStep(steps, "spring.context.config-classes.parse", null);
+		assertEquals("1", tagValue(parse, "classCount"));
+		findStep(steps, "spring.context.config-classes.enhance", null);
+		BufferedStartupStep registryPostProcess = findStep(steps, "spring.context.beandef-registry.post-process", null);
+		assertEquals(Long.valueOf(postProcess.getId()), registryPostProcess.getParentId());
+		assertEquals(Long.valueOf(registryPostProcess.getId()), parse.getParentId());
+
+		BufferedStartupStep instantiate = findStep(steps, "spring.beans.instantiate", "testBean");
+		assertEquals(TestBean.class.getName(), tagValue(instantiate, "beanType"));
+		assertEquals(Long.valueOf(refresh.getId()), instantiate.getParentId());
+		BufferedStartupStep initialize = findStep(steps, "spring.beans.initialize", "testBean");
+		assertEquals(Long.valueOf(instantiate.getId()), initialize.getParentId());
+
+		context.close();
+	}
+
+	@Test
+	public void refreshableContextRecordsBeanDefinitionLoading() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(1000);
+		ClassPathXmlApplicationContext context = new ClassPathXmlApplicationContext();
+		context.setApplicationStartup(startup);
+		context.setConfigLocation("org/springframework/context/support/simpleContext.xml");
+		context.refresh();
+
+		BufferedStartupStep loading = findStep(startup.getBufferedSteps(), "spring.context.bean-definitions.load", null);
+		assertEquals(String.valueOf(context.getBeanDefinitionCount()), tagValue(loading, "beanDefinitionCount"));
+		assertSame(startup, context.getBeanFactory().getApplicationStartup());
+
+		context.close();
+	}
+
+
+	@Test
+	public void failingPostProcessorEndsSteps() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(1000);
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.setApplicationStartup(startup);
+		context.register(FailingPostProcessorConfig.class);
+		try {
+			context.refresh();
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertEquals("Post-processing failure", ex.getMessage());
+		}
+
+		List<BufferedStartupStep> steps = startup.getBufferedSteps();
+		BufferedStartupStep refresh = findStep(steps, "spring.context.refresh", null);
+		BufferedStartupStep postProcess = findStep(steps, "spring.context.beans.post-process", null);
+		assertEquals(Long.valueOf(refresh.getId()), postProcess.getParentId());
+		assertNull(((BufferedStartupStep) startup.start("next")).getParentId());
+	}
+
+	@Test
+	public void invalidConfigurationClassEndsParseStep() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(1000);
+		AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext();
+		context.setApplicationStartup(startup);
+		context.register(InvalidConfig.class);
+		try {
+			context.refresh();
+			fail("Should have thrown BeanDefinitionParsingException");
+		}
+		catch (BeanDefinitionParsingException ex) {
+			// expected
+		}
+
+		List<BufferedStartupStep> steps = startup.getBufferedSteps();
+		findStep(steps, "spring.context.config-classes.parse", null);
+		findStep(steps, "spring.context.refresh", null);
+		assertNull(((BufferedStartupStep) startup.start("next")).getParentId());
+	}
+
+
+	private static BufferedStartupStep findStep(List<BufferedStartupStep> steps, String name, String beanName) {
+		List<BufferedStartupStep> matches = steps.stream()
+				.filter(step -> step.getName().equals(name))
+				.filter(step -> beanName == null || beanName.equals(tagValue(step, "beanName")))
+				.collect(Collectors.toList());
+		assertFalse("No step named '" + name + "' recorded", matches.isEmpty());
+		return matches.get(0);
+	}
+
+	private static String tagValue(StartupStep step, String key) {
+		for (StartupStep.Tag tag : step.getTags()) {
+			if (tag.getKey().equals(key)) {
+				return tag.getValue();
+			}
+		}
+		return null;
+	}
+
+
+	@Configuration
+	static class StartupConfig {
+
+		@Bean
+		public TestBean testBean() {
+			return new TestBean();
+		}
+	}
+
+
+	@Configuration
+	static class FailingPostProcessorConfig {
+
+		@Bean
+		public static BeanFactoryPostProcessor failingPostProcessor() {
+			return beanFactory -> {
+				throw new IllegalStateException("Post-processing failure");
+			};
+		}
+	}
+
+
+	@Configuration
+	static class InvalidConfig {
+
+		@Bean
+		public final TestBean testBean() {
+			return new TestBean();
+		}
+	}
+
+}
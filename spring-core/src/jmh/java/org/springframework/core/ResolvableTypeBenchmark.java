@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Benchmarks for {@link ResolvableType} creation and generics resolution.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+public class ResolvableTypeBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		public Field field;
+
+		public Method method;
+
+		public ResolvableType resolvedType;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			this.field = Repository.class.getDeclaredField("entries");
+			this.method = Repository.class.getDeclaredMethod("findAll", Map.class);
+			this.resolvedType = ResolvableType.forClass(StringRepository.class);
+		}
+	}
+
+
+	@Benchmark
+	public Class<?> forClassResolve() {
+		return ResolvableType.forClass(StringRepository.class).resolve();
+	}
+
+	@Benchmark
+	public Class<?> forFieldWithImplementation(BenchmarkState state) {
+		return ResolvableType.forField(state.field, StringRepository.class).resolveGeneric(0);
+	}
+
+	@Benchmark
+	public Class<?> forMethodParameterWithImplementation(BenchmarkState state) {
+		return ResolvableType.forMethodParameter(state.method, 0, StringRepository.class).resolveGeneric(1);
+	}
+
+	@Benchmark
+	public Class<?> asSuperTypeGeneric(BenchmarkState state) {
+		return state.resolvedType.as(Repository.class).resolveGeneric(0);
+	}
+
+	@Benchmark
+	public boolean isAssignableFrom(BenchmarkState state) {
+		return ResolvableType.forClassWithGenerics(Repository.class, String.class).isAssignableFrom(state.resolvedType);
+	}
+
+
+	public static class Repository<T> {
+
+		public List<T> entries;
+
+		public List<T> findAll(Map<String, T> criteria) {
+			return this.entries;
+		}
+	}
+
+
+	public static class StringRepository extends Repository<String> {
+	}
+
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.annotation;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.core.annotation.MergedAnnotations.SearchStrategy;
+
+/**
+ * Benchmarks for {@link MergedAnnotations} lookups on classes and methods,
+ * for both direct and exhaustive search strategies.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+public class MergedAnnotationsBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		public Method annotatedMethod;
+
+		public Method plainMethod;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			this.annotatedMethod = AnnotatedClass.class.getMethod("handle");
+			this.plainMethod = AnnotatedClass.class.getMethod("toString");
+		}
+	}
+
+
+	@Benchmark
+	public boolean classIsPresentDirect() {
+		return MergedAnnotations.from(AnnotatedClass.class).isPresent(Component.class);
+	}
+
+	@Benchmark
+	public String classMetaAnnotationAttribute() {
+		return MergedAnnotations.from(AnnotatedClass.class, SearchStrategy.EXHAUSTIVE)
+				.get(Component.class).getString("value");
+	}
+
+	@Benchmark
+	public boolean subclassIsPresentTypeHierarchy() {
+		return MergedAnnotations.from(AnnotatedSubclass.class, SearchStrategy.EXHAUSTIVE).isPresent(Service.class);
+	}
+
+	@Benchmark
+	public boolean methodIsPresentTypeHierarchy(BenchmarkState state) {
+		return MergedAnnotations.from(state.annotatedMethod, SearchStrategy.EXHAUSTIVE).isPresent(Mapping.class);
+	}
+
+	@Benchmark
+	public boolean plainMethodIsPresentTypeHierarchy(BenchmarkState state) {
+		return MergedAnnotations.from(state.plainMethod, SearchStrategy.EXHAUSTIVE).isPresent(Mapping.class);
+	}
+
+	@Benchmark
+	public Object synthesizeMethodAnnotation(BenchmarkState state) {
+		return AnnotatedElementUtils.findMergedAnnotation(state.annotatedMethod, Mapping.class);
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.TYPE, ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+	public @interface Component {
+
+		String value() default "";
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.TYPE)
+	@Component
+	public @interface Service {
+
+		@AliasFor(annotation = Component.class)
+		String value() default "";
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target({ElementType.METHOD, ElementType.ANNOTATION_TYPE})
+	public @interface Mapping {
+
+		@AliasFor("path")
+		String[] value() default {};
+
+		@AliasFor("value")
+		String[] path() default {};
+	}
+
+
+	@Retention(RetentionPolicy.RUNTIME)
+	@Target(ElementType.METHOD)
+	@Mapping
+	public @interface GetMapping {
+
+		@AliasFor(annotation = Mapping.class)
+		String[] value() default {};
+	}
+
+
+	public interface Handler {
+
+		@GetMapping("/handle")
+		void handle();
+	}
+
+
+	@Service("annotated")
+	public static class AnnotatedClass implements Handler {
+
+		@Override
+		public void handle() {
+		}
+	}
+
+
+	public static class AnnotatedSubclass extends AnnotatedClass {
+	}
+
+}
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.codec;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.util.MimeTypeUtils;
+
+/**
+ * Benchmarks for {@link StringDecoder}, splitting a newline-delimited stream
+ * received in fixed-size chunks into lines.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+public class StringDecoderBenchmark {
+
+	private static final ResolvableType ELEMENT_TYPE = ResolvableType.forClass(String.class);
+
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({"80"})
+		public int lineLength;
+
+		@Param({"8192"})
+		public int chunkSize;
+
+		public DataBufferFactory bufferFactory;
+
+		public StringDecoder decoder;
+
+		public List<byte[]> chunks;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.bufferFactory = new DefaultDataBufferFactory();
+			this.decoder = StringDecoder.allMimeTypes();
+			StringBuilder builder = new StringBuilder();
+			StringBuilder line = new StringBuilder();
+			while (line.length() < this.lineLength) {
+				line.append("field").append(line.length()).append(',');
+			}
+			for (int i = 0; builder.length() < 10 * 1024 * 1024; i++) {
+				builder.append(i).append(',').append(line).append(i % 2 == 0 ? "\n" : "\r\n");
+			}
+			byte[] content = builder.toString().getBytes(StandardCharsets.UTF_8);
+			this.chunks = new ArrayList<>();
+			for (int offset = 0; offset < content.length; offset += this.chunkSize) {
+				int length = Math.min(this.chunkSize, content.length - offset);
+				byte[] chunk = new byte[length];
+				System.arraycopy(content, offset, chunk, 0, length);
+				this.chunks.add(chunk);
+			}
+		}
+
+		public Flux<DataBuffer> input() {
+			return Flux.fromIterable(this.chunks).map(this.bufferFactory::wrap);
+		}
+	}
+
+
+	@Benchmark
+	public long decodeLines(BenchmarkState state) {
+		Long count = state.decoder.decode(state.input(), ELEMENT_TYPE, MimeTypeUtils.TEXT_PLAIN, null)
+				.count().block();
+		return (count != null ? count : 0);
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,7 +16,7 @@
 
 package org.springframework.core.codec;
 
-import java.nio.CharBuffer;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -25,6 +25,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
 import org.reactivestreams.Publisher;
@@ -33,7 +34,6 @@ import reactor.core.publisher.Flux;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
-import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.core.io.buffer.PooledDataBuffer;
 import org.springframework.core.log.LogFormatUtils;
 import org.springframework.lang.Nullable;
@@ -58,8 +58,6 @@ import org.springframework.util.MimeTypeUtils;
  */
 public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 
-	private static final DataBuffer END_FRAME = new DefaultDataBufferFactory().wrap(new byte[0]);
-
 	/** The default charset to use, i.e. "UTF-8". */
 	public static final Charset DEFAULT_CHARSET = StandardCharsets.UTF_8;
 
@@ -71,7 +69,9 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 
 	private final boolean stripDelimiter;
 
-	private final ConcurrentMap<Charset, List<byte[]>> delimitersCache = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Charset, DelimiterMatcher> delimitersCache = new ConcurrentHashMap<>();
+
+	private int maxInMemorySize = -1;
 
 
 	private StringDecoder(List<String> delimiters, boolean stripDelimiter, MimeType... mimeTypes) {
@@ -82,6 +82,26 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 	}
 
 
+	/**
+	 * Set the max number of bytes that can be buffered for a single line,
+	 * including the delimiter unless stripped.
+	 * <p>By default this is set to -1, i.e. unlimited.
+	 * @param byteCount the max number of bytes to buffer, or -1 for unlimited
+	 * @since 5.2
+	 */
+	public void setMaxInMemorySize(int byteCount) {
+		this.maxInMemorySize = byteCount;
+	}
+
+	/**
+	 * Return the {@link #setMaxInMemorySize configured} byte count limit.
+	 * @since 5.2
+	 */
+	public int getMaxInMemorySize() {
+		return this.maxInMemorySize;
+	}
+
+
 	@Override
 	public boolean canDecode(ResolvableType elementType, @Nullable MimeType mimeType) {
 		return (elementType.resolve() == String.class && super.canDecode(elementType, mimeType));
@@ -91,122 +111,48 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 	public Flux<String> decode(Publisher<DataBuffer> inputStream, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-		List<byte[]> delimiterBytes = getDelimiterBytes(mimeType);
+		DelimiterMatcher matcher = getDelimiterMatcher(mimeType);
 
-		Flux<DataBuffer> inputFlux = Flux.from(inputStream)
-				.flatMapIterable(dataBuffer -> splitOnDelimiter(dataBuffer, delimiterBytes))
-				.bufferUntil(StringDecoder::isEndFrame)
-				.map(StringDecoder::joinUntilEndFrame)
-				.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
+		Flux<DataBuffer> inputFlux = Flux.defer(() -> {
+			LineSplitter splitter = new LineSplitter(matcher, this.stripDelimiter, this.maxInMemorySize);
+			return Flux.from(inputStream)
+					.concatMapIterable(splitter::split)
+					.concatWith(Flux.defer(() -> Flux.fromIterable(splitter.endOfInput())))
+					.doFinally(signalType -> splitter.releasePending());
+		}).doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release);
 
 		return super.decode(inputFlux, elementType, mimeType, hints);
 	}
 
-	private List<byte[]> getDelimiterBytes(@Nullable MimeType mimeType) {
+	private DelimiterMatcher getDelimiterMatcher(@Nullable MimeType mimeType) {
 		return this.delimitersCache.computeIfAbsent(getCharset(mimeType),
-				charset -> this.delimiters.stream()
+				charset -> new DelimiterMatcher(this.delimiters.stream()
 						.map(s -> s.getBytes(charset))
-						.collect(Collectors.toList()));
+						.collect(Collectors.toList())));
 	}
 
-	/**
-	 * Split the given data buffer on delimiter boundaries.
-	 * The returned Flux contains an {@link #END_FRAME} buffer after each delimiter.
-	 */
-	private List<DataBuffer> splitOnDelimiter(DataBuffer dataBuffer, List<byte[]> delimiterBytes) {
-		List<DataBuffer> frames = new ArrayList<>();
-		do {
-			int length = Integer.MAX_VALUE;
-			byte[] matchingDelimiter = null;
-			for (byte[] delimiter : delimiterBytes) {
-				int index = indexOf(dataBuffer, delimiter);
-				if (index >= 0 && index < length) {
-					length = index;
-					matchingDelimiter = delimiter;
-				}
-			}
-			DataBuffer frame;
-			int readPosition = dataBuffer.readPosition();
-			if (matchingDelimiter != null) {
-				if (this.stripDelimiter) {
-					frame = dataBuffer.slice(readPosition, length);
-				}
-				else {
-					frame = dataBuffer.slice(readPosition, length + matchingDelimiter.length);
-				}
-				dataBuffer.readPosition(readPosition + length + matchingDelimiter.length);
+	@Override
+	protected String decodeDataBuffer(DataBuffer dataBuffer, ResolvableType elementType,
+			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-				frames.add(DataBufferUtils.retain(frame));
-				frames.add(END_FRAME);
+		Charset charset = getCharset(mimeType);
+		String value;
+		try {
+			// Decode straight from the backing array if there is one, skipping the CharBuffer
+			ByteBuffer byteBuffer = dataBuffer.asByteBuffer();
+			if (byteBuffer.hasArray()) {
+				value = new String(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(),
+						byteBuffer.remaining(), charset);
 			}
 			else {
-				frame = dataBuffer.slice(readPosition, dataBuffer.readableByteCount());
-				dataBuffer.readPosition(readPosition + dataBuffer.readableByteCount());
-				frames.add(DataBufferUtils.retain(frame));
-			}
-		}
-		while (dataBuffer.readableByteCount() > 0);
-
-		DataBufferUtils.release(dataBuffer);
-		return frames;
-	}
-
-	/**
-	 * Find the given delimiter in the given data buffer.
-	 * @return the index of the delimiter, or -1 if not found.
-	 */
-	private static int indexOf(DataBuffer dataBuffer, byte[] delimiter) {
-		for (int i = dataBuffer.readPosition(); i < dataBuffer.writePosition(); i++) {
-			int dataBufferPos = i;
-			int delimiterPos = 0;
-			while (delimiterPos < delimiter.length) {
-				if (dataBuffer.getByte(dataBufferPos) != delimiter[delimiterPos]) {
-					break;
-				}
-				else {
-					dataBufferPos++;
-					if (dataBufferPos == dataBuffer.writePosition() &&
-							delimiterPos != delimiter.length - 1) {
-						return -1;
-					}
-				}
-				delimiterPos++;
-			}
-			if (delimiterPos == delimiter.length) {
-				return i - dataBuffer.readPosition();
+				byte[] bytes = new byte[dataBuffer.readableByteCount()];
+				dataBuffer.read(bytes);
+				value = new String(bytes, charset);
 			}
 		}
-		return -1;
-	}
-
-	/**
-	 * Check whether the given buffer is {@link #END_FRAME}.
-	 */
-	private static boolean isEndFrame(DataBuffer dataBuffer) {
-		return dataBuffer == END_FRAME;
-	}
-
-	/**
-	 * Join the given list of buffers into a single buffer.
-	 */
-	private static DataBuffer joinUntilEndFrame(List<DataBuffer> dataBuffers) {
-		if (!dataBuffers.isEmpty()) {
-			int lastIdx = dataBuffers.size() - 1;
-			if (isEndFrame(dataBuffers.get(lastIdx))) {
-				dataBuffers.remove(lastIdx);
-			}
+		finally {
+			DataBufferUtils.release(dataBuffer);
 		}
-		return dataBuffers.get(0).factory().join(dataBuffers);
-	}
-
-	@Override
-	protected String decodeDataBuffer(DataBuffer dataBuffer, ResolvableType elementType,
-			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
-
-		Charset charset = getCharset(mimeType);
-		CharBuffer charBuffer = charset.decode(dataBuffer.asByteBuffer());
-		DataBufferUtils.release(dataBuffer);
-		String value = charBuffer.toString();
 		LogFormatUtils.traceDebug(logger, traceOn -> {
 			String formatted = LogFormatUtils.formatValue(value, !traceOn);
 			return Hints.getLogPrefix(hints) + "Decoded " + formatted;
@@ -281,4 +227,333 @@ public final class StringDecoder extends AbstractDataBufferDecoder<String> {
 				new MimeType("text", "plain", DEFAULT_CHARSET), MimeTypeUtils.ALL);
 	}
 
+
+	/**
+	 * Precomputed matcher for a set of delimiters, in a given charset.
+	 * Candidate positions are found in a single pass over the input by looking
+	 * for the last byte of any of the delimiters; only there are the delimiters
+	 * compared in full. The longest delimiter always wins: a delimiter that is
+	 * a prefix of another one only ends a line once the bytes that follow it
+	 * rule out the longer delimiter.
+	 */
+	private static class DelimiterMatcher {
+
+		// Longest first, so that "\r\n" is preferred over "\n"
+		private final byte[][] delimiters;
+
+		private final IntPredicate lastBytes;
+
+		private final int maxLength;
+
+		// Whether a delimiter is a proper prefix of another one, e.g. "\r" of "\r\n"
+		private final boolean hasPrefixes;
+
+		DelimiterMatcher(List<byte[]> delimiters) {
+			this.delimiters = delimiters.stream()
+					.filter(delimiter -> delimiter.length > 0)
+					.sorted((delimiter1, delimiter2) -> Integer.compare(delimiter2.length, delimiter1.length))
+					.toArray(byte[][]::new);
+			Assert.notEmpty(this.delimiters, "'delimiters' must not be empty");
+			this.maxLength = this.delimiters[0].length;
+			boolean[] table = new boolean[256];
+			for (byte[] delimiter : this.delimiters) {
+				table[delimiter[delimiter.length - 1] & 0xFF] = true;
+			}
+			byte singleLastByte = this.delimiters[0][this.maxLength - 1];
+			boolean single = Arrays.stream(this.delimiters)
+					.allMatch(delimiter -> delimiter[delimiter.length - 1] == singleLastByte);
+			this.lastBytes = (single ? b -> b == singleLastByte : b -> table[b & 0xFF]);
+			this.hasPrefixes = Arrays.stream(this.delimiters).anyMatch(prefix -> Arrays.stream(this.delimiters)
+					.anyMatch(delimiter -> delimiter.length > prefix.length && startsWith(delimiter, prefix)));
+		}
+
+		/**
+		 * Return the delimiter that ends at the given index, if any.
+		 * @param buffer the buffer to look in
+		 * @param lineStart the index in the buffer where the current line starts
+		 * @param index the index of the last byte of the delimiter
+		 * @param tail the last bytes of the line before {@code lineStart}
+		 * @param tailLength the number of valid bytes in {@code tail}
+		 */
+		@Nullable
+		byte[] match(DataBuffer buffer, int lineStart, int index, byte[] tail, int tailLength) {
+			for (byte[] delimiter : this.delimiters) {
+				if (matches(delimiter, buffer, lineStart, index, tail, tailLength)) {
+					return delimiter;
+				}
+			}
+			return null;
+		}
+
+		/**
+		 * Return the longest delimiter that starts with the given, matched
+		 * delimiter and continues with the bytes of the buffer from the given
+		 * index: the given delimiter itself if there is none, or {@code null}
+		 * if the buffer ends before a longer delimiter can be ruled out.
+		 * @param delimiter the matched delimiter
+		 * @param buffer the buffer to look in
+		 * @param index the index of the first byte after the matched delimiter
+		 * @param endOfInput whether no input follows the buffer
+		 */
+		@Nullable
+		byte[] longest(byte[] delimiter, DataBuffer buffer, int index, boolean endOfInput) {
+			int end = buffer.writePosition();
+			for (byte[] candidate : this.delimiters) {
+				if (candidate.length <= delimiter.length) {
+					break;
+				}
+				if (!startsWith(candidate, delimiter)) {
+					continue;
+				}
+				int i = delimiter.length;
+				int pos = index;
+				while (i < candidate.length && pos < end && buffer.getByte(pos) == candidate[i]) {
+					i++;
+					pos++;
+				}
+				if (i == candidate.length) {
+					return candidate;
+				}
+				if (pos == end && !endOfInput) {
+					return null;
+				}
+			}
+			return delimiter;
+		}
+
+		private static boolean startsWith(byte[] delimiter, byte[] prefix) {
+			for (int i = 0; i < prefix.length; i++) {
+				if (delimiter[i] != prefix[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private static boolean matches(byte[] delimiter, DataBuffer buffer, int lineStart, int index,
+				byte[] tail, int tailLength) {
+
+			for (int i = delimiter.length - 1, pos = index; i >= 0; i--, pos--) {
+				byte b;
+				if (pos >= lineStart) {
+					b = buffer.getByte(pos);
+				}
+				else {
+					int tailIndex = tailLength - (lineStart - pos);
+					if (tailIndex < 0) {
+						return false;
+					}
+					b = tail[tailIndex];
+				}
+				if (b != delimiter[i]) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+
+	/**
+	 * Splits a stream of data buffers into lines, for a single subscription.
+	 * Lines that are fully contained in a buffer are emitted as slices of it;
+	 * only the chunks of lines that span buffers are held and joined. Held
+	 * chunks are never scanned again: the last few bytes are kept aside to
+	 * match delimiters that span buffers. A delimiter that may be the prefix
+	 * of a longer one at the end of a buffer is held along with its line, and
+	 * the bytes after it are carried over to the next buffer.
+	 */
+	private static class LineSplitter {
+
+		private final DelimiterMatcher matcher;
+
+		private final boolean stripDelimiter;
+
+		private final int maxInMemorySize;
+
+		private final List<DataBuffer> chunks = new ArrayList<>();
+
+		private int chunksLength;
+
+		private final byte[] tail;
+
+		private int tailLength;
+
+		// A delimiter held at the end of the chunks, that may be the prefix of a longer one
+		@Nullable
+		private byte[] pendingDelimiter;
+
+		private byte[] pendingBytes = new byte[0];
+
+		private boolean endOfInput;
+
+		LineSplitter(DelimiterMatcher matcher, boolean stripDelimiter, int maxInMemorySize) {
+			this.matcher = matcher;
+			this.stripDelimiter = stripDelimiter;
+			this.maxInMemorySize = maxInMemorySize;
+			this.tail = new byte[matcher.maxLength - 1];
+		}
+
+		public List<DataBuffer> split(DataBuffer buffer) {
+			List<DataBuffer> lines = new ArrayList<>();
+			byte[] delimiter = this.pendingDelimiter;
+			this.pendingDelimiter = null;
+			try {
+				if (delimiter != null) {
+					buffer = prependPendingBytes(buffer);
+				}
+				int lineStart = buffer.readPosition();
+				int end = buffer.writePosition();
+				boolean empty = (lineStart == end && delimiter == null);
+				int from = lineStart;
+				while (delimiter != null || from < end) {
+					if (delimiter == null) {
+						int index = buffer.indexOf(this.matcher.lastBytes, from);
+						if (index == -1) {
+							break;
+						}
+						delimiter = this.matcher.match(buffer, lineStart, index, this.tail, this.tailLength);
+						from = index + 1;
+						if (delimiter == null) {
+							continue;
+						}
+					}
+					if (this.matcher.hasPrefixes) {
+						byte[] longest = this.matcher.longest(delimiter, buffer, from, this.endOfInput);
+						if (longest == null) {
+							defer(buffer, lineStart, from, delimiter);
+							return lines;
+						}
+						from += longest.length - delimiter.length;
+						delimiter = longest;
+					}
+					lines.add(line(buffer, lineStart, from, delimiter));
+					lineStart = from;
+					delimiter = null;
+				}
+				if (lineStart < end || empty) {
+					hold(buffer, lineStart, end);
+				}
+				return lines;
+			}
+			catch (RuntimeException ex) {
+				lines.forEach(DataBufferUtils::release);
+				throw ex;
+			}
+			finally {
+				DataBufferUtils.release(buffer);
+			}
+		}
+
+		private DataBuffer prependPendingBytes(DataBuffer buffer) {
+			DataBuffer joined = buffer.factory().allocateBuffer(this.pendingBytes.length + buffer.readableByteCount());
+			joined.write(this.pendingBytes);
+			joined.write(buffer);
+			DataBufferUtils.release(buffer);
+			return joined;
+		}
+
+		private void defer(DataBuffer buffer, int lineStart, int from, byte[] delimiter) {
+			if (from > lineStart) {
+				hold(buffer, lineStart, from);
+			}
+			byte[] pendingBytes = new byte[buffer.writePosition() - from];
+			for (int i = 0; i < pendingBytes.length; i++) {
+				pendingBytes[i] = buffer.getByte(from + i);
+			}
+			this.pendingDelimiter = delimiter;
+			this.pendingBytes = pendingBytes;
+		}
+
+		private DataBuffer line(DataBuffer buffer, int lineStart, int end, byte[] delimiter) {
+			int lineEnd = (this.stripDelimiter ? end - delimiter.length : end);
+			checkInMemorySize(this.chunksLength + lineEnd - lineStart);
+			if (lineEnd < lineStart) {
+				// Stripped delimiter that started in the held chunks
+				trimChunks(lineStart - lineEnd);
+				lineEnd = lineStart;
+			}
+			if (this.chunks.isEmpty()) {
+				this.chunksLength = 0;
+				this.tailLength = 0;
+				return DataBufferUtils.retain(buffer.slice(lineStart, lineEnd - lineStart));
+			}
+			if (lineEnd > lineStart) {
+				this.chunks.add(DataBufferUtils.retain(buffer.slice(lineStart, lineEnd - lineStart)));
+			}
+			return joinChunks();
+		}
+
+		private void hold(DataBuffer buffer, int start, int end) {
+			int length = end - start;
+			checkInMemorySize(this.chunksLength + length);
+			this.chunks.add(DataBufferUtils.retain(buffer.slice(start, length)));
+			this.chunksLength += length;
+			// Keep the last bytes aside, for delimiters that span buffers
+			int keep = Math.min(length, this.tail.length);
+			int shift = Math.min(this.tailLength, this.tail.length - keep);
+			System.arraycopy(this.tail, this.tailLength - shift, this.tail, 0, shift);
+			for (int i = 0; i < keep; i++) {
+				this.tail[shift + i] = buffer.getByte(end - keep + i);
+			}
+			this.tailLength = shift + keep;
+		}
+
+		private void trimChunks(int count) {
+			while (count > 0) {
+				int lastIndex = this.chunks.size() - 1;
+				DataBuffer last = this.chunks.get(lastIndex);
+				int trimmed = Math.min(last.readableByteCount(), count);
+				if (trimmed == last.readableByteCount()) {
+					this.chunks.remove(lastIndex);
+					DataBufferUtils.release(last);
+				}
+				else {
+					last.writePosition(last.writePosition() - trimmed);
+				}
+				this.chunksLength -= trimmed;
+				count -= trimmed;
+			}
+		}
+
+		private DataBuffer joinChunks() {
+			DataBuffer line = (this.chunks.size() == 1 ?
+					this.chunks.get(0) : this.chunks.get(0).factory().join(this.chunks));
+			this.chunks.clear();
+			this.chunksLength = 0;
+			this.tailLength = 0;
+			return line;
+		}
+
+		private void checkInMemorySize(int length) {
+			if (this.maxInMemorySize >= 0 && length > this.maxInMemorySize) {
+				throw new DecodingException("Exceeded limit on max bytes per line: " + this.maxInMemorySize);
+			}
+		}
+
+		/**
+		 * Return the remaining lines at the end of the input: the line of a
+		 * deferred delimiter, if any, and the held chunks of the last line,
+		 * not followed by a delimiter.
+		 */
+		public List<DataBuffer> endOfInput() {
+			this.endOfInput = true;
+			List<DataBuffer> lines = new ArrayList<>();
+			if (this.pendingDelimiter != null) {
+				// The deferred delimiter is held in the chunks
+				lines.addAll(split(this.chunks.get(0).factory().allocateBuffer(0)));
+			}
+			if (!this.chunks.isEmpty()) {
+				lines.add(joinChunks());
+			}
+			return lines;
+		}
+
+		public void releasePending() {
+			this.chunks.forEach(DataBufferUtils::release);
+			this.chunks.clear();
+			this.pendingDelimiter = null;
+		}
+	}
+
 }
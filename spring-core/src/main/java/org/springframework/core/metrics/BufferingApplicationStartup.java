@@ -0,0 +1,282 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * {@link ApplicationStartup} implementation that keeps ended
+ * {@link StartupStep steps} in an in-memory buffer of limited capacity.
+ *
+ * <p>Steps are nested per thread: a step started while another step is still
+ * running on the same thread records the running step as its parent. Once the
+ * buffer is full, further ended steps are discarded and only counted, see
+ * {@link #getDroppedStepCount()}.
+ *
+ * <p>Buffered steps can be retrieved with {@link #getBufferedSteps()} or
+ * {@link #drainBufferedSteps()}, for example in order to expose them through
+ * an administrative endpoint or to log the slowest beans after startup.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ */
+public class BufferingApplicationStartup implements ApplicationStartup {
+
+	private final int capacity;
+
+	private final AtomicLong idSeq = new AtomicLong();
+
+	private final ThreadLocal<BufferedStartupStep> currentStep =
+			new NamedThreadLocal<>("Current startup step");
+
+	private final List<BufferedStartupStep> bufferedSteps = new ArrayList<>();
+
+	private long droppedStepCount;
+
+
+	/**
+	 * Create a new buffered {@link ApplicationStartup} with a limited capacity.
+	 * @param capacity the maximum number of ended steps to keep in the buffer
+	 */
+	public BufferingApplicationStartup(int capacity) {
+		Assert.isTrue(capacity > 0, "Capacity must be greater than 0");
+		this.capacity = capacity;
+	}
+
+
+	/**
+	 * Return the maximum number of steps kept in the buffer.
+	 */
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	@Override
+	public StartupStep start(String name) {
+		BufferedStartupStep parent = this.currentStep.get();
+		BufferedStartupStep step = new BufferedStartupStep(
+				this.idSeq.getAndIncrement(), name, parent, Instant.now(), System.nanoTime());
+		this.currentStep.set(step);
+		return step;
+	}
+
+	private void record(BufferedStartupStep step) {
+		if (step.parent != null) {
+			this.currentStep.set(step.parent);
+		}
+		else {
+			this.currentStep.remove();
+		}
+		synchronized (this.bufferedSteps) {
+			if (this.bufferedSteps.size() < this.capacity) {
+				this.bufferedSteps.add(step);
+			}
+			else {
+				this.droppedStepCount++;
+			}
+		}
+	}
+
+	/**
+	 * Return a snapshot of the ended steps in the buffer, in the order they ended.
+	 * <p>This does not remove steps from the buffer.
+	 * @see #drainBufferedSteps()
+	 */
+	public List<BufferedStartupStep> getBufferedSteps() {
+		synchronized (this.bufferedSteps) {
+			return Collections.unmodifiableList(new ArrayList<>(this.bufferedSteps));
+		}
+	}
+
+	/**
+	 * Return the ended steps in the buffer, in the order they ended,
+	 * and remove them from the buffer, making room for new steps.
+	 */
+	public List<BufferedStartupStep> drainBufferedSteps() {
+		synchronized (this.bufferedSteps) {
+			List<BufferedStartupStep> steps = new ArrayList<>(this.bufferedSteps);
+			this.bufferedSteps.clear();
+			return Collections.unmodifiableList(steps);
+		}
+	}
+
+	/**
+	 * Return the number of ended steps that were discarded because
+	 * the buffer was full at the time.
+	 */
+	public long getDroppedStepCount() {
+		synchronized (this.bufferedSteps) {
+			return this.droppedStepCount;
+		}
+	}
+
+
+	/**
+	 * {@link StartupStep} recorded by a {@link BufferingApplicationStartup},
+	 * exposing its start time and duration once ended.
+	 */
+	public final class BufferedStartupStep implements StartupStep {
+
+		private final long id;
+
+		private final String name;
+
+		@Nullable
+		private final BufferedStartupStep parent;
+
+		private final Instant startTime;
+
+		private final long startNanos;
+
+		private final DefaultTags tags = new DefaultTags();
+
+		@Nullable
+		private volatile Duration duration;
+
+		BufferedStartupStep(long id, String name, @Nullable BufferedStartupStep parent,
+				Instant startTime, long startNanos) {
+
+			this.id = id;
+			this.name = name;
+			this.parent = parent;
+			this.startTime = startTime;
+			this.startNanos = startNanos;
+		}
+
+		@Override
+		public String getName() {
+			return this.name;
+		}
+
+		@Override
+		public long getId() {
+			return this.id;
+		}
+
+		@Override
+		@Nullable
+		public Long getParentId() {
+			return (this.parent != null ? this.parent.id : null);
+		}
+
+		@Override
+		public StartupStep tag(String key, String value) {
+			Assert.state(this.duration == null, "StartupStep has already ended");
+			this.tags.add(key, value);
+			return this;
+		}
+
+		@Override
+		public StartupStep tag(String key, Supplier<String> value) {
+			return tag(key, value.get());
+		}
+
+		@Override
+		public Tags getTags() {
+			return this.tags;
+		}
+
+		/**
+		 * Return the wall-clock time at which this step started.
+		 */
+		public Instant getStartTime() {
+			return this.startTime;
+		}
+
+		/**
+		 * Return the time elapsed between the start and the end of this step,
+		 * or {@code null} if the step has not ended yet.
+		 */
+		@Nullable
+		public Duration getDuration() {
+			return this.duration;
+		}
+
+		@Override
+		public void end() {
+			Assert.state(this.duration == null, "StartupStep has already ended");
+			this.duration = Duration.ofNanos(System.nanoTime() - this.startNanos);
+			record(this);
+		}
+
+		@Override
+		public String toString() {
+			return "StartupStep '" + this.name + "' [id=" + this.id + ", parentId=" + getParentId() +
+					", duration=" + this.duration + ", tags=" + this.tags + "]";
+		}
+	}
+
+
+	private static class DefaultTags implements StartupStep.Tags {
+
+		private final List<StartupStep.Tag> tags = new ArrayList<>(2);
+
+		synchronized void add(String key, String value) {
+			this.tags.add(new DefaultTag(key, value));
+		}
+
+		@Override
+		public synchronized Iterator<StartupStep.Tag> iterator() {
+			return new ArrayList<>(this.tags).iterator();
+		}
+
+		@Override
+		public synchronized String toString() {
+			return this.tags.toString();
+		}
+	}
+
+
+	private static class DefaultTag implements StartupStep.Tag {
+
+		private final String key;
+
+		private final String value;
+
+		DefaultTag(String key, String value) {
+			this.key = key;
+			this.value = value;
+		}
+
+		@Override
+		public String getKey() {
+			return this.key;
+		}
+
+		@Override
+		public String getValue() {
+			return this.value;
+		}
+
+		@Override
+		public String toString() {
+			return this.key + "=" + this.value;
+		}
+	}
+
+}
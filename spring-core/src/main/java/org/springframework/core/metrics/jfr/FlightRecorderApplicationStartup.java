@@ -0,0 +1,68 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics.jfr;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.core.NamedThreadLocal;
+import org.springframework.core.metrics.ApplicationStartup;
+import org.springframework.core.metrics.StartupStep;
+
+/**
+ * {@link ApplicationStartup} implementation for the Java Flight Recorder.
+ *
+ * <p>This variant records {@link StartupStep} as Flight Recorder events; because such
+ * events only support base types, the {@link StartupStep.Tags} are serialized
+ * as a single String attribute.
+ *
+ * <p>Requires a JVM with the {@code jdk.jfr} API (OpenJDK 8u262 or later).
+ * Once this is configured on the application context, you can record data
+ * by launching the application with recording enabled:
+ * {@code java -XX:StartFlightRecording:filename=recording.jfr,duration=10s -jar app.jar}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ */
+public class FlightRecorderApplicationStartup implements ApplicationStartup {
+
+	private final AtomicLong currentSequenceId = new AtomicLong();
+
+	private final ThreadLocal<FlightRecorderStartupStep> currentStep =
+			new NamedThreadLocal<>("Current startup step");
+
+
+	@Override
+	public StartupStep start(String name) {
+		FlightRecorderStartupStep parent = this.currentStep.get();
+		long parentId = (parent != null ? parent.getId() : -1L);
+		FlightRecorderStartupStep step = new FlightRecorderStartupStep(
+				this.currentSequenceId.incrementAndGet(), name, parentId, parent, this::stepEnded);
+		this.currentStep.set(step);
+		return step;
+	}
+
+	private void stepEnded(FlightRecorderStartupStep step) {
+		FlightRecorderStartupStep parent = step.getParent();
+		if (parent != null) {
+			this.currentStep.set(parent);
+		}
+		else {
+			this.currentStep.remove();
+		}
+	}
+
+}
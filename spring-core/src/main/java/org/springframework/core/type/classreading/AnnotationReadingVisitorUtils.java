@@ -58,7 +58,7 @@ abstract class AnnotationReadingVisitorUtils {
 							annotatedElement, classLoader, (AnnotationAttributes) value, classValuesAsString);
 				}
 				else if (value instanceof AnnotationAttributes[]) {
-					AnnotationAttributes[] values = (AnnotationAttributes[]) value;
+					AnnotationAttributes[] values = ((AnnotationAttributes[]) value).clone();
 					for (int i = 0; i < values.length; i++) {
 						values[i] = convertClassValues(annotatedElement, classLoader, values[i], classValuesAsString);
 					}
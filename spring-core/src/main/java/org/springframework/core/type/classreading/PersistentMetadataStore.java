@@ -0,0 +1,393 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.asm.ClassVisitor;
+import org.springframework.core.SpringProperties;
+import org.springframework.core.io.Resource;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ResourceUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * On-disk store for class metadata read by {@link SimpleMetadataReaderFactory},
+ * allowing for skipping the ASM class file parsing pass for unchanged classes
+ * across JVM restarts, e.g. when scanning the classpath for components.
+ *
+ * <p>Metadata is stored per class file location (file system or jar entry URL),
+ * along with the last-modified timestamp (of the class file or the containing
+ * jar file) and the content length of the class file: stored metadata is only
+ * used if both still match the class file. The store file is read into memory
+ * when opened, with new or updated metadata written on {@link #flush()}.
+ *
+ * <p>A store file is meant to be used by a single application: concurrent
+ * processes flushing to the same file do not corrupt it but overwrite each
+ * other's metadata. An unreadable or incompatible store file is ignored.
+ *
+ * <p>A shared instance for all metadata reader factories in the JVM can be set
+ * up through the {@value #STORE_LOCATION_PROPERTY_NAME} property, pointing
+ * to the store file to use.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see SimpleMetadataReaderFactory#setMetadataStore
+ * @see CachingMetadataReaderFactory#clearCache()
+ */
+public class PersistentMetadataStore {
+
+	/**
+	 * System property that specifies the file of the shared metadata store,
+	 * e.g. {@code -Dspring.metadata.store=/var/cache/app/metadata.store}.
+	 * <p>The default is no shared metadata store.
+	 * @see #getSharedInstance()
+	 */
+	public static final String STORE_LOCATION_PROPERTY_NAME = "spring.metadata.store";
+
+	private static final int MAGIC = 0x53504D53;
+
+	private static final int FORMAT_VERSION = 1;
+
+	private static final Log logger = LogFactory.getLog(PersistentMetadataStore.class);
+
+	private static final Map<Path, PersistentMetadataStore> sharedInstances = new ConcurrentHashMap<>(4);
+
+
+	private final Path file;
+
+	private final Map<String, Entry> storedEntries;
+
+	private final Map<String, Entry> usedEntries = new ConcurrentHashMap<>(256);
+
+	private volatile boolean dirty;
+
+
+	/**
+	 * Create a new PersistentMetadataStore for the given file,
+	 * reading existing metadata from it if it exists.
+	 * @param file the store file (does not need to exist yet)
+	 */
+	public PersistentMetadataStore(Path file) {
+		Assert.notNull(file, "File must not be null");
+		this.file = file;
+		this.storedEntries = load(file);
+	}
+
+
+	/**
+	 * Return the store file.
+	 */
+	public Path getFile() {
+		return this.file;
+	}
+
+	/**
+	 * Return the number of classes with metadata in the store file when it was opened.
+	 */
+	public int getStoredClassCount() {
+		return this.storedEntries.size();
+	}
+
+	/**
+	 * Write the metadata of all classes read or replayed through this store
+	 * to the store file, if any class metadata had to be read from class
+	 * files since the store file has been opened or last been written.
+	 * <p>Failures are logged rather than thrown, since the store is an
+	 * optimization only.
+	 */
+	public synchronized void flush() {
+		if (!this.dirty) {
+			return;
+		}
+		this.dirty = false;
+		Path tempFile = null;
+		try {
+			Path dir = this.file.toAbsolutePath().getParent();
+			Files.createDirectories(dir);
+			tempFile = Files.createTempFile(dir, this.file.getFileName().toString(), ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+				out.writeInt(MAGIC);
+				out.writeInt(FORMAT_VERSION);
+				for (Map.Entry<String, Entry> mapEntry : this.usedEntries.entrySet()) {
+					Entry entry = mapEntry.getValue();
+					ByteBuffer events = entry.events.duplicate();
+					out.writeUTF(mapEntry.getKey());
+					out.writeLong(entry.lastModified);
+					out.writeLong(entry.contentLength);
+					out.writeInt(events.remaining());
+					copy(events, out);
+				}
+			}
+			try {
+				Files.move(tempFile, this.file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			}
+			catch (AtomicMoveNotSupportedException ex) {
+				Files.move(tempFile, this.file, StandardCopyOption.REPLACE_EXISTING);
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("Wrote metadata of " + this.usedEntries.size() + " classes to " + this.file);
+			}
+		}
+		catch (IOException ex) {
+			logger.warn("Could not write metadata store to " + this.file, ex);
+			if (tempFile != null) {
+				try {
+					Files.deleteIfExists(tempFile);
+				}
+				catch (IOException ignored) {
+				}
+			}
+		}
+	}
+
+	/**
+	 * Determine the key for the metadata of the given class file resource.
+	 * @param resource the class file resource
+	 * @return the key, or {@code null} if the metadata of the given resource
+	 * cannot be stored (e.g. not located in the file system or in a jar file)
+	 */
+	@Nullable
+	Key getKey(Resource resource) {
+		try {
+			URL url = resource.getURL();
+			if (!ResourceUtils.isFileURL(url) && !ResourceUtils.isJarURL(url)) {
+				return null;
+			}
+			long lastModified = resource.lastModified();
+			long contentLength = resource.contentLength();
+			if (lastModified <= 0 || contentLength < 0) {
+				return null;
+			}
+			return new Key(url.toString(), lastModified, contentLength);
+		}
+		catch (IOException ex) {
+			return null;
+		}
+	}
+
+	/**
+	 * Replay the stored metadata for the given key on the given class visitor.
+	 * @param key the key of the class metadata
+	 * @param visitor the class visitor to replay the stored metadata on
+	 * @return {@code true} if up-to-date metadata has been replayed, {@code false}
+	 * if there is none (in which case the visitor may have been partially visited)
+	 */
+	boolean replay(Key key, ClassVisitor visitor) {
+		Entry entry = this.usedEntries.get(key.location);
+		if (entry == null) {
+			entry = this.storedEntries.get(key.location);
+		}
+		if (entry == null || entry.lastModified != key.lastModified || entry.contentLength != key.contentLength) {
+			return false;
+		}
+		try {
+			RecordingClassVisitor.replay(new DataInputStream(new ByteBufferInputStream(entry.events.duplicate())), visitor);
+		}
+		catch (IOException | RuntimeException ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Could not replay stored metadata for " + key.location, ex);
+			}
+			return false;
+		}
+		this.usedEntries.putIfAbsent(key.location, entry);
+		return true;
+	}
+
+	/**
+	 * Store the given metadata events for the given key.
+	 * @param key the key of the class metadata
+	 * @param events the metadata events recorded by a {@link RecordingClassVisitor}
+	 */
+	void store(Key key, byte[] events) {
+		this.usedEntries.put(key.location, new Entry(key.lastModified, key.contentLength, ByteBuffer.wrap(events)));
+		this.dirty = true;
+	}
+
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": " + this.file;
+	}
+
+
+	/**
+	 * Return the shared PersistentMetadataStore for the file specified
+	 * through the {@value #STORE_LOCATION_PROPERTY_NAME} property, if any.
+	 * @return the shared store, or {@code null} if none configured
+	 */
+	@Nullable
+	public static PersistentMetadataStore getSharedInstance() {
+		String location = SpringProperties.getProperty(STORE_LOCATION_PROPERTY_NAME);
+		if (!StringUtils.hasText(location)) {
+			return null;
+		}
+		return sharedInstances.computeIfAbsent(Paths.get(location.trim()), PersistentMetadataStore::new);
+	}
+
+	private static Map<String, Entry> load(Path file) {
+		if (!Files.isRegularFile(file)) {
+			return Collections.emptyMap();
+		}
+		ByteBuffer buffer;
+		try {
+			// Read into a heap buffer rather than mapping the file: the entries
+			// would keep a mapping alive, which prevents replacing the file on flush
+			// on some platforms.
+			buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+		}
+		catch (IOException ex) {
+			logger.info("Could not read metadata store " + file + ": " + ex);
+			return Collections.emptyMap();
+		}
+		Map<String, Entry> entries = new HashMap<>(256);
+		DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+		try {
+			if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+				logger.info("Ignoring incompatible metadata store " + file);
+				return Collections.emptyMap();
+			}
+			while (buffer.hasRemaining()) {
+				String location = in.readUTF();
+				long lastModified = in.readLong();
+				long contentLength = in.readLong();
+				int length = in.readInt();
+				if (length < 0 || length > buffer.remaining()) {
+					throw new IOException("Truncated metadata for " + location);
+				}
+				ByteBuffer events = buffer.slice();
+				// Explicit access via Buffer base type for compatibility
+				// with covariant return type on JDK 9's ByteBuffer...
+				((Buffer) events).limit(length);
+				((Buffer) buffer).position(buffer.position() + length);
+				entries.put(location, new Entry(lastModified, contentLength, events));
+			}
+		}
+		catch (IOException ex) {
+			logger.info("Ignoring remainder of corrupt metadata store " + file + ": " + ex);
+		}
+		if (logger.isDebugEnabled()) {
+			logger.debug("Read metadata of " + entries.size() + " classes from " + file);
+		}
+		return entries;
+	}
+
+	private static void copy(ByteBuffer buffer, OutputStream out) throws IOException {
+		if (buffer.hasArray()) {
+			out.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		}
+		else {
+			byte[] chunk = new byte[Math.min(buffer.remaining(), 4096)];
+			while (buffer.hasRemaining()) {
+				int length = Math.min(buffer.remaining(), chunk.length);
+				buffer.get(chunk, 0, length);
+				out.write(chunk, 0, length);
+			}
+		}
+	}
+
+
+	/**
+	 * Key of the metadata of a class file: its location along with the
+	 * last-modified timestamp and content length to check stored metadata against.
+	 */
+	static final class Key {
+
+		final String location;
+
+		final long lastModified;
+
+		final long contentLength;
+
+		Key(String location, long lastModified, long contentLength) {
+			this.location = location;
+			this.lastModified = lastModified;
+			this.contentLength = contentLength;
+		}
+	}
+
+
+	private static final class Entry {
+
+		final long lastModified;
+
+		final long contentLength;
+
+		final ByteBuffer events;
+
+		Entry(long lastModified, long contentLength, ByteBuffer events) {
+			this.lastModified = lastModified;
+			this.contentLength = contentLength;
+			this.events = events;
+		}
+	}
+
+
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return (this.buffer.hasRemaining() ? this.buffer.get() & 0xFF : -1);
+		}
+
+		@Override
+		public int read(byte[] bytes, int off, int len) {
+			if (len == 0) {
+				return 0;
+			}
+			if (!this.buffer.hasRemaining()) {
+				return -1;
+			}
+			int length = Math.min(len, this.buffer.remaining());
+			this.buffer.get(bytes, off, length);
+			return length;
+		}
+
+		@Override
+		public int available() {
+			return this.buffer.remaining();
+		}
+	}
+
+}
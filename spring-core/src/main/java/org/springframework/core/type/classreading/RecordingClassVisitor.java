@@ -0,0 +1,606 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+import org.springframework.asm.AnnotationVisitor;
+import org.springframework.asm.ClassVisitor;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.SpringAsmInfo;
+import org.springframework.asm.Type;
+import org.springframework.lang.Nullable;
+
+/**
+ * ASM class visitor which records the events relevant for class and annotation
+ * metadata (class header, enclosing and member classes, class and method level
+ * annotations) while passing them on to a delegate visitor, allowing for
+ * replaying them later on without parsing the class file again.
+ *
+ * <p>Events which the delegate turns down, i.e. annotations for which it does
+ * not return a visitor, are not recorded. Fields, method code and debug
+ * information are not recorded either.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see #toByteArray()
+ * @see #replay(DataInput, ClassVisitor)
+ * @see PersistentMetadataStore
+ */
+final class RecordingClassVisitor extends ClassVisitor {
+
+	private static final byte CLASS = 1;
+
+	private static final byte OUTER_CLASS = 2;
+
+	private static final byte INNER_CLASS = 3;
+
+	private static final byte CLASS_ANNOTATION = 4;
+
+	private static final byte METHOD = 5;
+
+	private static final byte METHOD_ANNOTATION = 6;
+
+	private static final byte END = 7;
+
+	private static final byte VALUE = 10;
+
+	private static final byte ENUM_VALUE = 11;
+
+	private static final byte NESTED_ANNOTATION = 12;
+
+	private static final byte ARRAY = 13;
+
+	private static final byte ANNOTATION_END = 14;
+
+
+	private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+
+	private final DataOutputStream out = new DataOutputStream(this.bytes);
+
+
+	public RecordingClassVisitor(ClassVisitor delegate) {
+		super(SpringAsmInfo.ASM_VERSION, delegate);
+	}
+
+
+	@Override
+	public void visit(int version, int access, String name, @Nullable String signature,
+			@Nullable String supername, @Nullable String[] interfaces) {
+
+		write(CLASS);
+		writeInt(version);
+		writeInt(access);
+		writeString(name);
+		writeString(signature);
+		writeString(supername);
+		writeStrings(interfaces);
+		super.visit(version, access, name, signature, supername, interfaces);
+	}
+
+	@Override
+	public void visitOuterClass(String owner, @Nullable String name, @Nullable String desc) {
+		write(OUTER_CLASS);
+		writeString(owner);
+		writeString(name);
+		writeString(desc);
+		super.visitOuterClass(owner, name, desc);
+	}
+
+	@Override
+	public void visitInnerClass(String name, @Nullable String outerName, @Nullable String innerName, int access) {
+		write(INNER_CLASS);
+		writeString(name);
+		writeString(outerName);
+		writeString(innerName);
+		writeInt(access);
+		super.visitInnerClass(name, outerName, innerName, access);
+	}
+
+	@Override
+	@Nullable
+	public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+		AnnotationVisitor delegate = super.visitAnnotation(desc, visible);
+		if (delegate == null) {
+			return null;
+		}
+		write(CLASS_ANNOTATION);
+		writeString(desc);
+		writeBoolean(visible);
+		return new RecordingAnnotationVisitor(delegate);
+	}
+
+	@Override
+	@Nullable
+	public MethodVisitor visitMethod(int access, String name, String desc,
+			@Nullable String signature, @Nullable String[] exceptions) {
+
+		MethodVisitor delegate = super.visitMethod(access, name, desc, signature, exceptions);
+		if (delegate == null) {
+			return null;
+		}
+		return new RecordingMethodVisitor(delegate, access, name, desc, signature, exceptions);
+	}
+
+	@Override
+	public void visitEnd() {
+		write(END);
+		super.visitEnd();
+	}
+
+	/**
+	 * Return the events recorded so far.
+	 */
+	public byte[] toByteArray() {
+		return this.bytes.toByteArray();
+	}
+
+
+	private void write(byte event) {
+		try {
+			this.out.writeByte(event);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private void writeInt(int value) {
+		try {
+			this.out.writeInt(value);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private void writeBoolean(boolean value) {
+		try {
+			this.out.writeBoolean(value);
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private void writeString(@Nullable String value) {
+		try {
+			this.out.writeBoolean(value != null);
+			if (value != null) {
+				this.out.writeUTF(value);
+			}
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+	private void writeStrings(@Nullable String[] values) {
+		writeInt(values != null ? values.length : -1);
+		if (values != null) {
+			for (String value : values) {
+				writeString(value);
+			}
+		}
+	}
+
+	private void writeValue(Object value) {
+		try {
+			DataOutputStream out = this.out;
+			if (value instanceof String) {
+				out.writeByte('s');
+				out.writeUTF((String) value);
+			}
+			else if (value instanceof Type) {
+				out.writeByte('t');
+				out.writeUTF(((Type) value).getDescriptor());
+			}
+			else if (value instanceof Integer) {
+				out.writeByte('I');
+				out.writeInt((Integer) value);
+			}
+			else if (value instanceof Boolean) {
+				out.writeByte('Z');
+				out.writeBoolean((Boolean) value);
+			}
+			else if (value instanceof Long) {
+				out.writeByte('J');
+				out.writeLong((Long) value);
+			}
+			else if (value instanceof Byte) {
+				out.writeByte('B');
+				out.writeByte((Byte) value);
+			}
+			else if (value instanceof Character) {
+				out.writeByte('C');
+				out.writeChar((Character) value);
+			}
+			else if (value instanceof Short) {
+				out.writeByte('S');
+				out.writeShort((Short) value);
+			}
+			else if (value instanceof Float) {
+				out.writeByte('F');
+				out.writeFloat((Float) value);
+			}
+			else if (value instanceof Double) {
+				out.writeByte('D');
+				out.writeDouble((Double) value);
+			}
+			else if (value instanceof int[]) {
+				int[] array = (int[]) value;
+				out.writeByte('i');
+				out.writeInt(array.length);
+				for (int element : array) {
+					out.writeInt(element);
+				}
+			}
+			else if (value instanceof boolean[]) {
+				boolean[] array = (boolean[]) value;
+				out.writeByte('z');
+				out.writeInt(array.length);
+				for (boolean element : array) {
+					out.writeBoolean(element);
+				}
+			}
+			else if (value instanceof long[]) {
+				long[] array = (long[]) value;
+				out.writeByte('j');
+				out.writeInt(array.length);
+				for (long element : array) {
+					out.writeLong(element);
+				}
+			}
+			else if (value instanceof byte[]) {
+				byte[] array = (byte[]) value;
+				out.writeByte('b');
+				out.writeInt(array.length);
+				out.write(array);
+			}
+			else if (value instanceof char[]) {
+				char[] array = (char[]) value;
+				out.writeByte('c');
+				out.writeInt(array.length);
+				for (char element : array) {
+					out.writeChar(element);
+				}
+			}
+			else if (value instanceof short[]) {
+				short[] array = (short[]) value;
+				out.writeByte('x');
+				out.writeInt(array.length);
+				for (short element : array) {
+					out.writeShort(element);
+				}
+			}
+			else if (value instanceof float[]) {
+				float[] array = (float[]) value;
+				out.writeByte('f');
+				out.writeInt(array.length);
+				for (float element : array) {
+					out.writeFloat(element);
+				}
+			}
+			else if (value instanceof double[]) {
+				double[] array = (double[]) value;
+				out.writeByte('d');
+				out.writeInt(array.length);
+				for (double element : array) {
+					out.writeDouble(element);
+				}
+			}
+			else {
+				throw new IllegalArgumentException("Unsupported annotation value: " + value);
+			}
+		}
+		catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+	}
+
+
+	/**
+	 * Replay the given recorded events on the given class visitor.
+	 * @param in the recorded events, as returned by {@link #toByteArray()}
+	 * @param visitor the class visitor to replay the events on
+	 * @throws IOException in case of I/O errors or invalid recorded events
+	 */
+	public static void replay(DataInput in, ClassVisitor visitor) throws IOException {
+		MethodVisitor methodVisitor = null;
+		while (true) {
+			byte event = in.readByte();
+			switch (event) {
+				case CLASS:
+					visitor.visit(in.readInt(), in.readInt(), readString(in),
+							readString(in), readString(in), readStrings(in));
+					break;
+				case OUTER_CLASS:
+					visitor.visitOuterClass(readString(in), readString(in), readString(in));
+					break;
+				case INNER_CLASS:
+					visitor.visitInnerClass(readString(in), readString(in), readString(in), in.readInt());
+					break;
+				case CLASS_ANNOTATION:
+					replayAnnotation(in, visitor.visitAnnotation(readString(in), in.readBoolean()));
+					break;
+				case METHOD:
+					methodVisitor = visitor.visitMethod(in.readInt(), readString(in), readString(in),
+							readString(in), readStrings(in));
+					break;
+				case METHOD_ANNOTATION:
+					String desc = readString(in);
+					boolean visible = in.readBoolean();
+					replayAnnotation(in, (methodVisitor != null ? methodVisitor.visitAnnotation(desc, visible) : null));
+					break;
+				case END:
+					visitor.visitEnd();
+					return;
+				default:
+					throw new IOException("Invalid recorded class event: " + event);
+			}
+		}
+	}
+
+	private static void replayAnnotation(DataInput in, @Nullable AnnotationVisitor visitor) throws IOException {
+		while (true) {
+			byte event = in.readByte();
+			if (event == ANNOTATION_END) {
+				if (visitor != null) {
+					visitor.visitEnd();
+				}
+				return;
+			}
+			String name = readString(in);
+			if (event == VALUE) {
+				Object value = readValue(in);
+				if (visitor != null) {
+					visitor.visit(name, value);
+				}
+			}
+			else if (event == ENUM_VALUE) {
+				String desc = readString(in);
+				String value = readString(in);
+				if (visitor != null) {
+					visitor.visitEnum(name, desc, value);
+				}
+			}
+			else if (event == NESTED_ANNOTATION) {
+				String desc = readString(in);
+				replayAnnotation(in, (visitor != null ? visitor.visitAnnotation(name, desc) : null));
+			}
+			else if (event == ARRAY) {
+				replayAnnotation(in, (visitor != null ? visitor.visitArray(name) : null));
+			}
+			else {
+				throw new IOException("Invalid recorded annotation event: " + event);
+			}
+		}
+	}
+
+	@Nullable
+	private static String readString(DataInput in) throws IOException {
+		return (in.readBoolean() ? in.readUTF() : null);
+	}
+
+	@Nullable
+	private static String[] readStrings(DataInput in) throws IOException {
+		int length = in.readInt();
+		if (length < 0) {
+			return null;
+		}
+		String[] values = new String[length];
+		for (int i = 0; i < length; i++) {
+			values[i] = readString(in);
+		}
+		return values;
+	}
+
+	private static Object readValue(DataInput in) throws IOException {
+		byte type = in.readByte();
+		switch (type) {
+			case 's':
+				return in.readUTF();
+			case 't':
+				return Type.getType(in.readUTF());
+			case 'I':
+				return in.readInt();
+			case 'Z':
+				return in.readBoolean();
+			case 'J':
+				return in.readLong();
+			case 'B':
+				return in.readByte();
+			case 'C':
+				return in.readChar();
+			case 'S':
+				return in.readShort();
+			case 'F':
+				return in.readFloat();
+			case 'D':
+				return in.readDouble();
+			default:
+				return readArrayValue(in, type, in.readInt());
+		}
+	}
+
+	private static Object readArrayValue(DataInput in, byte type, int length) throws IOException {
+		if (type == 'i') {
+			int[] array = new int[length];
+			for (int i = 0; i < length; i++) {
+				array[i] = in.readInt();
+			}
+			return array;
+		}
+		else if (type == 'z') {
+			boolean[] array = new boolean[length];
+			for (int i = 0; i < length; i++) {
+				array[i] = in.readBoolean();
+			}
+			return array;
+		}
+		else if (type == 'j') {
+			long[] array = new long[length];
+			for (int i = 0; i < length; i++) {
+				array[i] = in.readLong();
+			}
+			return array;
+		}
+		else if (type == 'b') {
+			byte[] array = new byte[length];
+			in.readFully(array);
+			return array;
+		}
+		else if (type == 'c') {
+			char[] array = new char[length];
+			for (int i = 0; i < length; i++) {
+				array[i] = in.readChar();
+			}
+			return array;
+		}
+		else if (type == 'x') {
+			short[] array = new short[length];
+			for (int i = 0; i < length; i++) {
+				array[i] = in.readShort();
+			}
+			return array;
+		}
+		else if (type == 'f') {
+			float[] array = new float[length];
+			for (int i = 0; i < length; i++) {
+				array[i] = in.readFloat();
+			}
+			return array;
+		}
+		else if (type == 'd') {
+			double[] array = new double[length];
+			for (int i = 0; i < length; i++) {
+				array[i] = in.readDouble();
+			}
+			return array;
+		}
+		throw new IOException("Invalid recorded annotation value type: " + type);
+	}
+
+
+	/**
+	 * Method visitor recording method level annotations, including the
+	 * method header before the first annotation of the method.
+	 */
+	private final class RecordingMethodVisitor extends MethodVisitor {
+
+		private final int access;
+
+		private final String name;
+
+		private final String desc;
+
+		@Nullable
+		private final String signature;
+
+		@Nullable
+		private final String[] exceptions;
+
+		private boolean recorded;
+
+		RecordingMethodVisitor(MethodVisitor delegate, int access, String name, String desc,
+				@Nullable String signature, @Nullable String[] exceptions) {
+
+			super(SpringAsmInfo.ASM_VERSION, delegate);
+			this.access = access;
+			this.name = name;
+			this.desc = desc;
+			this.signature = signature;
+			this.exceptions = exceptions;
+		}
+
+		@Override
+		@Nullable
+		public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+			AnnotationVisitor delegate = super.visitAnnotation(desc, visible);
+			if (delegate == null) {
+				return null;
+			}
+			if (!this.recorded) {
+				write(METHOD);
+				writeInt(this.access);
+				writeString(this.name);
+				writeString(this.desc);
+				writeString(this.signature);
+				writeStrings(this.exceptions);
+				this.recorded = true;
+			}
+			write(METHOD_ANNOTATION);
+			writeString(desc);
+			writeBoolean(visible);
+			return new RecordingAnnotationVisitor(delegate);
+		}
+	}
+
+
+	/**
+	 * Annotation visitor recording attribute values, nested annotations and arrays.
+	 */
+	private final class RecordingAnnotationVisitor extends AnnotationVisitor {
+
+		RecordingAnnotationVisitor(@Nullable AnnotationVisitor delegate) {
+			super(SpringAsmInfo.ASM_VERSION, delegate);
+		}
+
+		@Override
+		public void visit(@Nullable String name, Object value) {
+			write(VALUE);
+			writeString(name);
+			writeValue(value);
+			super.visit(name, value);
+		}
+
+		@Override
+		public void visitEnum(@Nullable String name, String desc, String value) {
+			write(ENUM_VALUE);
+			writeString(name);
+			writeString(desc);
+			writeString(value);
+			super.visitEnum(name, desc, value);
+		}
+
+		@Override
+		public AnnotationVisitor visitAnnotation(@Nullable String name, String desc) {
+			write(NESTED_ANNOTATION);
+			writeString(name);
+			writeString(desc);
+			return new RecordingAnnotationVisitor(super.visitAnnotation(name, desc));
+		}
+
+		@Override
+		public AnnotationVisitor visitArray(@Nullable String name) {
+			write(ARRAY);
+			writeString(name);
+			return new RecordingAnnotationVisitor(super.visitArray(name));
+		}
+
+		@Override
+		public void visitEnd() {
+			write(ANNOTATION_END);
+			super.visitEnd();
+		}
+	}
+
+}
@@ -48,10 +48,35 @@ final class SimpleMetadataReader implements MetadataReader {
 
 
 	SimpleMetadataReader(Resource resource, @Nullable ClassLoader classLoader) throws IOException {
+		this(resource, classLoader, null);
+	}
+
+	SimpleMetadataReader(Resource resource, @Nullable ClassLoader classLoader,
+			@Nullable PersistentMetadataStore metadataStore) throws IOException {
+
+		PersistentMetadataStore.Key key = (metadataStore != null ? metadataStore.getKey(resource) : null);
+		AnnotationMetadataReadingVisitor visitor = new AnnotationMetadataReadingVisitor(classLoader);
+		if (metadataStore == null || key == null) {
+			getClassReader(resource).accept(visitor, ClassReader.SKIP_DEBUG);
+		}
+		else if (!metadataStore.replay(key, visitor)) {
+			// No up-to-date metadata stored -> parse the class file, recording its metadata.
+			visitor = new AnnotationMetadataReadingVisitor(classLoader);
+			RecordingClassVisitor recorder = new RecordingClassVisitor(visitor);
+			getClassReader(resource).accept(recorder, ClassReader.SKIP_DEBUG);
+			metadataStore.store(key, recorder.toByteArray());
+		}
+
+		this.annotationMetadata = visitor;
+		// (since AnnotationMetadataReadingVisitor extends ClassMetadataReadingVisitor)
+		this.classMetadata = visitor;
+		this.resource = resource;
+	}
+
+	private static ClassReader getClassReader(Resource resource) throws IOException {
 		InputStream is = new BufferedInputStream(resource.getInputStream());
-		ClassReader classReader;
 		try {
-			classReader = new ClassReader(is);
+			return new ClassReader(is);
 		}
 		catch (IllegalArgumentException ex) {
 			throw new NestedIOException("ASM ClassReader failed to parse class file - " +
@@ -60,14 +85,6 @@ final class SimpleMetadataReader implements MetadataReader {
 		finally {
 			is.close();
 		}
-
-		AnnotationMetadataReadingVisitor visitor = new AnnotationMetadataReadingVisitor(classLoader);
-		classReader.accept(visitor, ClassReader.SKIP_DEBUG);
-
-		this.annotationMetadata = visitor;
-		// (since AnnotationMetadataReadingVisitor extends ClassMetadataReadingVisitor)
-		this.classMetadata = visitor;
-		this.resource = resource;
 	}
 
 
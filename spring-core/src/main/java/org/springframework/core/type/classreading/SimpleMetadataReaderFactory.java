@@ -36,6 +36,9 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 
 	private final ResourceLoader resourceLoader;
 
+	@Nullable
+	private PersistentMetadataStore metadataStore = PersistentMetadataStore.getSharedInstance();
+
 
 	/**
 	 * Create a new SimpleMetadataReaderFactory for the default class loader.
@@ -71,6 +74,28 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 		return this.resourceLoader;
 	}
 
+	/**
+	 * Specify a {@link PersistentMetadataStore} to consult before parsing
+	 * class files, and to record the metadata of parsed class files in.
+	 * <p>Default is the shared store configured through the
+	 * {@value PersistentMetadataStore#STORE_LOCATION_PROPERTY_NAME}
+	 * property, if any.
+	 * @since 5.2
+	 * @see PersistentMetadataStore#getSharedInstance()
+	 */
+	public void setMetadataStore(@Nullable PersistentMetadataStore metadataStore) {
+		this.metadataStore = metadataStore;
+	}
+
+	/**
+	 * Return the {@link PersistentMetadataStore} used by this MetadataReaderFactory, if any.
+	 * @since 5.2
+	 */
+	@Nullable
+	public PersistentMetadataStore getMetadataStore() {
+		return this.metadataStore;
+	}
+
 
 	@Override
 	public MetadataReader getMetadataReader(String className) throws IOException {
@@ -100,7 +125,7 @@ public class SimpleMetadataReaderFactory implements MetadataReaderFactory {
 
 	@Override
 	public MetadataReader getMetadataReader(Resource resource) throws IOException {
-		return new SimpleMetadataReader(resource, this.resourceLoader.getClassLoader());
+		return new SimpleMetadataReader(resource, this.resourceLoader.getClassLoader(), this.metadataStore);
 	}
 
 }
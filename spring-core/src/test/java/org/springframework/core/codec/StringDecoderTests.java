@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.springframework.core.codec;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -174,6 +175,132 @@ public class StringDecoderTests extends AbstractDecoderTestCase<StringDecoder> {
 				.verify());
 	}
 
+	@Test
+	public void decodeDelimiterAcrossBuffers() {
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("abc\r"),
+				stringBuffer("\ndef\r"),
+				stringBuffer("\n"),
+				stringBuffer("\r"),
+				stringBuffer("\nghi"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("abc")
+				.expectNext("def")
+				.expectNext("")
+				.expectNext("ghi")
+				.expectComplete()
+				.verify());
+	}
+
+	@Test
+	public void decodeCustomDelimitersAcrossBuffers() {
+		this.decoder = StringDecoder.allMimeTypes(Arrays.asList("--END--", "|"), true);
+
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("foo--E"),
+				stringBuffer("N"),
+				stringBuffer("D--bar|baz-"),
+				stringBuffer("-END-"),
+				stringBuffer("-|--EN|qux"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("foo")
+				.expectNext("bar")
+				.expectNext("baz")
+				.expectNext("")
+				.expectNext("--EN")
+				.expectNext("qux")
+				.expectComplete()
+				.verify());
+	}
+
+	@Test
+	public void decodePrefixDelimiter() {
+		this.decoder = StringDecoder.allMimeTypes(Arrays.asList("\r\n", "\n", "\r"), true);
+
+		Flux<DataBuffer> input = Flux.just(stringBuffer("a\r\nb\rc\n\r\nd\r"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("a")
+				.expectNext("b")
+				.expectNext("c")
+				.expectNext("")
+				.expectNext("d")
+				.expectComplete()
+				.verify());
+	}
+
+	@Test
+	public void decodePrefixDelimiterIncludeDelimiters() {
+		this.decoder = StringDecoder.allMimeTypes(Arrays.asList("\r\n", "\n", "\r"), false);
+
+		Flux<DataBuffer> input = Flux.just(stringBuffer("a\r\nb\rc\nd"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("a\r\n")
+				.expectNext("b\r")
+				.expectNext("c\n")
+				.expectNext("d")
+				.expectComplete()
+				.verify());
+	}
+
+	@Test
+	public void decodePrefixDelimiterAcrossBuffers() {
+		this.decoder = StringDecoder.allMimeTypes(Arrays.asList("\r\n", "\n", "\r"), true);
+
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("a\r"),
+				stringBuffer("\nb\r"),
+				stringBuffer("c\r"),
+				stringBuffer(""),
+				stringBuffer("\r\n"),
+				stringBuffer("d\r"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("a")
+				.expectNext("b")
+				.expectNext("c")
+				.expectNext("")
+				.expectNext("d")
+				.expectComplete()
+				.verify());
+	}
+
+	@Test
+	public void decodeCustomPrefixDelimiterAcrossBuffers() {
+		this.decoder = StringDecoder.allMimeTypes(Arrays.asList("--END--", "--"), true);
+
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("foo--E"),
+				stringBuffer("ND--bar--EN"),
+				stringBuffer("x--baz--E"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("foo")
+				.expectNext("bar")
+				.expectNext("ENx")
+				.expectNext("baz")
+				.expectNext("E")
+				.expectComplete()
+				.verify());
+	}
+
+	@Test
+	public void decodeExceedsMaxInMemorySize() {
+		this.decoder.setMaxInMemorySize(5);
+
+		Flux<DataBuffer> input = Flux.just(
+				stringBuffer("abc\nde"),
+				stringBuffer("fghij\nklm\n"));
+
+		testDecode(input, String.class, step -> step
+				.expectNext("abc")
+				.expectError(DecodingException.class)
+				.verify());
+	}
+
 	@Test
 	public void decodeEmptyFlux() {
 		Flux<DataBuffer> input = Flux.empty();
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+
+import org.springframework.core.metrics.BufferingApplicationStartup.BufferedStartupStep;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link BufferingApplicationStartup}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class BufferingApplicationStartupTests {
+
+	@Test
+	public void recordsEndedSteps() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(10);
+		StartupStep step = startup.start("spring.test").tag("key", "value");
+		assertTrue(startup.getBufferedSteps().isEmpty());
+		step.end();
+
+		List<BufferedStartupStep> steps = startup.getBufferedSteps();
+		assertEquals(1, steps.size());
+		BufferedStartupStep recorded = steps.get(0);
+		assertEquals("spring.test", recorded.getName());
+		assertNull(recorded.getParentId());
+		assertNotNull(recorded.getStartTime());
+		assertNotNull(recorded.getDuration());
+		Iterator<StartupStep.Tag> tags = recorded.getTags().iterator();
+		StartupStep.Tag tag = tags.next();
+		assertEquals("key", tag.getKey());
+		assertEquals("value", tag.getValue());
+		assertFalse(tags.hasNext());
+	}
+
+	@Test
+	public void nestsStepsStartedWhileAnotherIsRunning() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(10);
+		StartupStep outer = startup.start("spring.outer");
+		StartupStep first = startup.start("spring.inner");
+		first.end();
+		StartupStep second = startup.start("spring.inner");
+		second.end();
+		outer.end();
+		StartupStep next = startup.start("spring.next");
+		next.end();
+
+		assertEquals(Long.valueOf(outer.getId()), first.getParentId());
+		assertEquals(Long.valueOf(outer.getId()), second.getParentId());
+		assertNull(outer.getParentId());
+		assertNull(next.getParentId());
+		assertEquals(4, startup.getBufferedSteps().size());
+	}
+
+	@Test
+	public void stepsOnOtherThreadsAreNotNested() throws Exception {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(10);
+		StartupStep outer = startup.start("spring.outer");
+		StartupStep[] other = new StartupStep[1];
+		Thread thread = new Thread(() -> {
+			other[0] = startup.start("spring.other");
+			other[0].end();
+		});
+		thread.start();
+		thread.join();
+		outer.end();
+
+		assertNull(other[0].getParentId());
+	}
+
+	@Test
+	public void discardsStepsWhenBufferIsFull() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(2);
+		for (int i = 0; i < 5; i++) {
+			startup.start("spring.test").end();
+		}
+		assertEquals(2, startup.getBufferedSteps().size());
+		assertEquals(3, startup.getDroppedStepCount());
+	}
+
+	@Test
+	public void drainEmptiesBuffer() {
+		BufferingApplicationStartup startup = new BufferingApplicationStartup(2);
+		startup.start("spring.first").end();
+		startup.start("spring.second").end();
+
+		List<BufferedStartupStep> drained = startup.drainBufferedSteps();
+		assertEquals(2, drained.size());
+		assertEquals("spring.first", drained.get(0).getName());
+		assertTrue(startup.getBufferedSteps().isEmpty());
+
+		startup.start("spring.third").end();
+		assertEquals(1, startup.getBufferedSteps().size());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void tagAfterEndIsRejected() {
+		StartupStep step = new BufferingApplicationStartup(2).start("spring.test");
+		step.end();
+		step.tag("key", "value");
+	}
+
+	@Test
+	public void defaultStartupDoesNotComputeTagValues() {
+		StartupStep step = ApplicationStartup.DEFAULT.start("spring.test")
+				.tag("key", () -> {
+					throw new AssertionError("Should not be called");
+				});
+		step.end();
+		assertFalse(step.getTags().iterator().hasNext());
+	}
+
+}
@@ -0,0 +1,54 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.metrics.jfr;
+
+import org.junit.Test;
+
+import org.springframework.core.metrics.StartupStep;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link FlightRecorderApplicationStartup}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class FlightRecorderApplicationStartupTests {
+
+	private final FlightRecorderApplicationStartup startup = new FlightRecorderApplicationStartup();
+
+
+	@Test
+	public void nestsSteps() {
+		StartupStep outer = this.startup.start("spring.outer");
+		StartupStep inner = this.startup.start("spring.inner").tag("beanName", "test");
+		inner.end();
+		outer.end();
+		StartupStep next = this.startup.start("spring.next");
+		next.end();
+
+		assertEquals("spring.inner", inner.getName());
+		assertEquals(Long.valueOf(outer.getId()), inner.getParentId());
+		assertNull(outer.getParentId());
+		assertNull(next.getParentId());
+		assertNotEquals(outer.getId(), next.getId());
+		StartupStep.Tag tag = inner.getTags().iterator().next();
+		assertEquals("beanName", tag.getKey());
+		assertEquals("test", tag.getValue());
+	}
+
+}
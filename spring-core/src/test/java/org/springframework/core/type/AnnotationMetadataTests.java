@@ -16,6 +16,9 @@
 
 package org.springframework.core.type;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.Serializable;
 import java.lang.annotation.Annotation;
 import java.lang.annotation.Documented;
@@ -23,19 +26,27 @@ import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
 import java.lang.annotation.Target;
+import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import org.springframework.core.annotation.AliasFor;
 import org.springframework.core.annotation.AnnotationAttributes;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
 import org.springframework.core.type.classreading.MetadataReader;
 import org.springframework.core.type.classreading.MetadataReaderFactory;
+import org.springframework.core.type.classreading.PersistentMetadataStore;
 import org.springframework.core.type.classreading.SimpleMetadataReaderFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.util.ClassUtils;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
@@ -51,6 +62,10 @@ import static org.junit.Assert.*;
  */
 public class AnnotationMetadataTests {
 
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+
 	@Test
 	public void standardAnnotationMetadata() throws Exception {
 		AnnotationMetadata metadata = new StandardAnnotationMetadata(AnnotatedComponent.class, true);
@@ -67,6 +82,28 @@ public class AnnotationMetadataTests {
 		doTestMethodAnnotationInfo(metadata);
 	}
 
+	@Test
+	public void asmAnnotationMetadataReplayedFromPersistentMetadataStore() throws Exception {
+		Path storeFile = this.tempFolder.newFolder().toPath().resolve("metadata.store");
+		File classFile = new ClassPathResource(ClassUtils.getClassFileName(AnnotatedComponent.class),
+				AnnotatedComponent.class).getFile();
+		SimpleMetadataReaderFactory metadataReaderFactory = new SimpleMetadataReaderFactory();
+		metadataReaderFactory.setMetadataStore(new PersistentMetadataStore(storeFile));
+		metadataReaderFactory.getMetadataReader(new FileSystemResource(classFile));
+		metadataReaderFactory.getMetadataStore().flush();
+
+		metadataReaderFactory.setMetadataStore(new PersistentMetadataStore(storeFile));
+		Resource unreadableResource = new FileSystemResource(classFile) {
+			@Override
+			public InputStream getInputStream() throws IOException {
+				throw new IOException("Class file should not be parsed again");
+			}
+		};
+		AnnotationMetadata metadata = metadataReaderFactory.getMetadataReader(unreadableResource).getAnnotationMetadata();
+		doTestAnnotationInfo(metadata);
+		doTestMethodAnnotationInfo(metadata);
+	}
+
 	@Test
 	public void standardAnnotationMetadataForSubclass() throws Exception {
 		AnnotationMetadata metadata = new StandardAnnotationMetadata(AnnotatedComponentSubClass.class, true);
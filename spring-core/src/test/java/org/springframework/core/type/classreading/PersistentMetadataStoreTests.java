@@ -0,0 +1,179 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.core.type.classreading;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.core.type.AnnotationMetadata;
+import org.springframework.util.FileCopyUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link PersistentMetadataStore}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class PersistentMetadataStoreTests {
+
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
+	private Path storeFile;
+
+	private File classFile;
+
+
+	@Before
+	public void setup() throws IOException {
+		File folder = this.tempFolder.newFolder();
+		this.storeFile = folder.toPath().resolve("metadata.store");
+		this.classFile = new File(folder, "SampleComponent.class");
+		FileCopyUtils.copy(new ClassPathResource("PersistentMetadataStoreTests$SampleComponent.class",
+				getClass()).getInputStream(), Files.newOutputStream(this.classFile.toPath()));
+	}
+
+
+	@Test
+	public void storedMetadataIsReplayed() throws IOException {
+		PersistentMetadataStore store = new PersistentMetadataStore(this.storeFile);
+		assertEquals(0, store.getStoredClassCount());
+		readMetadata(store, new FileSystemResource(this.classFile));
+		store.flush();
+
+		store = new PersistentMetadataStore(this.storeFile);
+		assertEquals(1, store.getStoredClassCount());
+		AnnotationMetadata metadata = readMetadata(store, new UnreadableResource(this.classFile));
+		assertSampleComponentMetadata(metadata);
+	}
+
+	@Test
+	public void metadataOfModifiedClassFileIsReadAgain() throws IOException {
+		PersistentMetadataStore store = new PersistentMetadataStore(this.storeFile);
+		readMetadata(store, new FileSystemResource(this.classFile));
+		store.flush();
+		assertTrue(this.classFile.setLastModified(this.classFile.lastModified() - 60000));
+
+		store = new PersistentMetadataStore(this.storeFile);
+		try {
+			readMetadata(store, new UnreadableResource(this.classFile));
+			fail("Should have parsed the modified class file");
+		}
+		catch (IOException ex) {
+			assertEquals("Not readable", ex.getMessage());
+		}
+		assertSampleComponentMetadata(readMetadata(store, new FileSystemResource(this.classFile)));
+	}
+
+	@Test
+	public void flushWithoutNewMetadataDoesNotWriteStoreFile() throws IOException {
+		PersistentMetadataStore store = new PersistentMetadataStore(this.storeFile);
+		store.flush();
+		assertFalse(Files.exists(this.storeFile));
+
+		readMetadata(store, new FileSystemResource(this.classFile));
+		store.flush();
+		assertTrue(Files.exists(this.storeFile));
+		long lastModified = Files.getLastModifiedTime(this.storeFile).toMillis();
+		assertTrue(this.storeFile.toFile().setLastModified(lastModified - 60000));
+
+		store = new PersistentMetadataStore(this.storeFile);
+		readMetadata(store, new UnreadableResource(this.classFile));
+		store.flush();
+		assertEquals(lastModified - 60000, Files.getLastModifiedTime(this.storeFile).toMillis());
+	}
+
+	@Test
+	public void corruptStoreFileIsIgnored() throws IOException {
+		Files.write(this.storeFile, new byte[] {1, 2, 3, 4, 5});
+		PersistentMetadataStore store = new PersistentMetadataStore(this.storeFile);
+		assertEquals(0, store.getStoredClassCount());
+		assertSampleComponentMetadata(readMetadata(store, new FileSystemResource(this.classFile)));
+		store.flush();
+
+		byte[] content = Files.readAllBytes(this.storeFile);
+		byte[] truncated = new byte[content.length - 3];
+		System.arraycopy(content, 0, truncated, 0, truncated.length);
+		Files.write(this.storeFile, truncated);
+		store = new PersistentMetadataStore(this.storeFile);
+		assertEquals(0, store.getStoredClassCount());
+	}
+
+	@Test
+	public void metadataOfNonFileResourceIsNotStored() throws IOException {
+		PersistentMetadataStore store = new PersistentMetadataStore(this.storeFile);
+		assertNull(store.getKey(new ByteArrayResource(
+				Files.readAllBytes(this.classFile.toPath()))));
+	}
+
+
+	private AnnotationMetadata readMetadata(PersistentMetadataStore store, Resource resource) throws IOException {
+		return new SimpleMetadataReader(resource, getClass().getClassLoader(), store).getAnnotationMetadata();
+	}
+
+	private void assertSampleComponentMetadata(AnnotationMetadata metadata) {
+		assertEquals(SampleComponent.class.getName(), metadata.getClassName());
+		assertEquals(Object.class.getName(), metadata.getSuperClassName());
+		assertArrayEquals(new String[] {Runnable.class.getName()}, metadata.getInterfaceNames());
+		assertEquals(PersistentMetadataStoreTests.class.getName(), metadata.getEnclosingClassName());
+		assertTrue(metadata.isIndependent());
+		assertTrue(metadata.hasAnnotation(Deprecated.class.getName()));
+		assertTrue(metadata.hasAnnotatedMethods(Deprecated.class.getName()));
+		assertEquals(1, metadata.getAnnotatedMethods(Deprecated.class.getName()).size());
+		assertFalse(metadata.hasAnnotatedMethods(Override.class.getName()));
+	}
+
+
+	@Deprecated
+	static class SampleComponent implements Runnable {
+
+		@Override
+		public void run() {
+		}
+
+		@Deprecated
+		public void deprecatedMethod() {
+		}
+	}
+
+
+	private static class UnreadableResource extends FileSystemResource {
+
+		UnreadableResource(File file) {
+			super(file);
+		}
+
+		@Override
+		public InputStream getInputStream() throws IOException {
+			throw new IOException("Not readable");
+		}
+	}
+
+}
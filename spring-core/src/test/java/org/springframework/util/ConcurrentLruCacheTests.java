@@ -0,0 +1,175 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link ConcurrentLruCache}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ConcurrentLruCacheTests {
+
+	private final ConcurrentLruCache<String, String> cache = new ConcurrentLruCache<>(2, key -> key + "value");
+
+
+	@Test
+	public void getAndSize() {
+		assertEquals(2, this.cache.capacity());
+		assertEquals(0, this.cache.size());
+		assertEquals("k1value", this.cache.get("k1"));
+		assertEquals(1, this.cache.size());
+		assertTrue(this.cache.contains("k1"));
+		assertEquals("k2value", this.cache.get("k2"));
+		assertEquals(2, this.cache.size());
+		assertTrue(this.cache.contains("k1"));
+		assertTrue(this.cache.contains("k2"));
+		assertEquals("k3value", this.cache.get("k3"));
+		assertEquals(2, this.cache.size());
+		assertFalse(this.cache.contains("k1"));
+		assertTrue(this.cache.contains("k2"));
+		assertTrue(this.cache.contains("k3"));
+	}
+
+	@Test
+	public void removeLeastRecentlyUsed() {
+		this.cache.get("k1");
+		this.cache.get("k2");
+		this.cache.get("k1");
+		this.cache.get("k3");
+		assertEquals(2, this.cache.size());
+		assertTrue(this.cache.contains("k1"));
+		assertFalse(this.cache.contains("k2"));
+		assertTrue(this.cache.contains("k3"));
+	}
+
+	@Test
+	public void generatorInvokedOncePerCachedKey() {
+		AtomicInteger invocations = new AtomicInteger();
+		ConcurrentLruCache<String, Integer> counting = new ConcurrentLruCache<>(4, key -> invocations.incrementAndGet());
+		for (int i = 0; i < 100; i++) {
+			counting.get("k1");
+			counting.get("k2");
+		}
+		assertEquals(2, invocations.get());
+		assertEquals(2, counting.size());
+	}
+
+	@Test
+	public void zeroCapacity() {
+		AtomicInteger invocations = new AtomicInteger();
+		ConcurrentLruCache<String, Integer> uncached = new ConcurrentLruCache<>(0, key -> invocations.incrementAndGet());
+		assertEquals(Integer.valueOf(1), uncached.get("k1"));
+		assertEquals(Integer.valueOf(2), uncached.get("k1"));
+		assertEquals(0, uncached.size());
+		assertFalse(uncached.contains("k1"));
+	}
+
+	@Test
+	public void remove() {
+		this.cache.get("k1");
+		this.cache.get("k2");
+		assertTrue(this.cache.remove("k1"));
+		assertFalse(this.cache.remove("k1"));
+		assertFalse(this.cache.contains("k1"));
+		assertEquals(1, this.cache.size());
+		this.cache.get("k3");
+		this.cache.get("k4");
+		assertEquals(2, this.cache.size());
+		assertFalse(this.cache.contains("k2"));
+		assertTrue(this.cache.contains("k3"));
+		assertTrue(this.cache.contains("k4"));
+	}
+
+	@Test
+	public void clear() {
+		this.cache.get("k1");
+		this.cache.get("k2");
+		this.cache.clear();
+		assertEquals(0, this.cache.size());
+		assertFalse(this.cache.contains("k1"));
+		assertFalse(this.cache.contains("k2"));
+		this.cache.get("k3");
+		this.cache.get("k4");
+		this.cache.get("k5");
+		assertEquals(2, this.cache.size());
+		assertTrue(this.cache.contains("k4"));
+		assertTrue(this.cache.contains("k5"));
+	}
+
+	@Test
+	public void statistics() {
+		ConcurrentLruCache<String, String> statsCache = new ConcurrentLruCache<>(2, key -> "v" + key);
+		statsCache.get("k1");
+		statsCache.get("k1");
+		statsCache.get("k2");
+		statsCache.get("k3");
+		statsCache.get("k3");
+		assertEquals(2, statsCache.hitCount());
+		assertEquals(3, statsCache.missCount());
+		assertEquals(1, statsCache.evictionCount());
+		statsCache.remove("k3");
+		assertEquals(1, statsCache.evictionCount());
+	}
+
+	@Test
+	public void concurrentAccessStaysBounded() throws Exception {
+		int capacity = 32;
+		ConcurrentLruCache<Integer, String> concurrentCache = new ConcurrentLruCache<>(capacity, String::valueOf);
+		int threads = 8;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		CountDownLatch startLatch = new CountDownLatch(1);
+		List<Future<?>> futures = new ArrayList<>();
+		try {
+			for (int t = 0; t < threads; t++) {
+				int offset = t;
+				futures.add(executor.submit(() -> {
+					startLatch.await();
+					for (int i = 0; i < 10000; i++) {
+						int key = (i * 7 + offset) % (capacity * 4);
+						assertEquals(String.valueOf(key), concurrentCache.get(key));
+					}
+					return null;
+				}));
+			}
+			startLatch.countDown();
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+		// Pending writes are drained on the next write operation
+		concurrentCache.get(-1);
+		assertTrue(concurrentCache.size() <= capacity);
+		assertTrue(concurrentCache.contains(-1));
+	}
+
+}
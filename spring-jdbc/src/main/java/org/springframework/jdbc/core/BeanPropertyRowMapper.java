@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.beans.PropertyDescriptor;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Locale;
@@ -68,7 +69,8 @@ import org.springframework.util.StringUtils;
  * will have been set to the primitive's default value instead of null.
  *
  * <p>Please note that this class is designed to provide convenience rather than high performance.
- * For best performance, consider using a custom {@link RowMapper} implementation.
+ * For best performance, consider using a custom {@link RowMapper} implementation
+ * or the bytecode-generating {@link CompiledBeanPropertyRowMapper} variant.
  *
  * @author Thomas Risberg
  * @author Juergen Hoeller
@@ -344,6 +346,22 @@ public class BeanPropertyRowMapper<T> implements RowMapper<T> {
 		return mappedObject;
 	}
 
+	/**
+	 * Return the property descriptor for the given field name, as derived
+	 * from a column name in {@link #mapRow}, or {@code null} if none.
+	 */
+	@Nullable
+	PropertyDescriptor getMappedField(String field) {
+		return (this.mappedFields != null ? this.mappedFields.get(field) : null);
+	}
+
+	/**
+	 * Return the names of all bean properties we provide mapping for.
+	 */
+	Set<String> getMappedProperties() {
+		return (this.mappedProperties != null ? this.mappedProperties : Collections.emptySet());
+	}
+
 	/**
 	 * Initialize the given BeanWrapper to be used for row mapping.
 	 * To be called for each row.
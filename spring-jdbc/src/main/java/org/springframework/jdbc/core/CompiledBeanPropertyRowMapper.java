@@ -0,0 +1,553 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.beans.PropertyDescriptor;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+
+import org.springframework.asm.ClassWriter;
+import org.springframework.asm.Label;
+import org.springframework.asm.MethodVisitor;
+import org.springframework.asm.Opcodes;
+import org.springframework.asm.Type;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.NotWritablePropertyException;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.convert.ConversionService;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.dao.DataRetrievalFailureException;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ReflectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * {@link BeanPropertyRowMapper} variant that generates a dedicated mapper class
+ * for each combination of mapped class and column layout, instantiating the
+ * target object and invoking its setters through direct bytecode calls instead
+ * of going through a {@link BeanWrapper} for every row.
+ *
+ * <p>Columns are matched against the bean properties once per {@link ResultSet},
+ * following the same naming rules as {@link BeanPropertyRowMapper}, and are then
+ * read by index. Column values which already match the property type (the common
+ * case for all types supported by {@link JdbcUtils#getResultSetValue}) are passed
+ * straight to the generated setter invocations. Any other value, e.g. one that
+ * requires a type conversion or a {@code null} for a primitive property, is bound
+ * through a {@link BeanWrapper} just like in {@link BeanPropertyRowMapper}, so
+ * both mappers produce the same objects for the same rows.
+ *
+ * <p>Generated classes are cached per mapped class and set of setters and are
+ * shared across mapper instances. A mapped class that is not public or does not
+ * expose a public no-arg constructor is mapped reflectively; the same applies
+ * to individual properties whose setter is not publicly accessible.
+ *
+ * <p>As a regular {@link RowMapper}, this mapper can be used with any
+ * {@link JdbcTemplate} or
+ * {@link org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate}
+ * query method:
+ *
+ * <pre class="code">
+ * List&lt;Person&gt; people = jdbcTemplate.query("select * from person",
+ *         CompiledBeanPropertyRowMapper.newInstance(Person.class));</pre>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @param <T> the result type
+ * @see BeanPropertyRowMapper
+ */
+public class CompiledBeanPropertyRowMapper<T> extends BeanPropertyRowMapper<T> {
+
+	/** Marker for a mapped class or layout that cannot be compiled. */
+	private static final BiFunction<Object, Object, Object> NOT_COMPILABLE = (values, flags) -> null;
+
+	/**
+	 * Class loaders holding the generated mappers for classes that are cache-safe,
+	 * keyed by the class loader of the mapped class.
+	 */
+	private static final Map<ClassLoader, MapperClassLoader> strongClassLoaderCache = new ConcurrentHashMap<>(4);
+
+	/**
+	 * Class loaders holding the generated mappers for classes that are not
+	 * cache-safe, keyed by the class loader of the mapped class. A cleared entry
+	 * releases its class loader together with all of its generated classes.
+	 */
+	private static final Map<ClassLoader, MapperClassLoader> softClassLoaderCache =
+			new ConcurrentReferenceHashMap<>(4);
+
+	private static final AtomicInteger suffixId = new AtomicInteger(1);
+
+
+	/** Whether a subclass customizes the BeanWrapper for each row. */
+	private final boolean customBeanWrapper = isInitBeanWrapperOverridden(getClass());
+
+	/** The column mapping resolved for the most recently seen ResultSet. */
+	@Nullable
+	private volatile ColumnMapping columnMapping;
+
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper} for bean-style configuration.
+	 * @see #setMappedClass
+	 * @see #setCheckFullyPopulated
+	 */
+	public CompiledBeanPropertyRowMapper() {
+	}
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper}, accepting unpopulated
+	 * properties in the target bean.
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public CompiledBeanPropertyRowMapper(Class<T> mappedClass) {
+		super(mappedClass);
+	}
+
+	/**
+	 * Create a new {@code CompiledBeanPropertyRowMapper}.
+	 * @param mappedClass the class that each row should be mapped to
+	 * @param checkFullyPopulated whether we're strictly validating that
+	 * all bean properties have been mapped from corresponding database fields
+	 */
+	public CompiledBeanPropertyRowMapper(Class<T> mappedClass, boolean checkFullyPopulated) {
+		super(mappedClass, checkFullyPopulated);
+	}
+
+
+	@Override
+	protected void initialize(Class<T> mappedClass) {
+		super.initialize(mappedClass);
+		this.columnMapping = null;
+	}
+
+
+	/**
+	 * Extract the values for all columns in the current row, using the
+	 * mapper class generated for the current column layout.
+	 * <p>Values are only passed to the setters directly if this mapper uses
+	 * the shared default {@link ConversionService} and does not override
+	 * {@link #initBeanWrapper}; otherwise, every value is bound through a
+	 * {@link BeanWrapper}, with only the instantiation remaining generated.
+	 * @see #getColumnValue(ResultSet, int, PropertyDescriptor)
+	 */
+	@Override
+	@SuppressWarnings("unchecked")
+	public T mapRow(ResultSet rs, int rowNumber) throws SQLException {
+		Class<T> mappedClass = getMappedClass();
+		Assert.state(mappedClass != null, "Mapped class was not specified");
+
+		ColumnMapping mapping = this.columnMapping;
+		if (mapping == null || mapping.resultSet.get() != rs) {
+			mapping = resolveColumnMapping(mappedClass, rs);
+			this.columnMapping = mapping;
+		}
+		if (mapping.mapper == NOT_COMPILABLE) {
+			return super.mapRow(rs, rowNumber);
+		}
+		if (isCheckFullyPopulated() && !mapping.fullyPopulated) {
+			throw new InvalidDataAccessApiUsageException("Given ResultSet does not contain all fields " +
+					"necessary to populate object of class [" + mappedClass.getName() + "]: " +
+					getMappedProperties());
+		}
+
+		PropertyDescriptor[] pds = mapping.propertyDescriptors;
+		Object[] values = new Object[pds.length];
+		boolean[] direct = new boolean[pds.length];
+		boolean allDirect = true;
+		for (int i = 0; i < pds.length; i++) {
+			PropertyDescriptor pd = pds[i];
+			if (pd != null) {
+				Object value = getColumnValue(rs, i + 1, pd);
+				Class<?> directType = mapping.directTypes[i];
+				values[i] = value;
+				direct[i] = (directType != null &&
+						(value != null ? directType.isInstance(value) : !mapping.primitive[i]));
+				allDirect &= direct[i];
+			}
+		}
+
+		T mappedObject = (T) mapping.mapper.apply(values, direct);
+		if (!allDirect) {
+			BeanWrapper bw = PropertyAccessorFactory.forBeanPropertyAccess(mappedObject);
+			initBeanWrapper(bw);
+			for (int i = 0; i < pds.length; i++) {
+				PropertyDescriptor pd = pds[i];
+				if (pd != null && !direct[i]) {
+					setPropertyValue(bw, pd, values[i], rowNumber);
+				}
+			}
+		}
+		return mappedObject;
+	}
+
+	private void setPropertyValue(BeanWrapper bw, PropertyDescriptor pd, @Nullable Object value, int rowNumber) {
+		try {
+			bw.setPropertyValue(pd.getName(), value);
+		}
+		catch (TypeMismatchException ex) {
+			if (value == null && isPrimitivesDefaultedForNullValue()) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Intercepted TypeMismatchException for row " + rowNumber +
+							" with null value when setting property '" + pd.getName() + "' of type '" +
+							ClassUtils.getQualifiedName(pd.getPropertyType()) +
+							"' on object: " + bw.getWrappedInstance(), ex);
+				}
+			}
+			else {
+				throw ex;
+			}
+		}
+		catch (NotWritablePropertyException ex) {
+			throw new DataRetrievalFailureException(
+					"Unable to map property '" + pd.getName() + "'", ex);
+		}
+	}
+
+	/**
+	 * Match the columns of the given ResultSet against the mapped properties
+	 * and obtain the generated mapper for the resulting set of setters.
+	 */
+	private ColumnMapping resolveColumnMapping(Class<T> mappedClass, ResultSet rs) throws SQLException {
+		ResultSetMetaData rsmd = rs.getMetaData();
+		int columnCount = rsmd.getColumnCount();
+		PropertyDescriptor[] pds = new PropertyDescriptor[columnCount];
+		Method[] setters = new Method[columnCount];
+		Class<?>[] directTypes = new Class<?>[columnCount];
+		boolean[] primitive = new boolean[columnCount];
+		Set<String> populatedProperties = new HashSet<>();
+		boolean directBinding = isDirectBindingAllowed();
+
+		for (int index = 1; index <= columnCount; index++) {
+			String column = JdbcUtils.lookupColumnName(rsmd, index);
+			String field = lowerCaseName(StringUtils.delete(column, " "));
+			PropertyDescriptor pd = getMappedField(field);
+			if (pd != null) {
+				if (logger.isDebugEnabled()) {
+					logger.debug("Mapping column '" + column + "' to property '" + pd.getName() +
+							"' of type '" + ClassUtils.getQualifiedName(pd.getPropertyType()) + "'");
+				}
+				int i = index - 1;
+				pds[i] = pd;
+				Method setter = pd.getWriteMethod();
+				if (directBinding && setter != null && isDirectlyInvocable(setter)) {
+					Class<?> parameterType = setter.getParameterTypes()[0];
+					Class<?> propertyType = pd.getPropertyType();
+					Class<?> directType = (parameterType.isAssignableFrom(propertyType) ? propertyType :
+							(propertyType.isAssignableFrom(parameterType) ? parameterType : null));
+					if (directType != null) {
+						setters[i] = setter;
+						directTypes[i] = ClassUtils.resolvePrimitiveIfNecessary(directType);
+						primitive[i] = parameterType.isPrimitive();
+					}
+				}
+				populatedProperties.add(pd.getName());
+			}
+			else if (logger.isDebugEnabled()) {
+				logger.debug("No property found for column '" + column + "' mapped to field '" + field + "'");
+			}
+		}
+
+		BiFunction<Object, Object, Object> mapper = obtainMapper(new MapperKey(mappedClass, setters));
+		return new ColumnMapping(rs, pds, directTypes, primitive, mapper,
+				populatedProperties.equals(getMappedProperties()));
+	}
+
+	/**
+	 * Determine whether column values of a matching type may bypass the
+	 * {@link BeanWrapper}, i.e. whether the BeanWrapper would not apply any
+	 * custom conversion or property editor to them.
+	 */
+	private boolean isDirectBindingAllowed() {
+		ConversionService cs = getConversionService();
+		return (!this.customBeanWrapper && (cs == null || cs == DefaultConversionService.getSharedInstance()));
+	}
+
+	private static boolean isInitBeanWrapperOverridden(Class<?> mapperClass) {
+		Method method = ReflectionUtils.findMethod(mapperClass, "initBeanWrapper", BeanWrapper.class);
+		return (method != null && method.getDeclaringClass() != BeanPropertyRowMapper.class);
+	}
+
+	private static boolean isDirectlyInvocable(Method setter) {
+		if (!Modifier.isPublic(setter.getModifiers()) || Modifier.isStatic(setter.getModifiers()) ||
+				!Modifier.isPublic(setter.getDeclaringClass().getModifiers()) ||
+				setter.getParameterCount() != 1) {
+			return false;
+		}
+		Class<?> type = setter.getParameterTypes()[0];
+		while (type.isArray()) {
+			type = type.getComponentType();
+		}
+		return (type.isPrimitive() || Modifier.isPublic(type.getModifiers()));
+	}
+
+	/**
+	 * Obtain the mapper for the given key, generating it on first access.
+	 * @return the mapper, or {@link #NOT_COMPILABLE} if the mapped class
+	 * cannot be instantiated from generated code
+	 */
+	private BiFunction<Object, Object, Object> obtainMapper(MapperKey key) {
+		Class<?> mappedClass = key.mappedClass;
+		ClassLoader classLoader = mappedClass.getClassLoader();
+		int modifiers = mappedClass.getModifiers();
+		if (classLoader == null || !Modifier.isPublic(modifiers) || Modifier.isAbstract(modifiers) ||
+				mappedClass.isInterface() || (mappedClass.isMemberClass() && !Modifier.isStatic(modifiers))) {
+			return NOT_COMPILABLE;
+		}
+		Constructor<?> ctor = ClassUtils.getConstructorIfAvailable(mappedClass);
+		if (ctor == null || !Modifier.isPublic(ctor.getModifiers())) {
+			return NOT_COMPILABLE;
+		}
+
+		Map<ClassLoader, MapperClassLoader> classLoaderCache =
+				(ClassUtils.isCacheSafe(mappedClass, CompiledBeanPropertyRowMapper.class.getClassLoader()) ?
+						strongClassLoaderCache : softClassLoaderCache);
+		MapperClassLoader mcl = classLoaderCache.computeIfAbsent(classLoader, MapperClassLoader::new);
+		return mcl.mappers.computeIfAbsent(key, k -> generateMapper(mcl, k));
+	}
+
+	/**
+	 * Generate, load and instantiate the mapper class for the given key.
+	 * @return the mapper, or {@link #NOT_COMPILABLE} if the class could not be
+	 * generated or loaded
+	 */
+	private BiFunction<Object, Object, Object> generateMapper(MapperClassLoader mcl, MapperKey key) {
+		Class<?> mappedClass = key.mappedClass;
+		String className = mappedClass.getName() + "$$RowMapper$$" + suffixId.getAndIncrement();
+		byte[] bytes = generateMapperClass(className.replace('.', '/'), mappedClass, key.setters);
+		try {
+			Class<?> mapperClass = mcl.defineClass(className, bytes);
+			@SuppressWarnings("unchecked")
+			BiFunction<Object, Object, Object> mapper =
+					(BiFunction<Object, Object, Object>) ReflectionUtils.accessibleConstructor(mapperClass).newInstance();
+			if (logger.isDebugEnabled()) {
+				logger.debug("Generated row mapper class [" + className + "]");
+			}
+			return mapper;
+		}
+		catch (Throwable ex) {
+			if (logger.isDebugEnabled()) {
+				logger.debug("Failed to generate row mapper for class [" + mappedClass.getName() +
+						"] - falling back to BeanWrapper-based mapping", ex);
+			}
+			return NOT_COMPILABLE;
+		}
+	}
+
+	/**
+	 * Generate a {@link BiFunction} implementation whose {@code apply} method
+	 * takes the column values ({@code Object[]}) and the flags for the values to
+	 * pass directly ({@code boolean[]}), instantiates the mapped class and invokes
+	 * the given setters (indexed by column) for all flagged values.
+	 */
+	private static byte[] generateMapperClass(String className, Class<?> mappedClass, Method[] setters) {
+		String owner = Type.getInternalName(mappedClass);
+		ClassWriter cw = new ClassWriter(ClassWriter.COMPUTE_MAXS | ClassWriter.COMPUTE_FRAMES);
+		cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC | Opcodes.ACC_FINAL | Opcodes.ACC_SYNTHETIC, className, null,
+				"java/lang/Object", new String[] {"java/util/function/BiFunction"});
+
+		MethodVisitor mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 0);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+		mv.visitInsn(Opcodes.RETURN);
+		mv.visitMaxs(0, 0);  // computed due to COMPUTE_MAXS
+		mv.visitEnd();
+
+		// Locals: 1 = values, 2 = direct flags, 3 = mapped object
+		mv = cw.visitMethod(Opcodes.ACC_PUBLIC, "apply",
+				"(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(Opcodes.ALOAD, 1);
+		mv.visitTypeInsn(Opcodes.CHECKCAST, "[Ljava/lang/Object;");
+		mv.visitVarInsn(Opcodes.ASTORE, 1);
+		mv.visitVarInsn(Opcodes.ALOAD, 2);
+		mv.visitTypeInsn(Opcodes.CHECKCAST, "[Z");
+		mv.visitVarInsn(Opcodes.ASTORE, 2);
+		mv.visitTypeInsn(Opcodes.NEW, owner);
+		mv.visitInsn(Opcodes.DUP);
+		mv.visitMethodInsn(Opcodes.INVOKESPECIAL, owner, "<init>", "()V", false);
+		mv.visitVarInsn(Opcodes.ASTORE, 3);
+
+		for (int i = 0; i < setters.length; i++) {
+			Method setter = setters[i];
+			if (setter == null) {
+				continue;
+			}
+			Label skip = new Label();
+			mv.visitVarInsn(Opcodes.ALOAD, 2);
+			pushInt(mv, i);
+			mv.visitInsn(Opcodes.BALOAD);
+			mv.visitJumpInsn(Opcodes.IFEQ, skip);
+			mv.visitVarInsn(Opcodes.ALOAD, 3);
+			mv.visitVarInsn(Opcodes.ALOAD, 1);
+			pushInt(mv, i);
+			mv.visitInsn(Opcodes.AALOAD);
+			Class<?> parameterType = setter.getParameterTypes()[0];
+			if (parameterType.isPrimitive()) {
+				String wrapper = Type.getInternalName(ClassUtils.resolvePrimitiveIfNecessary(parameterType));
+				mv.visitTypeInsn(Opcodes.CHECKCAST, wrapper);
+				mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, wrapper, parameterType.getName() + "Value",
+						"()" + Type.getDescriptor(parameterType), false);
+			}
+			else if (parameterType != Object.class) {
+				mv.visitTypeInsn(Opcodes.CHECKCAST, Type.getInternalName(parameterType));
+			}
+			mv.visitMethodInsn(Opcodes.INVOKEVIRTUAL, owner, setter.getName(),
+					Type.getMethodDescriptor(setter), false);
+			Class<?> returnType = setter.getReturnType();
+			if (returnType == long.class || returnType == double.class) {
+				mv.visitInsn(Opcodes.POP2);
+			}
+			else if (returnType != void.class) {
+				mv.visitInsn(Opcodes.POP);
+			}
+			mv.visitLabel(skip);
+		}
+
+		mv.visitVarInsn(Opcodes.ALOAD, 3);
+		mv.visitInsn(Opcodes.ARETURN);
+		mv.visitMaxs(0, 0);  // computed due to COMPUTE_MAXS
+		mv.visitEnd();
+		cw.visitEnd();
+		return cw.toByteArray();
+	}
+
+	private static void pushInt(MethodVisitor mv, int value) {
+		if (value <= 5) {
+			mv.visitInsn(Opcodes.ICONST_0 + value);
+		}
+		else if (value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(Opcodes.BIPUSH, value);
+		}
+		else if (value <= Short.MAX_VALUE) {
+			mv.visitIntInsn(Opcodes.SIPUSH, value);
+		}
+		else {
+			mv.visitLdcInsn(value);
+		}
+	}
+
+
+	/**
+	 * Static factory method to create a new {@code CompiledBeanPropertyRowMapper}
+	 * (with the mapped class specified only once).
+	 * @param mappedClass the class that each row should be mapped to
+	 */
+	public static <T> CompiledBeanPropertyRowMapper<T> newInstance(Class<T> mappedClass) {
+		return new CompiledBeanPropertyRowMapper<>(mappedClass);
+	}
+
+
+	/**
+	 * Column layout of a ResultSet as resolved against the mapped properties.
+	 */
+	private static class ColumnMapping {
+
+		final WeakReference<ResultSet> resultSet;
+
+		final PropertyDescriptor[] propertyDescriptors;
+
+		final Class<?>[] directTypes;
+
+		final boolean[] primitive;
+
+		final BiFunction<Object, Object, Object> mapper;
+
+		final boolean fullyPopulated;
+
+		ColumnMapping(ResultSet resultSet, PropertyDescriptor[] propertyDescriptors, Class<?>[] directTypes,
+				boolean[] primitive, BiFunction<Object, Object, Object> mapper, boolean fullyPopulated) {
+
+			this.resultSet = new WeakReference<>(resultSet);
+			this.propertyDescriptors = propertyDescriptors;
+			this.directTypes = directTypes;
+			this.primitive = primitive;
+			this.mapper = mapper;
+			this.fullyPopulated = fullyPopulated;
+		}
+	}
+
+
+	/**
+	 * Cache key for a generated mapper: the mapped class plus the setter
+	 * to invoke for each column index, if any.
+	 */
+	private static final class MapperKey {
+
+		final Class<?> mappedClass;
+
+		final Method[] setters;
+
+		MapperKey(Class<?> mappedClass, Method[] setters) {
+			this.mappedClass = mappedClass;
+			this.setters = setters;
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof MapperKey)) {
+				return false;
+			}
+			MapperKey otherKey = (MapperKey) other;
+			return (this.mappedClass == otherKey.mappedClass && Arrays.equals(this.setters, otherKey.setters));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.mappedClass.hashCode() * 31 + Arrays.hashCode(this.setters);
+		}
+	}
+
+
+	/**
+	 * Child class loader for generated mappers, able to see the mapped class,
+	 * holding on to the mappers it defined.
+	 */
+	private static class MapperClassLoader extends ClassLoader {
+
+		final Map<MapperKey, BiFunction<Object, Object, Object>> mappers = new ConcurrentHashMap<>(16);
+
+		MapperClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		Class<?> defineClass(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+}
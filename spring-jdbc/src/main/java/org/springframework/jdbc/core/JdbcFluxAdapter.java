@@ -0,0 +1,141 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Scheduler;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Adapter exposing the streaming query methods of {@link JdbcOperations}
+ * as Reactor {@link Flux} sequences.
+ *
+ * <p>All blocking JDBC work (executing the statement, fetching and mapping
+ * rows, closing the resources) is performed on the given {@link Scheduler},
+ * which should be bounded, typically in line with the size of the connection
+ * pool, e.g. {@code Schedulers.fromExecutorService(Executors.newFixedThreadPool(10))}.
+ * Rows are fetched and mapped as they are requested by the subscriber, so
+ * the number of rows held in memory is bounded by the subscriber's demand
+ * and the JDBC fetch size (see {@link JdbcTemplate#setStreamingFetchSize})
+ * rather than by the size of the result. The underlying resources are
+ * released when the sequence completes, fails or is cancelled.
+ *
+ * <pre class="code">
+ * JdbcFluxAdapter adapter = new JdbcFluxAdapter(jdbcTemplate, scheduler);
+ * Flux&lt;Person&gt; people = adapter.query("select * from person where age &gt; ?", personMapper, 18);
+ * Flux&lt;Person&gt; named = adapter.query(() -&gt; namedParameterJdbcTemplate.queryForStream(
+ *         "select * from person where age &gt; :age", Collections.singletonMap("age", 18), personMapper));
+ * </pre>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see JdbcOperations#queryForStream(String, RowMapper, Object...)
+ */
+public class JdbcFluxAdapter {
+
+	private final JdbcOperations jdbcOperations;
+
+	private final Scheduler scheduler;
+
+
+	/**
+	 * Create a new {@code JdbcFluxAdapter}.
+	 * @param jdbcOperations the JDBC operations to delegate to
+	 * @param scheduler the scheduler to run blocking JDBC work on
+	 */
+	public JdbcFluxAdapter(JdbcOperations jdbcOperations, Scheduler scheduler) {
+		Assert.notNull(jdbcOperations, "JdbcOperations must not be null");
+		Assert.notNull(scheduler, "Scheduler must not be null");
+		this.jdbcOperations = jdbcOperations;
+		this.scheduler = scheduler;
+	}
+
+
+	/**
+	 * Return the JDBC operations that this adapter delegates to.
+	 */
+	public JdbcOperations getJdbcOperations() {
+		return this.jdbcOperations;
+	}
+
+	/**
+	 * Return the scheduler that blocking JDBC work runs on.
+	 */
+	public Scheduler getScheduler() {
+		return this.scheduler;
+	}
+
+
+	/**
+	 * Query given static SQL, mapping each row to a result object via a RowMapper.
+	 * @param sql the SQL query to execute
+	 * @param rowMapper a callback that will map one object per row
+	 * @return a Flux emitting the mapped objects, executing the query on subscription
+	 * @see JdbcOperations#queryForStream(String, RowMapper)
+	 */
+	public <T> Flux<T> query(String sql, RowMapper<T> rowMapper) {
+		return query(() -> this.jdbcOperations.queryForStream(sql, rowMapper));
+	}
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list of
+	 * arguments to bind to the query, mapping each row to a result object
+	 * via a RowMapper.
+	 * @param sql the SQL query to execute
+	 * @param rowMapper a callback that will map one object per row
+	 * @param args arguments to bind to the query
+	 * @return a Flux emitting the mapped objects, executing the query on subscription
+	 * @see JdbcOperations#queryForStream(String, RowMapper, Object...)
+	 */
+	public <T> Flux<T> query(String sql, RowMapper<T> rowMapper, @Nullable Object... args) {
+		return query(() -> this.jdbcOperations.queryForStream(sql, rowMapper, args));
+	}
+
+	/**
+	 * Query using a prepared statement, mapping each row to a result object
+	 * via a RowMapper.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param rowMapper a callback that will map one object per row
+	 * @return a Flux emitting the mapped objects, executing the query on subscription
+	 * @see JdbcOperations#queryForStream(PreparedStatementCreator, RowMapper)
+	 */
+	public <T> Flux<T> query(PreparedStatementCreator psc, RowMapper<T> rowMapper) {
+		return query(() -> this.jdbcOperations.queryForStream(psc, rowMapper));
+	}
+
+	/**
+	 * Expose the Stream returned by the given query as a Flux, e.g. for a
+	 * query through a
+	 * {@link org.springframework.jdbc.core.namedparam.NamedParameterJdbcOperations}.
+	 * <p>The supplier is invoked on subscription, on the configured scheduler,
+	 * and the obtained Stream gets closed on completion, error or cancellation.
+	 * @param streamQuery the query to run, returning a Stream over its results
+	 * @return a Flux emitting the elements of the Stream
+	 */
+	public <T> Flux<T> query(Supplier<Stream<T>> streamQuery) {
+		Assert.notNull(streamQuery, "Stream query must not be null");
+		return Flux.using(streamQuery::get, Flux::fromStream, Stream::close)
+				.subscribeOn(this.scheduler)
+				.cancelOn(this.scheduler);
+	}
+
+}
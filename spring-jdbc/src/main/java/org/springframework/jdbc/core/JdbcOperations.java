@@ -19,6 +19,7 @@ package org.springframework.jdbc.core;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.springframework.dao.DataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
@@ -132,6 +133,27 @@ public interface JdbcOperations {
 	 */
 	<T> List<T> query(String sql, RowMapper<T> rowMapper) throws DataAccessException;
 
+	/**
+	 * Execute a query given static SQL, mapping each row to a result object
+	 * via a RowMapper, and turning it into an iterable and closeable Stream.
+	 * <p>Uses a JDBC Statement, not a PreparedStatement. Rows are fetched and
+	 * mapped lazily while the stream is consumed; the underlying JDBC resources
+	 * are held until the stream gets closed, so the stream needs to be closed
+	 * once fully processed (e.g. through a try-with-resources clause).
+	 * <p>The default implementation retrieves all rows upfront through
+	 * {@link #query(String, RowMapper)}; {@link JdbcTemplate} fetches them lazily.
+	 * @param sql the SQL query to execute
+	 * @param rowMapper a callback that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed
+	 * @throws DataAccessException if there is any problem executing the query
+	 * @since 5.2
+	 * @see #queryForStream(String, RowMapper, Object...)
+	 */
+	default <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper) throws DataAccessException {
+		return query(sql, rowMapper).stream();
+	}
+
 	/**
 	 * Execute a query given static SQL, mapping a single result row to a
 	 * result object via a RowMapper.
@@ -514,6 +536,74 @@ public interface JdbcOperations {
 	 */
 	<T> List<T> query(String sql, RowMapper<T> rowMapper, @Nullable Object... args) throws DataAccessException;
 
+	/**
+	 * Query using a prepared statement, mapping each row to a result object
+	 * via a RowMapper, and turning it into an iterable and closeable Stream.
+	 * <p>A PreparedStatementCreator can either be implemented directly or
+	 * configured through a PreparedStatementCreatorFactory.
+	 * <p>The default implementation retrieves all rows upfront through
+	 * {@link #query(PreparedStatementCreator, RowMapper)}; {@link JdbcTemplate} fetches them lazily.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param rowMapper a callback that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed (e.g. through a try-with-resources clause)
+	 * @throws DataAccessException if there is any problem
+	 * @since 5.2
+	 * @see PreparedStatementCreatorFactory
+	 */
+	default <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return query(psc, rowMapper).stream();
+	}
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a
+	 * PreparedStatementSetter implementation that knows how to bind values
+	 * to the query, mapping each row to a result object via a RowMapper,
+	 * and turning it into an iterable and closeable Stream.
+	 * <p>The default implementation retrieves all rows upfront through
+	 * {@link #query(String, PreparedStatementSetter, RowMapper)}; {@link JdbcTemplate} fetches them lazily.
+	 * @param sql the SQL query to execute
+	 * @param pss a callback that knows how to set values on the prepared statement.
+	 * If this is {@code null}, the SQL will be assumed to contain no bind parameters.
+	 * Even if there are no bind parameters, this callback may be used to set the
+	 * fetch size and other performance options.
+	 * @param rowMapper a callback that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed (e.g. through a try-with-resources clause)
+	 * @throws DataAccessException if the query fails
+	 * @since 5.2
+	 */
+	default <T> Stream<T> queryForStream(String sql, @Nullable PreparedStatementSetter pss, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return query(sql, pss, rowMapper).stream();
+	}
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list of
+	 * arguments to bind to the query, mapping each row to a result object
+	 * via a RowMapper, and turning it into an iterable and closeable Stream.
+	 * <p>The default implementation retrieves all rows upfront through
+	 * {@link #query(String, RowMapper, Object...)}; {@link JdbcTemplate} fetches them lazily.
+	 * @param sql the SQL query to execute
+	 * @param rowMapper a callback that will map one object per row
+	 * @param args arguments to bind to the query
+	 * (leaving it to the PreparedStatement to guess the corresponding SQL type);
+	 * may also contain {@link SqlParameterValue} objects which indicate not
+	 * only the argument value but also the SQL type and optionally the scale
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed (e.g. through a try-with-resources clause)
+	 * @throws DataAccessException if the query fails
+	 * @since 5.2
+	 */
+	default <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, @Nullable Object... args)
+			throws DataAccessException {
+
+		return query(sql, rowMapper, args).stream();
+	}
+
 	/**
 	 * Query given SQL to create a prepared statement from SQL and a list
 	 * of arguments to bind to the query, mapping a single result row to a
@@ -34,6 +34,10 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
@@ -113,6 +117,12 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	 */
 	private int fetchSize = -1;
 
+	/**
+	 * If this variable is set to a value other than -1, it will be used for setting the
+	 * fetchSize property on statements used for streaming query results.
+	 */
+	private int streamingFetchSize = -1;
+
 	/**
 	 * If this variable is set to a non-negative value, it will be used for setting the
 	 * maxRows property on statements used for query processing.
@@ -220,6 +230,29 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return this.fetchSize;
 	}
 
+	/**
+	 * Set the fetch size for statements whose results are exposed as a
+	 * {@link Stream}, overriding the general {@link #setFetchSize fetch size}
+	 * for those. Streaming is typically used for large result sets that are
+	 * not meant to be held in memory, so a bounded fetch size (or a
+	 * driver-specific value such as {@code Integer.MIN_VALUE} for MySQL's
+	 * row-by-row streaming) is usually appropriate there.
+	 * <p>Default is -1, indicating to use the general fetch size setting.
+	 * @since 5.2
+	 * @see #queryForStream(PreparedStatementCreator, RowMapper)
+	 */
+	public void setStreamingFetchSize(int streamingFetchSize) {
+		this.streamingFetchSize = streamingFetchSize;
+	}
+
+	/**
+	 * Return the fetch size specified for streaming query results.
+	 * @since 5.2
+	 */
+	public int getStreamingFetchSize() {
+		return this.streamingFetchSize;
+	}
+
 	/**
 	 * Set the maximum number of rows for this JdbcTemplate. This is important for
 	 * processing subsets of large result sets, avoiding to read and hold the entire
@@ -365,15 +398,32 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	@Override
 	@Nullable
 	public <T> T execute(StatementCallback<T> action) throws DataAccessException {
+		return execute(action, true);
+	}
+
+	/**
+	 * Execute a JDBC data access operation, implemented as callback action
+	 * working on a JDBC Statement.
+	 * @param action the callback object that specifies the action
+	 * @param closeResources whether to close the Statement and release the
+	 * Connection once the action has completed successfully (resources are
+	 * always closed when the action fails)
+	 * @return a result object returned by the action, or {@code null}
+	 * @throws DataAccessException if there is any problem
+	 */
+	@Nullable
+	private <T> T execute(StatementCallback<T> action, boolean closeResources) throws DataAccessException {
 		Assert.notNull(action, "Callback object must not be null");
 
 		Connection con = DataSourceUtils.getConnection(obtainDataSource());
 		Statement stmt = null;
+		boolean completed = false;
 		try {
 			stmt = con.createStatement();
 			applyStatementSettings(stmt);
 			T result = action.doInStatement(stmt);
 			handleWarnings(stmt);
+			completed = true;
 			return result;
 		}
 		catch (SQLException ex) {
@@ -387,8 +437,10 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			throw translateException("StatementCallback", sql, ex);
 		}
 		finally {
-			JdbcUtils.closeStatement(stmt);
-			DataSourceUtils.releaseConnection(con, getDataSource());
+			if (closeResources || !completed) {
+				JdbcUtils.closeStatement(stmt);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+			}
 		}
 	}
 
@@ -461,6 +513,38 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result(query(sql, new RowMapperResultSetExtractor<>(rowMapper)));
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(final String sql, final RowMapper<T> rowMapper) throws DataAccessException {
+		Assert.notNull(sql, "SQL must not be null");
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		if (logger.isDebugEnabled()) {
+			logger.debug("Executing SQL query [" + sql + "] for stream");
+		}
+
+		/**
+		 * Callback to execute the query, keeping the Statement open for the stream.
+		 */
+		class StreamStatementCallback implements StatementCallback<Stream<T>>, SqlProvider {
+			@Override
+			public Stream<T> doInStatement(Statement stmt) throws SQLException {
+				applyStreamingSettings(stmt);
+				ResultSet rs = stmt.executeQuery(sql);
+				Connection con = stmt.getConnection();
+				return new ResultSetSpliterator<>(rs, rowMapper, sql).stream().onClose(() -> {
+					JdbcUtils.closeResultSet(rs);
+					JdbcUtils.closeStatement(stmt);
+					DataSourceUtils.releaseConnection(con, getDataSource());
+				});
+			}
+			@Override
+			public String getSql() {
+				return sql;
+			}
+		}
+
+		return result(execute(new StreamStatementCallback(), false));
+	}
+
 	@Override
 	public Map<String, Object> queryForMap(String sql) throws DataAccessException {
 		return result(queryForObject(sql, getColumnMapRowMapper()));
@@ -601,6 +685,24 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	public <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action)
 			throws DataAccessException {
 
+		return execute(psc, action, true);
+	}
+
+	/**
+	 * Execute a JDBC data access operation, implemented as callback action
+	 * working on a JDBC PreparedStatement.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param action the callback that specifies the action
+	 * @param closeResources whether to close the PreparedStatement and release
+	 * the Connection once the action has completed successfully (resources are
+	 * always closed when the action fails)
+	 * @return a result object returned by the action, or {@code null}
+	 * @throws DataAccessException if there is any problem
+	 */
+	@Nullable
+	private <T> T execute(PreparedStatementCreator psc, PreparedStatementCallback<T> action, boolean closeResources)
+			throws DataAccessException {
+
 		Assert.notNull(psc, "PreparedStatementCreator must not be null");
 		Assert.notNull(action, "Callback object must not be null");
 		if (logger.isDebugEnabled()) {
@@ -610,11 +712,13 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 
 		Connection con = DataSourceUtils.getConnection(obtainDataSource());
 		PreparedStatement ps = null;
+		boolean completed = false;
 		try {
 			ps = psc.createPreparedStatement(con);
 			applyStatementSettings(ps);
 			T result = action.doInPreparedStatement(ps);
 			handleWarnings(ps);
+			completed = true;
 			return result;
 		}
 		catch (SQLException ex) {
@@ -632,11 +736,13 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 			throw translateException("PreparedStatementCallback", sql, ex);
 		}
 		finally {
-			if (psc instanceof ParameterDisposer) {
-				((ParameterDisposer) psc).cleanupParameters();
+			if (closeResources || !completed) {
+				if (psc instanceof ParameterDisposer) {
+					((ParameterDisposer) psc).cleanupParameters();
+				}
+				JdbcUtils.closeStatement(ps);
+				DataSourceUtils.releaseConnection(con, getDataSource());
 			}
-			JdbcUtils.closeStatement(ps);
-			DataSourceUtils.releaseConnection(con, getDataSource());
 		}
 	}
 
@@ -767,6 +873,77 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		return result(query(sql, args, new RowMapperResultSetExtractor<>(rowMapper)));
 	}
 
+	/**
+	 * Query using a prepared statement, allowing for a PreparedStatementCreator
+	 * and a PreparedStatementSetter, exposing the mapped rows as a lazily
+	 * populated Stream. The JDBC resources stay open until the stream is closed.
+	 * @param psc a callback that creates a PreparedStatement given a Connection
+	 * @param pss a callback that knows how to set values on the prepared statement.
+	 * If this is {@code null}, the SQL will be assumed to contain no bind parameters.
+	 * @param rowMapper a callback that will map one object per row
+	 * @return the result Stream, to be closed after use
+	 * @throws DataAccessException if there is any problem
+	 * @since 5.2
+	 */
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, @Nullable PreparedStatementSetter pss,
+			RowMapper<T> rowMapper) throws DataAccessException {
+
+		Assert.notNull(rowMapper, "RowMapper must not be null");
+		logger.debug("Executing prepared SQL query for stream");
+
+		String sql = getSql(psc);
+		return result(execute(psc, ps -> {
+			ResultSet rs;
+			try {
+				applyStreamingSettings(ps);
+				if (pss != null) {
+					pss.setValues(ps);
+				}
+				rs = ps.executeQuery();
+			}
+			catch (SQLException ex) {
+				// Statement and Connection get closed by execute
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+				throw ex;
+			}
+			Connection con = ps.getConnection();
+			return new ResultSetSpliterator<>(rs, rowMapper, sql).stream().onClose(() -> {
+				JdbcUtils.closeResultSet(rs);
+				if (pss instanceof ParameterDisposer) {
+					((ParameterDisposer) pss).cleanupParameters();
+				}
+				if (psc instanceof ParameterDisposer) {
+					((ParameterDisposer) psc).cleanupParameters();
+				}
+				JdbcUtils.closeStatement(ps);
+				DataSourceUtils.releaseConnection(con, getDataSource());
+			});
+		}, false));
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(PreparedStatementCreator psc, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(psc, null, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, @Nullable PreparedStatementSetter pss, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), pss, rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, RowMapper<T> rowMapper, @Nullable Object... args)
+			throws DataAccessException {
+
+		return queryForStream(new SimplePreparedStatementCreator(sql), newArgPreparedStatementSetter(args), rowMapper);
+	}
+
 	@Override
 	@Nullable
 	public <T> T queryForObject(String sql, Object[] args, int[] argTypes, RowMapper<T> rowMapper)
@@ -1371,6 +1548,23 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 		DataSourceUtils.applyTimeout(stmt, getDataSource(), getQueryTimeout());
 	}
 
+	/**
+	 * Prepare the given JDBC Statement for streaming its results: applies the
+	 * {@link #setStreamingFetchSize streaming fetch size}, if any.
+	 * Called after {@link #applyStatementSettings}.
+	 * <p>The fetch direction is left as is: forward-only is the default for
+	 * the result sets created here, and not all drivers support setting it.
+	 * @param stmt the JDBC Statement to prepare
+	 * @throws SQLException if thrown by JDBC API
+	 * @since 5.2
+	 */
+	protected void applyStreamingSettings(Statement stmt) throws SQLException {
+		int fetchSize = getStreamingFetchSize();
+		if (fetchSize != -1) {
+			stmt.setFetchSize(fetchSize);
+		}
+	}
+
 	/**
 	 * Create a new arg-based PreparedStatementSetter using the args passed in.
 	 * <p>By default, we'll create an {@link ArgumentPreparedStatementSetter}.
@@ -1538,6 +1732,63 @@ public class JdbcTemplate extends JdbcAccessor implements JdbcOperations {
 	}
 
 
+	/**
+	 * Spliterator for mapping the rows of an open ResultSet, one row per advance.
+	 * Used for exposing a ResultSet as a lazily populated Stream.
+	 */
+	private class ResultSetSpliterator<T> implements Spliterator<T> {
+
+		private final ResultSet rs;
+
+		private final RowMapper<T> rowMapper;
+
+		@Nullable
+		private final String sql;
+
+		private int rowNum = 0;
+
+		public ResultSetSpliterator(ResultSet rs, RowMapper<T> rowMapper, @Nullable String sql) {
+			this.rs = rs;
+			this.rowMapper = rowMapper;
+			this.sql = sql;
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super T> action) {
+			try {
+				if (this.rs.next()) {
+					action.accept(this.rowMapper.mapRow(this.rs, this.rowNum++));
+					return true;
+				}
+				return false;
+			}
+			catch (SQLException ex) {
+				throw translateException("ResultSetSpliterator", this.sql, ex);
+			}
+		}
+
+		@Override
+		@Nullable
+		public Spliterator<T> trySplit() {
+			return null;
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.ORDERED;
+		}
+
+		public Stream<T> stream() {
+			return StreamSupport.stream(this, false);
+		}
+	}
+
+
 	/**
 	 * Simple adapter for PreparedStatementCreator, allowing to use a plain SQL statement.
 	 */
@@ -0,0 +1,569 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.namedparam;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlParameterValue;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * Reusable, thread-safe operation object for bulk-loading a potentially
+ * very large sequence of items through a single SQL statement with named
+ * parameters, sending the items to the database in JDBC batches ("chunks").
+ *
+ * <p>In contrast to {@link NamedParameterJdbcOperations#batchUpdate}, the
+ * items are pulled from an {@link Iterable} or {@link Stream} one at a time,
+ * so that only the chunks currently in flight are held in memory. The SQL
+ * statement is parsed once, and the statement to execute is derived from the
+ * first item (analogous to {@code batchUpdate}, collection values therefore
+ * need to have the same size for all items).
+ *
+ * <p>A chunk is sent once it reaches the configured {@link #setChunkSize
+ * number of items} or, optionally, the configured {@link #setMaxChunkBytes
+ * estimated size}. Chunks may be executed on up to {@link #setConcurrency
+ * N} pooled connections in parallel, and each chunk may run in its own
+ * transaction (see {@link #setTransactionManager}). Update counts for all
+ * chunks are aggregated into a single {@link Summary}.
+ *
+ * <pre class="code">
+ * ChunkedBatchUpdate&lt;Person&gt; update = new ChunkedBatchUpdate&lt;&gt;(dataSource,
+ *         "insert into person (id, name) values (:id, :name)", BeanPropertySqlParameterSource::new);
+ * update.setChunkSize(500);
+ * update.setConcurrency(4);
+ * update.setTransactionManager(transactionManager);
+ * ChunkedBatchUpdate.Summary summary = update.update(personStream);
+ * </pre>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @param <T> the type of items to bind
+ * @see NamedParameterJdbcTemplate#batchUpdate(String, SqlParameterSource[])
+ * @see org.springframework.jdbc.object.BatchSqlUpdate
+ */
+public class ChunkedBatchUpdate<T> {
+
+	/** Default number of items per chunk. */
+	public static final int DEFAULT_CHUNK_SIZE = 1000;
+
+
+	/** Logger available to subclasses. */
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private final JdbcTemplate jdbcTemplate;
+
+	private final ParsedSql parsedSql;
+
+	private final Function<? super T, ? extends SqlParameterSource> parameterSourceFactory;
+
+	private int chunkSize = DEFAULT_CHUNK_SIZE;
+
+	private long maxChunkBytes = -1;
+
+	private int concurrency = 1;
+
+	@Nullable
+	private Executor executor;
+
+	@Nullable
+	private TransactionTemplate transactionTemplate;
+
+
+	/**
+	 * Create a new {@code ChunkedBatchUpdate} for the given DataSource.
+	 * @param dataSource the DataSource to obtain connections from
+	 * @param sql the SQL statement to execute, with named parameters
+	 * @param parameterSourceFactory the function turning an item into the
+	 * {@link SqlParameterSource} to bind, e.g. {@code BeanPropertySqlParameterSource::new}
+	 */
+	public ChunkedBatchUpdate(DataSource dataSource, String sql,
+			Function<? super T, ? extends SqlParameterSource> parameterSourceFactory) {
+
+		this(new JdbcTemplate(dataSource), sql, parameterSourceFactory);
+	}
+
+	/**
+	 * Create a new {@code ChunkedBatchUpdate} for the given JdbcTemplate.
+	 * @param jdbcTemplate the JdbcTemplate to execute the chunks with
+	 * @param sql the SQL statement to execute, with named parameters
+	 * @param parameterSourceFactory the function turning an item into the
+	 * {@link SqlParameterSource} to bind, e.g. {@code BeanPropertySqlParameterSource::new}
+	 */
+	public ChunkedBatchUpdate(JdbcTemplate jdbcTemplate, String sql,
+			Function<? super T, ? extends SqlParameterSource> parameterSourceFactory) {
+
+		Assert.notNull(jdbcTemplate, "JdbcTemplate must not be null");
+		Assert.hasText(sql, "SQL must not be empty");
+		Assert.notNull(parameterSourceFactory, "Parameter source factory must not be null");
+		this.jdbcTemplate = jdbcTemplate;
+		this.parsedSql = NamedParameterUtils.parseSqlStatement(sql);
+		this.parameterSourceFactory = parameterSourceFactory;
+	}
+
+
+	/**
+	 * Set the maximum number of items to send to the database per chunk.
+	 * <p>Default is {@value #DEFAULT_CHUNK_SIZE}.
+	 */
+	public void setChunkSize(int chunkSize) {
+		Assert.isTrue(chunkSize > 0, "Chunk size must be greater than 0");
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Return the maximum number of items per chunk.
+	 */
+	public int getChunkSize() {
+		return this.chunkSize;
+	}
+
+	/**
+	 * Set the maximum estimated size of a chunk in bytes: a chunk is sent as
+	 * soon as the {@link #estimateSize estimated size} of its items reaches
+	 * this value, even if the {@link #setChunkSize chunk size} has not been
+	 * reached yet. Useful for items of widely varying size, e.g. with LOB values.
+	 * <p>Default is -1, indicating to flush by number of items only.
+	 */
+	public void setMaxChunkBytes(long maxChunkBytes) {
+		this.maxChunkBytes = maxChunkBytes;
+	}
+
+	/**
+	 * Return the maximum estimated size of a chunk in bytes, or -1 if none.
+	 */
+	public long getMaxChunkBytes() {
+		return this.maxChunkBytes;
+	}
+
+	/**
+	 * Set the maximum number of chunks to execute in parallel, each on its own
+	 * connection from the DataSource (which needs to be a connection pool).
+	 * Items are only read ahead for the chunks in flight.
+	 * <p>Default is 1, executing all chunks one after the other on the calling
+	 * thread, participating in an existing transaction if any (unless chunks
+	 * run in transactions of their own, see {@link #setTransactionManager}).
+	 * With a value greater than 1, chunks are executed on the configured
+	 * {@link #setExecutor Executor} and do not see transactions of the
+	 * calling thread.
+	 */
+	public void setConcurrency(int concurrency) {
+		Assert.isTrue(concurrency > 0, "Concurrency must be greater than 0");
+		this.concurrency = concurrency;
+	}
+
+	/**
+	 * Return the maximum number of chunks to execute in parallel.
+	 */
+	public int getConcurrency() {
+		return this.concurrency;
+	}
+
+	/**
+	 * Set the Executor to run chunks on if the {@link #setConcurrency
+	 * concurrency} is greater than 1, typically a thread pool.
+	 * <p>Default is a {@link SimpleAsyncTaskExecutor}, starting a new thread
+	 * for each chunk.
+	 */
+	public void setExecutor(@Nullable Executor executor) {
+		this.executor = executor;
+	}
+
+	/**
+	 * Set the transaction manager to execute each chunk in a new transaction
+	 * of its own with ({@link TransactionDefinition#PROPAGATION_REQUIRES_NEW}),
+	 * suspending any transaction of the calling thread. A failing chunk is
+	 * rolled back on its own, without affecting chunks committed before.
+	 * <p>Default is none, executing chunks without explicit transaction
+	 * demarcation.
+	 * @see #setTransactionTemplate
+	 */
+	public void setTransactionManager(@Nullable PlatformTransactionManager transactionManager) {
+		if (transactionManager != null) {
+			TransactionTemplate tt = new TransactionTemplate(transactionManager);
+			tt.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+			this.transactionTemplate = tt;
+		}
+		else {
+			this.transactionTemplate = null;
+		}
+	}
+
+	/**
+	 * Set the TransactionTemplate to execute each chunk with, allowing for
+	 * custom transaction settings per chunk (propagation, isolation, timeout).
+	 * @see #setTransactionManager
+	 */
+	public void setTransactionTemplate(@Nullable TransactionTemplate transactionTemplate) {
+		this.transactionTemplate = transactionTemplate;
+	}
+
+
+	/**
+	 * Execute the statement for all items of the given Iterable.
+	 * @param items the items to bind, consumed one at a time
+	 * @return the aggregated result of all chunks
+	 * @throws DataAccessException if a chunk failed, after all chunks
+	 * in flight have completed
+	 * @throws IllegalStateException if the calling thread got interrupted
+	 * while waiting for chunks in flight (with its interrupt flag preserved)
+	 */
+	public Summary update(Iterable<? extends T> items) throws DataAccessException {
+		Assert.notNull(items, "Items must not be null");
+		return doUpdate(items.iterator());
+	}
+
+	/**
+	 * Execute the statement for all items of the given Stream, closing the
+	 * Stream once all items have been processed.
+	 * @param items the items to bind, consumed one at a time
+	 * @return the aggregated result of all chunks
+	 * @throws DataAccessException if a chunk failed, after all chunks
+	 * in flight have completed
+	 * @throws IllegalStateException if the calling thread got interrupted
+	 * while waiting for chunks in flight (with its interrupt flag preserved)
+	 */
+	public Summary update(Stream<? extends T> items) throws DataAccessException {
+		Assert.notNull(items, "Items must not be null");
+		try (Stream<? extends T> stream = items) {
+			return doUpdate(stream.iterator());
+		}
+	}
+
+	private Summary doUpdate(Iterator<? extends T> items) {
+		ChunkExecution execution = new ChunkExecution();
+		PreparedStatementCreatorFactory pscf = null;
+		List<Object[]> chunk = new ArrayList<>();
+		long chunkBytes = 0;
+		try {
+			while (items.hasNext() && !execution.hasFailed()) {
+				SqlParameterSource paramSource = this.parameterSourceFactory.apply(items.next());
+				if (pscf == null) {
+					pscf = createPreparedStatementCreatorFactory(paramSource);
+				}
+				Object[] values = NamedParameterUtils.buildValueArray(this.parsedSql, paramSource, null);
+				chunk.add(values);
+				if (this.maxChunkBytes >= 0) {
+					chunkBytes += estimateSize(values);
+				}
+				if (chunk.size() >= this.chunkSize || (this.maxChunkBytes >= 0 && chunkBytes >= this.maxChunkBytes)) {
+					execution.submit(pscf, chunk);
+					chunk = new ArrayList<>();
+					chunkBytes = 0;
+				}
+			}
+			if (pscf != null && !chunk.isEmpty() && !execution.hasFailed()) {
+				execution.submit(pscf, chunk);
+			}
+		}
+		finally {
+			execution.awaitCompletion();
+		}
+		return execution.getSummary();
+	}
+
+	private PreparedStatementCreatorFactory createPreparedStatementCreatorFactory(SqlParameterSource paramSource) {
+		String sqlToUse = NamedParameterUtils.substituteNamedParameters(this.parsedSql, paramSource);
+		List<SqlParameter> declaredParameters = NamedParameterUtils.buildSqlParameterList(this.parsedSql, paramSource);
+		return new PreparedStatementCreatorFactory(sqlToUse, declaredParameters);
+	}
+
+	/**
+	 * Estimate the size in bytes that the given parameter values contribute to
+	 * a chunk, as used for {@link #setMaxChunkBytes}.
+	 * <p>The default implementation counts the length of character sequences
+	 * and byte arrays, recursing into collections and arrays, and 8 bytes for
+	 * any other non-null value. Can be overridden in subclasses.
+	 * @param values the parameter values of one item
+	 * @return the estimated size in bytes
+	 */
+	protected long estimateSize(Object[] values) {
+		long size = 0;
+		for (Object value : values) {
+			size += estimateValueSize(value);
+		}
+		return size;
+	}
+
+	private static long estimateValueSize(@Nullable Object value) {
+		if (value instanceof SqlParameterValue) {
+			return estimateValueSize(((SqlParameterValue) value).getValue());
+		}
+		if (value instanceof CharSequence) {
+			return ((CharSequence) value).length();
+		}
+		if (value instanceof byte[]) {
+			return ((byte[]) value).length;
+		}
+		if (value instanceof Iterable) {
+			long size = 0;
+			for (Object element : (Iterable<?>) value) {
+				size += estimateValueSize(element);
+			}
+			return size;
+		}
+		if (value instanceof Object[]) {
+			long size = 0;
+			for (Object element : (Object[]) value) {
+				size += estimateValueSize(element);
+			}
+			return size;
+		}
+		return (value != null ? 8 : 0);
+	}
+
+	/**
+	 * Execute a single chunk, within a transaction if configured.
+	 * @param pscf the statement factory derived from the first item
+	 * @param chunk the parameter values of all items in the chunk
+	 * @return the update counts for the chunk
+	 */
+	private int[] executeChunk(PreparedStatementCreatorFactory pscf, List<Object[]> chunk) {
+		BatchPreparedStatementSetter pss = new BatchPreparedStatementSetter() {
+			@Override
+			public void setValues(PreparedStatement ps, int i) throws SQLException {
+				pscf.newPreparedStatementSetter(chunk.get(i)).setValues(ps);
+			}
+			@Override
+			public int getBatchSize() {
+				return chunk.size();
+			}
+		};
+		TransactionTemplate tt = this.transactionTemplate;
+		if (tt == null) {
+			return this.jdbcTemplate.batchUpdate(pscf.getSql(), pss);
+		}
+		int[] updateCounts = tt.execute(status -> this.jdbcTemplate.batchUpdate(pscf.getSql(), pss));
+		Assert.state(updateCounts != null, "No update counts");
+		return updateCounts;
+	}
+
+
+	/**
+	 * State of a single {@code update} call: submits chunks, bounds the number
+	 * of chunks in flight, and aggregates their results.
+	 */
+	private class ChunkExecution {
+
+		private final Semaphore permits = new Semaphore(concurrency);
+
+		private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+		private final AtomicLong itemCount = new AtomicLong();
+
+		private final AtomicLong chunkCount = new AtomicLong();
+
+		private final AtomicLong updateCount = new AtomicLong();
+
+		private final AtomicLong unknownUpdateCount = new AtomicLong();
+
+		@Nullable
+		private Executor chunkExecutor;
+
+		private boolean interrupted;
+
+		public void submit(PreparedStatementCreatorFactory pscf, List<Object[]> chunk) {
+			if (concurrency == 1) {
+				execute(pscf, chunk);
+				RuntimeException ex = this.failure.get();
+				if (ex != null) {
+					throw ex;
+				}
+				return;
+			}
+			try {
+				this.permits.acquire();
+			}
+			catch (InterruptedException ex) {
+				interrupted(ex);
+				return;
+			}
+			try {
+				getChunkExecutor().execute(() -> {
+					try {
+						execute(pscf, chunk);
+					}
+					finally {
+						this.permits.release();
+					}
+				});
+			}
+			catch (RuntimeException ex) {
+				this.permits.release();
+				throw ex;
+			}
+		}
+
+		private void execute(PreparedStatementCreatorFactory pscf, List<Object[]> chunk) {
+			if (logger.isTraceEnabled()) {
+				logger.trace("Sending chunk of " + chunk.size() + " items for SQL [" + pscf.getSql() + "]");
+			}
+			try {
+				int[] updateCounts = executeChunk(pscf, chunk);
+				for (int count : updateCounts) {
+					if (count >= 0) {
+						this.updateCount.addAndGet(count);
+					}
+					else if (count == Statement.SUCCESS_NO_INFO) {
+						this.unknownUpdateCount.incrementAndGet();
+					}
+				}
+				this.itemCount.addAndGet(chunk.size());
+				this.chunkCount.incrementAndGet();
+			}
+			catch (RuntimeException ex) {
+				fail(ex);
+			}
+		}
+
+		private void interrupted(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			if (!this.interrupted) {
+				this.interrupted = true;
+				fail(new IllegalStateException("Interrupted while waiting for chunks in flight", ex));
+			}
+		}
+
+		private void fail(RuntimeException ex) {
+			if (!this.failure.compareAndSet(null, ex)) {
+				this.failure.get().addSuppressed(ex);
+			}
+		}
+
+		private Executor getChunkExecutor() {
+			if (this.chunkExecutor == null) {
+				this.chunkExecutor = (executor != null ? executor : new SimpleAsyncTaskExecutor("chunked-batch-"));
+			}
+			return this.chunkExecutor;
+		}
+
+		public boolean hasFailed() {
+			return (this.failure.get() != null);
+		}
+
+		public void awaitCompletion() {
+			if (concurrency > 1) {
+				// Wait for all chunks in flight even if interrupted, re-asserting the interrupt afterwards
+				InterruptedException interruption = null;
+				while (true) {
+					try {
+						this.permits.acquire(concurrency);
+						break;
+					}
+					catch (InterruptedException ex) {
+						interruption = ex;
+					}
+				}
+				this.permits.release(concurrency);
+				if (interruption != null) {
+					interrupted(interruption);
+				}
+			}
+		}
+
+		public Summary getSummary() {
+			RuntimeException ex = this.failure.get();
+			if (ex != null) {
+				throw ex;
+			}
+			return new Summary(this.itemCount.get(), this.chunkCount.get(),
+					this.updateCount.get(), this.unknownUpdateCount.get());
+		}
+	}
+
+
+	/**
+	 * Aggregated result of a {@code ChunkedBatchUpdate} execution.
+	 */
+	public static final class Summary {
+
+		private final long itemCount;
+
+		private final long chunkCount;
+
+		private final long updateCount;
+
+		private final long unknownUpdateCount;
+
+		Summary(long itemCount, long chunkCount, long updateCount, long unknownUpdateCount) {
+			this.itemCount = itemCount;
+			this.chunkCount = chunkCount;
+			this.updateCount = updateCount;
+			this.unknownUpdateCount = unknownUpdateCount;
+		}
+
+		/**
+		 * Return the number of items that have been sent to the database.
+		 */
+		public long getItemCount() {
+			return this.itemCount;
+		}
+
+		/**
+		 * Return the number of chunks that have been executed.
+		 */
+		public long getChunkCount() {
+			return this.chunkCount;
+		}
+
+		/**
+		 * Return the total number of rows affected, as far as reported by the driver.
+		 */
+		public long getUpdateCount() {
+			return this.updateCount;
+		}
+
+		/**
+		 * Return the number of items for which the driver did not report the number
+		 * of rows affected ({@link Statement#SUCCESS_NO_INFO}).
+		 */
+		public long getUnknownUpdateCount() {
+			return this.unknownUpdateCount;
+		}
+
+		@Override
+		public String toString() {
+			return "ChunkedBatchUpdate.Summary: items=" + this.itemCount + ", chunks=" + this.chunkCount +
+					", updateCount=" + this.updateCount + ", unknownUpdateCount=" + this.unknownUpdateCount;
+		}
+	}
+
+}
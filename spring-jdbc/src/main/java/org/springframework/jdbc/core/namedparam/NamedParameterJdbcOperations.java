@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.jdbc.core.namedparam;
 
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import org.springframework.dao.DataAccessException;
 import org.springframework.jdbc.core.JdbcOperations;
@@ -226,6 +227,50 @@ public interface NamedParameterJdbcOperations {
 	 */
 	<T> List<T> query(String sql, RowMapper<T> rowMapper) throws DataAccessException;
 
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list
+	 * of arguments to bind to the query, mapping each row to a Java object
+	 * via a RowMapper, and turning it into an iterable and closeable Stream.
+	 * <p>The default implementation retrieves all rows upfront through
+	 * {@link #query(String, SqlParameterSource, RowMapper)};
+	 * {@link NamedParameterJdbcTemplate} fetches them lazily.
+	 * @param sql the SQL query to execute
+	 * @param paramSource container of arguments to bind to the query
+	 * @param rowMapper object that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed (e.g. through a try-with-resources clause)
+	 * @throws org.springframework.dao.DataAccessException if the query fails
+	 * @since 5.2
+	 * @see JdbcOperations#queryForStream(org.springframework.jdbc.core.PreparedStatementCreator, RowMapper)
+	 */
+	default <T> Stream<T> queryForStream(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return query(sql, paramSource, rowMapper).stream();
+	}
+
+	/**
+	 * Query given SQL to create a prepared statement from SQL and a list
+	 * of arguments to bind to the query, mapping each row to a Java object
+	 * via a RowMapper, and turning it into an iterable and closeable Stream.
+	 * <p>The default implementation retrieves all rows upfront through
+	 * {@link #query(String, Map, RowMapper)};
+	 * {@link NamedParameterJdbcTemplate} fetches them lazily.
+	 * @param sql the SQL query to execute
+	 * @param paramMap map of parameters to bind to the query
+	 * (leaving it to the PreparedStatement to guess the corresponding SQL type)
+	 * @param rowMapper object that will map one object per row
+	 * @return the result Stream, containing mapped objects, needing to be
+	 * closed once fully processed (e.g. through a try-with-resources clause)
+	 * @throws org.springframework.dao.DataAccessException if the query fails
+	 * @since 5.2
+	 */
+	default <T> Stream<T> queryForStream(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return query(sql, paramMap, rowMapper).stream();
+	}
+
 	/**
 	 * Query given SQL to create a prepared statement from SQL and a list
 	 * of arguments to bind to the query, mapping a single result row to a
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,10 +18,12 @@ package org.springframework.jdbc.core.namedparam;
 
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Consumer;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 
 import org.springframework.dao.DataAccessException;
@@ -38,11 +40,14 @@ import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.core.SingleColumnRowMapper;
 import org.springframework.jdbc.core.SqlParameter;
+import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.jdbc.core.SqlRowSetResultSetExtractor;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentLruCache;
+import org.springframework.util.ObjectUtils;
 
 /**
  * Template class with a basic set of JDBC operations, allowing the use
@@ -57,6 +62,14 @@ import org.springframework.util.Assert;
  * exposed to allow for convenient access to the traditional
  * {@link org.springframework.jdbc.core.JdbcTemplate} methods.
  *
+ * <p>Parsed SQL statements are kept in a concurrent LRU cache, next to a cache of
+ * {@link PreparedStatementCreatorFactory} instances per statement shape: that is,
+ * per original SQL String in combination with the SQL types of its parameters and
+ * the sizes of any collection values expanded into IN-clause placeholders. Both
+ * caches are bounded by the {@link #setCacheLimit cache limit}; their usage can
+ * be monitored through {@link #getParsedSqlCacheStatistics()} and
+ * {@link #getStatementCacheStatistics()}.
+ *
  * <p><b>NOTE: An instance of this class is thread-safe once configured.</b>
  *
  * @author Thomas Risberg
@@ -77,14 +90,12 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
 
 	/** Cache of original SQL String to ParsedSql representation. */
-	@SuppressWarnings("serial")
-	private final Map<String, ParsedSql> parsedSqlCache =
-			new LinkedHashMap<String, ParsedSql>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
-				@Override
-				protected boolean removeEldestEntry(Map.Entry<String, ParsedSql> eldest) {
-					return size() > getCacheLimit();
-				}
-			};
+	private volatile ConcurrentLruCache<String, ParsedSql> parsedSqlCache =
+			new ConcurrentLruCache<>(DEFAULT_CACHE_LIMIT, NamedParameterUtils::parseSqlStatement);
+
+	/** Cache of statement shape to PreparedStatementCreatorFactory. */
+	private volatile ConcurrentLruCache<StatementShape, PreparedStatementCreatorFactory> statementCache =
+			new ConcurrentLruCache<>(DEFAULT_CACHE_LIMIT, this::createPreparedStatementCreatorFactory);
 
 
 	/**
@@ -132,8 +143,14 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 	/**
 	 * Specify the maximum number of entries for this template's SQL cache.
 	 * Default is 256.
+	 * <p>The same limit applies to the cache of {@link PreparedStatementCreatorFactory}
+	 * instances per statement shape. Changing the limit clears both caches;
+	 * a limit of 0 or lower turns caching off.
 	 */
 	public void setCacheLimit(int cacheLimit) {
+		int capacity = Math.max(cacheLimit, 0);
+		this.parsedSqlCache = new ConcurrentLruCache<>(capacity, NamedParameterUtils::parseSqlStatement);
+		this.statementCache = new ConcurrentLruCache<>(capacity, this::createPreparedStatementCreatorFactory);
 		this.cacheLimit = cacheLimit;
 	}
 
@@ -144,6 +161,25 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return this.cacheLimit;
 	}
 
+	/**
+	 * Return a snapshot of the usage statistics of this template's SQL cache.
+	 * @since 5.2
+	 * @see #getParsedSql(String)
+	 */
+	public CacheStatistics getParsedSqlCacheStatistics() {
+		return new CacheStatistics(this.parsedSqlCache);
+	}
+
+	/**
+	 * Return a snapshot of the usage statistics of this template's cache of
+	 * {@link PreparedStatementCreatorFactory} instances per statement shape.
+	 * @since 5.2
+	 * @see #getPreparedStatementCreator(String, SqlParameterSource, Consumer)
+	 */
+	public CacheStatistics getStatementCacheStatistics() {
+		return new CacheStatistics(this.statementCache);
+	}
+
 
 	@Override
 	@Nullable
@@ -227,6 +263,20 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return query(sql, EmptySqlParameterSource.INSTANCE, rowMapper);
 	}
 
+	@Override
+	public <T> Stream<T> queryForStream(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return getJdbcOperations().queryForStream(getPreparedStatementCreator(sql, paramSource), rowMapper);
+	}
+
+	@Override
+	public <T> Stream<T> queryForStream(String sql, Map<String, ?> paramMap, RowMapper<T> rowMapper)
+			throws DataAccessException {
+
+		return queryForStream(sql, new MapSqlParameterSource(paramMap), rowMapper);
+	}
+
 	@Override
 	@Nullable
 	public <T> T queryForObject(String sql, SqlParameterSource paramSource, RowMapper<T> rowMapper)
@@ -360,7 +410,7 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		}
 
 		ParsedSql parsedSql = getParsedSql(sql);
-		PreparedStatementCreatorFactory pscf = getPreparedStatementCreatorFactory(parsedSql, batchArgs[0]);
+		PreparedStatementCreatorFactory pscf = getCachedPreparedStatementCreatorFactory(parsedSql, batchArgs[0]);
 
 		return getJdbcOperations().batchUpdate(
 				pscf.getSql(),
@@ -410,32 +460,47 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 			@Nullable Consumer<PreparedStatementCreatorFactory> customizer) {
 
 		ParsedSql parsedSql = getParsedSql(sql);
-		PreparedStatementCreatorFactory pscf = getPreparedStatementCreatorFactory(parsedSql, paramSource);
+		PreparedStatementCreatorFactory pscf;
 		if (customizer != null) {
+			// A customized factory must not be shared through the statement cache
+			pscf = getPreparedStatementCreatorFactory(parsedSql, paramSource);
 			customizer.accept(pscf);
 		}
+		else {
+			pscf = getCachedPreparedStatementCreatorFactory(parsedSql, paramSource);
+		}
 		Object[] params = NamedParameterUtils.buildValueArray(parsedSql, paramSource, null);
 		return pscf.newPreparedStatementCreator(params);
 	}
 
 	/**
 	 * Obtain a parsed representation of the given SQL statement.
-	 * <p>The default implementation uses an LRU cache with an upper limit of 256 entries.
+	 * <p>The default implementation uses a concurrent LRU cache with an upper limit
+	 * of 256 entries.
 	 * @param sql the original SQL statement
 	 * @return a representation of the parsed SQL statement
 	 */
 	protected ParsedSql getParsedSql(String sql) {
-		if (getCacheLimit() <= 0) {
-			return NamedParameterUtils.parseSqlStatement(sql);
-		}
-		synchronized (this.parsedSqlCache) {
-			ParsedSql parsedSql = this.parsedSqlCache.get(sql);
-			if (parsedSql == null) {
-				parsedSql = NamedParameterUtils.parseSqlStatement(sql);
-				this.parsedSqlCache.put(sql, parsedSql);
-			}
-			return parsedSql;
+		return this.parsedSqlCache.get(sql);
+	}
+
+	/**
+	 * Obtain a {@link PreparedStatementCreatorFactory} for the given SQL and named
+	 * parameters from the statement cache, building it through
+	 * {@link #getPreparedStatementCreatorFactory} on a cache miss.
+	 */
+	private PreparedStatementCreatorFactory getCachedPreparedStatementCreatorFactory(
+			ParsedSql parsedSql, SqlParameterSource paramSource) {
+
+		ConcurrentLruCache<StatementShape, PreparedStatementCreatorFactory> cache = this.statementCache;
+		if (cache.capacity() == 0) {
+			return getPreparedStatementCreatorFactory(parsedSql, paramSource);
 		}
+		return cache.get(new StatementShape(parsedSql, paramSource));
+	}
+
+	private PreparedStatementCreatorFactory createPreparedStatementCreatorFactory(StatementShape shape) {
+		return shape.createFactory(this);
 	}
 
 	/**
@@ -455,4 +520,169 @@ public class NamedParameterJdbcTemplate implements NamedParameterJdbcOperations
 		return new PreparedStatementCreatorFactory(sqlToUse, declaredParameters);
 	}
 
+
+	/**
+	 * Snapshot of the usage statistics of one of the caches of a
+	 * {@link NamedParameterJdbcTemplate}.
+	 * @since 5.2
+	 * @see #getParsedSqlCacheStatistics()
+	 * @see #getStatementCacheStatistics()
+	 */
+	public static final class CacheStatistics {
+
+		private final int size;
+
+		private final int capacity;
+
+		private final long hitCount;
+
+		private final long missCount;
+
+		private final long evictionCount;
+
+		CacheStatistics(ConcurrentLruCache<?, ?> cache) {
+			this.size = cache.size();
+			this.capacity = cache.capacity();
+			this.hitCount = cache.hitCount();
+			this.missCount = cache.missCount();
+			this.evictionCount = cache.evictionCount();
+		}
+
+		/**
+		 * Return the current number of entries in the cache.
+		 */
+		public int getSize() {
+			return this.size;
+		}
+
+		/**
+		 * Return the maximum number of entries in the cache.
+		 */
+		public int getCapacity() {
+			return this.capacity;
+		}
+
+		/**
+		 * Return the number of lookups served from the cache.
+		 */
+		public long getHitCount() {
+			return this.hitCount;
+		}
+
+		/**
+		 * Return the number of lookups that required a new entry to be built.
+		 */
+		public long getMissCount() {
+			return this.missCount;
+		}
+
+		/**
+		 * Return the number of entries evicted in order to stay within the capacity.
+		 */
+		public long getEvictionCount() {
+			return this.evictionCount;
+		}
+
+		@Override
+		public String toString() {
+			return "size=" + this.size + ", capacity=" + this.capacity + ", hits=" + this.hitCount +
+					", misses=" + this.missCount + ", evictions=" + this.evictionCount;
+		}
+	}
+
+
+	/**
+	 * Cache key for a {@link PreparedStatementCreatorFactory}: the original SQL
+	 * String plus, for each parameter occurrence, its SQL type and type name as
+	 * well as the shape of its value (the number of expanded placeholders for
+	 * collection values, including the arity of any nested value arrays).
+	 */
+	private static final class StatementShape {
+
+		private static final int NO_VALUE = -2;
+
+		private static final int SCALAR = -1;
+
+		private final String sql;
+
+		private final int[] signature;
+
+		private final String[] typeNames;
+
+		private final int hashCode;
+
+		// Only held until the corresponding factory has been built
+		@Nullable
+		private ParsedSql parsedSql;
+
+		@Nullable
+		private SqlParameterSource paramSource;
+
+		StatementShape(ParsedSql parsedSql, SqlParameterSource paramSource) {
+			List<String> paramNames = parsedSql.getParameterNames();
+			int[] signature = new int[paramNames.size() * 2];
+			int pos = 0;
+			String[] typeNames = new String[paramNames.size()];
+			for (int i = 0; i < paramNames.size(); i++) {
+				String paramName = paramNames.get(i);
+				typeNames[i] = paramSource.getTypeName(paramName);
+				signature[pos++] = paramSource.getSqlType(paramName);
+				if (!paramSource.hasValue(paramName)) {
+					signature[pos++] = NO_VALUE;
+					continue;
+				}
+				Object value = paramSource.getValue(paramName);
+				if (value instanceof SqlParameterValue) {
+					value = ((SqlParameterValue) value).getValue();
+				}
+				if (value instanceof Collection) {
+					Collection<?> entries = (Collection<?>) value;
+					if (pos + 1 + entries.size() > signature.length) {
+						signature = Arrays.copyOf(signature, pos + 1 + entries.size() + signature.length);
+					}
+					signature[pos++] = entries.size();
+					for (Object entry : entries) {
+						signature[pos++] = (entry instanceof Object[] ? ((Object[]) entry).length : SCALAR);
+					}
+				}
+				else {
+					signature[pos++] = SCALAR;
+				}
+			}
+			this.sql = parsedSql.getOriginalSql();
+			this.signature = (pos < signature.length ? Arrays.copyOf(signature, pos) : signature);
+			this.typeNames = typeNames;
+			this.hashCode = this.sql.hashCode() * 31 + Arrays.hashCode(this.signature);
+			this.parsedSql = parsedSql;
+			this.paramSource = paramSource;
+		}
+
+		PreparedStatementCreatorFactory createFactory(NamedParameterJdbcTemplate template) {
+			ParsedSql parsedSql = this.parsedSql;
+			SqlParameterSource paramSource = this.paramSource;
+			Assert.state(parsedSql != null && paramSource != null, "Statement shape already resolved");
+			this.parsedSql = null;
+			this.paramSource = null;
+			return template.getPreparedStatementCreatorFactory(parsedSql, paramSource);
+		}
+
+		@Override
+		public boolean equals(@Nullable Object other) {
+			if (this == other) {
+				return true;
+			}
+			if (!(other instanceof StatementShape)) {
+				return false;
+			}
+			StatementShape otherShape = (StatementShape) other;
+			return (this.sql.equals(otherShape.sql) && Arrays.equals(this.signature, otherShape.signature) &&
+					ObjectUtils.nullSafeEquals(this.typeNames, otherShape.typeNames));
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hashCode;
+		}
+	}
+
 }
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Proxy for a target JDBC {@link javax.sql.DataSource}, notifying a
+ * {@link ConnectionMetricsListener} of Connection acquisition latencies,
+ * Connection hold times and statement execution times.
+ *
+ * <p>Every Connection obtained through this proxy is reported when it is closed,
+ * i.e. returned to the target DataSource: at the end of a transaction for
+ * transactional Connections, and after each data access operation for
+ * non-transactional Connections. Statements executed through the returned
+ * Connection handles are timed and counted as well.
+ *
+ * <p>Use this proxy as the DataSource for both the transaction manager, for
+ * example {@link DataSourceTransactionManager}, and data access code such as
+ * {@link org.springframework.jdbc.core.JdbcTemplate}, in order to report
+ * transactional Connections with all the statements executed on them.
+ *
+ * <p><b>NOTE:</b> This DataSource proxy needs to return wrapped Connections (which
+ * implement the {@link ConnectionProxy} interface) in order to handle close calls
+ * properly. Use {@link Connection#unwrap} to retrieve the native JDBC Connection.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see ConnectionMetricsListener
+ * @see LoggingConnectionMetricsListener
+ */
+public class ConnectionMetricsDataSourceProxy extends DelegatingDataSource {
+
+	@Nullable
+	private ConnectionMetricsListener connectionMetricsListener;
+
+
+	/**
+	 * Create a new ConnectionMetricsDataSourceProxy.
+	 * @see #setTargetDataSource
+	 * @see #setConnectionMetricsListener
+	 */
+	public ConnectionMetricsDataSourceProxy() {
+	}
+
+	/**
+	 * Create a new ConnectionMetricsDataSourceProxy.
+	 * @param targetDataSource the target DataSource
+	 * @param connectionMetricsListener the listener to notify
+	 */
+	public ConnectionMetricsDataSourceProxy(DataSource targetDataSource,
+			ConnectionMetricsListener connectionMetricsListener) {
+
+		super(targetDataSource);
+		this.connectionMetricsListener = connectionMetricsListener;
+	}
+
+
+	/**
+	 * Set the listener to notify of Connection and statement metrics.
+	 */
+	public void setConnectionMetricsListener(@Nullable ConnectionMetricsListener connectionMetricsListener) {
+		this.connectionMetricsListener = connectionMetricsListener;
+	}
+
+	/**
+	 * Return the listener to notify of Connection and statement metrics.
+	 */
+	@Nullable
+	public ConnectionMetricsListener getConnectionMetricsListener() {
+		return this.connectionMetricsListener;
+	}
+
+	/**
+	 * Obtain the {@code ConnectionMetricsListener} for actual use (never {@code null}).
+	 */
+	protected ConnectionMetricsListener obtainConnectionMetricsListener() {
+		ConnectionMetricsListener listener = getConnectionMetricsListener();
+		Assert.state(listener != null, "No 'connectionMetricsListener' set");
+		return listener;
+	}
+
+	@Override
+	public void afterPropertiesSet() {
+		super.afterPropertiesSet();
+		if (getConnectionMetricsListener() == null) {
+			throw new IllegalArgumentException("Property 'connectionMetricsListener' is required");
+		}
+	}
+
+
+	/**
+	 * Obtain a Connection from the target DataSource, reporting the time spent
+	 * waiting for it, and wrap it with a Connection proxy that reports its
+	 * hold time and the statements executed through it.
+	 * @see #getMetricsConnectionProxy
+	 */
+	@Override
+	public Connection getConnection() throws SQLException {
+		DataSource targetDataSource = obtainTargetDataSource();
+		ConnectionMetricsListener listener = obtainConnectionMetricsListener();
+		long startTime = System.nanoTime();
+		Connection con;
+		try {
+			con = targetDataSource.getConnection();
+		}
+		catch (SQLException | RuntimeException ex) {
+			listener.connectionAcquisitionFailed(targetDataSource, System.nanoTime() - startTime, ex);
+			throw ex;
+		}
+		return getMetricsConnectionProxy(con, targetDataSource, listener, startTime);
+	}
+
+	/**
+	 * Obtain a Connection from the target DataSource, reporting the time spent
+	 * waiting for it, and wrap it with a Connection proxy that reports its
+	 * hold time and the statements executed through it.
+	 * @see #getMetricsConnectionProxy
+	 */
+	@Override
+	public Connection getConnection(String username, String password) throws SQLException {
+		DataSource targetDataSource = obtainTargetDataSource();
+		ConnectionMetricsListener listener = obtainConnectionMetricsListener();
+		long startTime = System.nanoTime();
+		Connection con;
+		try {
+			con = targetDataSource.getConnection(username, password);
+		}
+		catch (SQLException | RuntimeException ex) {
+			listener.connectionAcquisitionFailed(targetDataSource, System.nanoTime() - startTime, ex);
+			throw ex;
+		}
+		return getMetricsConnectionProxy(con, targetDataSource, listener, startTime);
+	}
+
+	/**
+	 * Wrap the given Connection with a proxy that delegates every method call to it
+	 * but reports the Connection hold time on {@code close()}, timing statements
+	 * created through it in the meantime.
+	 * @param target the original Connection to wrap
+	 * @param targetDataSource the DataSource that the Connection came from
+	 * @param listener the listener to notify
+	 * @param startTime the {@link System#nanoTime()} value at which the
+	 * Connection has been requested from the DataSource
+	 * @return the wrapped Connection
+	 */
+	protected Connection getMetricsConnectionProxy(Connection target, DataSource targetDataSource,
+			ConnectionMetricsListener listener, long startTime) {
+
+		long acquiredTime = System.nanoTime();
+		listener.connectionAcquired(targetDataSource, acquiredTime - startTime);
+		return (Connection) Proxy.newProxyInstance(
+				ConnectionProxy.class.getClassLoader(),
+				new Class<?>[] {ConnectionProxy.class},
+				new MetricsConnectionInvocationHandler(target, targetDataSource, listener, acquiredTime));
+	}
+
+
+	/**
+	 * Invocation handler that reports the hold time of a Connection on close,
+	 * along with the number of statements executed on it.
+	 */
+	private static class MetricsConnectionInvocationHandler implements InvocationHandler {
+
+		private final Connection target;
+
+		private final DataSource targetDataSource;
+
+		private final ConnectionMetricsListener listener;
+
+		private final long acquiredTime;
+
+		private int statementCount;
+
+		private boolean closed;
+
+		public MetricsConnectionInvocationHandler(Connection target, DataSource targetDataSource,
+				ConnectionMetricsListener listener, long acquiredTime) {
+
+			this.target = target;
+			this.targetDataSource = targetDataSource;
+			this.listener = listener;
+			this.acquiredTime = acquiredTime;
+		}
+
+		@Override
+		@Nullable
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			// Invocation on ConnectionProxy interface coming in...
+
+			if (method.getName().equals("equals")) {
+				// Only considered as equal when proxies are identical.
+				return (proxy == args[0]);
+			}
+			else if (method.getName().equals("hashCode")) {
+				// Use hashCode of Connection proxy.
+				return System.identityHashCode(proxy);
+			}
+			else if (method.getName().equals("toString")) {
+				return "Metrics proxy for target Connection [" + this.target + "]";
+			}
+			else if (method.getName().equals("unwrap")) {
+				if (((Class<?>) args[0]).isInstance(proxy)) {
+					return proxy;
+				}
+			}
+			else if (method.getName().equals("isWrapperFor")) {
+				if (((Class<?>) args[0]).isInstance(proxy)) {
+					return true;
+				}
+			}
+			else if (method.getName().equals("getTargetConnection")) {
+				// Handle getTargetConnection method: return underlying Connection.
+				return this.target;
+			}
+			else if (method.getName().equals("close")) {
+				// Handle close method: report the hold time once.
+				if (!this.closed) {
+					this.closed = true;
+					try {
+						this.target.close();
+					}
+					finally {
+						this.listener.connectionReleased(this.targetDataSource,
+								System.nanoTime() - this.acquiredTime, this.statementCount);
+					}
+					return null;
+				}
+			}
+
+			// Invoke method on target Connection.
+			Object retVal;
+			try {
+				retVal = method.invoke(this.target, args);
+			}
+			catch (InvocationTargetException ex) {
+				throw ex.getTargetException();
+			}
+
+			// If return value is a Statement, time its executions.
+			// Applies to createStatement, prepareStatement, prepareCall.
+			if (retVal instanceof Statement) {
+				Class<?> statementType = method.getReturnType();
+				if (statementType == Statement.class || statementType == PreparedStatement.class ||
+						statementType == CallableStatement.class) {
+					String sql = (args != null && args.length > 0 && args[0] instanceof String ?
+							(String) args[0] : null);
+					retVal = Proxy.newProxyInstance(ConnectionProxy.class.getClassLoader(),
+							new Class<?>[] {statementType},
+							new MetricsStatementInvocationHandler((Statement) retVal, (Connection) proxy, sql));
+				}
+			}
+			return retVal;
+		}
+
+
+		/**
+		 * Invocation handler that times the executions of a Statement.
+		 */
+		private class MetricsStatementInvocationHandler implements InvocationHandler {
+
+			private final Statement target;
+
+			private final Connection connection;
+
+			@Nullable
+			private final String sql;
+
+			public MetricsStatementInvocationHandler(Statement target, Connection connection, @Nullable String sql) {
+				this.target = target;
+				this.connection = connection;
+				this.sql = sql;
+			}
+
+			@Override
+			@Nullable
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				// Invocation on Statement interface coming in...
+
+				if (method.getName().equals("equals")) {
+					// Only considered as equal when proxies are identical.
+					return (proxy == args[0]);
+				}
+				else if (method.getName().equals("hashCode")) {
+					// Use hashCode of Statement proxy.
+					return System.identityHashCode(proxy);
+				}
+				else if (method.getName().equals("toString")) {
+					return "Metrics proxy for target Statement [" + this.target + "]";
+				}
+				else if (method.getName().equals("unwrap")) {
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return proxy;
+					}
+				}
+				else if (method.getName().equals("isWrapperFor")) {
+					if (((Class<?>) args[0]).isInstance(proxy)) {
+						return true;
+					}
+				}
+				else if (method.getName().equals("getConnection")) {
+					// Make sure that the Connection gets closed through its proxy.
+					return this.connection;
+				}
+
+				if (!method.getName().startsWith("execute")) {
+					try {
+						return method.invoke(this.target, args);
+					}
+					catch (InvocationTargetException ex) {
+						throw ex.getTargetException();
+					}
+				}
+
+				// Time the execute method on the target Statement.
+				String sql = (args != null && args.length > 0 && args[0] instanceof String ?
+						(String) args[0] : this.sql);
+				long startTime = System.nanoTime();
+				try {
+					return method.invoke(this.target, args);
+				}
+				catch (InvocationTargetException ex) {
+					throw ex.getTargetException();
+				}
+				finally {
+					statementCount++;
+					listener.statementExecuted(targetDataSource, sql, System.nanoTime() - startTime);
+				}
+			}
+		}
+	}
+
+}
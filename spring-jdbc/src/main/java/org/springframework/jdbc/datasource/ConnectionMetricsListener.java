@@ -0,0 +1,82 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import javax.sql.DataSource;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Callback interface for instrumenting JDBC Connection usage: acquisition latency,
+ * Connection hold times, and statement execution times.
+ *
+ * <p>Set on a {@link ConnectionMetricsDataSourceProxy} which notifies it for all
+ * Connections obtained through that proxy, whether transactional or not.
+ * Callbacks are invoked synchronously on the thread performing the data access
+ * operation: hence, implementations should be fast and non-blocking, and must
+ * not throw exceptions.
+ *
+ * <p>All durations are given in nanoseconds, as measured via {@link System#nanoTime()}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see LoggingConnectionMetricsListener
+ * @see org.springframework.jdbc.datasource.jfr.FlightRecorderConnectionMetricsListener
+ */
+public interface ConnectionMetricsListener {
+
+	/**
+	 * Called after a Connection has been obtained from the given DataSource.
+	 * @param dataSource the DataSource that the Connection has been obtained from
+	 * @param acquireTime the time spent waiting for the Connection
+	 */
+	default void connectionAcquired(DataSource dataSource, long acquireTime) {
+	}
+
+	/**
+	 * Called after an attempt to obtain a Connection from the given DataSource
+	 * failed, e.g. because of a connection pool running out of Connections.
+	 * @param dataSource the DataSource that the Connection has been requested from
+	 * @param acquireTime the time spent waiting before the attempt failed
+	 * @param ex the exception thrown by the DataSource
+	 */
+	default void connectionAcquisitionFailed(DataSource dataSource, long acquireTime, Throwable ex) {
+	}
+
+	/**
+	 * Called when a Connection is closed, i.e. returned to the target DataSource.
+	 * <p>This happens at the end of a transaction for transactional Connections,
+	 * and after each data access operation for non-transactional Connections.
+	 * @param dataSource the DataSource that the Connection has been obtained from
+	 * @param holdTime the time that the Connection has been held
+	 * @param statementCount the number of statements executed on the Connection
+	 * in the meantime
+	 */
+	default void connectionReleased(DataSource dataSource, long holdTime, int statementCount) {
+	}
+
+	/**
+	 * Called after a statement has been executed against the given DataSource,
+	 * successfully or not.
+	 * @param dataSource the DataSource that the statement has been executed against
+	 * @param sql the SQL statement, if known
+	 * @param executionTime the time spent executing the statement
+	 */
+	default void statementExecuted(DataSource dataSource, @Nullable String sql, long executionTime) {
+	}
+
+}
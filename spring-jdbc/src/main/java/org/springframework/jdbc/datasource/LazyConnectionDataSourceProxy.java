@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -206,6 +206,40 @@ public class LazyConnectionDataSourceProxy extends DelegatingDataSource {
 	}
 
 
+	/**
+	 * Fetch a physical JDBC Connection for a lazy Connection handle, at the time
+	 * of its first actual use.
+	 * <p>The default implementation obtains a Connection from the target DataSource.
+	 * Can be overridden to route to a different DataSource, e.g. depending on the
+	 * read-only flag that has been set on the Connection handle in the meantime.
+	 * @param readOnly whether the Connection handle has been marked as read-only
+	 * @param username the per-Connection username, if any
+	 * @param password the per-Connection password, if any
+	 * @return the physical Connection (never {@code null})
+	 * @throws SQLException if thrown by the DataSource
+	 * @since 5.2
+	 * @see #releaseTargetConnection
+	 */
+	protected Connection fetchTargetConnection(
+			boolean readOnly, @Nullable String username, @Nullable String password) throws SQLException {
+
+		return (username != null ? obtainTargetDataSource().getConnection(username, password) :
+				obtainTargetDataSource().getConnection());
+	}
+
+	/**
+	 * Release a physical JDBC Connection previously obtained through
+	 * {@link #fetchTargetConnection}, once its lazy Connection handle is closed.
+	 * <p>The default implementation simply closes the given Connection.
+	 * @param target the physical Connection to release
+	 * @throws SQLException if thrown by the Connection
+	 * @since 5.2
+	 */
+	protected void releaseTargetConnection(Connection target) throws SQLException {
+		target.close();
+	}
+
+
 	/**
 	 * Return a Connection handle that lazily fetches an actual JDBC Connection
 	 * when asked for a Statement (or PreparedStatement or CallableStatement).
@@ -309,6 +343,14 @@ public class LazyConnectionDataSourceProxy extends DelegatingDataSource {
 				// Handle getTargetConnection method: return underlying connection.
 				return getTargetConnection(method);
 			}
+			else if (method.getName().equals("close") && hasTargetConnection()) {
+				// Release the physical target Connection once.
+				if (!this.closed) {
+					this.closed = true;
+					releaseTargetConnection(this.target);
+				}
+				return null;
+			}
 
 			if (!hasTargetConnection()) {
 				// No physical target Connection kept yet ->
@@ -412,9 +454,7 @@ public class LazyConnectionDataSourceProxy extends DelegatingDataSource {
 				}
 
 				// Fetch physical Connection from DataSource.
-				this.target = (this.username != null) ?
-						obtainTargetDataSource().getConnection(this.username, this.password) :
-						obtainTargetDataSource().getConnection();
+				this.target = fetchTargetConnection(this.readOnly, this.username, this.password);
 
 				// If we still lack default connection properties, check them now.
 				checkDefaultConnectionProperties(this.target);
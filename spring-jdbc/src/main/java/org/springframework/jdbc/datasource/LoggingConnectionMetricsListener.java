@@ -0,0 +1,192 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.util.concurrent.TimeUnit;
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * {@link ConnectionMetricsListener} implementation that logs slow Connection
+ * acquisitions, long-held Connections, slow statements and failed
+ * Connection acquisitions at warn level, including the calling code path in
+ * order to attribute connection pool exhaustion to specific application code.
+ * All events are logged at trace level.
+ *
+ * <p>Usage example:
+ * <pre class="code">
+ * DataSource dataSource = new ConnectionMetricsDataSourceProxy(
+ *     targetDataSource, new LoggingConnectionMetricsListener());
+ * </pre>
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see ConnectionMetricsDataSourceProxy
+ */
+public class LoggingConnectionMetricsListener implements ConnectionMetricsListener {
+
+	/** Default threshold for slow Connection acquisitions and statements: 1000 ms. */
+	public static final long DEFAULT_SLOW_THRESHOLD = 1000;
+
+	/** Default threshold for long-held Connections: 10000 ms. */
+	public static final long DEFAULT_HOLD_THRESHOLD = 10000;
+
+
+	protected final Log logger = LogFactory.getLog(getClass());
+
+	private long slowAcquireThreshold = DEFAULT_SLOW_THRESHOLD;
+
+	private long longHoldThreshold = DEFAULT_HOLD_THRESHOLD;
+
+	private long slowStatementThreshold = DEFAULT_SLOW_THRESHOLD;
+
+	private boolean logCallSite = true;
+
+
+	/**
+	 * Set the threshold (in milliseconds) above which a Connection acquisition
+	 * is logged as slow. Default is 1000.
+	 */
+	public void setSlowAcquireThreshold(long slowAcquireThreshold) {
+		this.slowAcquireThreshold = slowAcquireThreshold;
+	}
+
+	/**
+	 * Return the threshold (in milliseconds) for slow Connection acquisitions.
+	 */
+	public long getSlowAcquireThreshold() {
+		return this.slowAcquireThreshold;
+	}
+
+	/**
+	 * Set the threshold (in milliseconds) above which the hold time of a
+	 * Connection is logged as long. Default is 10000.
+	 */
+	public void setLongHoldThreshold(long longHoldThreshold) {
+		this.longHoldThreshold = longHoldThreshold;
+	}
+
+	/**
+	 * Return the threshold (in milliseconds) for long-held Connections.
+	 */
+	public long getLongHoldThreshold() {
+		return this.longHoldThreshold;
+	}
+
+	/**
+	 * Set the threshold (in milliseconds) above which a statement execution
+	 * is logged as slow. Default is 1000.
+	 */
+	public void setSlowStatementThreshold(long slowStatementThreshold) {
+		this.slowStatementThreshold = slowStatementThreshold;
+	}
+
+	/**
+	 * Return the threshold (in milliseconds) for slow statement executions.
+	 */
+	public long getSlowStatementThreshold() {
+		return this.slowStatementThreshold;
+	}
+
+	/**
+	 * Set whether to include the stack trace of the calling code path in warn
+	 * log messages. Default is "true".
+	 */
+	public void setLogCallSite(boolean logCallSite) {
+		this.logCallSite = logCallSite;
+	}
+
+	/**
+	 * Return whether to include the stack trace of the calling code path in
+	 * warn log messages.
+	 */
+	public boolean isLogCallSite() {
+		return this.logCallSite;
+	}
+
+
+	@Override
+	public void connectionAcquired(DataSource dataSource, long acquireTime) {
+		if (exceeds(acquireTime, this.slowAcquireThreshold) && logger.isWarnEnabled()) {
+			warn("Slow JDBC Connection acquisition from DataSource [" + dataSource + "]: " +
+					toMillis(acquireTime) + " ms");
+		}
+		else if (logger.isTraceEnabled()) {
+			logger.trace("Acquired JDBC Connection from DataSource [" + dataSource + "] in " +
+					toMillis(acquireTime) + " ms");
+		}
+	}
+
+	@Override
+	public void connectionAcquisitionFailed(DataSource dataSource, long acquireTime, Throwable ex) {
+		if (logger.isWarnEnabled()) {
+			warn("Failed to acquire JDBC Connection from DataSource [" + dataSource + "] after " +
+					toMillis(acquireTime) + " ms: " + ex);
+		}
+	}
+
+	@Override
+	public void connectionReleased(DataSource dataSource, long holdTime, int statementCount) {
+		if (exceeds(holdTime, this.longHoldThreshold) && logger.isWarnEnabled()) {
+			warn("JDBC Connection from DataSource [" + dataSource + "] held for " +
+					toMillis(holdTime) + " ms, with " + statementCount + " statement(s) executed");
+		}
+		else if (logger.isTraceEnabled()) {
+			logger.trace("Released JDBC Connection from DataSource [" + dataSource +
+					"] after " + toMillis(holdTime) + " ms, with " + statementCount + " statement(s) executed");
+		}
+	}
+
+	@Override
+	public void statementExecuted(DataSource dataSource, @Nullable String sql, long executionTime) {
+		if (exceeds(executionTime, this.slowStatementThreshold) && logger.isWarnEnabled()) {
+			warn("Slow SQL statement" + (sql != null ? " [" + sql + "]" : "") + ": " +
+					toMillis(executionTime) + " ms");
+		}
+		else if (logger.isTraceEnabled()) {
+			logger.trace("Executed SQL statement" + (sql != null ? " [" + sql + "]" : "") + " in " +
+					toMillis(executionTime) + " ms");
+		}
+	}
+
+	/**
+	 * Log the given message at warn level, including the calling code path if
+	 * {@link #setLogCallSite "logCallSite"} is enabled.
+	 * @param message the message to log
+	 */
+	protected void warn(String message) {
+		if (this.logCallSite) {
+			logger.warn(message, new Throwable("Call site"));
+		}
+		else {
+			logger.warn(message);
+		}
+	}
+
+	private static boolean exceeds(long duration, long thresholdMillis) {
+		return (thresholdMillis >= 0 && duration > TimeUnit.MILLISECONDS.toNanos(thresholdMillis));
+	}
+
+	private static long toMillis(long duration) {
+		return TimeUnit.NANOSECONDS.toMillis(duration);
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.jfr;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.ConnectionMetricsListener;
+import org.springframework.lang.Nullable;
+
+/**
+ * {@link ConnectionMetricsListener} implementation for the Java Flight Recorder.
+ *
+ * <p>This variant records Connection acquisitions, Connection releases and
+ * statement executions as Flight Recorder events, with the durations reported
+ * to the listener as timespan attributes; DataSources are recorded by their
+ * {@code toString()} representation.
+ *
+ * <p>Requires a JVM with the {@code jdk.jfr} API (OpenJDK 8u262 or later).
+ * Once this is configured on a
+ * {@link org.springframework.jdbc.datasource.ConnectionMetricsDataSourceProxy},
+ * you can record data by launching the application with recording enabled:
+ * {@code java -XX:StartFlightRecording:filename=recording.jfr,duration=10s -jar app.jar}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ */
+public class FlightRecorderConnectionMetricsListener implements ConnectionMetricsListener {
+
+	@Override
+	public void connectionAcquired(DataSource dataSource, long acquireTime) {
+		FlightRecorderConnectionAcquisitionEvent event = new FlightRecorderConnectionAcquisitionEvent(acquireTime, "");
+		if (event.shouldCommit()) {
+			event.setDataSource(dataSource.toString());
+			event.commit();
+		}
+	}
+
+	@Override
+	public void connectionAcquisitionFailed(DataSource dataSource, long acquireTime, Throwable ex) {
+		FlightRecorderConnectionAcquisitionEvent event =
+				new FlightRecorderConnectionAcquisitionEvent(acquireTime, ex.toString());
+		if (event.shouldCommit()) {
+			event.setDataSource(dataSource.toString());
+			event.commit();
+		}
+	}
+
+	@Override
+	public void connectionReleased(DataSource dataSource, long holdTime, int statementCount) {
+		FlightRecorderConnectionReleaseEvent event = new FlightRecorderConnectionReleaseEvent(holdTime, statementCount);
+		if (event.shouldCommit()) {
+			event.setDataSource(dataSource.toString());
+			event.commit();
+		}
+	}
+
+	@Override
+	public void statementExecuted(DataSource dataSource, @Nullable String sql, long executionTime) {
+		FlightRecorderStatementEvent event = new FlightRecorderStatementEvent((sql != null ? sql : ""), executionTime);
+		if (event.shouldCommit()) {
+			event.setDataSource(dataSource.toString());
+			event.commit();
+		}
+	}
+
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Timespan;
+
+/**
+ * {@link Event} extension for recording JDBC Connection releases, along with
+ * the Connection hold time, in Java Flight Recorder.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ */
+@Category({"Spring Application", "JDBC"})
+@Label("Connection Release")
+@Description("JDBC Connection returned to a DataSource")
+class FlightRecorderConnectionReleaseEvent extends Event {
+
+	@Label("Hold Time")
+	@Timespan(Timespan.NANOSECONDS)
+	final long holdTime;
+
+	@Label("Statement Count")
+	final int statementCount;
+
+	@Label("DataSource")
+	private String dataSource = "";
+
+
+	public FlightRecorderConnectionReleaseEvent(long holdTime, int statementCount) {
+		this.holdTime = holdTime;
+		this.statementCount = statementCount;
+	}
+
+
+	public void setDataSource(String dataSource) {
+		this.dataSource = dataSource;
+	}
+
+}
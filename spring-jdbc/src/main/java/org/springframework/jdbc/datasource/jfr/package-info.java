@@ -0,0 +1,9 @@
+/**
+ * Support package for recording JDBC Connection metrics using Java Flight Recorder.
+ */
+@NonNullApi
+@NonNullFields
+package org.springframework.jdbc.datasource.jfr;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.Assert;
+
+/**
+ * DataSource that routes read-only work to a set of replica DataSources and
+ * everything else to a primary DataSource, based on the read-only flag of the
+ * current transaction (e.g. {@code @Transactional(readOnly = true)}).
+ *
+ * <p>As a {@link LazyConnectionDataSourceProxy}, this DataSource hands out lazy
+ * Connection handles and only decides on the target DataSource once a physical
+ * Connection is actually needed, i.e. on first creation of a Statement. At that
+ * point, a read-only flag set on the Connection handle by a transaction manager
+ * (as {@link org.springframework.jdbc.datasource.DataSourceTransactionManager} does
+ * for read-only transactions) is known, as well as the synchronized read-only
+ * flag of the current transaction: either one routes the Connection to a replica.
+ * Hence, this DataSource can be used directly with {@code DataSourceTransactionManager}
+ * and {@code JdbcTemplate}, without a hand-written
+ * {@link AbstractRoutingDataSource#determineCurrentLookupKey()} implementation.
+ *
+ * <p>Among the replicas, the one with the least outstanding Connections is chosen.
+ * A replica whose DataSource failed to provide a Connection for a number of
+ * consecutive attempts (see {@link #setFailureThreshold}) is ejected for a while
+ * (see {@link #setEjectionTime}), with Connections being requested from the
+ * remaining replicas in the meantime. If no replica is able to provide a
+ * Connection, read-only work falls back to the primary DataSource.
+ *
+ * <p>The configuration can for example look like this:
+ *
+ * <pre class="code">
+ * &lt;bean id="dataSource" class="org.springframework.jdbc.datasource.lookup.ReadWriteRoutingDataSource"&gt;
+ *   &lt;property name="targetDataSource" ref="myPrimaryDataSource"/&gt;
+ *   &lt;property name="replicaDataSources"&gt;
+ *     &lt;list&gt;
+ *       &lt;ref bean="myReplicaDataSource1"/&gt;
+ *       &lt;ref bean="myReplicaDataSource2"/&gt;
+ *     &lt;/list&gt;
+ *   &lt;/property&gt;
+ * &lt;/bean&gt;</pre>
+ *
+ * <p><b>NOTE:</b> All target DataSources are expected to share the same default
+ * auto-commit and transaction isolation settings, as determined from the primary.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see #setTargetDataSource
+ * @see #setReplicaDataSources
+ * @see org.springframework.transaction.support.TransactionSynchronizationManager#isCurrentTransactionReadOnly()
+ */
+public class ReadWriteRoutingDataSource extends LazyConnectionDataSourceProxy {
+
+	/** Default number of consecutive failures that lead to the ejection of a replica: 3. */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 3;
+
+	/** Default time that an ejected replica is excluded from routing: 30000 ms. */
+	public static final long DEFAULT_EJECTION_TIME = 30000;
+
+
+	private static final Log logger = LogFactory.getLog(ReadWriteRoutingDataSource.class);
+
+	private volatile List<Replica> replicas = new ArrayList<>();
+
+	private int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+
+	private long ejectionTime = DEFAULT_EJECTION_TIME;
+
+	private final AtomicInteger nextIndex = new AtomicInteger();
+
+	// Keyed by identity: pooled connection proxies may delegate equals/hashCode
+	// to the physical connection, which can be shared by subsequent checkouts.
+	private final Map<Connection, Replica> replicaConnections = Collections.synchronizedMap(new IdentityHashMap<>());
+
+
+	/**
+	 * Create a new ReadWriteRoutingDataSource.
+	 * @see #setTargetDataSource
+	 * @see #setReplicaDataSources
+	 */
+	public ReadWriteRoutingDataSource() {
+	}
+
+	/**
+	 * Create a new ReadWriteRoutingDataSource.
+	 * @param primaryDataSource the DataSource for read-write work
+	 * @param replicaDataSources the DataSources for read-only work
+	 */
+	public ReadWriteRoutingDataSource(DataSource primaryDataSource, DataSource... replicaDataSources) {
+		setTargetDataSource(primaryDataSource);
+		setReplicaDataSources(Arrays.asList(replicaDataSources));
+		afterPropertiesSet();
+	}
+
+
+	/**
+	 * Specify the replica DataSources to route read-only work to.
+	 * <p>If none are specified, all work goes to the primary DataSource.
+	 * @see #setTargetDataSource
+	 */
+	public void setReplicaDataSources(List<DataSource> replicaDataSources) {
+		Assert.notNull(replicaDataSources, "Replica DataSources must not be null");
+		List<Replica> replicas = new ArrayList<>(replicaDataSources.size());
+		for (DataSource dataSource : replicaDataSources) {
+			Assert.notNull(dataSource, "Replica DataSource must not be null");
+			replicas.add(new Replica(dataSource));
+		}
+		this.replicas = replicas;
+	}
+
+	/**
+	 * Return the replica DataSources to route read-only work to.
+	 */
+	public List<DataSource> getReplicaDataSources() {
+		List<DataSource> dataSources = new ArrayList<>(this.replicas.size());
+		for (Replica replica : this.replicas) {
+			dataSources.add(replica.dataSource);
+		}
+		return dataSources;
+	}
+
+	/**
+	 * Specify the number of consecutive failures to obtain a Connection from a
+	 * replica after which the replica gets ejected. Default is 3.
+	 * @see #setEjectionTime
+	 */
+	public void setFailureThreshold(int failureThreshold) {
+		Assert.isTrue(failureThreshold > 0, "Failure threshold must be greater than 0");
+		this.failureThreshold = failureThreshold;
+	}
+
+	/**
+	 * Return the number of consecutive failures after which a replica gets ejected.
+	 */
+	public int getFailureThreshold() {
+		return this.failureThreshold;
+	}
+
+	/**
+	 * Specify the time (in milliseconds) that an ejected replica is excluded
+	 * from routing, before being tried again. Default is 30000.
+	 * @see #setFailureThreshold
+	 */
+	public void setEjectionTime(long ejectionTime) {
+		this.ejectionTime = ejectionTime;
+	}
+
+	/**
+	 * Return the time (in milliseconds) that an ejected replica is excluded from routing.
+	 */
+	public long getEjectionTime() {
+		return this.ejectionTime;
+	}
+
+
+	/**
+	 * Determine whether the Connection about to be fetched is meant for
+	 * read-only work and should therefore be routed to a replica.
+	 * <p>The default implementation checks the read-only flag of the Connection
+	 * handle as well as the read-only flag of the current transaction.
+	 * @param readOnly whether the Connection handle has been marked as read-only
+	 * @see TransactionSynchronizationManager#isCurrentTransactionReadOnly()
+	 */
+	protected boolean isReadOnlyRoute(boolean readOnly) {
+		return (readOnly || TransactionSynchronizationManager.isCurrentTransactionReadOnly());
+	}
+
+	@Override
+	protected Connection fetchTargetConnection(
+			boolean readOnly, @Nullable String username, @Nullable String password) throws SQLException {
+
+		List<Replica> replicas = this.replicas;
+		if (!replicas.isEmpty() && isReadOnlyRoute(readOnly)) {
+			int start = this.nextIndex.getAndIncrement();
+			long now = System.nanoTime();
+			boolean[] attempted = new boolean[replicas.size()];
+			Replica replica;
+			while ((replica = selectReplica(replicas, attempted, start, now)) != null) {
+				Connection con = replica.fetchConnection(username, password);
+				if (con != null) {
+					this.replicaConnections.put(con, replica);
+					return con;
+				}
+			}
+			if (logger.isDebugEnabled()) {
+				logger.debug("No replica DataSource available - falling back to primary DataSource");
+			}
+		}
+		return super.fetchTargetConnection(readOnly, username, password);
+	}
+
+	@Override
+	protected void releaseTargetConnection(Connection target) throws SQLException {
+		Replica replica = this.replicaConnections.remove(target);
+		try {
+			super.releaseTargetConnection(target);
+		}
+		finally {
+			if (replica != null) {
+				replica.outstanding.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * Select the available replica with the least outstanding Connections
+	 * among the ones not attempted yet, starting at the given index in order
+	 * to spread ties across replicas.
+	 */
+	@Nullable
+	private Replica selectReplica(List<Replica> replicas, boolean[] attempted, int start, long now) {
+		Replica selected = null;
+		int selectedIndex = -1;
+		int size = replicas.size();
+		for (int i = 0; i < size; i++) {
+			int index = Math.floorMod(start + i, size);
+			Replica candidate = replicas.get(index);
+			if (!attempted[index] && candidate.isAvailable(now) &&
+					(selected == null || candidate.outstanding.get() < selected.outstanding.get())) {
+				selected = candidate;
+				selectedIndex = index;
+			}
+		}
+		if (selected != null) {
+			attempted[selectedIndex] = true;
+		}
+		return selected;
+	}
+
+
+	/**
+	 * Routing state for a replica DataSource.
+	 */
+	private class Replica {
+
+		final DataSource dataSource;
+
+		final AtomicInteger outstanding = new AtomicInteger();
+
+		private final AtomicInteger failures = new AtomicInteger();
+
+		private volatile long ejectedUntil;
+
+		private volatile boolean ejected;
+
+		Replica(DataSource dataSource) {
+			this.dataSource = dataSource;
+		}
+
+		boolean isAvailable(long now) {
+			return (!this.ejected || now - this.ejectedUntil >= 0);
+		}
+
+		@Nullable
+		Connection fetchConnection(@Nullable String username, @Nullable String password) {
+			this.outstanding.incrementAndGet();
+			try {
+				Connection con = (username != null ? this.dataSource.getConnection(username, password) :
+						this.dataSource.getConnection());
+				if (con == null) {
+					throw new IllegalStateException("DataSource returned null from getConnection(): " +
+							this.dataSource);
+				}
+				this.failures.set(0);
+				this.ejected = false;
+				return con;
+			}
+			catch (SQLException | RuntimeException ex) {
+				this.outstanding.decrementAndGet();
+				int failures = this.failures.incrementAndGet();
+				if (failures >= getFailureThreshold()) {
+					this.ejectedUntil = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(getEjectionTime());
+					this.ejected = true;
+					if (logger.isWarnEnabled()) {
+						logger.warn("Ejecting replica DataSource [" + this.dataSource + "] for " +
+								getEjectionTime() + " ms after " + failures + " consecutive failures", ex);
+					}
+				}
+				else if (logger.isDebugEnabled()) {
+					logger.debug("Failed to obtain Connection from replica DataSource [" + this.dataSource + "]", ex);
+				}
+				return null;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,220 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.beans.PropertyEditorSupport;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.TypeMismatchException;
+import org.springframework.core.convert.support.DefaultConversionService;
+import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.jdbc.core.test.ConcretePerson;
+import org.springframework.jdbc.core.test.DatePerson;
+import org.springframework.jdbc.core.test.ExtendedPerson;
+import org.springframework.jdbc.core.test.Person;
+import org.springframework.jdbc.core.test.SpacePerson;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link CompiledBeanPropertyRowMapper}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class CompiledBeanPropertyRowMapperTests extends AbstractRowMapperTests {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+
+	@Test
+	public void staticQueryWithRowMapper() throws Exception {
+		Mock mock = new Mock();
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				CompiledBeanPropertyRowMapper.newInstance(Person.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void mapperReusedAcrossQueries() throws Exception {
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		for (int i = 0; i < 3; i++) {
+			Mock mock = new Mock();
+			List<Person> result = mock.getJdbcTemplate().query(
+					"select name, age, birth_date, balance from people", mapper);
+			assertEquals(1, result.size());
+			verifyPerson(result.get(0));
+		}
+	}
+
+	@Test
+	public void settersInvokedFromGeneratedClass() throws Exception {
+		Mock mock = new Mock();
+		List<TracingPerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(TracingPerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		assertTrue(result.get(0).nameSetBy.startsWith(TracingPerson.class.getName() + "$$RowMapper$$"));
+	}
+
+	@Test
+	public void mappingWithInheritance() throws Exception {
+		Mock mock = new Mock();
+		List<ConcretePerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(ConcretePerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void mappingWithNonPublicClass() throws Exception {
+		Mock mock = new Mock();
+		List<PackagePerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(PackagePerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void mappingWithNoUnpopulatedFieldsFound() throws Exception {
+		Mock mock = new Mock();
+		List<ConcretePerson> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(ConcretePerson.class, true));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void mappingWithUnpopulatedFieldsNotAccepted() throws Exception {
+		Mock mock = new Mock();
+		thrown.expect(InvalidDataAccessApiUsageException.class);
+		mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(ExtendedPerson.class, true));
+	}
+
+	@Test
+	public void mappingNullValue() throws Exception {
+		Mock mock = new Mock(MockType.TWO);
+		thrown.expect(TypeMismatchException.class);
+		mock.getJdbcTemplate().query(
+				"select name, null as age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(Person.class));
+	}
+
+	@Test
+	public void mappingNullValueWithPrimitivesDefaulted() throws Exception {
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		mapper.setPrimitivesDefaultedForNullValue(true);
+		Mock mock = new Mock(MockType.TWO);
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, null as age, birth_date, balance from people", mapper);
+		assertEquals(1, result.size());
+		assertEquals("Bubba", result.get(0).getName());
+		assertEquals(0L, result.get(0).getAge());
+	}
+
+	@Test
+	public void queryWithSpaceInColumnNameAndLocalDateTime() throws Exception {
+		Mock mock = new Mock(MockType.THREE);
+		List<SpacePerson> result = mock.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(SpacePerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void queryWithSpaceInColumnNameAndLocalDate() throws Exception {
+		Mock mock = new Mock(MockType.THREE);
+		List<DatePerson> result = mock.getJdbcTemplate().query(
+				"select last_name as \"Last Name\", age, birth_date, balance from people",
+				new CompiledBeanPropertyRowMapper<>(DatePerson.class));
+		assertEquals(1, result.size());
+		verifyPerson(result.get(0));
+		mock.verifyClosed();
+	}
+
+	@Test
+	public void mappingWithCustomConversionService() throws Exception {
+		DefaultConversionService conversionService = new DefaultConversionService();
+		conversionService.addConverter(String.class, String.class, source -> source.toUpperCase());
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<>(Person.class);
+		mapper.setConversionService(conversionService);
+		Mock mock = new Mock();
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people", mapper);
+		assertEquals(1, result.size());
+		assertEquals("BUBBA", result.get(0).getName());
+		assertEquals(22L, result.get(0).getAge());
+	}
+
+	@Test
+	public void mappingWithCustomBeanWrapper() throws Exception {
+		CompiledBeanPropertyRowMapper<Person> mapper = new CompiledBeanPropertyRowMapper<Person>(Person.class) {
+			@Override
+			protected void initBeanWrapper(BeanWrapper bw) {
+				super.initBeanWrapper(bw);
+				bw.registerCustomEditor(String.class, new PropertyEditorSupport() {
+					@Override
+					public void setAsText(String text) {
+						setValue(text.toUpperCase());
+					}
+				});
+			}
+		};
+		Mock mock = new Mock();
+		List<Person> result = mock.getJdbcTemplate().query(
+				"select name, age, birth_date, balance from people", mapper);
+		assertEquals(1, result.size());
+		assertEquals("BUBBA", result.get(0).getName());
+		assertEquals(22L, result.get(0).getAge());
+	}
+
+
+	public static class TracingPerson extends Person {
+
+		String nameSetBy;
+
+		@Override
+		public void setName(String name) {
+			super.setName(name);
+			this.nameSetBy = new Throwable().getStackTrace()[1].getClassName();
+		}
+	}
+
+
+	static class PackagePerson extends Person {
+	}
+
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link JdbcFluxAdapter}, against an embedded database.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class JdbcFluxAdapterTests {
+
+	private EmbeddedDatabase database;
+
+	private Scheduler scheduler;
+
+	private JdbcFluxAdapter adapter;
+
+
+	@Before
+	public void setup() {
+		this.database = new EmbeddedDatabaseBuilder().generateUniqueName(true).build();
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(this.database);
+		jdbcTemplate.setStreamingFetchSize(10);
+		jdbcTemplate.execute("create table numbers (n integer)");
+		jdbcTemplate.batchUpdate("insert into numbers (n) values (?)",
+				IntStream.range(0, 100).mapToObj(n -> new Object[] {n}).collect(Collectors.toList()));
+		this.scheduler = Schedulers.newSingle("jdbc");
+		this.adapter = new JdbcFluxAdapter(jdbcTemplate, this.scheduler);
+	}
+
+	@After
+	public void shutdown() {
+		this.scheduler.dispose();
+		this.database.shutdown();
+	}
+
+
+	@Test
+	public void query() {
+		StepVerifier.create(this.adapter.query("select n from numbers order by n", (rs, rowNum) -> rs.getInt(1)))
+				.expectNext(0, 1, 2)
+				.expectNextCount(97)
+				.verifyComplete();
+	}
+
+	@Test
+	public void queryWithArgs() {
+		StepVerifier.create(this.adapter.query(
+				"select n from numbers where n >= ? order by n", (rs, rowNum) -> rs.getInt(1), 95))
+				.expectNext(95, 96, 97, 98, 99)
+				.verifyComplete();
+	}
+
+	@Test
+	public void rowsMappedOnDemandOnScheduler() {
+		AtomicInteger mapped = new AtomicInteger();
+		RowMapper<String> rowMapper = (rs, rowNum) -> {
+			mapped.incrementAndGet();
+			return Thread.currentThread().getName();
+		};
+		StepVerifier.create(this.adapter.query("select n from numbers order by n", rowMapper), 0)
+				.thenRequest(2)
+				.assertNext(thread -> assertTrue(thread.startsWith("jdbc")))
+				.assertNext(thread -> assertTrue(thread.startsWith("jdbc")))
+				.thenCancel()
+				.verify();
+		// the requested rows plus a single row of look-ahead for completion detection
+		assertEquals(3, mapped.get());
+	}
+
+	@Test
+	public void streamClosedOnCancel() throws Exception {
+		CountDownLatch closed = new CountDownLatch(1);
+		StepVerifier.create(this.adapter.query(() -> Stream.of(1, 2, 3).onClose(closed::countDown)), 1)
+				.expectNext(1)
+				.thenCancel()
+				.verify();
+		assertTrue(closed.await(5, TimeUnit.SECONDS));
+	}
+
+	@Test
+	public void streamClosedOnComplete() {
+		CountDownLatch closed = new CountDownLatch(1);
+		StepVerifier.create(this.adapter.query(() -> Stream.of(1, 2, 3).onClose(closed::countDown)))
+				.expectNext(1, 2, 3)
+				.verifyComplete();
+		assertEquals(0, closed.getCount());
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,8 +24,11 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 
 import org.junit.Before;
@@ -33,7 +36,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import org.springframework.dao.DataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
+import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
 
 import static org.junit.Assert.*;
 import static org.mockito.BDDMockito.*;
@@ -131,6 +136,62 @@ public class JdbcTemplateQueryTests {
 		verify(this.statement).close();
 	}
 
+	@Test
+	public void testQueryForStream() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < 3";
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getInt(1)).willReturn(11, 12);
+		given(this.statement.getConnection()).willReturn(this.connection);
+		List<Integer> li;
+		try (Stream<Integer> stream = this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1))) {
+			li = stream.collect(Collectors.toList());
+			verify(this.resultSet, never()).close();
+			verify(this.statement, never()).close();
+		}
+		assertEquals(Arrays.asList(11, 12), li);
+		verify(this.statement, never()).setFetchDirection(anyInt());
+		verify(this.resultSet).close();
+		verify(this.statement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForStreamWithArgsAndStreamingFetchSize() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < ?";
+		given(this.resultSet.next()).willReturn(true, true, false);
+		given(this.resultSet.getInt(1)).willReturn(11, 12);
+		given(this.preparedStatement.getConnection()).willReturn(this.connection);
+		this.template.setFetchSize(10);
+		this.template.setStreamingFetchSize(1000);
+		try (Stream<Integer> stream = this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1), 3)) {
+			assertEquals(11, stream.findFirst().get().intValue());
+		}
+		verify(this.preparedStatement).setObject(1, 3);
+		verify(this.preparedStatement).setFetchSize(10);
+		verify(this.preparedStatement).setFetchSize(1000);
+		verify(this.preparedStatement, never()).setFetchDirection(anyInt());
+		verify(this.resultSet, times(1)).next();
+		verify(this.resultSet).close();
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
+	@Test
+	public void testQueryForStreamWithFailingQuery() throws Exception {
+		String sql = "SELECT AGE FROM CUSTMR WHERE ID < ?";
+		given(this.preparedStatement.executeQuery()).willThrow(new SQLException("bad query"));
+		this.template.setExceptionTranslator(new SQLStateSQLExceptionTranslator());
+		try {
+			this.template.queryForStream(sql, (rs, rowNum) -> rs.getInt(1), 3);
+			fail("Should have thrown DataAccessException");
+		}
+		catch (DataAccessException ex) {
+			// expected
+		}
+		verify(this.preparedStatement).close();
+		verify(this.connection).close();
+	}
+
 	@Test
 	public void testQueryForMapWithSingleRowAndColumn() throws Exception {
 		String sql = "SELECT AGE FROM CUSTMR WHERE ID < 3";
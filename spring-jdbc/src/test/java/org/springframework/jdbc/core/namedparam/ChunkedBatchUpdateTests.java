@@ -0,0 +1,286 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.core.namedparam;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StringUtils;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for {@link ChunkedBatchUpdate}, against an embedded database.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ChunkedBatchUpdateTests {
+
+	private static final String INSERT = "insert into item (id, name) values (:id, :name)";
+
+
+	private EmbeddedDatabase database;
+
+	private JdbcTemplate jdbcTemplate;
+
+
+	@Before
+	public void setup() {
+		this.database = new EmbeddedDatabaseBuilder().generateUniqueName(true).build();
+		this.jdbcTemplate = new JdbcTemplate(this.database);
+		this.jdbcTemplate.execute("create table item (id integer primary key, name varchar(200))");
+	}
+
+	@After
+	public void shutdown() {
+		this.database.shutdown();
+	}
+
+
+	@Test
+	public void updateIterableInChunks() {
+		ChunkedBatchUpdate<Item> update = new ChunkedBatchUpdate<>(
+				this.jdbcTemplate, INSERT, BeanPropertySqlParameterSource::new);
+		ChunkedBatchUpdate.Summary summary = update.update(items(0, 2500));
+		assertEquals(2500, summary.getItemCount());
+		assertEquals(3, summary.getChunkCount());
+		assertEquals(2500, summary.getUpdateCount() + summary.getUnknownUpdateCount());
+		assertEquals(2500, rowCount());
+	}
+
+	@Test
+	public void updateEmptyIterable() {
+		ChunkedBatchUpdate<Item> update = new ChunkedBatchUpdate<>(
+				this.jdbcTemplate, INSERT, BeanPropertySqlParameterSource::new);
+		ChunkedBatchUpdate.Summary summary = update.update(Collections.emptyList());
+		assertEquals(0, summary.getItemCount());
+		assertEquals(0, summary.getChunkCount());
+	}
+
+	@Test
+	public void updateStreamInParallelWithTransactionPerChunk() {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			ChunkedBatchUpdate<Item> update = new ChunkedBatchUpdate<>(
+					this.database, INSERT, BeanPropertySqlParameterSource::new);
+			update.setChunkSize(100);
+			update.setConcurrency(4);
+			update.setExecutor(executor);
+			update.setTransactionManager(new DataSourceTransactionManager(this.database));
+			AtomicBoolean closed = new AtomicBoolean();
+			ChunkedBatchUpdate.Summary summary =
+					update.update(items(0, 1050).stream().onClose(() -> closed.set(true)));
+			assertEquals(1050, summary.getItemCount());
+			assertEquals(11, summary.getChunkCount());
+			assertEquals(1050, rowCount());
+			assertTrue(closed.get());
+		}
+		finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void updateWithMaxChunkBytes() {
+		ChunkedBatchUpdate<Item> update = new ChunkedBatchUpdate<>(
+				this.jdbcTemplate, INSERT, BeanPropertySqlParameterSource::new);
+		update.setMaxChunkBytes(1000);
+		// 8 bytes for the id plus 100 characters per name: 10 items per chunk
+		List<Item> items = IntStream.range(0, 25)
+				.mapToObj(i -> new Item(i, StringUtils.collectionToDelimitedString(Collections.nCopies(100, "x"), "")))
+				.collect(Collectors.toList());
+		ChunkedBatchUpdate.Summary summary = update.update(items);
+		assertEquals(25, summary.getItemCount());
+		assertEquals(3, summary.getChunkCount());
+		assertEquals(25, rowCount());
+	}
+
+	@Test
+	public void updateWithMapParameterSource() {
+		ChunkedBatchUpdate<Object[]> update = new ChunkedBatchUpdate<>(this.jdbcTemplate, INSERT,
+				values -> new MapSqlParameterSource("id", values[0]).addValue("name", values[1]));
+		ChunkedBatchUpdate.Summary summary =
+				update.update(Stream.of(new Object[] {1, "one"}, new Object[] {2, "two"}));
+		assertEquals(2, summary.getItemCount());
+		assertEquals("two", this.jdbcTemplate.queryForObject("select name from item where id = 2", String.class));
+	}
+
+	@Test
+	public void failingChunkRolledBackOnItsOwn() {
+		ChunkedBatchUpdate<Item> update = new ChunkedBatchUpdate<>(
+				this.jdbcTemplate, INSERT, BeanPropertySqlParameterSource::new);
+		update.setChunkSize(10);
+		update.setTransactionManager(new DataSourceTransactionManager(this.database));
+		List<Item> items = items(0, 30);
+		items.set(15, new Item(3, "duplicate"));
+		try {
+			update.update(items);
+			fail("Should have thrown DuplicateKeyException");
+		}
+		catch (DuplicateKeyException ex) {
+			// expected
+		}
+		assertEquals(10, rowCount());
+	}
+
+	@Test
+	public void chunksCommittedIndependentlyOfOuterTransaction() {
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(this.database);
+		ChunkedBatchUpdate<Item> update = new ChunkedBatchUpdate<>(
+				this.jdbcTemplate, INSERT, BeanPropertySqlParameterSource::new);
+		update.setChunkSize(10);
+		update.setTransactionManager(transactionManager);
+		List<Item> items = items(0, 30);
+		items.set(15, new Item(3, "duplicate"));
+		new TransactionTemplate(transactionManager).execute(status -> {
+			try {
+				update.update(items);
+				fail("Should have thrown DuplicateKeyException");
+			}
+			catch (DuplicateKeyException ex) {
+				// expected
+			}
+			assertFalse(status.isRollbackOnly());
+			status.setRollbackOnly();
+			return null;
+		});
+		assertEquals(10, rowCount());
+	}
+
+	@Test
+	public void interruptedWhileWaitingForChunks() {
+		List<Runnable> tasks = new ArrayList<>();
+		ChunkedBatchUpdate<Item> update = new ChunkedBatchUpdate<>(
+				this.jdbcTemplate, INSERT, BeanPropertySqlParameterSource::new);
+		update.setChunkSize(1);
+		update.setConcurrency(2);
+		update.setExecutor(tasks::add);
+		Thread.currentThread().interrupt();
+		try {
+			update.update(items(0, 3));
+			fail("Should have thrown IllegalStateException");
+		}
+		catch (IllegalStateException ex) {
+			assertTrue(ex.getCause() instanceof InterruptedException);
+			assertEquals(0, ex.getSuppressed().length);
+		}
+		finally {
+			assertTrue(Thread.interrupted());
+		}
+		assertTrue(tasks.isEmpty());
+	}
+
+	@Test
+	public void interruptedWhileChunkInFlight() throws Exception {
+		CountDownLatch submitted = new CountDownLatch(2);
+		CountDownLatch release = new CountDownLatch(1);
+		ChunkedBatchUpdate<Item> update = new ChunkedBatchUpdate<>(
+				this.jdbcTemplate, INSERT, BeanPropertySqlParameterSource::new);
+		update.setChunkSize(1);
+		update.setConcurrency(2);
+		update.setExecutor(task -> {
+			new Thread(() -> {
+				try {
+					release.await();
+				}
+				catch (InterruptedException ex) {
+					throw new IllegalStateException(ex);
+				}
+				task.run();
+			}).start();
+			submitted.countDown();
+		});
+		AtomicReference<Throwable> failure = new AtomicReference<>();
+		AtomicInteger rowCountOnReturn = new AtomicInteger(-1);
+		AtomicBoolean interruptFlag = new AtomicBoolean();
+		Thread caller = new Thread(() -> {
+			try {
+				update.update(items(0, 2));
+			}
+			catch (Throwable ex) {
+				failure.set(ex);
+			}
+			interruptFlag.set(Thread.interrupted());
+			rowCountOnReturn.set(rowCount());
+		});
+		caller.start();
+		assertTrue(submitted.await(5, TimeUnit.SECONDS));
+		caller.interrupt();
+		caller.join(200);
+		assertTrue("Should still wait for the chunks in flight", caller.isAlive());
+		release.countDown();
+		caller.join(5000);
+		assertFalse(caller.isAlive());
+		assertTrue(failure.get() instanceof IllegalStateException);
+		assertTrue(failure.get().getCause() instanceof InterruptedException);
+		assertEquals(2, rowCountOnReturn.get());
+		assertTrue(interruptFlag.get());
+	}
+
+
+	private int rowCount() {
+		Integer count = this.jdbcTemplate.queryForObject("select count(*) from item", Integer.class);
+		return (count != null ? count : 0);
+	}
+
+	private static List<Item> items(int from, int to) {
+		return IntStream.range(from, to).mapToObj(i -> new Item(i, "item " + i)).collect(Collectors.toList());
+	}
+
+
+	public static class Item {
+
+		private final int id;
+
+		private final String name;
+
+		public Item(int id, String name) {
+			this.id = id;
+			this.name = name;
+		}
+
+		public int getId() {
+			return this.id;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -28,6 +28,8 @@ import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import javax.sql.DataSource;
 
 import org.junit.Before;
@@ -333,6 +335,36 @@ public class NamedParameterJdbcTemplateTests {
 		verify(connection).close();
 	}
 
+	@Test
+	public void testQueryForStreamWithRowMapper() throws SQLException {
+		given(resultSet.next()).willReturn(true, false);
+		given(resultSet.getInt("id")).willReturn(1);
+		given(resultSet.getString("forename")).willReturn("rod");
+
+		params.put("id", new SqlParameterValue(Types.DECIMAL, 1));
+		params.put("country", "UK");
+		List<Customer> customers;
+		try (Stream<Customer> stream = namedParameterTemplate.queryForStream(SELECT_NAMED_PARAMETERS, params,
+				(rs, rownum) -> {
+					Customer cust = new Customer();
+					cust.setId(rs.getInt(COLUMN_NAMES[0]));
+					cust.setForename(rs.getString(COLUMN_NAMES[1]));
+					return cust;
+				})) {
+			customers = stream.collect(Collectors.toList());
+			verify(preparedStatement, never()).close();
+		}
+		assertEquals(1, customers.size());
+		assertTrue("Customer id was assigned correctly", customers.get(0).getId() == 1);
+		assertTrue("Customer forename was assigned correctly", customers.get(0).getForename().equals("rod"));
+		verify(connection).prepareStatement(SELECT_NAMED_PARAMETERS_PARSED);
+		verify(preparedStatement).setObject(1, 1, Types.DECIMAL);
+		verify(preparedStatement).setString(2, "UK");
+		verify(resultSet).close();
+		verify(preparedStatement).close();
+		verify(connection).close();
+	}
+
 	@Test
 	public void testQueryWithRowMapperNoParameters() throws SQLException {
 		given(resultSet.next()).willReturn(true, false);
@@ -410,6 +442,75 @@ public class NamedParameterJdbcTemplateTests {
 		verify(connection).close();
 	}
 
+	@Test
+	public void testUpdateWithCachedStatementShape() throws SQLException {
+		given(preparedStatement.executeUpdate()).willReturn(1);
+
+		params.put("perfId", 1);
+		params.put("priceId", 1);
+		namedParameterTemplate.update(UPDATE_NAMED_PARAMETERS, params);
+		params.put("perfId", 2);
+		params.put("priceId", 2);
+		namedParameterTemplate.update(UPDATE_NAMED_PARAMETERS, params);
+
+		verify(connection, times(2)).prepareStatement(UPDATE_NAMED_PARAMETERS_PARSED);
+		verify(preparedStatement).setObject(1, 2);
+		verify(preparedStatement).setObject(2, 2);
+		NamedParameterJdbcTemplate.CacheStatistics parsedSqlStatistics =
+				namedParameterTemplate.getParsedSqlCacheStatistics();
+		assertEquals(1, parsedSqlStatistics.getHitCount());
+		assertEquals(1, parsedSqlStatistics.getMissCount());
+		NamedParameterJdbcTemplate.CacheStatistics statementStatistics =
+				namedParameterTemplate.getStatementCacheStatistics();
+		assertEquals(1, statementStatistics.getSize());
+		assertEquals(1, statementStatistics.getHitCount());
+		assertEquals(1, statementStatistics.getMissCount());
+		assertEquals(0, statementStatistics.getEvictionCount());
+	}
+
+	@Test
+	public void testUpdateWithStatementShapePerInClauseSize() throws SQLException {
+		given(preparedStatement.executeUpdate()).willReturn(1);
+		String sql = "update seat_status set booking_id = null where performance_id in (:ids)";
+
+		params.put("ids", Arrays.asList(1, 2));
+		namedParameterTemplate.update(sql, params);
+		params.put("ids", Arrays.asList(1, 2, 3));
+		namedParameterTemplate.update(sql, params);
+		params.put("ids", Arrays.asList(3, 4));
+		namedParameterTemplate.update(sql, params);
+		params.put("ids", new SqlParameterValue(Types.INTEGER, Arrays.asList(5, 6)));
+		namedParameterTemplate.update(sql, params);
+
+		verify(connection, times(3)).prepareStatement(
+				"update seat_status set booking_id = null where performance_id in (?, ?)");
+		verify(connection).prepareStatement(
+				"update seat_status set booking_id = null where performance_id in (?, ?, ?)");
+		verify(preparedStatement).setObject(1, 5, Types.INTEGER);
+		verify(preparedStatement).setObject(2, 6, Types.INTEGER);
+		NamedParameterJdbcTemplate.CacheStatistics statistics = namedParameterTemplate.getStatementCacheStatistics();
+		assertEquals(1, statistics.getHitCount());
+		assertEquals(3, statistics.getMissCount());
+	}
+
+	@Test
+	public void testUpdateWithCachingDisabled() throws SQLException {
+		given(preparedStatement.executeUpdate()).willReturn(1);
+		namedParameterTemplate.setCacheLimit(0);
+
+		params.put("perfId", 1);
+		params.put("priceId", 1);
+		namedParameterTemplate.update(UPDATE_NAMED_PARAMETERS, params);
+		namedParameterTemplate.update(UPDATE_NAMED_PARAMETERS, params);
+
+		verify(connection, times(2)).prepareStatement(UPDATE_NAMED_PARAMETERS_PARSED);
+		assertEquals(0, namedParameterTemplate.getCacheLimit());
+		assertEquals(0, namedParameterTemplate.getParsedSqlCacheStatistics().getSize());
+		assertEquals(0, namedParameterTemplate.getParsedSqlCacheStatistics().getHitCount());
+		assertEquals(0, namedParameterTemplate.getStatementCacheStatistics().getSize());
+		assertEquals(0, namedParameterTemplate.getStatementCacheStatistics().getHitCount());
+	}
+
 	@Test
 	public void testBatchUpdateWithPlainMap() throws Exception {
 		@SuppressWarnings("unchecked")
@@ -0,0 +1,195 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Tests for {@link ConnectionMetricsDataSourceProxy} and its
+ * {@link ConnectionMetricsListener} notifications.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ConnectionMetricsListenerTests {
+
+	private final RecordingListener listener = new RecordingListener();
+
+	private Connection con;
+
+	private DataSource target;
+
+	private ConnectionMetricsDataSourceProxy ds;
+
+
+	@Before
+	public void setup() throws SQLException {
+		this.con = mock(Connection.class);
+		this.target = mock(DataSource.class);
+		given(this.target.getConnection()).willReturn(this.con);
+		given(this.con.createStatement()).willReturn(mock(Statement.class));
+		given(this.con.prepareStatement(anyString())).willReturn(mock(PreparedStatement.class));
+		this.ds = new ConnectionMetricsDataSourceProxy(this.target, this.listener);
+	}
+
+	@After
+	public void cleanup() {
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+		assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+	}
+
+
+	@Test
+	public void connectionAcquiredAndReleased() throws SQLException {
+		Connection obtained = DataSourceUtils.getConnection(this.ds);
+		DataSourceUtils.releaseConnection(obtained, this.ds);
+
+		assertSame(this.con, ((ConnectionProxy) obtained).getTargetConnection());
+		assertSame(this.con, obtained.unwrap(ConnectionProxy.class).getTargetConnection());
+		verify(this.con).close();
+		assertEquals(1, this.listener.acquired);
+		assertEquals(0, this.listener.failed);
+		assertEquals(1, this.listener.releasedStatementCounts.size());
+		assertEquals(0, this.listener.releasedStatementCounts.get(0).intValue());
+	}
+
+	@Test
+	public void connectionReleasedOnce() throws SQLException {
+		Connection obtained = this.ds.getConnection();
+		obtained.close();
+		obtained.close();
+
+		assertEquals(1, this.listener.releasedStatementCounts.size());
+	}
+
+	@Test
+	public void connectionAcquisitionFailed() throws SQLException {
+		given(this.target.getConnection()).willThrow(new SQLException("Pool exhausted"));
+
+		try {
+			DataSourceUtils.getConnection(this.ds);
+			fail("Should have thrown CannotGetJdbcConnectionException");
+		}
+		catch (CannotGetJdbcConnectionException ex) {
+			// expected
+		}
+		assertEquals(0, this.listener.acquired);
+		assertEquals(1, this.listener.failed);
+	}
+
+	@Test
+	public void connectionReleasedAfterEachOperationOutsideOfTransaction() {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(this.ds);
+		jdbcTemplate.update("update t set x = 1");
+		jdbcTemplate.update("update t set y = ?", 2);
+
+		assertEquals(2, this.listener.acquired);
+		assertEquals(2, this.listener.statements.size());
+		assertEquals("update t set x = 1", this.listener.statements.get(0));
+		assertEquals("update t set y = ?", this.listener.statements.get(1));
+		assertEquals(2, this.listener.releasedStatementCounts.size());
+		assertEquals(1, this.listener.releasedStatementCounts.get(0).intValue());
+		assertEquals(1, this.listener.releasedStatementCounts.get(1).intValue());
+	}
+
+	@Test
+	public void connectionReleasedWithStatementCountAfterTransaction() {
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(this.ds);
+		TransactionTemplate tt = new TransactionTemplate(new DataSourceTransactionManager(this.ds));
+		tt.execute(status -> {
+			jdbcTemplate.update("update t set x = 1");
+			jdbcTemplate.update("update t set y = 2");
+			assertTrue(this.listener.releasedStatementCounts.isEmpty());
+			return null;
+		});
+
+		assertEquals(1, this.listener.acquired);
+		assertEquals(2, this.listener.statements.size());
+		assertEquals(1, this.listener.releasedStatementCounts.size());
+		assertEquals(2, this.listener.releasedStatementCounts.get(0).intValue());
+	}
+
+	@Test
+	public void statementReturnsConnectionProxy() throws SQLException {
+		Connection obtained = this.ds.getConnection();
+		Statement stmt = obtained.createStatement();
+		stmt.getConnection().close();
+
+		assertEquals(1, this.listener.releasedStatementCounts.size());
+		verify(this.con).close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void listenerRequired() {
+		ConnectionMetricsDataSourceProxy proxy = new ConnectionMetricsDataSourceProxy();
+		proxy.setTargetDataSource(this.target);
+		proxy.afterPropertiesSet();
+	}
+
+
+	private static class RecordingListener implements ConnectionMetricsListener {
+
+		int acquired;
+
+		int failed;
+
+		final List<Integer> releasedStatementCounts = new ArrayList<>();
+
+		final List<String> statements = new ArrayList<>();
+
+		@Override
+		public void connectionAcquired(DataSource dataSource, long acquireTime) {
+			assertTrue(acquireTime >= 0);
+			this.acquired++;
+		}
+
+		@Override
+		public void connectionAcquisitionFailed(DataSource dataSource, long acquireTime, Throwable ex) {
+			this.failed++;
+		}
+
+		@Override
+		public void connectionReleased(DataSource dataSource, long holdTime, int statementCount) {
+			assertTrue(holdTime >= 0);
+			this.releasedStatementCounts.add(statementCount);
+		}
+
+		@Override
+		public void statementExecuted(DataSource dataSource, @Nullable String sql, long executionTime) {
+			this.statements.add(sql);
+		}
+	}
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.jfr;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import javax.sql.DataSource;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Tests for {@link FlightRecorderConnectionMetricsListener}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class FlightRecorderConnectionMetricsListenerTests {
+
+	private final FlightRecorderConnectionMetricsListener listener = new FlightRecorderConnectionMetricsListener();
+
+
+	@Test
+	public void recordsEvents() throws IOException {
+		DataSource dataSource = mock(DataSource.class);
+		given(dataSource.toString()).willReturn("testDataSource");
+
+		List<RecordedEvent> events;
+		Path file = Files.createTempFile("jdbc", ".jfr");
+		try (Recording recording = new Recording()) {
+			recording.enable(FlightRecorderConnectionAcquisitionEvent.class);
+			recording.enable(FlightRecorderConnectionReleaseEvent.class);
+			recording.enable(FlightRecorderStatementEvent.class);
+			recording.start();
+			this.listener.connectionAcquired(dataSource, 10);
+			this.listener.connectionAcquisitionFailed(dataSource, 20, new SQLException("Pool exhausted"));
+			this.listener.statementExecuted(dataSource, "select 1", 30);
+			this.listener.statementExecuted(dataSource, null, 40);
+			this.listener.connectionReleased(dataSource, 50, 2);
+			recording.stop();
+			recording.dump(file);
+			events = RecordingFile.readAllEvents(file).stream()
+					.filter(event -> event.getEventType().getName().startsWith(getClass().getPackage().getName()))
+					.collect(Collectors.toList());
+		}
+		finally {
+			Files.delete(file);
+		}
+
+		assertEquals(5, events.size());
+		assertEquals("testDataSource", events.get(0).getString("dataSource"));
+		assertEquals(10, events.get(0).getDuration("acquireTime").toNanos());
+		assertEquals("", events.get(0).getString("failure"));
+		assertEquals("java.sql.SQLException: Pool exhausted", events.get(1).getString("failure"));
+		assertEquals("select 1", events.get(2).getString("sql"));
+		assertEquals(30, events.get(2).getDuration("executionTime").toNanos());
+		assertEquals("", events.get(3).getString("sql"));
+		assertEquals(50, events.get(4).getDuration("holdTime").toNanos());
+		assertEquals(2, events.get(4).getInt("statementCount"));
+	}
+
+	@Test
+	public void skipsDataSourceDescriptionWithoutRecording() {
+		AtomicInteger descriptionCount = new AtomicInteger();
+		DataSource dataSource = new DelegatingDataSource() {
+			@Override
+			public String toString() {
+				descriptionCount.incrementAndGet();
+				return "testDataSource";
+			}
+		};
+		this.listener.connectionAcquired(dataSource, 10);
+		this.listener.statementExecuted(dataSource, "select 1", 30);
+		assertEquals(0, descriptionCount.get());
+	}
+
+}
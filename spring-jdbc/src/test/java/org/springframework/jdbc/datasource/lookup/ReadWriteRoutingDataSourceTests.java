@@ -0,0 +1,201 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.jdbc.datasource.lookup;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Tests for {@link ReadWriteRoutingDataSource}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ReadWriteRoutingDataSourceTests {
+
+	private DataSource primary;
+
+	private Connection primaryCon;
+
+	private DataSource replica1;
+
+	private Connection replicaCon1;
+
+	private DataSource replica2;
+
+	private Connection replicaCon2;
+
+
+	@Before
+	public void setup() throws SQLException {
+		this.primary = mock(DataSource.class);
+		this.primaryCon = mockConnection();
+		given(this.primary.getConnection()).willReturn(this.primaryCon);
+		this.replica1 = mock(DataSource.class);
+		this.replicaCon1 = mockConnection();
+		given(this.replica1.getConnection()).willReturn(this.replicaCon1);
+		this.replica2 = mock(DataSource.class);
+		this.replicaCon2 = mockConnection();
+		given(this.replica2.getConnection()).willReturn(this.replicaCon2);
+	}
+
+	@After
+	public void cleanup() {
+		assertTrue(TransactionSynchronizationManager.getResourceMap().isEmpty());
+		assertFalse(TransactionSynchronizationManager.isSynchronizationActive());
+	}
+
+
+	@Test
+	public void readWriteWorkGoesToPrimary() throws SQLException {
+		ReadWriteRoutingDataSource ds = new ReadWriteRoutingDataSource(this.primary, this.replica1);
+		new JdbcTemplate(ds).update("update t set x = 1");
+
+		verify(this.primaryCon).createStatement();
+		verify(this.replica1, never()).getConnection();
+	}
+
+	@Test
+	public void readOnlyTransactionGoesToReplica() throws SQLException {
+		ReadWriteRoutingDataSource ds = new ReadWriteRoutingDataSource(this.primary, this.replica1);
+		TransactionTemplate tt = new TransactionTemplate(new DataSourceTransactionManager(ds));
+		tt.setReadOnly(true);
+		tt.execute(status -> new JdbcTemplate(ds).update("select 1"));
+
+		verify(this.replicaCon1).setReadOnly(true);
+		verify(this.replicaCon1).createStatement();
+		verify(this.replicaCon1).commit();
+		verify(this.replicaCon1).close();
+		verify(this.primaryCon, never()).createStatement();
+	}
+
+	@Test
+	public void readWriteTransactionGoesToPrimary() throws SQLException {
+		ReadWriteRoutingDataSource ds = new ReadWriteRoutingDataSource(this.primary, this.replica1);
+		TransactionTemplate tt = new TransactionTemplate(new DataSourceTransactionManager(ds));
+		tt.execute(status -> new JdbcTemplate(ds).update("update t set x = 1"));
+
+		verify(this.primaryCon).createStatement();
+		verify(this.primaryCon).commit();
+		verify(this.replica1, never()).getConnection();
+	}
+
+	@Test
+	public void synchronizedReadOnlyFlagGoesToReplica() throws SQLException {
+		ReadWriteRoutingDataSource ds = new ReadWriteRoutingDataSource(this.primary, this.replica1);
+		TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+		try {
+			new JdbcTemplate(ds).update("select 1");
+		}
+		finally {
+			TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+		}
+
+		verify(this.replicaCon1).createStatement();
+		verify(this.replicaCon1).close();
+		verify(this.primaryCon, never()).createStatement();
+	}
+
+	@Test
+	public void leastOutstandingReplicaIsChosen() throws SQLException {
+		ReadWriteRoutingDataSource ds =
+				new ReadWriteRoutingDataSource(this.primary, this.replica1, this.replica2);
+
+		Connection con1 = readOnlyConnection(ds);
+		Connection con2 = readOnlyConnection(ds);
+		verify(this.replica1).getConnection();
+		verify(this.replica2).getConnection();
+
+		con1.close();
+		Connection con3 = readOnlyConnection(ds);
+		verify(this.replica1, times(2)).getConnection();
+		verify(this.replica2).getConnection();
+		con2.close();
+		con3.close();
+		verify(this.replicaCon1, times(2)).close();
+		verify(this.replicaCon2).close();
+	}
+
+	@Test
+	public void failingReplicaIsEjectedWithFallbackToPrimary() throws SQLException {
+		given(this.replica1.getConnection()).willThrow(new SQLException("Replica down"));
+		ReadWriteRoutingDataSource ds = new ReadWriteRoutingDataSource(this.primary, this.replica1);
+		ds.setFailureThreshold(1);
+
+		readOnlyConnection(ds).close();
+		readOnlyConnection(ds).close();
+
+		verify(this.replica1).getConnection();
+		verify(this.primaryCon, times(2)).createStatement();
+	}
+
+	@Test
+	public void failingReplicaIsSkippedForOtherReplica() throws SQLException {
+		given(this.replica1.getConnection()).willThrow(new SQLException("Replica down"));
+		ReadWriteRoutingDataSource ds =
+				new ReadWriteRoutingDataSource(this.primary, this.replica1, this.replica2);
+
+		readOnlyConnection(ds).close();
+		readOnlyConnection(ds).close();
+
+		verify(this.replicaCon2, times(2)).createStatement();
+		verify(this.primaryCon, never()).createStatement();
+	}
+
+	@Test
+	public void ejectedReplicaIsRetriedAfterEjectionTime() throws SQLException {
+		given(this.replica1.getConnection()).willThrow(new SQLException("Replica down")).willReturn(this.replicaCon1);
+		ReadWriteRoutingDataSource ds = new ReadWriteRoutingDataSource(this.primary, this.replica1);
+		ds.setFailureThreshold(1);
+		ds.setEjectionTime(0);
+
+		readOnlyConnection(ds).close();
+		readOnlyConnection(ds).close();
+
+		verify(this.replica1, times(2)).getConnection();
+		verify(this.primaryCon).createStatement();
+		verify(this.replicaCon1).createStatement();
+	}
+
+
+	private static Connection mockConnection() throws SQLException {
+		Connection con = mock(Connection.class);
+		given(con.createStatement()).willReturn(mock(Statement.class));
+		return con;
+	}
+
+	private static Connection readOnlyConnection(DataSource ds) throws SQLException {
+		Connection con = ds.getConnection();
+		con.setReadOnly(true);
+		con.createStatement();
+		return con;
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.messaging.simp.stomp;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.messaging.Message;
+
+/**
+ * Benchmarks for {@link StompDecoder} and {@link BufferingStompDecoder},
+ * decoding a sequence of MESSAGE frames either from a single buffer or
+ * from chunks as received from a WebSocket or TCP connection.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+public class StompDecoderBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({"10"})
+		public int frameCount;
+
+		@Param({"64", "4096"})
+		public int bodySize;
+
+		@Param({"true", "false"})
+		public boolean contentLength;
+
+		@Param({"1024"})
+		public int chunkSize;
+
+		public StompDecoder decoder;
+
+		public byte[] frames;
+
+		public List<byte[]> chunks;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.decoder = new StompDecoder();
+			char[] body = new char[this.bodySize];
+			Arrays.fill(body, 'x');
+			StringBuilder sb = new StringBuilder();
+			for (int i = 0; i < this.frameCount; i++) {
+				sb.append("MESSAGE\n");
+				sb.append("subscription:sub-0\n");
+				sb.append("message-id:").append(i).append("-abcdefgh\n");
+				sb.append("destination:/topic/price.stock.MSFT\n");
+				sb.append("content-type:application/json;charset=UTF-8\n");
+				if (this.contentLength) {
+					sb.append("content-length:").append(this.bodySize).append("\n");
+				}
+				sb.append("\n").append(body).append("\0");
+			}
+			this.frames = sb.toString().getBytes(StandardCharsets.UTF_8);
+			this.chunks = new ArrayList<>();
+			for (int offset = 0; offset < this.frames.length; offset += this.chunkSize) {
+				int end = Math.min(offset + this.chunkSize, this.frames.length);
+				this.chunks.add(Arrays.copyOfRange(this.frames, offset, end));
+			}
+		}
+	}
+
+
+	@Benchmark
+	public List<Message<byte[]>> decodeFrames(BenchmarkState state) {
+		return state.decoder.decode(ByteBuffer.wrap(state.frames));
+	}
+
+	@Benchmark
+	public int decodeChunkedFrames(BenchmarkState state) {
+		BufferingStompDecoder decoder = new BufferingStompDecoder(state.decoder, 64 * 1024);
+		int count = 0;
+		for (byte[] chunk : state.chunks) {
+			count += decoder.decode(ByteBuffer.wrap(chunk)).size();
+		}
+		return count;
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,8 +16,12 @@
 
 package org.springframework.messaging.simp.broker;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -25,6 +29,7 @@ import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.expression.EvaluationContext;
 import org.springframework.expression.Expression;
@@ -55,6 +60,14 @@ import org.springframework.util.StringUtils;
  * header on subscription messages with Spring EL expressions evaluated against
  * the headers to filter out messages in addition to destination matching.
  *
+ * <p>As of 5.2, subscriptions are indexed in a trie of destination segments
+ * when using an {@link AntPathMatcher} (the default), so that only the
+ * subscription patterns sharing a destination's literal segments, or having
+ * wildcards in their place, need to be matched on a destination cache miss.
+ * Resolved destinations are cached for lock-free look-ups, and organized in a
+ * trie of their own so that a subscription change only evicts the cached
+ * destinations sharing the literal prefix of its pattern and matching it.
+ *
  * @author Rossen Stoyanchev
  * @author Sebastien Deleuze
  * @author Juergen Hoeller
@@ -70,7 +83,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			SimpleEvaluationContext.forPropertyAccessors(new SimpMessageHeaderPropertyAccessor()).build();
 
 
-	private PathMatcher pathMatcher = new AntPathMatcher();
+	private volatile PathMatcher pathMatcher = new AntPathMatcher();
 
 	private volatile int cacheLimit = DEFAULT_CACHE_LIMIT;
 
@@ -81,16 +94,32 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 	private final ExpressionParser expressionParser = new SpelExpressionParser();
 
+	private volatile SubscriptionIndex subscriptionIndex = new SubscriptionIndex(this.pathMatcher);
+
 	private final DestinationCache destinationCache = new DestinationCache();
 
 	private final SessionSubscriptionRegistry subscriptionRegistry = new SessionSubscriptionRegistry();
 
+	private final AtomicLong subscriptionSequence = new AtomicLong();
+
 
 	/**
 	 * Specify the {@link PathMatcher} to use.
 	 */
 	public void setPathMatcher(PathMatcher pathMatcher) {
-		this.pathMatcher = pathMatcher;
+		synchronized (this.subscriptionRegistry) {
+			SubscriptionIndex index = new SubscriptionIndex(pathMatcher);
+			for (SessionSubscriptionInfo info : this.subscriptionRegistry.getAllSubscriptions()) {
+				for (String destination : info.getDestinations()) {
+					for (Subscription sub : info.getSubscriptions(destination)) {
+						index.add(destination, info.getSessionId(), sub);
+					}
+				}
+			}
+			this.pathMatcher = pathMatcher;
+			this.subscriptionIndex = index;
+			this.destinationCache.invalidateAll();
+		}
 	}
 
 	/**
@@ -148,8 +177,14 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			String sessionId, String subsId, String destination, Message<?> message) {
 
 		Expression expression = getSelectorExpression(message.getHeaders());
-		this.subscriptionRegistry.addSubscription(sessionId, subsId, destination, expression);
-		this.destinationCache.updateAfterNewSubscription(destination, sessionId, subsId);
+		Subscription subscription =
+				new Subscription(subsId, expression, this.subscriptionSequence.incrementAndGet());
+		synchronized (this.subscriptionRegistry) {
+			if (this.subscriptionRegistry.addSubscription(sessionId, destination, subscription)) {
+				this.subscriptionIndex.add(destination, sessionId, subscription);
+				this.destinationCache.invalidate(destination);
+			}
+		}
 	}
 
 	@Nullable
@@ -179,24 +214,34 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 	protected void removeSubscriptionInternal(String sessionId, String subsId, Message<?> message) {
 		SessionSubscriptionInfo info = this.subscriptionRegistry.getSubscriptions(sessionId);
 		if (info != null) {
-			String destination = info.removeSubscription(subsId);
-			if (destination != null) {
-				this.destinationCache.updateAfterRemovedSubscription(sessionId, subsId);
+			synchronized (this.subscriptionRegistry) {
+				String destination = info.removeSubscription(subsId);
+				if (destination != null) {
+					this.subscriptionIndex.remove(destination, sessionId, subsId);
+					this.destinationCache.invalidate(destination);
+				}
 			}
 		}
 	}
 
 	@Override
 	public void unregisterAllSubscriptions(String sessionId) {
-		SessionSubscriptionInfo info = this.subscriptionRegistry.removeSubscriptions(sessionId);
-		if (info != null) {
-			this.destinationCache.updateAfterRemovedSession(info);
+		synchronized (this.subscriptionRegistry) {
+			SessionSubscriptionInfo info = this.subscriptionRegistry.removeSubscriptions(sessionId);
+			if (info != null) {
+				for (String destination : info.getDestinations()) {
+					for (Subscription sub : info.getSubscriptions(destination)) {
+						this.subscriptionIndex.remove(destination, sessionId, sub.getId());
+					}
+					this.destinationCache.invalidate(destination);
+				}
+			}
 		}
 	}
 
 	@Override
 	protected MultiValueMap<String, String> findSubscriptionsInternal(String destination, Message<?> message) {
-		MultiValueMap<String, String> result = this.destinationCache.getSubscriptions(destination, message);
+		MultiValueMap<String, String> result = this.destinationCache.getSubscriptions(destination);
 		return filterSubscriptions(result, message);
 	}
 
@@ -242,13 +287,19 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 
 	@Override
 	public String toString() {
-		return "DefaultSubscriptionRegistry[" + this.destinationCache + ", " + this.subscriptionRegistry + "]";
+		return "DefaultSubscriptionRegistry[" + this.destinationCache + ", " + this.subscriptionIndex + ", " +
+				this.subscriptionRegistry + "]";
 	}
 
 
 	/**
 	 * A cache for destinations previously resolved via
 	 * {@link DefaultSubscriptionRegistry#findSubscriptionsInternal(String, Message)}.
+	 * Look-ups are lock-free. Cached destinations are also kept in a trie of
+	 * segments, so that a subscription change only needs to visit the cached
+	 * destinations sharing the literal prefix of its pattern. A resolved
+	 * destination is only stored if no subscription change happened since
+	 * its resolution started.
 	 */
 	private class DestinationCache {
 
@@ -256,14 +307,15 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		private final Map<String, LinkedMultiValueMap<String, String>> accessCache =
 				new ConcurrentHashMap<>(DEFAULT_CACHE_LIMIT);
 
-		/** Map from destination to {@code <sessionId, subscriptionId>} with locking. */
+		/** Map from destination to its segments, in access order for evictions, with locking. */
 		@SuppressWarnings("serial")
-		private final Map<String, LinkedMultiValueMap<String, String>> updateCache =
-				new LinkedHashMap<String, LinkedMultiValueMap<String, String>>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
+		private final Map<String, String[]> updateCache =
+				new LinkedHashMap<String, String[]>(DEFAULT_CACHE_LIMIT, 0.75f, true) {
 					@Override
-					protected boolean removeEldestEntry(Map.Entry<String, LinkedMultiValueMap<String, String>> eldest) {
+					protected boolean removeEldestEntry(Map.Entry<String, String[]> eldest) {
 						if (size() > getCacheLimit()) {
 							accessCache.remove(eldest.getKey());
+							destinations.remove(eldest.getValue(), 0, eldest.getKey());
 							return true;
 						}
 						else {
@@ -272,93 +324,411 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 					}
 				};
 
+		/** Trie of the cached destinations, guarded by the update cache. */
+		private final DestinationNode destinations = new DestinationNode();
 
-		public LinkedMultiValueMap<String, String> getSubscriptions(String destination, Message<?> message) {
+		/** Number of subscription changes, incremented with locking. */
+		private volatile long generation;
+
+
+		public LinkedMultiValueMap<String, String> getSubscriptions(String destination) {
 			LinkedMultiValueMap<String, String> result = this.accessCache.get(destination);
 			if (result == null) {
+				// Read the generation before the look-up: a concurrent change makes the result stale
+				long generation = this.generation;
+				SubscriptionIndex index = subscriptionIndex;
+				result = index.findSubscriptions(destination);
+				String[] segments = index.getSegments(destination);
 				synchronized (this.updateCache) {
-					result = new LinkedMultiValueMap<>();
-					for (SessionSubscriptionInfo info : subscriptionRegistry.getAllSubscriptions()) {
-						for (String destinationPattern : info.getDestinations()) {
-							if (getPathMatcher().match(destinationPattern, destination)) {
-								for (Subscription sub : info.getSubscriptions(destinationPattern)) {
-									result.add(info.sessionId, sub.getId());
-								}
-							}
-						}
-					}
-					if (!result.isEmpty()) {
-						this.updateCache.put(destination, result.deepCopy());
+					if (generation == this.generation) {
 						this.accessCache.put(destination, result);
+						this.destinations.add(segments, 0, destination);
+						this.updateCache.put(destination, segments);
 					}
 				}
 			}
 			return result;
 		}
 
-		public void updateAfterNewSubscription(String destination, String sessionId, String subsId) {
+		public void invalidate(String pattern) {
 			synchronized (this.updateCache) {
-				this.updateCache.forEach((cachedDestination, subscriptions) -> {
-					if (getPathMatcher().match(destination, cachedDestination)) {
-						// Subscription id's may also be populated via getSubscriptions()
-						List<String> subsForSession = subscriptions.get(sessionId);
-						if (subsForSession == null || !subsForSession.contains(subsId)) {
-							subscriptions.add(sessionId, subsId);
-							this.accessCache.put(cachedDestination, subscriptions.deepCopy());
+				this.generation++;
+				DestinationNode node = this.destinations.getDescendant(subscriptionIndex.getLiteralPrefix(pattern));
+				if (node == null) {
+					return;
+				}
+				List<String> candidates = new ArrayList<>();
+				node.collect(candidates);
+				for (String destination : candidates) {
+					if (pattern.equals(destination) || getPathMatcher().match(pattern, destination)) {
+						String[] segments = this.updateCache.remove(destination);
+						this.accessCache.remove(destination);
+						if (segments != null) {
+							this.destinations.remove(segments, 0, destination);
 						}
 					}
-				});
+				}
 			}
 		}
 
-		public void updateAfterRemovedSubscription(String sessionId, String subsId) {
+		public void invalidateAll() {
 			synchronized (this.updateCache) {
-				Set<String> destinationsToRemove = new HashSet<>();
-				this.updateCache.forEach((destination, sessionMap) -> {
-					List<String> subscriptions = sessionMap.get(sessionId);
-					if (subscriptions != null) {
-						subscriptions.remove(subsId);
-						if (subscriptions.isEmpty()) {
-							sessionMap.remove(sessionId);
-						}
-						if (sessionMap.isEmpty()) {
-							destinationsToRemove.add(destination);
-						}
-						else {
-							this.accessCache.put(destination, sessionMap.deepCopy());
-						}
+				this.generation++;
+				this.updateCache.clear();
+				this.accessCache.clear();
+				this.destinations.clear();
+			}
+		}
+
+		@Override
+		public String toString() {
+			return "cache[" + this.accessCache.size() + " destination(s)]";
+		}
+	}
+
+
+	/**
+	 * Node of the {@link DestinationCache} trie, for one path segment.
+	 */
+	private static final class DestinationNode {
+
+		final Map<String, DestinationNode> children = new HashMap<>(4);
+
+		final Set<String> destinations = new HashSet<>(2);
+
+		void add(String[] segments, int index, String destination) {
+			if (index == segments.length) {
+				this.destinations.add(destination);
+			}
+			else {
+				this.children.computeIfAbsent(segments[index], key -> new DestinationNode())
+						.add(segments, index + 1, destination);
+			}
+		}
+
+		boolean remove(String[] segments, int index, String destination) {
+			if (index == segments.length) {
+				this.destinations.remove(destination);
+			}
+			else {
+				DestinationNode child = this.children.get(segments[index]);
+				if (child != null && child.remove(segments, index + 1, destination)) {
+					this.children.remove(segments[index]);
+				}
+			}
+			return (this.destinations.isEmpty() && this.children.isEmpty());
+		}
+
+		@Nullable
+		DestinationNode getDescendant(List<String> segments) {
+			DestinationNode node = this;
+			for (String segment : segments) {
+				node = node.children.get(segment);
+				if (node == null) {
+					return null;
+				}
+			}
+			return node;
+		}
+
+		void collect(List<String> result) {
+			result.addAll(this.destinations);
+			for (DestinationNode child : this.children.values()) {
+				child.collect(result);
+			}
+		}
+
+		void clear() {
+			this.destinations.clear();
+			this.children.clear();
+		}
+	}
+
+
+	/**
+	 * Index of subscriptions by destination (pattern). With a plain
+	 * {@link AntPathMatcher}, destinations are additionally organized in a trie
+	 * of path segments: literal segments are looked up directly, while segments
+	 * with wildcards are matched one by one, so that only a small set of candidate
+	 * patterns needs to be matched against the full destination. With any other
+	 * {@link PathMatcher}, all destination patterns are matched.
+	 * <p>Lookups are lock-free; modifications need to be serialized by the caller.
+	 */
+	private static final class SubscriptionIndex {
+
+		private static final String DOUBLE_WILDCARD = "**";
+
+		private final PathMatcher pathMatcher;
+
+		@Nullable
+		private final String pathSeparator;
+
+		private final boolean caseSensitive;
+
+		private final boolean trimTokens;
+
+		private final Map<String, PatternSubscriptions> patterns = new ConcurrentHashMap<>();
+
+		private final Node root = new Node();
+
+		SubscriptionIndex(PathMatcher pathMatcher) {
+			this.pathMatcher = pathMatcher;
+			if (pathMatcher.getClass() == AntPathMatcher.class) {
+				// Derive the configuration of the AntPathMatcher in order to
+				// tokenize destinations the same way as AntPathMatcher#match does
+				String combined = pathMatcher.combine("a", "b");
+				this.pathSeparator = (combined.length() > 2 && combined.startsWith("a") && combined.endsWith("b") ?
+						combined.substring(1, combined.length() - 1) : null);
+				this.caseSensitive = !pathMatcher.match("a", "A");
+				this.trimTokens = pathMatcher.match("a", " a");
+			}
+			else {
+				this.pathSeparator = null;
+				this.caseSensitive = true;
+				this.trimTokens = false;
+			}
+		}
+
+		public void add(String destination, String sessionId, Subscription subscription) {
+			PatternSubscriptions subscriptions = this.patterns.get(destination);
+			if (subscriptions == null) {
+				subscriptions = new PatternSubscriptions(destination);
+				this.patterns.put(destination, subscriptions);
+				if (this.pathSeparator != null) {
+					Node node = this.root;
+					for (String segment : tokenize(destination, this.pathSeparator)) {
+						node = node.getOrCreateChild(segment, isPatternSegment(segment));
 					}
-				});
-				for (String destination : destinationsToRemove) {
-					this.updateCache.remove(destination);
-					this.accessCache.remove(destination);
+					node.patterns.put(destination, subscriptions);
 				}
 			}
+			subscriptions.add(sessionId, subscription);
 		}
 
-		public void updateAfterRemovedSession(SessionSubscriptionInfo info) {
-			synchronized (this.updateCache) {
-				Set<String> destinationsToRemove = new HashSet<>();
-				this.updateCache.forEach((destination, sessionMap) -> {
-					if (sessionMap.remove(info.getSessionId()) != null) {
-						if (sessionMap.isEmpty()) {
-							destinationsToRemove.add(destination);
-						}
-						else {
-							this.accessCache.put(destination, sessionMap.deepCopy());
+		public void remove(String destination, String sessionId, String subscriptionId) {
+			PatternSubscriptions subscriptions = this.patterns.get(destination);
+			if (subscriptions == null || !subscriptions.remove(sessionId, subscriptionId) ||
+					!subscriptions.isEmpty()) {
+				return;
+			}
+			this.patterns.remove(destination);
+			if (this.pathSeparator != null) {
+				String[] segments = tokenize(destination, this.pathSeparator);
+				Node[] path = new Node[segments.length + 1];
+				path[0] = this.root;
+				for (int i = 0; i < segments.length; i++) {
+					path[i + 1] = path[i].getChild(segments[i], isPatternSegment(segments[i]));
+					if (path[i + 1] == null) {
+						return;
+					}
+				}
+				path[segments.length].patterns.remove(destination);
+				for (int i = segments.length; i > 0 && path[i].isEmpty(); i--) {
+					path[i - 1].removeChild(segments[i - 1], isPatternSegment(segments[i - 1]));
+				}
+			}
+		}
+
+		/**
+		 * Return the segments of the given destination as organized in the trie,
+		 * or an empty array if the trie is not in use.
+		 */
+		public String[] getSegments(String destination) {
+			return (this.pathSeparator != null ? tokenize(destination, this.pathSeparator) : new String[0]);
+		}
+
+		/**
+		 * Return the leading segments of the given destination pattern that can
+		 * only match the very same segments of a destination.
+		 */
+		public List<String> getLiteralPrefix(String pattern) {
+			List<String> prefix = new ArrayList<>();
+			if (this.pathSeparator != null) {
+				for (String segment : tokenize(pattern, this.pathSeparator)) {
+					if (isPatternSegment(segment)) {
+						break;
+					}
+					prefix.add(segment);
+				}
+			}
+			return prefix;
+		}
+
+		public LinkedMultiValueMap<String, String> findSubscriptions(String destination) {
+			Collection<PatternSubscriptions> candidates;
+			if (this.pathSeparator != null) {
+				candidates = Collections.newSetFromMap(new IdentityHashMap<>());
+				collectCandidates(this.root, tokenize(destination, this.pathSeparator), 0,
+						destination.endsWith(this.pathSeparator), candidates);
+			}
+			else {
+				candidates = this.patterns.values();
+			}
+			List<SubscriptionMatch> matches = new ArrayList<>();
+			for (PatternSubscriptions candidate : candidates) {
+				if (candidate.pattern.equals(destination) || this.pathMatcher.match(candidate.pattern, destination)) {
+					candidate.sessions.forEach((sessionId, subscriptions) -> {
+						for (Subscription subscription : subscriptions.values()) {
+							matches.add(new SubscriptionMatch(sessionId, subscription));
 						}
+					});
+				}
+			}
+			// Expose subscriptions in registration order
+			matches.sort((match1, match2) ->
+					Long.compare(match1.subscription.getSequence(), match2.subscription.getSequence()));
+			LinkedMultiValueMap<String, String> result = new LinkedMultiValueMap<>();
+			for (SubscriptionMatch match : matches) {
+				result.add(match.sessionId, match.subscription.getId());
+			}
+			return result;
+		}
+
+		private void collectCandidates(Node node, String[] segments, int index, boolean trailingSeparator,
+				Collection<PatternSubscriptions> candidates) {
+
+			if (index == segments.length) {
+				candidates.addAll(node.patterns.values());
+				if (trailingSeparator) {
+					// AntPathMatcher matches a trailing "*" against a trailing separator
+					Node wildcardChild = node.patternChildren.get("*");
+					if (wildcardChild != null) {
+						candidates.addAll(wildcardChild.patterns.values());
 					}
-				});
-				for (String destination : destinationsToRemove) {
-					this.updateCache.remove(destination);
-					this.accessCache.remove(destination);
 				}
 			}
+			else {
+				String segment = segments[index];
+				Node literalChild = node.literalChildren.get(segment);
+				if (literalChild != null) {
+					collectCandidates(literalChild, segments, index + 1, trailingSeparator, candidates);
+				}
+				for (Map.Entry<String, Node> entry : node.patternChildren.entrySet()) {
+					if (this.pathMatcher.match(entry.getKey(), segment)) {
+						collectCandidates(entry.getValue(), segments, index + 1, trailingSeparator, candidates);
+					}
+				}
+			}
+			Node doubleWildcardChild = node.doubleWildcardChild;
+			if (doubleWildcardChild != null) {
+				for (int i = index; i <= segments.length; i++) {
+					collectCandidates(doubleWildcardChild, segments, i, trailingSeparator, candidates);
+				}
+			}
+		}
+
+		private String[] tokenize(String destination, String pathSeparator) {
+			return StringUtils.tokenizeToStringArray(destination, pathSeparator, this.trimTokens, true);
+		}
+
+		private boolean isPatternSegment(String segment) {
+			// Case-insensitive matching cannot rely on literal look-ups
+			return (!this.caseSensitive || segment.indexOf('*') != -1 ||
+					segment.indexOf('?') != -1 || segment.indexOf('{') != -1);
 		}
 
 		@Override
 		public String toString() {
-			return "cache[" + this.accessCache.size() + " destination(s)]";
+			return "index[" + this.patterns.size() + " destination(s)]";
+		}
+	}
+
+
+	/**
+	 * Node of the {@link SubscriptionIndex} trie, for one path segment.
+	 */
+	private static final class Node {
+
+		final Map<String, Node> literalChildren = new ConcurrentHashMap<>(4);
+
+		final Map<String, Node> patternChildren = new ConcurrentHashMap<>(4);
+
+		@Nullable
+		volatile Node doubleWildcardChild;
+
+		final Map<String, PatternSubscriptions> patterns = new ConcurrentHashMap<>(2);
+
+		@Nullable
+		Node getChild(String segment, boolean patternSegment) {
+			if (SubscriptionIndex.DOUBLE_WILDCARD.equals(segment)) {
+				return this.doubleWildcardChild;
+			}
+			return (patternSegment ? this.patternChildren : this.literalChildren).get(segment);
+		}
+
+		Node getOrCreateChild(String segment, boolean patternSegment) {
+			if (SubscriptionIndex.DOUBLE_WILDCARD.equals(segment)) {
+				Node child = this.doubleWildcardChild;
+				if (child == null) {
+					child = new Node();
+					this.doubleWildcardChild = child;
+				}
+				return child;
+			}
+			return (patternSegment ? this.patternChildren : this.literalChildren)
+					.computeIfAbsent(segment, key -> new Node());
+		}
+
+		void removeChild(String segment, boolean patternSegment) {
+			if (SubscriptionIndex.DOUBLE_WILDCARD.equals(segment)) {
+				this.doubleWildcardChild = null;
+			}
+			else {
+				(patternSegment ? this.patternChildren : this.literalChildren).remove(segment);
+			}
+		}
+
+		boolean isEmpty() {
+			return (this.patterns.isEmpty() && this.literalChildren.isEmpty() &&
+					this.patternChildren.isEmpty() && this.doubleWildcardChild == null);
+		}
+	}
+
+
+	/**
+	 * Subscriptions for one destination (pattern), by session id and subscription id.
+	 */
+	private static final class PatternSubscriptions {
+
+		final String pattern;
+
+		final Map<String, Map<String, Subscription>> sessions = new ConcurrentHashMap<>(4);
+
+		PatternSubscriptions(String pattern) {
+			this.pattern = pattern;
+		}
+
+		void add(String sessionId, Subscription subscription) {
+			this.sessions.computeIfAbsent(sessionId, id -> new ConcurrentHashMap<>(4))
+					.putIfAbsent(subscription.getId(), subscription);
+		}
+
+		boolean remove(String sessionId, String subscriptionId) {
+			Map<String, Subscription> subscriptions = this.sessions.get(sessionId);
+			if (subscriptions == null || subscriptions.remove(subscriptionId) == null) {
+				return false;
+			}
+			if (subscriptions.isEmpty()) {
+				this.sessions.remove(sessionId);
+			}
+			return true;
+		}
+
+		boolean isEmpty() {
+			return this.sessions.isEmpty();
+		}
+	}
+
+
+	private static final class SubscriptionMatch {
+
+		final String sessionId;
+
+		final Subscription subscription;
+
+		SubscriptionMatch(String sessionId, Subscription subscription) {
+			this.sessionId = sessionId;
+			this.subscription = subscription;
 		}
 	}
 
@@ -380,9 +750,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			return this.sessions.values();
 		}
 
-		public SessionSubscriptionInfo addSubscription(String sessionId, String subscriptionId,
-				String destination, @Nullable Expression selectorExpression) {
-
+		public boolean addSubscription(String sessionId, String destination, Subscription subscription) {
 			SessionSubscriptionInfo info = this.sessions.get(sessionId);
 			if (info == null) {
 				info = new SessionSubscriptionInfo(sessionId);
@@ -391,8 +759,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 					info = value;
 				}
 			}
-			info.addSubscription(destination, subscriptionId, selectorExpression);
-			return info;
+			return info.addSubscription(destination, subscription);
 		}
 
 		@Nullable
@@ -447,7 +814,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			return null;
 		}
 
-		public void addSubscription(String destination, String subscriptionId, @Nullable Expression selectorExpression) {
+		public boolean addSubscription(String destination, Subscription subscription) {
 			Set<Subscription> subs = this.destinationLookup.get(destination);
 			if (subs == null) {
 				synchronized (this.destinationLookup) {
@@ -458,7 +825,7 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 					}
 				}
 			}
-			subs.add(new Subscription(subscriptionId, selectorExpression));
+			return subs.add(subscription);
 		}
 
 		@Nullable
@@ -496,10 +863,13 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 		@Nullable
 		private final Expression selectorExpression;
 
-		public Subscription(String id, @Nullable Expression selector) {
+		private final long sequence;
+
+		public Subscription(String id, @Nullable Expression selector, long sequence) {
 			Assert.notNull(id, "Subscription id must not be null");
 			this.id = id;
 			this.selectorExpression = selector;
+			this.sequence = sequence;
 		}
 
 		public String getId() {
@@ -511,6 +881,10 @@ public class DefaultSubscriptionRegistry extends AbstractSubscriptionRegistry {
 			return this.selectorExpression;
 		}
 
+		public long getSequence() {
+			return this.sequence;
+		}
+
 		@Override
 		public boolean equals(Object other) {
 			return (this == other || (other instanceof Subscription && this.id.equals(((Subscription) other).id)));
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,9 +19,15 @@ package org.springframework.messaging.simp.broker;
 import java.security.Principal;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
@@ -35,6 +41,7 @@ import org.springframework.messaging.support.MessageHeaderAccessor;
 import org.springframework.messaging.support.MessageHeaderInitializer;
 import org.springframework.scheduling.TaskScheduler;
 import org.springframework.util.Assert;
+import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 import org.springframework.util.PathMatcher;
 
@@ -43,12 +50,23 @@ import org.springframework.util.PathMatcher;
  * {@link SimpMessageType}, keeps track of subscriptions with the help of a
  * {@link SubscriptionRegistry} and sends messages to subscribers.
  *
+ * <p>As of 5.2, a {@link #setDispatchExecutor dispatch executor} may be
+ * configured in order to fan out messages to subscribers across several
+ * dispatch lanes. Each session is hashed onto one lane, and the lane processes
+ * its messages one at a time, so messages for a given session remain in order
+ * while different sessions are served concurrently. The number of messages
+ * waiting in a lane is bounded by the {@link #setDispatchLaneCapacity lane
+ * capacity}.
+ *
  * @author Rossen Stoyanchev
  * @author Juergen Hoeller
  * @since 4.0
  */
 public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 
+	/** Default maximum number of pending send tasks per dispatch lane: 10000. */
+	public static final int DEFAULT_DISPATCH_LANE_CAPACITY = 10000;
+
 	private static final byte[] EMPTY_PAYLOAD = new byte[0];
 
 
@@ -70,6 +88,13 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 	@Nullable
 	private MessageHeaderInitializer headerInitializer;
 
+	@Nullable
+	private Executor dispatchExecutor;
+
+	private int dispatchLaneCount = Runtime.getRuntime().availableProcessors();
+
+	private int dispatchLaneCapacity = DEFAULT_DISPATCH_LANE_CAPACITY;
+
 
 	private SubscriptionRegistry subscriptionRegistry;
 
@@ -78,6 +103,9 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 	@Nullable
 	private ScheduledFuture<?> heartbeatFuture;
 
+	@Nullable
+	private volatile DispatchLane[] dispatchLanes;
+
 
 	/**
 	 * Create a SimpleBrokerMessageHandler instance with the given message channels
@@ -249,9 +277,81 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		return this.headerInitializer;
 	}
 
+	/**
+	 * Configure an {@link Executor} to dispatch messages to subscribers with.
+	 * <p>When set, sessions are distributed across a number of
+	 * {@link #setDispatchLaneCount dispatch lanes}, each of which sends the
+	 * messages for its sessions one at a time and in order, using the given
+	 * executor. This allows a broadcast to many subscribers to be spread
+	 * across threads, while preserving the order of messages per session.
+	 * <p>By default this is not set, and messages are sent to subscribers
+	 * on the thread that processes the message from the broker channel.
+	 * @since 5.2
+	 */
+	public void setDispatchExecutor(@Nullable Executor dispatchExecutor) {
+		this.dispatchExecutor = dispatchExecutor;
+	}
+
+	/**
+	 * Return the configured dispatch executor.
+	 * @since 5.2
+	 */
+	@Nullable
+	public Executor getDispatchExecutor() {
+		return this.dispatchExecutor;
+	}
+
+	/**
+	 * Configure the number of dispatch lanes to distribute sessions across
+	 * when a {@link #setDispatchExecutor dispatch executor} is set.
+	 * <p>By default this is the number of available processors.
+	 * @since 5.2
+	 */
+	public void setDispatchLaneCount(int dispatchLaneCount) {
+		Assert.isTrue(dispatchLaneCount > 0, "Dispatch lane count must be greater than 0");
+		this.dispatchLaneCount = dispatchLaneCount;
+	}
+
+	/**
+	 * Return the configured number of dispatch lanes.
+	 * @since 5.2
+	 */
+	public int getDispatchLaneCount() {
+		return this.dispatchLaneCount;
+	}
+
+	/**
+	 * Configure the maximum number of messages that may be waiting to be sent
+	 * in each dispatch lane when a {@link #setDispatchExecutor dispatch executor}
+	 * is set. Once a lane is full, further messages and heartbeats for its
+	 * sessions are dropped and logged at error level, until it has caught up.
+	 * Connect and disconnect acknowledgements are always accepted.
+	 * <p>By default this is set to 10000.
+	 * @since 5.2
+	 */
+	public void setDispatchLaneCapacity(int dispatchLaneCapacity) {
+		Assert.isTrue(dispatchLaneCapacity > 0, "Dispatch lane capacity must be greater than 0");
+		this.dispatchLaneCapacity = dispatchLaneCapacity;
+	}
+
+	/**
+	 * Return the configured capacity of each dispatch lane.
+	 * @since 5.2
+	 */
+	public int getDispatchLaneCapacity() {
+		return this.dispatchLaneCapacity;
+	}
+
 
 	@Override
 	public void startInternal() {
+		if (this.dispatchExecutor != null) {
+			DispatchLane[] lanes = new DispatchLane[this.dispatchLaneCount];
+			for (int i = 0; i < lanes.length; i++) {
+				lanes[i] = new DispatchLane(this.dispatchExecutor, this.dispatchLaneCapacity);
+			}
+			this.dispatchLanes = lanes;
+		}
 		publishBrokerAvailableEvent();
 		if (this.taskScheduler != null) {
 			long interval = initHeartbeatTaskDelay();
@@ -284,6 +384,7 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		if (this.heartbeatFuture != null) {
 			this.heartbeatFuture.cancel(true);
 		}
+		this.dispatchLanes = null;
 	}
 
 	@Override
@@ -320,7 +421,7 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 				connectAck.setHeader(SimpMessageHeaderAccessor.CONNECT_MESSAGE_HEADER, message);
 				connectAck.setHeader(SimpMessageHeaderAccessor.HEART_BEAT_HEADER, heartbeatOut);
 				Message<byte[]> messageOut = MessageBuilder.createMessage(EMPTY_PAYLOAD, connectAck.getMessageHeaders());
-				getClientOutboundChannel().send(messageOut);
+				dispatch(sessionId, () -> getClientOutboundChannel().send(messageOut));
 			}
 		}
 		else if (SimpMessageType.DISCONNECT.equals(messageType)) {
@@ -364,7 +465,6 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 	}
 
 	private void handleDisconnect(String sessionId, @Nullable Principal user, @Nullable Message<?> origMessage) {
-		this.sessions.remove(sessionId);
 		this.subscriptionRegistry.unregisterAllSubscriptions(sessionId);
 		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.DISCONNECT_ACK);
 		accessor.setSessionId(sessionId);
@@ -376,43 +476,104 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 		}
 		initHeaders(accessor);
 		Message<byte[]> message = MessageBuilder.createMessage(EMPTY_PAYLOAD, accessor.getMessageHeaders());
-		getClientOutboundChannel().send(message);
+		// Remove the session only once the messages already dispatched to it have been sent
+		dispatch(sessionId, () -> {
+			this.sessions.remove(sessionId);
+			getClientOutboundChannel().send(message);
+		});
 	}
 
+	@SuppressWarnings("unchecked")
 	protected void sendMessageToSubscribers(@Nullable String destination, Message<?> message) {
 		MultiValueMap<String,String> subscriptions = this.subscriptionRegistry.findSubscriptions(message);
 		if (!subscriptions.isEmpty() && logger.isDebugEnabled()) {
 			logger.debug("Broadcasting to " + subscriptions.size() + " sessions.");
 		}
+		DispatchLane[] lanes = this.dispatchLanes;
+		if (lanes == null) {
+			sendMessageToSessions(subscriptions, message);
+			return;
+		}
+		if (lanes.length == 1) {
+			dispatchMessage(lanes[0], subscriptions, message);
+			return;
+		}
+		MultiValueMap<String, String>[] laneSubscriptions =
+				(MultiValueMap<String, String>[]) new MultiValueMap<?, ?>[lanes.length];
+		subscriptions.forEach((sessionId, subscriptionIds) -> {
+			int index = getLaneIndex(sessionId, lanes.length);
+			if (laneSubscriptions[index] == null) {
+				laneSubscriptions[index] = new LinkedMultiValueMap<>();
+			}
+			laneSubscriptions[index].put(sessionId, subscriptionIds);
+		});
+		for (int i = 0; i < lanes.length; i++) {
+			MultiValueMap<String, String> sessionSubscriptions = laneSubscriptions[i];
+			if (sessionSubscriptions != null) {
+				dispatchMessage(lanes[i], sessionSubscriptions, message);
+			}
+		}
+	}
+
+	private void dispatchMessage(DispatchLane lane, MultiValueMap<String, String> subscriptions, Message<?> message) {
+		if (!lane.tryExecute(() -> sendMessageToSessions(subscriptions, message)) && logger.isErrorEnabled()) {
+			logger.error("Dispatch lane full, dropped message for session(s) " + subscriptions.keySet() +
+					": " + message);
+		}
+	}
+
+	private void sendMessageToSessions(MultiValueMap<String, String> subscriptions, Message<?> message) {
 		long now = System.currentTimeMillis();
 		subscriptions.forEach((sessionId, subscriptionIds) -> {
-			for (String subscriptionId : subscriptionIds) {
-				SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
-				initHeaders(headerAccessor);
-				headerAccessor.setSessionId(sessionId);
-				headerAccessor.setSubscriptionId(subscriptionId);
-				headerAccessor.copyHeadersIfAbsent(message.getHeaders());
-				headerAccessor.setLeaveMutable(true);
-				Object payload = message.getPayload();
-				Message<?> reply = MessageBuilder.createMessage(payload, headerAccessor.getMessageHeaders());
-				SessionInfo info = this.sessions.get(sessionId);
-				if (info != null) {
-					try {
-						info.getClientOutboundChannel().send(reply);
-					}
-					catch (Throwable ex) {
-						if (logger.isErrorEnabled()) {
-							logger.error("Failed to send " + message, ex);
-						}
-					}
-					finally {
-						info.setLastWriteTime(now);
-					}
-				}
+			SessionInfo info = this.sessions.get(sessionId);
+			if (info != null) {
+				sendMessageToSession(info, subscriptionIds, message, now);
 			}
 		});
 	}
 
+	private void sendMessageToSession(SessionInfo info, List<String> subscriptionIds, Message<?> message, long now) {
+		for (String subscriptionId : subscriptionIds) {
+			SimpMessageHeaderAccessor headerAccessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+			initHeaders(headerAccessor);
+			headerAccessor.setSessionId(info.getSessionId());
+			headerAccessor.setSubscriptionId(subscriptionId);
+			headerAccessor.copyHeadersIfAbsent(message.getHeaders());
+			headerAccessor.setLeaveMutable(true);
+			Object payload = message.getPayload();
+			Message<?> reply = MessageBuilder.createMessage(payload, headerAccessor.getMessageHeaders());
+			try {
+				info.getClientOutboundChannel().send(reply);
+			}
+			catch (Throwable ex) {
+				if (logger.isErrorEnabled()) {
+					logger.error("Failed to send " + message, ex);
+				}
+			}
+			finally {
+				info.setLastWriteTime(now);
+			}
+		}
+	}
+
+	/**
+	 * Run the given send task on the dispatch lane of the given session, if
+	 * dispatch lanes are in use, or otherwise directly on the calling thread.
+	 */
+	private void dispatch(String sessionId, Runnable sendTask) {
+		DispatchLane[] lanes = this.dispatchLanes;
+		if (lanes != null) {
+			lanes[getLaneIndex(sessionId, lanes.length)].execute(sendTask);
+		}
+		else {
+			sendTask.run();
+		}
+	}
+
+	private static int getLaneIndex(String sessionId, int laneCount) {
+		return (sessionId.hashCode() & Integer.MAX_VALUE) % laneCount;
+	}
+
 	@Override
 	public String toString() {
 		return "SimpleBrokerMessageHandler [" + this.subscriptionRegistry + "]";
@@ -517,8 +678,98 @@ public class SimpleBrokerMessageHandler extends AbstractBrokerMessageHandler {
 					initHeaders(accessor);
 					accessor.setLeaveMutable(true);
 					MessageHeaders headers = accessor.getMessageHeaders();
-					info.getClientOutboundChannel().send(MessageBuilder.createMessage(EMPTY_PAYLOAD, headers));
+					Message<byte[]> heartbeat = MessageBuilder.createMessage(EMPTY_PAYLOAD, headers);
+					DispatchLane[] lanes = dispatchLanes;
+					Runnable sendTask = () -> info.getClientOutboundChannel().send(heartbeat);
+					if (lanes == null) {
+						sendTask.run();
+					}
+					else if (!lanes[getLaneIndex(info.getSessionId(), lanes.length)].tryExecute(sendTask) &&
+							logger.isDebugEnabled()) {
+						logger.debug("Dispatch lane full, skipped heartbeat for session " + info.getSessionId());
+					}
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Runs the send tasks of the sessions assigned to it one at a time and in
+	 * the order of submission, using the configured dispatch executor.
+	 */
+	private class DispatchLane implements Runnable {
+
+		private final Executor executor;
+
+		private final int capacity;
+
+		private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+		private final AtomicInteger taskCount = new AtomicInteger();
+
+		private final AtomicBoolean scheduled = new AtomicBoolean();
+
+		public DispatchLane(Executor executor, int capacity) {
+			this.executor = executor;
+			this.capacity = capacity;
+		}
+
+		/**
+		 * Queue the given task regardless of the capacity of the lane.
+		 */
+		public void execute(Runnable task) {
+			this.taskCount.incrementAndGet();
+			this.tasks.add(task);
+			schedule();
+		}
+
+		/**
+		 * Queue the given task unless the lane is at capacity.
+		 * @return {@code true} if the task was queued, {@code false} otherwise
+		 */
+		public boolean tryExecute(Runnable task) {
+			if (this.taskCount.incrementAndGet() > this.capacity) {
+				this.taskCount.decrementAndGet();
+				return false;
+			}
+			this.tasks.add(task);
+			schedule();
+			return true;
+		}
+
+		private void schedule() {
+			// Take the scheduled flag only if there is work to do
+			if (!this.tasks.isEmpty() && this.scheduled.compareAndSet(false, true)) {
+				try {
+					this.executor.execute(this);
 				}
+				catch (Throwable ex) {
+					this.scheduled.set(false);
+					throw ex;
+				}
+			}
+		}
+
+		@Override
+		public void run() {
+			try {
+				Runnable task;
+				while ((task = this.tasks.poll()) != null) {
+					this.taskCount.decrementAndGet();
+					try {
+						task.run();
+					}
+					catch (Throwable ex) {
+						if (logger.isErrorEnabled()) {
+							logger.error("Failed to dispatch message", ex);
+						}
+					}
+				}
+			}
+			finally {
+				this.scheduled.set(false);
+				schedule();
 			}
 		}
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,6 +16,8 @@
 
 package org.springframework.messaging.simp.config;
 
+import java.util.concurrent.Executor;
+
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.MessageChannel;
 import org.springframework.messaging.SubscribableChannel;
@@ -39,6 +41,15 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 	@Nullable
 	private String selectorHeaderName = "selector";
 
+	@Nullable
+	private Executor dispatchExecutor;
+
+	@Nullable
+	private Integer dispatchLaneCount;
+
+	@Nullable
+	private Integer dispatchLaneCapacity;
+
 
 	public SimpleBrokerRegistration(SubscribableChannel inChannel, MessageChannel outChannel, String[] prefixes) {
 		super(inChannel, outChannel, prefixes);
@@ -89,6 +100,43 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 		this.selectorHeaderName = selectorHeaderName;
 	}
 
+	/**
+	 * Configure an {@link Executor} to send messages to subscribers with,
+	 * spreading sessions across a number of dispatch lanes while preserving
+	 * the order of messages within each session.
+	 * <p>By default this is not set.
+	 * @since 5.2
+	 * @see SimpleBrokerMessageHandler#setDispatchExecutor
+	 */
+	public SimpleBrokerRegistration setDispatchExecutor(Executor dispatchExecutor) {
+		this.dispatchExecutor = dispatchExecutor;
+		return this;
+	}
+
+	/**
+	 * Configure the number of dispatch lanes to use with the
+	 * {@link #setDispatchExecutor dispatch executor}.
+	 * <p>By default this is the number of available processors.
+	 * @since 5.2
+	 * @see SimpleBrokerMessageHandler#setDispatchLaneCount
+	 */
+	public SimpleBrokerRegistration setDispatchLaneCount(int dispatchLaneCount) {
+		this.dispatchLaneCount = dispatchLaneCount;
+		return this;
+	}
+
+	/**
+	 * Configure the maximum number of messages waiting to be sent in each
+	 * dispatch lane, beyond which messages are dropped.
+	 * <p>By default this is set to 10000.
+	 * @since 5.2
+	 * @see SimpleBrokerMessageHandler#setDispatchLaneCapacity
+	 */
+	public SimpleBrokerRegistration setDispatchLaneCapacity(int dispatchLaneCapacity) {
+		this.dispatchLaneCapacity = dispatchLaneCapacity;
+		return this;
+	}
+
 
 	@Override
 	protected SimpleBrokerMessageHandler getMessageHandler(SubscribableChannel brokerChannel) {
@@ -101,6 +149,15 @@ public class SimpleBrokerRegistration extends AbstractBrokerRegistration {
 			handler.setHeartbeatValue(this.heartbeat);
 		}
 		handler.setSelectorHeaderName(this.selectorHeaderName);
+		if (this.dispatchExecutor != null) {
+			handler.setDispatchExecutor(this.dispatchExecutor);
+		}
+		if (this.dispatchLaneCount != null) {
+			handler.setDispatchLaneCount(this.dispatchLaneCount);
+		}
+		if (this.dispatchLaneCapacity != null) {
+			handler.setDispatchLaneCapacity(this.dispatchLaneCapacity);
+		}
 		return handler;
 	}
 
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,11 +16,10 @@
 
 package org.springframework.messaging.simp.stomp;
 
+import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.List;
-import java.util.Queue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 import org.springframework.lang.Nullable;
 import org.springframework.messaging.Message;
@@ -36,6 +35,12 @@ import org.springframework.util.MultiValueMap;
  * data, the decode method returns one or more messages or, if there is not
  * enough data still, continues to buffer.
  *
+ * <p>Incomplete content is accumulated in a single buffer to which new data
+ * is appended, and a new attempt to decode is made only once the data
+ * received could complete a frame, i.e. once it contains the null octet that
+ * terminates every STOMP frame and satisfies the "content-length", if known.
+ * Data received while nothing is buffered is decoded in place.
+ *
  * <p>A single instance of this decoder can be invoked repeatedly to read all
  * messages from a single stream (e.g. WebSocket session) as long as decoding
  * does not fail. If there is an exception, StompDecoder instance should not
@@ -52,7 +57,11 @@ public class BufferingStompDecoder {
 
 	private final int bufferSizeLimit;
 
-	private final Queue<ByteBuffer> chunks = new LinkedBlockingQueue<>();
+	private static final int MIN_BUFFER_CAPACITY = 1024;
+
+
+	@Nullable
+	private volatile ByteBuffer buffer;
 
 	@Nullable
 	private volatile Integer expectedContentLength;
@@ -101,65 +110,107 @@ public class BufferingStompDecoder {
 	 * @throws StompConversionException raised in case of decoding issues
 	 */
 	public List<Message<byte[]>> decode(ByteBuffer newBuffer) {
-		this.chunks.add(newBuffer);
-		checkBufferLimits();
+		checkBufferLimits(getBufferSize() + newBuffer.remaining());
 
-		Integer contentLength = this.expectedContentLength;
-		if (contentLength != null && getBufferSize() < contentLength) {
-			return Collections.emptyList();
+		ByteBuffer bufferToDecode = this.buffer;
+		if (bufferToDecode == null) {
+			bufferToDecode = newBuffer;
+		}
+		else {
+			boolean frameEndReceived = containsNullOctet(newBuffer);
+			bufferToDecode = append(bufferToDecode, newBuffer);
+			Integer contentLength = this.expectedContentLength;
+			if (!frameEndReceived || (contentLength != null && bufferToDecode.remaining() < contentLength)) {
+				return Collections.emptyList();
+			}
 		}
 
-		ByteBuffer bufferToDecode = assembleChunksAndReset();
 		MultiValueMap<String, String> headers = new LinkedMultiValueMap<>();
 		List<Message<byte[]>> messages = this.stompDecoder.decode(bufferToDecode, headers);
 
 		if (bufferToDecode.hasRemaining()) {
-			this.chunks.add(bufferToDecode);
+			if (bufferToDecode == newBuffer) {
+				bufferToDecode = copy(newBuffer);
+			}
+			this.buffer = bufferToDecode;
 			this.expectedContentLength = StompHeaderAccessor.getContentLength(headers);
 		}
-
-		return messages;
-	}
-
-	private ByteBuffer assembleChunksAndReset() {
-		ByteBuffer result;
-		if (this.chunks.size() == 1) {
-			result = this.chunks.remove();
-		}
 		else {
-			result = ByteBuffer.allocate(getBufferSize());
-			for (ByteBuffer partial : this.chunks) {
-				result.put(partial);
-			}
-			result.flip();
+			this.buffer = null;
+			this.expectedContentLength = null;
 		}
-		this.chunks.clear();
-		this.expectedContentLength = null;
-		return result;
+
+		return messages;
 	}
 
-	private void checkBufferLimits() {
+	private void checkBufferLimits(int bufferSize) {
 		Integer contentLength = this.expectedContentLength;
 		if (contentLength != null && contentLength > this.bufferSizeLimit) {
 			throw new StompConversionException(
 					"STOMP 'content-length' header value " + this.expectedContentLength +
 					"  exceeds configured buffer size limit " + this.bufferSizeLimit);
 		}
-		if (getBufferSize() > this.bufferSizeLimit) {
+		if (bufferSize > this.bufferSizeLimit) {
 			throw new StompConversionException("The configured STOMP buffer size limit of " +
 					this.bufferSizeLimit + " bytes has been exceeded");
 		}
 	}
 
+	private static boolean containsNullOctet(ByteBuffer byteBuffer) {
+		for (int i = byteBuffer.position(); i < byteBuffer.limit(); i++) {
+			if (byteBuffer.get(i) == 0) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Copy the remaining content of the given buffer, leaving room for more.
+	 */
+	private ByteBuffer copy(ByteBuffer source) {
+		int capacity = Math.min(Math.max(source.remaining() * 2, MIN_BUFFER_CAPACITY), this.bufferSizeLimit);
+		ByteBuffer target = ByteBuffer.allocate(Math.max(capacity, source.remaining()));
+		target.put(source);
+		((Buffer) target).flip();
+		return target;
+	}
+
+	/**
+	 * Append the remaining content of the new buffer to the given buffer,
+	 * compacting or growing the latter as necessary.
+	 * @return the buffer with the combined content, ready to be read
+	 */
+	private ByteBuffer append(ByteBuffer target, ByteBuffer newBuffer) {
+		int required = target.remaining() + newBuffer.remaining();
+		if (target.capacity() - target.limit() < newBuffer.remaining()) {
+			if (target.capacity() >= required) {
+				target.compact();
+				((Buffer) target).flip();
+			}
+			else {
+				ByteBuffer grown = ByteBuffer.allocate(Math.max(required, target.capacity() * 2));
+				grown.put(target);
+				((Buffer) grown).flip();
+				target = grown;
+			}
+		}
+		int position = target.position();
+		((Buffer) target).position(target.limit());
+		((Buffer) target).limit(target.capacity());
+		target.put(newBuffer);
+		((Buffer) target).limit(target.position());
+		((Buffer) target).position(position);
+		this.buffer = target;
+		return target;
+	}
+
 	/**
 	 * Calculate the current buffer size.
 	 */
 	public int getBufferSize() {
-		int size = 0;
-		for (ByteBuffer buffer : this.chunks) {
-			size = size + buffer.remaining();
-		}
-		return size;
+		ByteBuffer buffer = this.buffer;
+		return (buffer != null ? buffer.remaining() : 0);
 	}
 
 	/**
@@ -16,7 +16,6 @@
 
 package org.springframework.messaging.simp.stomp;
 
-import java.io.ByteArrayOutputStream;
 import java.nio.Buffer;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
@@ -43,6 +42,10 @@ import org.springframework.util.MultiValueMap;
  * partial content. The caller is then responsible for dealing with that
  * incomplete content by buffering until there is more input available.
  *
+ * <p>Frames are parsed in place, without intermediate copies of header lines:
+ * commands and well-known header names are resolved to shared constants, and
+ * each frame body is copied out of the buffer once.
+ *
  * @author Andy Wilkinson
  * @author Rossen Stoyanchev
  * @since 4.0
@@ -51,6 +54,20 @@ public class StompDecoder {
 
 	static final byte[] HEARTBEAT_PAYLOAD = new byte[] {'\n'};
 
+	private static final StompCommand[] COMMANDS = StompCommand.values();
+
+	private static final String[] HEADER_NAMES = new String[] {
+			StompHeaderAccessor.STOMP_ID_HEADER, StompHeaderAccessor.STOMP_HOST_HEADER,
+			StompHeaderAccessor.STOMP_ACCEPT_VERSION_HEADER, StompHeaderAccessor.STOMP_MESSAGE_ID_HEADER,
+			StompHeaderAccessor.STOMP_RECEIPT_HEADER, StompHeaderAccessor.STOMP_RECEIPT_ID_HEADER,
+			StompHeaderAccessor.STOMP_SUBSCRIPTION_HEADER, StompHeaderAccessor.STOMP_VERSION_HEADER,
+			StompHeaderAccessor.STOMP_MESSAGE_HEADER, StompHeaderAccessor.STOMP_ACK_HEADER,
+			StompHeaderAccessor.STOMP_NACK_HEADER, StompHeaderAccessor.STOMP_LOGIN_HEADER,
+			StompHeaderAccessor.STOMP_PASSCODE_HEADER, StompHeaderAccessor.STOMP_DESTINATION_HEADER,
+			StompHeaderAccessor.STOMP_CONTENT_TYPE_HEADER, StompHeaderAccessor.STOMP_CONTENT_LENGTH_HEADER,
+			StompHeaderAccessor.STOMP_HEARTBEAT_HEADER, StompHeaders.SESSION, StompHeaders.SERVER,
+			"transaction"};
+
 	private static final Log logger = SimpLogging.forLogName(StompDecoder.class);
 
 	@Nullable
@@ -135,12 +152,13 @@ public class StompDecoder {
 		Buffer buffer = byteBuffer;
 		buffer.mark();
 
-		String command = readCommand(byteBuffer);
-		if (command.length() > 0) {
+		int commandStart = byteBuffer.position();
+		int commandEnd = readLine(byteBuffer);
+		if (byteBuffer.position() > commandStart) {
 			StompHeaderAccessor headerAccessor = null;
 			byte[] payload = null;
 			if (byteBuffer.remaining() > 0) {
-				StompCommand stompCommand = StompCommand.valueOf(command);
+				StompCommand stompCommand = resolveCommand(byteBuffer, commandStart, commandEnd);
 				headerAccessor = StompHeaderAccessor.create(stompCommand);
 				initHeaders(headerAccessor);
 				readHeaders(byteBuffer, headerAccessor);
@@ -206,37 +224,50 @@ public class StompDecoder {
 		}
 	}
 
-	private String readCommand(ByteBuffer byteBuffer) {
-		ByteArrayOutputStream command = new ByteArrayOutputStream(256);
-		while (byteBuffer.remaining() > 0 && !tryConsumeEndOfLine(byteBuffer)) {
-			command.write(byteBuffer.get());
+	/**
+	 * Advance the buffer past the next EOL, returning the index at which the
+	 * EOL starts, or advance to the end of the buffer and return -1 if no EOL
+	 * is found.
+	 */
+	private int readLine(ByteBuffer byteBuffer) {
+		int limit = byteBuffer.limit();
+		for (int i = byteBuffer.position(); i < limit; i++) {
+			byte b = byteBuffer.get(i);
+			if (b == '\n' || b == '\r') {
+				((Buffer) byteBuffer).position(i);
+				tryConsumeEndOfLine(byteBuffer);
+				return i;
+			}
+		}
+		((Buffer) byteBuffer).position(limit);
+		return -1;
+	}
+
+	private StompCommand resolveCommand(ByteBuffer byteBuffer, int start, int end) {
+		for (StompCommand command : COMMANDS) {
+			if (matches(byteBuffer, start, end, command.name())) {
+				return command;
+			}
 		}
-		return new String(command.toByteArray(), StandardCharsets.UTF_8);
+		return StompCommand.valueOf(decodeString(byteBuffer, start, end));
 	}
 
 	private void readHeaders(ByteBuffer byteBuffer, StompHeaderAccessor headerAccessor) {
 		while (true) {
-			ByteArrayOutputStream headerStream = new ByteArrayOutputStream(256);
-			boolean headerComplete = false;
-			while (byteBuffer.hasRemaining()) {
-				if (tryConsumeEndOfLine(byteBuffer)) {
-					headerComplete = true;
-					break;
-				}
-				headerStream.write(byteBuffer.get());
-			}
-			if (headerStream.size() > 0 && headerComplete) {
-				String header = new String(headerStream.toByteArray(), StandardCharsets.UTF_8);
-				int colonIndex = header.indexOf(':');
-				if (colonIndex <= 0) {
+			int headerStart = byteBuffer.position();
+			int headerEnd = readLine(byteBuffer);
+			if (headerEnd > headerStart) {
+				int colonIndex = indexOf(byteBuffer, headerStart, headerEnd, (byte) ':');
+				if (colonIndex <= headerStart) {
 					if (byteBuffer.remaining() > 0) {
+						String header = decodeString(byteBuffer, headerStart, headerEnd);
 						throw new StompConversionException("Illegal header: '" + header +
 								"'. A header must be of the form <name>:[<value>].");
 					}
 				}
 				else {
-					String headerName = unescape(header.substring(0, colonIndex));
-					String headerValue = unescape(header.substring(colonIndex + 1));
+					String headerName = resolveHeaderName(byteBuffer, headerStart, colonIndex);
+					String headerValue = unescape(decodeString(byteBuffer, colonIndex + 1, headerEnd));
 					try {
 						headerAccessor.addNativeHeader(headerName, headerValue);
 					}
@@ -253,14 +284,58 @@ public class StompDecoder {
 		}
 	}
 
+	private String resolveHeaderName(ByteBuffer byteBuffer, int start, int end) {
+		for (String headerName : HEADER_NAMES) {
+			if (matches(byteBuffer, start, end, headerName)) {
+				return headerName;
+			}
+		}
+		return unescape(decodeString(byteBuffer, start, end));
+	}
+
+	private static boolean matches(ByteBuffer byteBuffer, int start, int end, String value) {
+		if (end - start != value.length()) {
+			return false;
+		}
+		for (int i = 0; i < value.length(); i++) {
+			if (byteBuffer.get(start + i) != value.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int indexOf(ByteBuffer byteBuffer, int start, int end, byte value) {
+		for (int i = start; i < end; i++) {
+			if (byteBuffer.get(i) == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	private static String decodeString(ByteBuffer byteBuffer, int start, int end) {
+		if (byteBuffer.hasArray()) {
+			return new String(byteBuffer.array(), byteBuffer.arrayOffset() + start, end - start, StandardCharsets.UTF_8);
+		}
+		byte[] bytes = new byte[end - start];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = byteBuffer.get(start + i);
+		}
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
 	/**
 	 * See STOMP Spec 1.2:
 	 * <a href="https://stomp.github.io/stomp-specification-1.2.html#Value_Encoding">"Value Encoding"</a>.
 	 */
 	private String unescape(String inString) {
+		int index = inString.indexOf('\\');
+		if (index == -1) {
+			return inString;
+		}
 		StringBuilder sb = new StringBuilder(inString.length());
 		int pos = 0;  // position in the old string
-		int index = inString.indexOf('\\');
 
 		while (index >= 0) {
 			sb.append(inString.substring(pos, index));
@@ -319,16 +394,14 @@ public class StompDecoder {
 			}
 		}
 		else {
-			ByteArrayOutputStream payload = new ByteArrayOutputStream(256);
-			while (byteBuffer.remaining() > 0) {
-				byte b = byteBuffer.get();
-				if (b == 0) {
-					return payload.toByteArray();
-				}
-				else {
-					payload.write(b);
-				}
+			int index = indexOf(byteBuffer, byteBuffer.position(), byteBuffer.limit(), (byte) 0);
+			if (index != -1) {
+				byte[] payload = new byte[index - byteBuffer.position()];
+				byteBuffer.get(payload);
+				byteBuffer.get();
+				return payload;
 			}
+			((Buffer) byteBuffer).position(byteBuffer.limit());
 		}
 		return null;
 	}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2015 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,11 +16,13 @@
 
 package org.springframework.messaging.simp.broker;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 import org.junit.Test;
 
@@ -28,10 +30,12 @@ import org.springframework.messaging.Message;
 import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
 import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.MultiValueMap;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 /**
  * Test fixture for
@@ -439,6 +443,146 @@ public class DefaultSubscriptionRegistryTests {
 		assertEquals(2, this.registry.findSubscriptions(createMessage("/bar")).size());
 	}
 
+	@Test
+	public void findSubscriptionsWithWildcardPatterns() {
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "/topic/**"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "2", "/topic/*/quotes"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "3", "/topic/**/quotes"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "4", "/topic/st?ck/*"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "5", "/topic/stock/quotes"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "6", "/topic/*"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "7", "/queue/**"));
+
+		assertSubscriptions("/topic/stock/quotes", "1", "2", "3", "4", "5");
+		assertSubscriptions("/topic/stock/trades", "1", "4");
+		assertSubscriptions("/topic/a/b/c/quotes", "1", "3");
+		assertSubscriptions("/topic/quotes", "1", "3", "6");
+		assertSubscriptions("/topic/", "1", "6");
+		assertSubscriptions("/topic", "1");
+		assertSubscriptions("topic/quotes");
+		assertSubscriptions("/other/quotes");
+	}
+
+	@Test
+	public void findSubscriptionsWithCustomPathSeparator() {
+		this.registry.setPathMatcher(new AntPathMatcher("."));
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "price.stock.*"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "2", "price.**"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "3", "price.stock.{ticker:(IBM|MSFT)}"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "4", "/price/stock/IBM"));
+
+		assertSubscriptions("price.stock.IBM", "1", "2", "3");
+		assertSubscriptions("price.stock.VMW", "1", "2");
+		assertSubscriptions("price.bond.IBM", "2");
+		assertSubscriptions("/price/stock/IBM", "4");
+	}
+
+	@Test
+	public void findSubscriptionsWithCaseInsensitivePathMatcher() {
+		AntPathMatcher pathMatcher = new AntPathMatcher();
+		pathMatcher.setCaseSensitive(false);
+		this.registry.setPathMatcher(pathMatcher);
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "/topic/Stock"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "2", "/TOPIC/*"));
+
+		assertSubscriptions("/topic/stock", "1", "2");
+	}
+
+	@Test
+	public void findSubscriptionsWithCustomPathMatcher() {
+		this.registry.setPathMatcher(new AntPathMatcher() {
+			@Override
+			public boolean match(String pattern, String path) {
+				return super.match(pattern.toLowerCase(), path.toLowerCase());
+			}
+		});
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "/topic/Stock"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "2", "/topic/*"));
+
+		assertSubscriptions("/TOPIC/STOCK", "1", "2");
+	}
+
+	@Test
+	public void setPathMatcherAfterRegistration() {
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "price.stock.*"));
+		this.registry.registerSubscription(subscribeMessage("sess1", "2", "price.*"));
+		assertSubscriptions("price.stock.IBM", "1", "2");
+
+		this.registry.setPathMatcher(new AntPathMatcher("."));
+		assertSubscriptions("price.stock.IBM", "1");
+		assertSubscriptions("price.stock", "2");
+	}
+
+	@Test
+	public void unregisterSubscriptionsFromIndex() {
+		for (int i = 0; i < 100; i++) {
+			this.registry.registerSubscription(subscribeMessage("sess1", "s" + i, "/topic/" + i + "/**"));
+			this.registry.registerSubscription(subscribeMessage("sess2", "s" + i, "/topic/" + i));
+		}
+		assertSubscriptions("/topic/42", "s42", "s42");
+
+		for (int i = 0; i < 100; i++) {
+			this.registry.unregisterSubscription(unsubscribeMessage("sess1", "s" + i));
+		}
+		assertSubscriptions("/topic/42", "s42");
+		this.registry.unregisterAllSubscriptions("sess2");
+		assertSubscriptions("/topic/42");
+		assertTrue(this.registry.toString().contains("index[0 destination(s)]"));
+	}
+
+	@Test
+	public void subscriptionChangeEvictsMatchingCachedDestinationsOnly() {
+		this.registry.registerSubscription(subscribeMessage("sess1", "1", "/topic/stock/*"));
+		assertSubscriptions("/topic/stock/IBM", "1");
+		assertSubscriptions("/topic/bond/T10");
+		assertSubscriptions("/queue/orders");
+		assertTrue(this.registry.toString().contains("cache[3 destination(s)]"));
+
+		this.registry.registerSubscription(subscribeMessage("sess2", "2", "/topic/**"));
+		assertTrue(this.registry.toString().contains("cache[1 destination(s)]"));
+		assertSubscriptions("/topic/stock/IBM", "1", "2");
+		assertSubscriptions("/topic/bond/T10", "2");
+
+		this.registry.unregisterSubscription(unsubscribeMessage("sess1", "1"));
+		assertTrue(this.registry.toString().contains("cache[2 destination(s)]"));
+		assertSubscriptions("/topic/stock/IBM", "2");
+
+		this.registry.unregisterAllSubscriptions("sess2");
+		assertTrue(this.registry.toString().contains("cache[1 destination(s)]"));
+		assertSubscriptions("/topic/stock/IBM");
+		assertSubscriptions("/topic/bond/T10");
+	}
+
+	@Test
+	public void findSubscriptionsNotCachedWhenChangedDuringResolution() {
+		DefaultSubscriptionRegistry registry = this.registry;
+		List<String> matchedPatterns = new ArrayList<>();
+		registry.setPathMatcher(new AntPathMatcher() {
+			@Override
+			public boolean match(String pattern, String path) {
+				matchedPatterns.add(pattern);
+				if (matchedPatterns.size() == 2) {
+					// Remove the subscription already collected for the first pattern
+					registry.unregisterSubscription(unsubscribeMessage("sess1", matchedPatterns.get(0)));
+				}
+				return super.match(pattern, path);
+			}
+		});
+		registry.registerSubscription(subscribeMessage("sess1", "/topic/*", "/topic/*"));
+		registry.registerSubscription(subscribeMessage("sess1", "/topic/**", "/topic/**"));
+
+		assertEquals(2, registry.findSubscriptions(createMessage("/topic/a")).get("sess1").size());
+		assertEquals(1, registry.findSubscriptions(createMessage("/topic/a")).get("sess1").size());
+	}
+
+	private void assertSubscriptions(String destination, String... subscriptionIds) {
+		MultiValueMap<String, String> actual = this.registry.findSubscriptions(createMessage(destination));
+		assertNotNull(actual);
+		List<String> actualIds = actual.values().stream()
+				.flatMap(List::stream).sorted().collect(Collectors.toList());
+		assertEquals(destination, Arrays.asList(subscriptionIds), actualIds);
+	}
+
 	private Message<?> createMessage(String destination) {
 		SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create();
 		accessor.setDestination(destination);
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,9 +17,18 @@
 package org.springframework.messaging.simp.broker;
 
 import java.security.Principal;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -101,6 +110,103 @@ public class SimpleBrokerMessageHandlerTests {
 		assertTrue(messageCaptured("sess2", "sub3", "/bar"));
 	}
 
+	@Test
+	public void subscribePublishWithDispatchExecutor() {
+		this.messageHandler.setDispatchExecutor(Runnable::run);
+		this.messageHandler.setDispatchLaneCount(3);
+		subscribePublish();
+	}
+
+	@Test
+	public void dispatchLanesPreserveOrderPerSession() throws Exception {
+		int sessionCount = 20;
+		int messageCount = 200;
+		CountDownLatch latch = new CountDownLatch(sessionCount * messageCount);
+		Map<String, List<String>> received = new ConcurrentHashMap<>();
+		MessageChannel outChannel = (message, timeout) -> {
+			SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+			if (SimpMessageType.MESSAGE.equals(accessor.getMessageType())) {
+				received.computeIfAbsent(accessor.getSessionId(), id -> new ArrayList<>()).add((String) message.getPayload());
+				latch.countDown();
+			}
+			return true;
+		};
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			this.messageHandler = new SimpleBrokerMessageHandler(
+					this.clientInChannel, outChannel, this.brokerChannel, Collections.emptyList());
+			this.messageHandler.setDispatchExecutor(executor);
+			this.messageHandler.setDispatchLaneCount(4);
+			this.messageHandler.start();
+
+			for (int i = 0; i < sessionCount; i++) {
+				this.messageHandler.handleMessage(createConnectMessage("sess" + i, new TestPrincipal("joe"), null));
+				this.messageHandler.handleMessage(createSubscriptionMessage("sess" + i, "sub1", "/foo"));
+			}
+			for (int i = 0; i < messageCount; i++) {
+				this.messageHandler.handleMessage(createMessage("/foo", "message" + i));
+			}
+
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+			assertEquals(sessionCount, received.size());
+			for (List<String> payloads : received.values()) {
+				for (int i = 0; i < messageCount; i++) {
+					assertEquals("message" + i, payloads.get(i));
+				}
+			}
+		}
+		finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void disconnectWithMessagesPendingInDispatchLane() {
+		Queue<Runnable> executorTasks = new LinkedList<>();
+		this.messageHandler.setDispatchExecutor(executorTasks::add);
+		this.messageHandler.setDispatchLaneCount(1);
+		this.messageHandler.start();
+		this.messageHandler.handleMessage(createConnectMessage("sess1", new TestPrincipal("joe"), null));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub1", "/foo"));
+		this.messageHandler.handleMessage(createMessage("/foo", "message1"));
+
+		SimpMessageHeaderAccessor headers = SimpMessageHeaderAccessor.create(SimpMessageType.DISCONNECT);
+		headers.setSessionId("sess1");
+		this.messageHandler.handleMessage(MessageBuilder.createMessage("", headers.getMessageHeaders()));
+		this.messageHandler.handleMessage(createMessage("/foo", "message2"));
+		runTasks(executorTasks);
+
+		verify(this.clientOutChannel, times(3)).send(this.messageCaptor.capture());
+		List<Message<?>> messages = this.messageCaptor.getAllValues();
+		assertEquals(SimpMessageType.CONNECT_ACK, SimpMessageHeaderAccessor.getMessageType(messages.get(0).getHeaders()));
+		assertEquals("message1", messages.get(1).getPayload());
+		assertEquals(SimpMessageType.DISCONNECT_ACK, SimpMessageHeaderAccessor.getMessageType(messages.get(2).getHeaders()));
+	}
+
+	@Test
+	public void dispatchLaneCapacityExceeded() {
+		Queue<Runnable> executorTasks = new LinkedList<>();
+		this.messageHandler.setDispatchExecutor(executorTasks::add);
+		this.messageHandler.setDispatchLaneCount(1);
+		this.messageHandler.setDispatchLaneCapacity(3);
+		this.messageHandler.start();
+		this.messageHandler.handleMessage(createConnectMessage("sess1", new TestPrincipal("joe"), null));
+		this.messageHandler.handleMessage(createSubscriptionMessage("sess1", "sub1", "/foo"));
+		for (int i = 0; i < 5; i++) {
+			this.messageHandler.handleMessage(createMessage("/foo", "message" + i));
+		}
+		runTasks(executorTasks);
+		this.messageHandler.handleMessage(createMessage("/foo", "message5"));
+		runTasks(executorTasks);
+
+		verify(this.clientOutChannel, times(4)).send(this.messageCaptor.capture());
+		List<Message<?>> messages = this.messageCaptor.getAllValues();
+		assertEquals("message0", messages.get(1).getPayload());
+		assertEquals("message1", messages.get(2).getPayload());
+		assertEquals("message5", messages.get(3).getPayload());
+	}
+
 	@Test
 	public void subscribeDisconnectPublish() {
 		String sess1 = "sess1";
@@ -287,6 +393,13 @@ public class SimpleBrokerMessageHandlerTests {
 	}
 
 
+	private static void runTasks(Queue<Runnable> tasks) {
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			task.run();
+		}
+	}
+
 	private Message<String> startSession(String id) {
 		this.messageHandler.start();
 
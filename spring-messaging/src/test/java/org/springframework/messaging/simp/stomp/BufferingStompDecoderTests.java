@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2017 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,12 +18,15 @@ package org.springframework.messaging.simp.stomp;
 
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 
 import org.junit.Test;
 
 import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
@@ -163,6 +166,38 @@ public class BufferingStompDecoderTests {
 		}
 	}
 
+	@Test
+	public void messagesInSingleByteChunks() {
+		BufferingStompDecoder stompDecoder = new BufferingStompDecoder(STOMP_DECODER, 128);
+		String content = "SEND\na:alpha\n\nPayload1\0" + "SEND\ncontent-length:10\n\nPayload\0\0\0\0" + "\n";
+		byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+
+		List<Message<byte[]>> messages = new ArrayList<>();
+		for (byte b : bytes) {
+			messages.addAll(stompDecoder.decode(ByteBuffer.wrap(new byte[] {b})));
+		}
+
+		assertEquals(3, messages.size());
+		assertEquals("Payload1", new String(messages.get(0).getPayload()));
+		assertEquals("Payload\0\0\0", new String(messages.get(1).getPayload()));
+		assertEquals(SimpMessageType.HEARTBEAT, SimpMessageHeaderAccessor.getMessageType(messages.get(2).getHeaders()));
+		assertEquals(0, stompDecoder.getBufferSize());
+		assertNull(stompDecoder.getExpectedContentLength());
+	}
+
+	@Test
+	public void partialContentNotRetainedFromInput() {
+		BufferingStompDecoder stompDecoder = new BufferingStompDecoder(STOMP_DECODER, 128);
+		byte[] chunk = "SEND\na:alpha\n\nPay".getBytes(StandardCharsets.UTF_8);
+
+		assertEquals(0, stompDecoder.decode(ByteBuffer.wrap(chunk)).size());
+		chunk[chunk.length - 1] = 'X';
+
+		List<Message<byte[]>> messages = stompDecoder.decode(toByteBuffer("load\0"));
+		assertEquals(1, messages.size());
+		assertEquals("Payload", new String(messages.get(0).getPayload()));
+	}
+
 	@Test(expected = StompConversionException.class)
 	public void bufferSizeLimit() {
 		BufferingStompDecoder stompDecoder = new BufferingStompDecoder(STOMP_DECODER, 10);
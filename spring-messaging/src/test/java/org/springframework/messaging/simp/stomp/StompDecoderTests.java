@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2016 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.messaging.simp.stomp;
 
 import java.io.UnsupportedEncodingException;
 import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 
 import org.junit.Test;
@@ -28,6 +29,7 @@ import org.springframework.util.InvalidMimeTypeException;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 /**
  * Test fixture for {@link StompDecoder}.
@@ -178,6 +180,36 @@ public class StompDecoderTests {
 		assertEquals(StompCommand.DISCONNECT, StompHeaderAccessor.wrap(messages.get(1)).getCommand());
 	}
 
+	@Test
+	public void decodeFrameFromDirectBuffer() {
+		byte[] bytes = "SEND\ndestination:/topic/\u00e9t\u00e9\nfoo:bar\n\nThe body\0".getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+		buffer.put(bytes);
+		buffer.flip();
+
+		Message<byte[]> frame = decode(buffer);
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(frame);
+
+		assertEquals(StompCommand.SEND, headers.getCommand());
+		assertEquals("/topic/\u00e9t\u00e9", headers.getDestination());
+		assertEquals("bar", headers.getFirstNativeHeader("foo"));
+		assertEquals("The body", new String(frame.getPayload(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void decodeFrameWithWellKnownHeaderNames() {
+		Message<byte[]> frame = decode("SEND\ndestination:/topic/test\ncontent-type:text/plain\n\nThe body\0");
+		StompHeaderAccessor headers = StompHeaderAccessor.wrap(frame);
+
+		String name = headers.toNativeHeaderMap().keySet().iterator().next();
+		assertSame(StompHeaderAccessor.STOMP_DESTINATION_HEADER, name);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void decodeFrameWithUnknownCommand() {
+		decode("SENDX\ndestination:/topic/test\n\nThe body\0");
+	}
+
 	// SPR-13111
 
 	@Test
@@ -43,7 +43,7 @@ import org.springframework.lang.Nullable;
  * @see org.springframework.transaction.interceptor.TransactionInterceptor
  * @see org.springframework.transaction.interceptor.TransactionProxyFactoryBean
  */
-public interface PlatformTransactionManager {
+public interface PlatformTransactionManager extends TransactionManager {
 
 	/**
 	 * Return a currently active transaction or create a new one, according to
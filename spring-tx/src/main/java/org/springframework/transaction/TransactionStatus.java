@@ -36,7 +36,7 @@ import java.io.Flushable;
  * @see org.springframework.transaction.support.TransactionCallback#doInTransaction
  * @see org.springframework.transaction.interceptor.TransactionInterceptor#currentTransactionStatus()
  */
-public interface TransactionStatus extends SavepointManager, Flushable {
+public interface TransactionStatus extends TransactionExecution, SavepointManager, Flushable {
 
 	/**
 	 * Return whether the present transaction is new; otherwise participating
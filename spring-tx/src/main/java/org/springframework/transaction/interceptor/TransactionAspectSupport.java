@@ -23,21 +23,32 @@ import java.util.concurrent.ConcurrentMap;
 import io.vavr.control.Try;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import org.springframework.beans.factory.BeanFactory;
 import org.springframework.beans.factory.BeanFactoryAware;
 import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ListableBeanFactory;
+import org.springframework.beans.factory.NoSuchBeanDefinitionException;
 import org.springframework.beans.factory.annotation.BeanFactoryAnnotationUtils;
 import org.springframework.core.NamedThreadLocal;
+import org.springframework.core.ReactiveAdapter;
+import org.springframework.core.ReactiveAdapterRegistry;
 import org.springframework.lang.Nullable;
 import org.springframework.transaction.NoTransactionException;
 import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.ReactiveTransaction;
+import org.springframework.transaction.ReactiveTransactionManager;
 import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.reactive.TransactionContextManager;
 import org.springframework.transaction.support.CallbackPreferringPlatformTransactionManager;
 import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.ConcurrentReferenceHashMap;
+import org.springframework.util.ObjectUtils;
 import org.springframework.util.StringUtils;
 
 /**
@@ -57,6 +68,14 @@ import org.springframework.util.StringUtils;
  * implementation will perform the actual transaction management, and a
  * {@code TransactionAttributeSource} is used for determining transaction definitions.
  *
+ * <p>Methods returning a reactive type known to the {@link ReactiveAdapterRegistry}
+ * (e.g. {@code Mono} or {@code Flux}) are demarcated through a
+ * {@link ReactiveTransactionManager} if one can be determined: the transaction
+ * then spans the subscription to the returned publisher rather than the method
+ * call, with transactional state carried in the Reactor subscriber context.
+ * Such methods fall back to regular {@code PlatformTransactionManager} handling
+ * if no reactive transaction manager is available.
+ *
  * <p>A transaction aspect is serializable if its {@code PlatformTransactionManager}
  * and {@code TransactionAttributeSource} are serializable.
  *
@@ -86,6 +105,12 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	private static final boolean vavrPresent = ClassUtils.isPresent(
 			"io.vavr.control.Try", TransactionAspectSupport.class.getClassLoader());
 
+	/**
+	 * Reactor library present on the classpath?
+	 */
+	private static final boolean reactorPresent = ClassUtils.isPresent(
+			"reactor.core.publisher.Flux", TransactionAspectSupport.class.getClassLoader());
+
 	/**
 	 * Holder to support the {@code currentTransactionStatus()} method,
 	 * and to support communication between different cooperating advices
@@ -142,6 +167,9 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	@Nullable
 	private PlatformTransactionManager transactionManager;
 
+	@Nullable
+	private ReactiveTransactionManager reactiveTransactionManager;
+
 	@Nullable
 	private TransactionAttributeSource transactionAttributeSource;
 
@@ -151,6 +179,17 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	private final ConcurrentMap<Object, PlatformTransactionManager> transactionManagerCache =
 			new ConcurrentReferenceHashMap<>(4);
 
+	private final ConcurrentMap<Object, ReactiveTransactionManager> reactiveTransactionManagerCache =
+			new ConcurrentReferenceHashMap<>(4);
+
+	@Nullable
+	private final ReactiveAdapterRegistry reactiveAdapterRegistry;
+
+
+	protected TransactionAspectSupport() {
+		this.reactiveAdapterRegistry = (reactorPresent ? ReactiveAdapterRegistry.getSharedInstance() : null);
+	}
+
 
 	/**
 	 * Specify the name of the default transaction manager bean.
@@ -186,6 +225,29 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		return this.transactionManager;
 	}
 
+	/**
+	 * Specify the <em>default</em> reactive transaction manager to use to drive
+	 * transactions for methods returning a reactive type such as {@code Mono}
+	 * or {@code Flux}.
+	 * <p>If not specified, a {@code ReactiveTransactionManager} bean will be
+	 * looked up by qualifier, by the {@link #setTransactionManagerBeanName
+	 * transaction manager bean name}, or by type in the BeanFactory.
+	 * @since 5.2
+	 * @see #setTransactionManager
+	 */
+	public void setReactiveTransactionManager(@Nullable ReactiveTransactionManager reactiveTransactionManager) {
+		this.reactiveTransactionManager = reactiveTransactionManager;
+	}
+
+	/**
+	 * Return the default reactive transaction manager, or {@code null} if unknown.
+	 * @since 5.2
+	 */
+	@Nullable
+	public ReactiveTransactionManager getReactiveTransactionManager() {
+		return this.reactiveTransactionManager;
+	}
+
 	/**
 	 * Set properties with method names as keys and transaction attribute
 	 * descriptors (parsed via TransactionAttributeEditor) as values:
@@ -258,7 +320,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	@Override
 	public void afterPropertiesSet() {
-		if (getTransactionManager() == null && this.beanFactory == null) {
+		if (getTransactionManager() == null && getReactiveTransactionManager() == null && this.beanFactory == null) {
 			throw new IllegalStateException(
 					"Set the 'transactionManager' property or make sure to run within a BeanFactory " +
 					"containing a PlatformTransactionManager bean!");
@@ -288,6 +350,18 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		// If the transaction attribute is null, the method is non-transactional.
 		TransactionAttributeSource tas = getTransactionAttributeSource();
 		final TransactionAttribute txAttr = (tas != null ? tas.getTransactionAttribute(method, targetClass) : null);
+
+		if (txAttr != null && this.reactiveAdapterRegistry != null) {
+			ReactiveAdapter adapter = this.reactiveAdapterRegistry.getAdapter(method.getReturnType());
+			if (adapter != null) {
+				ReactiveTransactionManager rtm = determineReactiveTransactionManager(txAttr);
+				if (rtm != null) {
+					return new ReactiveTransactionSupport(adapter).invokeWithinTransaction(
+							method, targetClass, invocation, txAttr, rtm);
+				}
+			}
+		}
+
 		final PlatformTransactionManager tm = determineTransactionManager(txAttr);
 		final String joinpointIdentification = methodIdentification(method, targetClass, txAttr);
 
@@ -388,6 +462,7 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	 */
 	protected void clearTransactionManagerCache() {
 		this.transactionManagerCache.clear();
+		this.reactiveTransactionManagerCache.clear();
 		this.beanFactory = null;
 	}
 
@@ -432,6 +507,64 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 		return txManager;
 	}
 
+	/**
+	 * Determine the specific reactive transaction manager to use for the given
+	 * transaction, or {@code null} if none is available, in which case the
+	 * invocation is handled through {@link #determineTransactionManager}.
+	 * @since 5.2
+	 */
+	@Nullable
+	protected ReactiveTransactionManager determineReactiveTransactionManager(TransactionAttribute txAttr) {
+		String qualifier = txAttr.getQualifier();
+		if (this.beanFactory != null && StringUtils.hasText(qualifier)) {
+			return determineQualifiedReactiveTransactionManager(this.beanFactory, qualifier);
+		}
+		ReactiveTransactionManager defaultTransactionManager = getReactiveTransactionManager();
+		if (defaultTransactionManager != null || this.beanFactory == null) {
+			return defaultTransactionManager;
+		}
+		if (StringUtils.hasText(this.transactionManagerBeanName)) {
+			return determineQualifiedReactiveTransactionManager(this.beanFactory, this.transactionManagerBeanName);
+		}
+		defaultTransactionManager = this.reactiveTransactionManagerCache.get(DEFAULT_TRANSACTION_MANAGER_KEY);
+		if (defaultTransactionManager == null) {
+			defaultTransactionManager = this.beanFactory.getBeanProvider(ReactiveTransactionManager.class).getIfUnique();
+			if (defaultTransactionManager != null) {
+				this.reactiveTransactionManagerCache.putIfAbsent(
+						DEFAULT_TRANSACTION_MANAGER_KEY, defaultTransactionManager);
+			}
+		}
+		return defaultTransactionManager;
+	}
+
+	@Nullable
+	private ReactiveTransactionManager determineQualifiedReactiveTransactionManager(
+			BeanFactory beanFactory, String qualifier) {
+
+		ReactiveTransactionManager txManager = this.reactiveTransactionManagerCache.get(qualifier);
+		if (txManager == null) {
+			if (beanFactory instanceof ListableBeanFactory && ObjectUtils.isEmpty(
+					((ListableBeanFactory) beanFactory).getBeanNamesForType(ReactiveTransactionManager.class))) {
+				return null;
+			}
+			if (beanFactory.containsBean(qualifier) &&
+					!beanFactory.isTypeMatch(qualifier, ReactiveTransactionManager.class)) {
+				// Bean name refers to an imperative transaction manager
+				return null;
+			}
+			try {
+				txManager = BeanFactoryAnnotationUtils.qualifiedBeanOfType(
+						beanFactory, ReactiveTransactionManager.class, qualifier);
+			}
+			catch (NoSuchBeanDefinitionException ex) {
+				// Qualifier refers to an imperative transaction manager
+				return null;
+			}
+			this.reactiveTransactionManagerCache.putIfAbsent(qualifier, txManager);
+		}
+		return txManager;
+	}
+
 	private String methodIdentification(Method method, @Nullable Class<?> targetClass,
 			@Nullable TransactionAttribute txAttr) {
 
@@ -735,6 +868,96 @@ public abstract class TransactionAspectSupport implements BeanFactoryAware, Init
 	}
 
 
+	/**
+	 * Delegate for Reactor-based return types, as an inner class to avoid
+	 * a hard dependency on the Reactor library at runtime.
+	 */
+	private class ReactiveTransactionSupport {
+
+		private final ReactiveAdapter adapter;
+
+		public ReactiveTransactionSupport(ReactiveAdapter adapter) {
+			this.adapter = adapter;
+		}
+
+		@SuppressWarnings("serial")
+		public Object invokeWithinTransaction(Method method, @Nullable Class<?> targetClass,
+				InvocationCallback invocation, TransactionAttribute txAttr, ReactiveTransactionManager rtm) {
+
+			String joinpointIdentification = methodIdentification(method, targetClass, txAttr);
+
+			// If no name specified, apply method identification as transaction name.
+			TransactionAttribute attrToUse = txAttr;
+			if (txAttr.getName() == null) {
+				attrToUse = new DelegatingTransactionAttribute(txAttr) {
+					@Override
+					public String getName() {
+						return joinpointIdentification;
+					}
+				};
+			}
+			TransactionAttribute definition = attrToUse;
+
+			// The transaction spans the subscription: begin it once subscribed, invoke the
+			// target method within it, and complete it when the returned publisher terminates.
+			if (this.adapter.isMultiValue()) {
+				return this.adapter.fromPublisher(TransactionContextManager.currentContext().flatMapMany(context ->
+						Flux.usingWhen(rtm.getReactiveTransaction(definition),
+								status -> Flux.from(proceed(invocation)).onErrorResume(ex ->
+										completeTransactionAfterThrowing(rtm, status, definition, joinpointIdentification, ex)
+												.then(Mono.error(ex))),
+								rtm::commit, status -> Mono.empty(), rtm::rollback))
+						.subscriberContext(TransactionContextManager.getOrCreateContext())
+						.subscriberContext(TransactionContextManager.getOrCreateContextHolder()));
+			}
+
+			return this.adapter.fromPublisher(TransactionContextManager.currentContext().flatMap(context ->
+					Mono.usingWhen(rtm.getReactiveTransaction(definition),
+							status -> Mono.from(proceed(invocation)).onErrorResume(ex ->
+									completeTransactionAfterThrowing(rtm, status, definition, joinpointIdentification, ex)
+											.then(Mono.error(ex))),
+							rtm::commit, status -> Mono.empty(), rtm::rollback))
+					.subscriberContext(TransactionContextManager.getOrCreateContext())
+					.subscriberContext(TransactionContextManager.getOrCreateContextHolder()));
+		}
+
+		private Publisher<?> proceed(InvocationCallback invocation) {
+			try {
+				return this.adapter.toPublisher(invocation.proceedWithInvocation());
+			}
+			catch (Throwable ex) {
+				return Mono.error(ex);
+			}
+		}
+
+		private Mono<Void> completeTransactionAfterThrowing(ReactiveTransactionManager rtm, ReactiveTransaction status,
+				TransactionAttribute txAttr, String joinpointIdentification, Throwable ex) {
+
+			if (logger.isTraceEnabled()) {
+				logger.trace("Completing transaction for [" + joinpointIdentification + "] after exception: " + ex);
+			}
+			if (txAttr.rollbackOn(ex)) {
+				return rtm.rollback(status).onErrorMap(ex2 -> {
+					logger.error("Application exception overridden by rollback exception", ex);
+					if (ex2 instanceof TransactionSystemException) {
+						((TransactionSystemException) ex2).initApplicationException(ex);
+					}
+					return ex2;
+				});
+			}
+			// We don't roll back on this exception.
+			// Will still roll back if ReactiveTransaction.isRollbackOnly() is true.
+			return rtm.commit(status).onErrorMap(ex2 -> {
+				logger.error("Application exception overridden by commit exception", ex);
+				if (ex2 instanceof TransactionSystemException) {
+					((TransactionSystemException) ex2).initApplicationException(ex);
+				}
+				return ex2;
+			});
+		}
+	}
+
+
 	/**
 	 * Inner class to avoid a hard dependency on the Vavr library at runtime.
 	 */
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.reactive;
+
+import org.reactivestreams.Publisher;
+
+import org.springframework.transaction.ReactiveTransaction;
+
+/**
+ * Callback interface for reactive transactional code. Used with {@link TransactionalOperator}'s
+ * {@code execute} method, often as anonymous class within a method implementation.
+ *
+ * <p>Typically used to assemble various calls to transaction-unaware data access
+ * services into a higher-level service method with transaction demarcation. As an
+ * alternative, consider the use of declarative transaction demarcation (e.g. through
+ * Spring's {@link org.springframework.transaction.annotation.Transactional} annotation).
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @param <T> the result type
+ * @see TransactionalOperator
+ */
+@FunctionalInterface
+public interface TransactionCallback<T> {
+
+	/**
+	 * Gets called by {@link TransactionalOperator} within a transactional context.
+	 * Does not need to care about transactions itself, although it can retrieve and
+	 * influence the status of the current transaction via the given status object,
+	 * e.g. setting rollback-only.
+	 * @param status associated transaction status
+	 * @return a result publisher
+	 * @see TransactionalOperator#transactional
+	 */
+	Publisher<T> doInTransaction(ReactiveTransaction status);
+
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.reactive;
+
+import java.util.Collection;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Utility methods for triggering specific {@link TransactionSynchronization}
+ * callback methods on all currently registered synchronizations.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see TransactionSynchronization
+ * @see TransactionSynchronizationManager#getSynchronizations()
+ */
+abstract class TransactionSynchronizationUtils {
+
+	private static final Log logger = LogFactory.getLog(TransactionSynchronizationUtils.class);
+
+
+	/**
+	 * Actually invoke the {@code triggerBeforeCommit} methods of the
+	 * given Spring TransactionSynchronization objects.
+	 * @param synchronizations a List of TransactionSynchronization objects
+	 * @param readOnly whether the transaction is defined as read-only transaction
+	 * @see TransactionSynchronization#beforeCommit(boolean)
+	 */
+	public static Mono<Void> triggerBeforeCommit(Collection<TransactionSynchronization> synchronizations,
+			boolean readOnly) {
+
+		return Flux.fromIterable(synchronizations).concatMap(it -> it.beforeCommit(readOnly)).then();
+	}
+
+	/**
+	 * Actually invoke the {@code beforeCompletion} methods of the
+	 * given Spring TransactionSynchronization objects, logging but not
+	 * propagating any exceptions.
+	 * @param synchronizations a List of TransactionSynchronization objects
+	 * @see TransactionSynchronization#beforeCompletion()
+	 */
+	public static Mono<Void> triggerBeforeCompletion(Collection<TransactionSynchronization> synchronizations) {
+		return Flux.fromIterable(synchronizations)
+				.concatMap(TransactionSynchronization::beforeCompletion).onErrorContinue((t, o) ->
+						logger.error("TransactionSynchronization.beforeCompletion threw exception", t)).then();
+	}
+
+	/**
+	 * Actually invoke the {@code afterCommit} methods of the
+	 * given Spring TransactionSynchronization objects.
+	 * @param synchronizations a List of TransactionSynchronization objects
+	 * @see TransactionSynchronization#afterCommit()
+	 */
+	public static Mono<Void> invokeAfterCommit(Collection<TransactionSynchronization> synchronizations) {
+		return Flux.fromIterable(synchronizations)
+				.concatMap(TransactionSynchronization::afterCommit)
+				.then();
+	}
+
+	/**
+	 * Actually invoke the {@code afterCompletion} methods of the
+	 * given Spring TransactionSynchronization objects, logging but not
+	 * propagating any exceptions.
+	 * @param synchronizations a List of TransactionSynchronization objects
+	 * @param completionStatus the completion status according to the
+	 * constants in the TransactionSynchronization interface
+	 * @see TransactionSynchronization#afterCompletion(int)
+	 * @see TransactionSynchronization#STATUS_COMMITTED
+	 * @see TransactionSynchronization#STATUS_ROLLED_BACK
+	 * @see TransactionSynchronization#STATUS_UNKNOWN
+	 */
+	public static Mono<Void> invokeAfterCompletion(
+			Collection<TransactionSynchronization> synchronizations, int completionStatus) {
+
+		return Flux.fromIterable(synchronizations).concatMap(it -> it.afterCompletion(completionStatus))
+				.onErrorContinue((t, o) -> logger.error("TransactionSynchronization.afterCompletion threw exception", t)).then();
+	}
+
+}
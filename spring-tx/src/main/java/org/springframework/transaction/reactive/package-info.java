@@ -0,0 +1,13 @@
+/**
+ * Support classes for reactive transaction management.
+ * Provides an abstract base class for reactive transaction managers,
+ * a transactional operator for programmatic transaction demarcation,
+ * and transaction-scoped synchronization propagated through the
+ * Reactor subscriber context.
+ */
+@NonNullApi
+@NonNullFields
+package org.springframework.transaction.reactive;
+
+import org.springframework.lang.NonNullApi;
+import org.springframework.lang.NonNullFields;
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.transaction.reactive;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.aop.framework.ProxyFactory;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.AnnotationTransactionAttributeSource;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionInterceptor;
+
+import static org.junit.Assert.*;
+import static org.mockito.BDDMockito.*;
+
+/**
+ * Tests for reactive return types handled by
+ * {@link org.springframework.transaction.interceptor.TransactionAspectSupport}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class ReactiveTransactionInterceptorTests {
+
+	private final ReactiveTestTransactionManager rtm = new ReactiveTestTransactionManager(false, true);
+
+
+	@Test
+	public void commitWithMono() {
+		TestService service = createProxy(interceptorWith(this.rtm));
+		service.mono(Mono.just("value"))
+				.as(StepVerifier::create)
+				.expectNext("value")
+				.verifyComplete();
+		assertTrue(this.rtm.begin);
+		assertTrue(this.rtm.commit);
+	}
+
+	@Test
+	public void transactionBeginsOnSubscription() {
+		TestService service = createProxy(interceptorWith(this.rtm));
+		Flux<String> flux = service.flux(Flux.just("a", "b"));
+		assertFalse(this.rtm.begin);
+		flux.as(StepVerifier::create)
+				.expectNext("a", "b")
+				.verifyComplete();
+		assertTrue(this.rtm.begin);
+		assertTrue(this.rtm.commit);
+	}
+
+	@Test
+	public void rollbackOnRuntimeException() {
+		TestService service = createProxy(interceptorWith(this.rtm));
+		service.mono(Mono.error(new IllegalStateException()))
+				.as(StepVerifier::create)
+				.verifyError(IllegalStateException.class);
+		assertFalse(this.rtm.commit);
+		assertTrue(this.rtm.rollback);
+	}
+
+	@Test
+	public void commitOnCheckedException() {
+		TestService service = createProxy(interceptorWith(this.rtm));
+		service.flux(Flux.error(new IOException()))
+				.as(StepVerifier::create)
+				.verifyError(IOException.class);
+		assertTrue(this.rtm.commit);
+		assertFalse(this.rtm.rollback);
+	}
+
+	@Test
+	public void reactiveTransactionManagerFromBeanFactory() {
+		PlatformTransactionManager ptm = mock(PlatformTransactionManager.class);
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		beanFactory.addBean("ptm", ptm);
+		beanFactory.addBean("rtm", this.rtm);
+		TransactionInterceptor interceptor = new TransactionInterceptor();
+		interceptor.setTransactionAttributeSource(new AnnotationTransactionAttributeSource());
+		interceptor.setBeanFactory(beanFactory);
+		TestService service = createProxy(interceptor);
+
+		service.mono(Mono.just("value"))
+				.as(StepVerifier::create)
+				.expectNext("value")
+				.verifyComplete();
+		assertTrue(this.rtm.commit);
+		verifyZeroInteractions(ptm);
+	}
+
+	@Test
+	public void imperativeTransactionManagerForReactiveTypeWithoutReactiveManager() {
+		PlatformTransactionManager ptm = mock(PlatformTransactionManager.class);
+		TransactionStatus status = mock(TransactionStatus.class);
+		given(ptm.getTransaction(any())).willReturn(status);
+		TransactionInterceptor interceptor = new TransactionInterceptor();
+		interceptor.setTransactionAttributeSource(new AnnotationTransactionAttributeSource());
+		interceptor.setTransactionManager(ptm);
+		TestService service = createProxy(interceptor);
+
+		service.mono(Mono.just("value"))
+				.as(StepVerifier::create)
+				.expectNext("value")
+				.verifyComplete();
+		verify(ptm).commit(status);
+	}
+
+	@Test
+	public void imperativeTransactionManagerForReactiveTypeWithQualifier() {
+		PlatformTransactionManager ptm = mock(PlatformTransactionManager.class);
+		TransactionStatus status = mock(TransactionStatus.class);
+		given(ptm.getTransaction(any())).willReturn(status);
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		beanFactory.addBean("ptm", ptm);
+		beanFactory.addBean("rtm", this.rtm);
+		TransactionInterceptor interceptor = new TransactionInterceptor();
+		interceptor.setTransactionAttributeSource(new AnnotationTransactionAttributeSource());
+		interceptor.setBeanFactory(beanFactory);
+		TestService service = createProxy(interceptor);
+
+		service.qualifiedMono(Mono.just("value"))
+				.as(StepVerifier::create)
+				.expectNext("value")
+				.verifyComplete();
+		verify(ptm).commit(status);
+		assertFalse(this.rtm.begin);
+	}
+
+	@Test
+	public void imperativeTransactionManagerForReactiveTypeWithBeanName() {
+		PlatformTransactionManager ptm = mock(PlatformTransactionManager.class);
+		TransactionStatus status = mock(TransactionStatus.class);
+		given(ptm.getTransaction(any())).willReturn(status);
+		StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+		beanFactory.addBean("ptm", ptm);
+		beanFactory.addBean("rtm", this.rtm);
+		TransactionInterceptor interceptor = new TransactionInterceptor();
+		interceptor.setTransactionAttributeSource(new AnnotationTransactionAttributeSource());
+		interceptor.setTransactionManagerBeanName("ptm");
+		interceptor.setBeanFactory(beanFactory);
+		TestService service = createProxy(interceptor);
+
+		service.mono(Mono.just("value"))
+				.as(StepVerifier::create)
+				.expectNext("value")
+				.verifyComplete();
+		verify(ptm).commit(status);
+		assertFalse(this.rtm.begin);
+	}
+
+
+	private TransactionInterceptor interceptorWith(ReactiveTestTransactionManager rtm) {
+		TransactionInterceptor interceptor = new TransactionInterceptor();
+		interceptor.setTransactionAttributeSource(new AnnotationTransactionAttributeSource());
+		interceptor.setReactiveTransactionManager(rtm);
+		return interceptor;
+	}
+
+	private TestService createProxy(TransactionInterceptor interceptor) {
+		ProxyFactory proxyFactory = new ProxyFactory(new DefaultTestService());
+		proxyFactory.addInterface(TestService.class);
+		proxyFactory.addAdvice(interceptor);
+		return (TestService) proxyFactory.getProxy();
+	}
+
+
+	public interface TestService {
+
+		Mono<String> mono(Mono<String> source);
+
+		Flux<String> flux(Flux<String> source);
+
+		Mono<String> qualifiedMono(Mono<String> source);
+	}
+
+
+	@Transactional
+	public static class DefaultTestService implements TestService {
+
+		@Override
+		public Mono<String> mono(Mono<String> source) {
+			return source;
+		}
+
+		@Override
+		public Flux<String> flux(Flux<String> source) {
+			return source;
+		}
+
+		@Override
+		@Transactional("ptm")
+		public Mono<String> qualifiedMono(Mono<String> source) {
+			return source;
+		}
+	}
+
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.json;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import io.netty.buffer.PooledByteBufAllocator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.http.MediaType;
+
+/**
+ * Benchmarks for {@link Jackson2JsonEncoder} and {@link Jackson2JsonDecoder},
+ * encoding and decoding a stream of simple POJOs.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+public class Jackson2JsonCodecBenchmark {
+
+	private static final ResolvableType ELEMENT_TYPE = ResolvableType.forClass(Pojo.class);
+
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({"1", "100"})
+		public int elementCount;
+
+		@Param({"64"})
+		public int chunkSize;
+
+		public DataBufferFactory bufferFactory;
+
+		public DataBufferFactory pooledBufferFactory;
+
+		public Jackson2JsonEncoder encoder;
+
+		public Jackson2JsonDecoder decoder;
+
+		public List<Pojo> elements;
+
+		public byte[] jsonArray;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			ObjectMapper objectMapper = new ObjectMapper();
+			this.bufferFactory = new DefaultDataBufferFactory();
+			this.pooledBufferFactory = new NettyDataBufferFactory(PooledByteBufAllocator.DEFAULT);
+			this.encoder = new Jackson2JsonEncoder(objectMapper);
+			this.decoder = new Jackson2JsonDecoder(objectMapper);
+			this.elements = new ArrayList<>(this.elementCount);
+			for (int i = 0; i < this.elementCount; i++) {
+				this.elements.add(new Pojo("foo" + i, "bar" + i, i));
+			}
+			this.jsonArray = objectMapper.writeValueAsBytes(this.elements);
+		}
+
+		public Flux<DataBuffer> chunkedJsonArray() {
+			return Flux.range(0, (this.jsonArray.length + this.chunkSize - 1) / this.chunkSize).map(i -> {
+				int offset = i * this.chunkSize;
+				int length = Math.min(this.chunkSize, this.jsonArray.length - offset);
+				DataBuffer buffer = this.bufferFactory.allocateBuffer(length);
+				buffer.write(this.jsonArray, offset, length);
+				return buffer;
+			});
+		}
+	}
+
+
+	/**
+	 * A top-level JSON array of about 100 MB, received in 8 KB chunks.
+	 */
+	@State(Scope.Benchmark)
+	public static class LargeArrayState {
+
+		@Param({"2000000"})
+		public int elementCount;
+
+		@Param({"8192"})
+		public int chunkSize;
+
+		public ObjectMapper objectMapper;
+
+		public DataBufferFactory bufferFactory;
+
+		public Jackson2JsonDecoder decoder;
+
+		public List<byte[]> chunks;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			this.objectMapper = new ObjectMapper();
+			this.bufferFactory = new DefaultDataBufferFactory();
+			this.decoder = new Jackson2JsonDecoder(this.objectMapper);
+			List<Pojo> elements = new ArrayList<>(this.elementCount);
+			for (int i = 0; i < this.elementCount; i++) {
+				elements.add(new Pojo("foo" + i, "bar" + i, i));
+			}
+			byte[] jsonArray = this.objectMapper.writeValueAsBytes(elements);
+			this.chunks = new ArrayList<>();
+			for (int offset = 0; offset < jsonArray.length; offset += this.chunkSize) {
+				int length = Math.min(this.chunkSize, jsonArray.length - offset);
+				byte[] chunk = new byte[length];
+				System.arraycopy(jsonArray, offset, chunk, 0, length);
+				this.chunks.add(chunk);
+			}
+		}
+
+		public Flux<DataBuffer> chunkedJsonArray() {
+			return Flux.fromIterable(this.chunks).map(this.bufferFactory::wrap);
+		}
+	}
+
+
+	@Benchmark
+	public long encodeJsonArray(BenchmarkState state) {
+		return encode(state, MediaType.APPLICATION_JSON);
+	}
+
+	@Benchmark
+	public long encodeJsonStream(BenchmarkState state) {
+		return encode(state, MediaType.APPLICATION_STREAM_JSON);
+	}
+
+	@Benchmark
+	public long encodeJsonStreamToPooledBuffers(BenchmarkState state) {
+		return encode(state, state.pooledBufferFactory, MediaType.APPLICATION_STREAM_JSON);
+	}
+
+	@Benchmark
+	public List<Object> decodeJsonArrayToFlux(BenchmarkState state) {
+		return state.decoder.decode(state.chunkedJsonArray(), ELEMENT_TYPE, MediaType.APPLICATION_JSON, null)
+				.collectList().block();
+	}
+
+	@Benchmark
+	public Object decodeJsonArrayToMono(BenchmarkState state) {
+		ResolvableType listType = ResolvableType.forClassWithGenerics(List.class, Pojo.class);
+		return state.decoder.decodeToMono(state.chunkedJsonArray(), listType, MediaType.APPLICATION_JSON, null)
+				.block();
+	}
+
+	@Benchmark
+	public long decodeLargeJsonArrayToFlux(LargeArrayState state) {
+		Long count = state.decoder.decode(state.chunkedJsonArray(), ELEMENT_TYPE, MediaType.APPLICATION_JSON, null)
+				.count().block();
+		return (count != null ? count : 0);
+	}
+
+	/**
+	 * Decode through a {@code TokenBuffer} per element, for comparison with
+	 * {@link #decodeLargeJsonArrayToFlux}.
+	 */
+	@Benchmark
+	public long decodeLargeJsonArrayWithTokenBuffers(LargeArrayState state) {
+		ObjectReader reader = state.objectMapper.readerFor(Pojo.class);
+		JsonFactory jsonFactory = state.objectMapper.getFactory().copy()
+				.disable(JsonFactory.Feature.USE_THREAD_LOCAL_FOR_BUFFER_RECYCLING);
+		Long count = Jackson2Tokenizer.tokenize(state.chunkedJsonArray(), jsonFactory,
+				state.objectMapper.getDeserializationContext(), true)
+				.map(tokenBuffer -> {
+					try {
+						return reader.readValue(tokenBuffer.asParser(state.objectMapper));
+					}
+					catch (IOException ex) {
+						throw new UncheckedIOException(ex);
+					}
+				})
+				.count().block();
+		return (count != null ? count : 0);
+	}
+
+	@Benchmark
+	public String decodeSingleValue(BenchmarkState state) {
+		DataBuffer buffer = state.bufferFactory.wrap(
+				"{\"foo\":\"foofoo\",\"bar\":\"barbar\",\"count\":42}".getBytes(StandardCharsets.UTF_8));
+		Pojo value = (Pojo) state.decoder.decodeToMono(Mono.just(buffer), ELEMENT_TYPE,
+				MediaType.APPLICATION_JSON, null).block();
+		return (value != null ? value.getFoo() : null);
+	}
+
+	private static long encode(BenchmarkState state, MediaType mediaType) {
+		return encode(state, state.bufferFactory, mediaType);
+	}
+
+	private static long encode(BenchmarkState state, DataBufferFactory bufferFactory, MediaType mediaType) {
+		Long size = state.encoder.encode(Flux.fromIterable(state.elements), bufferFactory,
+				ELEMENT_TYPE, mediaType, null)
+				.map(buffer -> {
+					int count = buffer.readableByteCount();
+					DataBufferUtils.release(buffer);
+					return (long) count;
+				})
+				.reduce(0L, Long::sum)
+				.block();
+		return (size != null ? size : 0);
+	}
+
+
+	public static class Pojo {
+
+		private String foo;
+
+		private String bar;
+
+		private int count;
+
+		public Pojo() {
+		}
+
+		public Pojo(String foo, String bar, int count) {
+			this.foo = foo;
+			this.bar = bar;
+			this.count = count;
+		}
+
+		public String getFoo() {
+			return this.foo;
+		}
+
+		public void setFoo(String foo) {
+			this.foo = foo;
+		}
+
+		public String getBar() {
+			return this.bar;
+		}
+
+		public void setBar(String bar) {
+			this.bar = bar;
+		}
+
+		public int getCount() {
+			return this.count;
+		}
+
+		public void setCount(int count) {
+			this.count = count;
+		}
+	}
+
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.util.pattern;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.springframework.http.server.PathContainer;
+import org.springframework.util.AntPathMatcher;
+
+/**
+ * Benchmarks comparing {@link AntPathMatcher} and {@link PathPattern} when
+ * matching a set of request paths against a set of typical route patterns.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+public class PathMatchingBenchmark {
+
+	private static final String[] PATTERNS = {
+			"/",
+			"/static/**",
+			"/static/*.css",
+			"/api/users",
+			"/api/users/{userId}",
+			"/api/users/{userId}/repos",
+			"/api/users/{userId}/repos/{repoId}",
+			"/api/users/{userId}/repos/{repoId}/issues",
+			"/api/users/{userId}/repos/{repoId}/issues/{issueId}",
+			"/api/orgs/{orgId}",
+			"/api/orgs/{orgId}/members",
+			"/api/orgs/{orgId}/teams/{teamId}",
+			"/api/search/code",
+			"/api/search/issues",
+			"/api/gists/{gistId}/comments/{commentId}",
+			"/api/repos/{owner}/{repo}/contents/**",
+			"/admin/{section}/*.html",
+			"/docs/{*path}"
+	};
+
+	private static final String[] PATHS = {
+			"/",
+			"/static/css/main.css",
+			"/api/users",
+			"/api/users/42",
+			"/api/users/42/repos/spring-framework/issues/1234",
+			"/api/orgs/spring-projects/teams/core",
+			"/api/search/issues",
+			"/api/repos/spring-projects/spring-framework/contents/src/main/java",
+			"/admin/settings/index.html",
+			"/unknown/path/that/does/not/match"
+	};
+
+
+	@State(Scope.Benchmark)
+	public static class AntPathMatcherState {
+
+		public AntPathMatcher matcher;
+
+		public String[] patterns;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			this.matcher = new AntPathMatcher();
+			this.patterns = new String[PATTERNS.length];
+			for (int i = 0; i < PATTERNS.length; i++) {
+				// AntPathMatcher has no "{*path}" capturing syntax
+				this.patterns[i] = PATTERNS[i].replace("{*path}", "**");
+			}
+		}
+	}
+
+
+	@State(Scope.Benchmark)
+	public static class PathPatternState {
+
+		public List<PathPattern> patterns;
+
+		public List<PathContainer> paths;
+
+		@Setup(Level.Trial)
+		public void setup() {
+			PathPatternParser parser = new PathPatternParser();
+			this.patterns = new ArrayList<>(PATTERNS.length);
+			for (String pattern : PATTERNS) {
+				this.patterns.add(parser.parse(pattern));
+			}
+			this.paths = new ArrayList<>(PATHS.length);
+			for (String path : PATHS) {
+				this.paths.add(PathContainer.parsePath(path));
+			}
+		}
+	}
+
+
+	@Benchmark
+	public void antPathMatcherMatch(AntPathMatcherState state, Blackhole blackhole) {
+		for (String path : PATHS) {
+			for (String pattern : state.patterns) {
+				blackhole.consume(state.matcher.match(pattern, path));
+			}
+		}
+	}
+
+	@Benchmark
+	public void antPathMatcherExtract(AntPathMatcherState state, Blackhole blackhole) {
+		for (String path : PATHS) {
+			for (String pattern : state.patterns) {
+				if (state.matcher.match(pattern, path)) {
+					blackhole.consume(state.matcher.extractUriTemplateVariables(pattern, path));
+				}
+			}
+		}
+	}
+
+	@Benchmark
+	public void pathPatternMatch(PathPatternState state, Blackhole blackhole) {
+		for (PathContainer path : state.paths) {
+			for (PathPattern pattern : state.patterns) {
+				blackhole.consume(pattern.matches(path));
+			}
+		}
+	}
+
+	@Benchmark
+	public void pathPatternMatchAndExtract(PathPatternState state, Blackhole blackhole) {
+		for (PathContainer path : state.paths) {
+			for (PathPattern pattern : state.patterns) {
+				blackhole.consume(pattern.matchAndExtract(path));
+			}
+		}
+	}
+
+	@Benchmark
+	public void pathPatternParseAndMatch(PathPatternState state, Blackhole blackhole) {
+		for (String path : PATHS) {
+			PathContainer pathContainer = PathContainer.parsePath(path);
+			for (PathPattern pattern : state.patterns) {
+				blackhole.consume(pattern.matches(pathContainer));
+			}
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,10 +17,22 @@
 package org.springframework.http;
 
 import java.io.File;
+import java.nio.channels.AsynchronousFileChannel;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
 
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.support.ResourceRegion;
+import org.springframework.util.Assert;
+import org.springframework.util.StreamUtils;
+
 /**
  * Sub-interface of {@code ReactiveOutputMessage} that has support for "zero-copy"
  * file transfers.
@@ -55,4 +67,34 @@ public interface ZeroCopyHttpOutputMessage extends ReactiveHttpOutputMessage {
 	 */
 	Mono<Void> writeWith(Path file, long position, long count);
 
+	/**
+	 * Use the given {@link Path} to write a body made up of several regions
+	 * of the file, each preceded by an in-memory delimiter, and followed by a
+	 * final delimiter, e.g. the part boundaries and headers of a
+	 * "multipart/byteranges" response.
+	 * <p>By default the file regions are read into data buffers and written
+	 * through {@link #writeWith(Publisher)}. Implementations that can do so
+	 * override this to transfer the file regions with zero-copy.
+	 * @param file the file to transfer regions of
+	 * @param regions the regions of the file to transfer, in order
+	 * @param delimiters the buffers to write before each region, plus one
+	 * more to write after the last region
+	 * @return a publisher that indicates completion or error.
+	 * @since 5.2
+	 */
+	default Mono<Void> writeWith(Path file, List<ResourceRegion> regions, List<DataBuffer> delimiters) {
+		Assert.isTrue(delimiters.size() == regions.size() + 1, "Expected one more delimiter than regions");
+		List<Publisher<DataBuffer>> body = new ArrayList<>(regions.size() * 2 + 1);
+		for (int i = 0; i < regions.size(); i++) {
+			ResourceRegion region = regions.get(i);
+			Flux<DataBuffer> content = DataBufferUtils.readAsynchronousFileChannel(
+					() -> AsynchronousFileChannel.open(file, StandardOpenOption.READ),
+					region.getPosition(), bufferFactory(), StreamUtils.BUFFER_SIZE);
+			body.add(Mono.just(delimiters.get(i)));
+			body.add(DataBufferUtils.takeUntilByteCount(content, region.getCount()));
+		}
+		body.add(Mono.just(delimiters.get(regions.size())));
+		return writeWith(Flux.concat(body));
+	}
+
 }
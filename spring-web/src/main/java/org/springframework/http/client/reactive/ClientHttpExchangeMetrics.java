@@ -0,0 +1,171 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client.reactive;
+
+import java.net.URI;
+import java.time.Duration;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.Nullable;
+
+/**
+ * Metrics for a single exchange performed through an
+ * {@link InstrumentedClientHttpConnector}, as passed to a
+ * {@link ClientHttpMetricsRecorder}.
+ *
+ * <p>Phases an exchange did not reach are reported as {@code null}, e.g. the
+ * time to first byte of an exchange that failed to connect.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ */
+public final class ClientHttpExchangeMetrics {
+
+	private final HttpMethod method;
+
+	private final URI uri;
+
+	private final String host;
+
+	private final int statusCode;
+
+	@Nullable
+	private final Duration connectionAcquireTime;
+
+	@Nullable
+	private final Duration timeToFirstByte;
+
+	@Nullable
+	private final Duration responseBodyTime;
+
+	private final long bytesSent;
+
+	private final long bytesReceived;
+
+	@Nullable
+	private final Throwable error;
+
+
+	ClientHttpExchangeMetrics(HttpMethod method, URI uri, String host, int statusCode,
+			@Nullable Duration connectionAcquireTime, @Nullable Duration timeToFirstByte,
+			@Nullable Duration responseBodyTime, long bytesSent, long bytesReceived, @Nullable Throwable error) {
+
+		this.method = method;
+		this.uri = uri;
+		this.host = host;
+		this.statusCode = statusCode;
+		this.connectionAcquireTime = connectionAcquireTime;
+		this.timeToFirstByte = timeToFirstByte;
+		this.responseBodyTime = responseBodyTime;
+		this.bytesSent = bytesSent;
+		this.bytesReceived = bytesReceived;
+		this.error = error;
+	}
+
+
+	/**
+	 * Return the HTTP method of the request.
+	 */
+	public HttpMethod getMethod() {
+		return this.method;
+	}
+
+	/**
+	 * Return the URI of the request.
+	 */
+	public URI getUri() {
+		return this.uri;
+	}
+
+	/**
+	 * Return the remote host the statistics are grouped by, in the form
+	 * {@code "host:port"} with the default port of the scheme applied.
+	 */
+	public String getHost() {
+		return this.host;
+	}
+
+	/**
+	 * Return the raw status code of the response, or -1 if no response was
+	 * received.
+	 */
+	public int getStatusCode() {
+		return this.statusCode;
+	}
+
+	/**
+	 * Return the time from the start of the exchange until a connection was
+	 * available to write the request on, including time spent waiting for a
+	 * pooled connection, or {@code null} if no connection was acquired.
+	 */
+	@Nullable
+	public Duration getConnectionAcquireTime() {
+		return this.connectionAcquireTime;
+	}
+
+	/**
+	 * Return the time from acquiring the connection until the response status
+	 * and headers were received, or {@code null} if no response was received.
+	 */
+	@Nullable
+	public Duration getTimeToFirstByte() {
+		return this.timeToFirstByte;
+	}
+
+	/**
+	 * Return the time from receiving the response headers until the response
+	 * body was fully read or cancelled, or {@code null} if no response was
+	 * received.
+	 */
+	@Nullable
+	public Duration getResponseBodyTime() {
+		return this.responseBodyTime;
+	}
+
+	/**
+	 * Return the number of request body bytes written.
+	 */
+	public long getBytesSent() {
+		return this.bytesSent;
+	}
+
+	/**
+	 * Return the number of response body bytes read.
+	 */
+	public long getBytesReceived() {
+		return this.bytesReceived;
+	}
+
+	/**
+	 * Return the error the exchange failed with, if any.
+	 */
+	@Nullable
+	public Throwable getError() {
+		return this.error;
+	}
+
+
+	@Override
+	public String toString() {
+		return "ClientHttpExchangeMetrics[" + this.method + " " + this.uri + ", status=" + this.statusCode +
+				", connectionAcquireTime=" + this.connectionAcquireTime + ", timeToFirstByte=" +
+				this.timeToFirstByte + ", responseBodyTime=" + this.responseBodyTime + ", bytesSent=" +
+				this.bytesSent + ", bytesReceived=" + this.bytesReceived +
+				(this.error != null ? ", error=" + this.error : "") + "]";
+	}
+
+}
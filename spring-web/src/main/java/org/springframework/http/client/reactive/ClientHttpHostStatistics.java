@@ -0,0 +1,200 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client.reactive;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.lang.Nullable;
+
+/**
+ * Live statistics for the exchanges an {@link InstrumentedClientHttpConnector}
+ * performed against a single remote host.
+ *
+ * <p>Exchanges that have started but are still waiting for a connection are
+ * reported as {@link #getPendingExchanges() pending}. A sustained number of
+ * pending exchanges indicates the connection pool for the host is saturated.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see InstrumentedClientHttpConnector#getHostStatistics()
+ */
+public final class ClientHttpHostStatistics {
+
+	private final String host;
+
+	private final AtomicInteger activeExchanges = new AtomicInteger();
+
+	private final AtomicInteger pendingExchanges = new AtomicInteger();
+
+	private final AtomicInteger peakActiveExchanges = new AtomicInteger();
+
+	private final LongAdder completedExchanges = new LongAdder();
+
+	private final LongAdder failedExchanges = new LongAdder();
+
+	private final LongAdder bytesSent = new LongAdder();
+
+	private final LongAdder bytesReceived = new LongAdder();
+
+	private final LongAdder totalConnectionAcquireNanos = new LongAdder();
+
+	private final AtomicLong maxConnectionAcquireNanos = new AtomicLong();
+
+	private final LongAdder totalTimeToFirstByteNanos = new LongAdder();
+
+	private final LongAdder totalResponseBodyNanos = new LongAdder();
+
+
+	ClientHttpHostStatistics(String host) {
+		this.host = host;
+	}
+
+
+	/**
+	 * Return the remote host, in the form {@code "host:port"}.
+	 */
+	public String getHost() {
+		return this.host;
+	}
+
+	/**
+	 * Return the number of exchanges currently in progress, including
+	 * {@link #getPendingExchanges() pending} ones.
+	 */
+	public int getActiveExchanges() {
+		return this.activeExchanges.get();
+	}
+
+	/**
+	 * Return the number of exchanges currently waiting for a connection.
+	 */
+	public int getPendingExchanges() {
+		return this.pendingExchanges.get();
+	}
+
+	/**
+	 * Return the highest number of exchanges that were in progress at once.
+	 */
+	public int getPeakActiveExchanges() {
+		return this.peakActiveExchanges.get();
+	}
+
+	/**
+	 * Return the number of exchanges that ended without an error, including
+	 * cancelled ones.
+	 */
+	public long getCompletedExchanges() {
+		return this.completedExchanges.sum();
+	}
+
+	/**
+	 * Return the number of exchanges that ended with an error.
+	 */
+	public long getFailedExchanges() {
+		return this.failedExchanges.sum();
+	}
+
+	/**
+	 * Return the total number of request body bytes written.
+	 */
+	public long getBytesSent() {
+		return this.bytesSent.sum();
+	}
+
+	/**
+	 * Return the total number of response body bytes read.
+	 */
+	public long getBytesReceived() {
+		return this.bytesReceived.sum();
+	}
+
+	/**
+	 * Return the accumulated time spent acquiring connections.
+	 */
+	public Duration getTotalConnectionAcquireTime() {
+		return Duration.ofNanos(this.totalConnectionAcquireNanos.sum());
+	}
+
+	/**
+	 * Return the longest time spent acquiring a single connection.
+	 */
+	public Duration getMaxConnectionAcquireTime() {
+		return Duration.ofNanos(this.maxConnectionAcquireNanos.get());
+	}
+
+	/**
+	 * Return the accumulated time to first byte of all responses.
+	 */
+	public Duration getTotalTimeToFirstByte() {
+		return Duration.ofNanos(this.totalTimeToFirstByteNanos.sum());
+	}
+
+	/**
+	 * Return the accumulated time spent reading response bodies.
+	 */
+	public Duration getTotalResponseBodyTime() {
+		return Duration.ofNanos(this.totalResponseBodyNanos.sum());
+	}
+
+
+	void exchangeStarted() {
+		int active = this.activeExchanges.incrementAndGet();
+		this.pendingExchanges.incrementAndGet();
+		this.peakActiveExchanges.accumulateAndGet(active, Math::max);
+	}
+
+	void connectionAcquired(long acquireNanos) {
+		this.pendingExchanges.decrementAndGet();
+		this.totalConnectionAcquireNanos.add(acquireNanos);
+		this.maxConnectionAcquireNanos.accumulateAndGet(acquireNanos, Math::max);
+	}
+
+	void exchangeEnded(ClientHttpExchangeMetrics metrics) {
+		if (metrics.getConnectionAcquireTime() == null) {
+			this.pendingExchanges.decrementAndGet();
+		}
+		this.activeExchanges.decrementAndGet();
+		if (metrics.getError() != null) {
+			this.failedExchanges.increment();
+		}
+		else {
+			this.completedExchanges.increment();
+		}
+		this.bytesSent.add(metrics.getBytesSent());
+		this.bytesReceived.add(metrics.getBytesReceived());
+		addNanos(this.totalTimeToFirstByteNanos, metrics.getTimeToFirstByte());
+		addNanos(this.totalResponseBodyNanos, metrics.getResponseBodyTime());
+	}
+
+	private static void addNanos(LongAdder adder, @Nullable Duration duration) {
+		if (duration != null) {
+			adder.add(duration.toNanos());
+		}
+	}
+
+
+	@Override
+	public String toString() {
+		return "ClientHttpHostStatistics[" + this.host + ", active=" + getActiveExchanges() +
+				", pending=" + getPendingExchanges() + ", peak=" + getPeakActiveExchanges() +
+				", completed=" + getCompletedExchanges() + ", failed=" + getFailedExchanges() + "]";
+	}
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client.reactive;
+
+/**
+ * Strategy to export the metrics of exchanges performed through an
+ * {@link InstrumentedClientHttpConnector}, e.g. to a monitoring system.
+ *
+ * <p>Implementations are invoked once per exchange, on the thread that
+ * completed it, and should therefore not block.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ */
+@FunctionalInterface
+public interface ClientHttpMetricsRecorder {
+
+	/**
+	 * Record the metrics of a completed, failed, or cancelled exchange.
+	 * @param metrics the metrics for the exchange
+	 */
+	void record(ClientHttpExchangeMetrics metrics);
+
+}
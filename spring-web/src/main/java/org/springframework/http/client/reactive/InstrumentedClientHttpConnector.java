@@ -0,0 +1,319 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client.reactive;
+
+import java.net.URI;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+import org.springframework.util.ClassUtils;
+
+/**
+ * {@link ClientHttpConnector} decorator that records connection acquire time,
+ * time to first byte, response body time, and request and response body bytes
+ * for every exchange, aggregates them per remote host, and passes them on to
+ * any number of {@link ClientHttpMetricsRecorder ClientHttpMetricsRecorders}.
+ *
+ * <p>The connection acquire time ends when the delegate connector has a
+ * connection to write the request on: for Reactor Netty, when the request
+ * callback is invoked; for Jetty, when the request begins on a connection.
+ * An exchange ends when its response body is fully read or cancelled, so
+ * the response body must be consumed or released as with any other connector.
+ *
+ * <p>To instrument a {@code WebClient}, pass the decorated connector to its
+ * builder, or to {@code ExchangeFunctions.create} for a plain
+ * {@code ExchangeFunction}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see ClientHttpHostStatistics
+ */
+public class InstrumentedClientHttpConnector implements ClientHttpConnector {
+
+	private static final Log logger = LogFactory.getLog(InstrumentedClientHttpConnector.class);
+
+	private static final boolean jettyPresent = ClassUtils.isPresent(
+			"org.eclipse.jetty.client.api.Request", InstrumentedClientHttpConnector.class.getClassLoader());
+
+
+	private final ClientHttpConnector delegate;
+
+	private final List<ClientHttpMetricsRecorder> recorders;
+
+	private final ConcurrentMap<String, ClientHttpHostStatistics> hostStatistics = new ConcurrentHashMap<>();
+
+
+	/**
+	 * Create a new {@code InstrumentedClientHttpConnector}.
+	 * @param delegate the connector to delegate to
+	 * @param recorders the recorders to pass the metrics of each exchange to
+	 */
+	public InstrumentedClientHttpConnector(ClientHttpConnector delegate, ClientHttpMetricsRecorder... recorders) {
+		Assert.notNull(delegate, "Delegate is required");
+		Assert.noNullElements(recorders, "Recorders must not contain null elements");
+		this.delegate = delegate;
+		this.recorders = Arrays.asList(recorders);
+	}
+
+
+	/**
+	 * Return the wrapped connector.
+	 */
+	public ClientHttpConnector getDelegate() {
+		return this.delegate;
+	}
+
+	/**
+	 * Return the statistics for each remote host an exchange was performed
+	 * against, keyed by {@code "host:port"}.
+	 */
+	public Map<String, ClientHttpHostStatistics> getHostStatistics() {
+		return Collections.unmodifiableMap(this.hostStatistics);
+	}
+
+
+	@Override
+	public Mono<ClientHttpResponse> connect(HttpMethod method, URI uri,
+			Function<? super ClientHttpRequest, Mono<Void>> requestCallback) {
+
+		if (!uri.isAbsolute()) {
+			return this.delegate.connect(method, uri, requestCallback);
+		}
+
+		return Mono.defer(() -> {
+			String host = getHost(uri);
+			ClientHttpHostStatistics statistics =
+					this.hostStatistics.computeIfAbsent(host, ClientHttpHostStatistics::new);
+			Exchange exchange = new Exchange(method, uri, host, statistics);
+			return this.delegate.connect(method, uri, request -> requestCallback.apply(exchange.initRequest(request)))
+					.map(exchange::initResponse)
+					.doOnSuccess(response -> {
+						if (response == null) {
+							exchange.end(null);
+						}
+					})
+					.doOnError(exchange::end)
+					.doOnCancel(exchange::cancel);
+		});
+	}
+
+	private static String getHost(URI uri) {
+		int port = uri.getPort();
+		if (port == -1) {
+			port = ("https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80);
+		}
+		return uri.getHost() + ":" + port;
+	}
+
+	private void record(ClientHttpExchangeMetrics metrics) {
+		for (ClientHttpMetricsRecorder recorder : this.recorders) {
+			try {
+				recorder.record(metrics);
+			}
+			catch (Throwable ex) {
+				logger.error("Failed to record " + metrics + " with " + recorder, ex);
+			}
+		}
+	}
+
+
+	/**
+	 * The state of a single exchange, from the subscription to the delegate
+	 * connector until the end of the response body.
+	 */
+	private class Exchange {
+
+		private final HttpMethod method;
+
+		private final URI uri;
+
+		private final String host;
+
+		private final ClientHttpHostStatistics statistics;
+
+		private final long startTime = System.nanoTime();
+
+		private final AtomicLong bytesSent = new AtomicLong();
+
+		private final AtomicLong bytesReceived = new AtomicLong();
+
+		private long acquireTime = -1;
+
+		private long responseTime = -1;
+
+		private int statusCode = -1;
+
+		private boolean ended;
+
+		public Exchange(HttpMethod method, URI uri, String host, ClientHttpHostStatistics statistics) {
+			this.method = method;
+			this.uri = uri;
+			this.host = host;
+			this.statistics = statistics;
+			statistics.exchangeStarted();
+		}
+
+		public ClientHttpRequest initRequest(ClientHttpRequest request) {
+			if (!jettyPresent || !JettyConnectionHook.onRequestBegin(request, this::connectionAcquired)) {
+				connectionAcquired();
+			}
+			return (request instanceof ZeroCopyHttpOutputMessage ?
+					new ZeroCopyInstrumentedRequest(request, this.bytesSent) :
+					new InstrumentedRequest(request, this.bytesSent));
+		}
+
+		private synchronized void connectionAcquired() {
+			if (this.acquireTime == -1 && !this.ended) {
+				this.acquireTime = System.nanoTime();
+				this.statistics.connectionAcquired(this.acquireTime - this.startTime);
+			}
+		}
+
+		public ClientHttpResponse initResponse(ClientHttpResponse response) {
+			synchronized (this) {
+				this.responseTime = System.nanoTime();
+				this.statusCode = response.getRawStatusCode();
+			}
+			return new InstrumentedResponse(response);
+		}
+
+		public void cancel() {
+			boolean responded;
+			synchronized (this) {
+				responded = (this.responseTime != -1);
+			}
+			if (!responded) {
+				end(null);
+			}
+		}
+
+		public void end(@Nullable Throwable error) {
+			ClientHttpExchangeMetrics metrics;
+			synchronized (this) {
+				if (this.ended) {
+					return;
+				}
+				this.ended = true;
+				long endTime = System.nanoTime();
+				long connectedTime = (this.acquireTime != -1 ? this.acquireTime : this.startTime);
+				metrics = new ClientHttpExchangeMetrics(this.method, this.uri, this.host, this.statusCode,
+						(this.acquireTime != -1 ? Duration.ofNanos(this.acquireTime - this.startTime) : null),
+						(this.responseTime != -1 ? Duration.ofNanos(this.responseTime - connectedTime) : null),
+						(this.responseTime != -1 ? Duration.ofNanos(endTime - this.responseTime) : null),
+						this.bytesSent.get(), this.bytesReceived.get(), error);
+			}
+			this.statistics.exchangeEnded(metrics);
+			record(metrics);
+		}
+
+
+		private class InstrumentedResponse extends ClientHttpResponseDecorator {
+
+			public InstrumentedResponse(ClientHttpResponse delegate) {
+				super(delegate);
+			}
+
+			@Override
+			public Flux<DataBuffer> getBody() {
+				return super.getBody()
+						.doOnNext(buffer -> bytesReceived.addAndGet(buffer.readableByteCount()))
+						.doOnError(Exchange.this::end)
+						.doOnComplete(() -> end(null))
+						.doOnCancel(() -> end(null));
+			}
+		}
+	}
+
+
+	private static class InstrumentedRequest extends ClientHttpRequestDecorator {
+
+		private final AtomicLong bytesSent;
+
+		public InstrumentedRequest(ClientHttpRequest delegate, AtomicLong bytesSent) {
+			super(delegate);
+			this.bytesSent = bytesSent;
+		}
+
+		@Override
+		public Mono<Void> writeWith(Publisher<? extends DataBuffer> body) {
+			return super.writeWith(body instanceof Mono ?
+					Mono.from(body).doOnNext(this::countBytes) : Flux.from(body).doOnNext(this::countBytes));
+		}
+
+		@Override
+		public Mono<Void> writeAndFlushWith(Publisher<? extends Publisher<? extends DataBuffer>> body) {
+			return super.writeAndFlushWith(Flux.from(body).map(inner -> Flux.from(inner).doOnNext(this::countBytes)));
+		}
+
+		private void countBytes(DataBuffer buffer) {
+			this.bytesSent.addAndGet(buffer.readableByteCount());
+		}
+
+		protected void addBytesSent(long count) {
+			this.bytesSent.addAndGet(count);
+		}
+	}
+
+
+	private static class ZeroCopyInstrumentedRequest extends InstrumentedRequest implements ZeroCopyHttpOutputMessage {
+
+		public ZeroCopyInstrumentedRequest(ClientHttpRequest delegate, AtomicLong bytesSent) {
+			super(delegate, bytesSent);
+		}
+
+		@Override
+		public Mono<Void> writeWith(Path file, long position, long count) {
+			return ((ZeroCopyHttpOutputMessage) getDelegate()).writeWith(file, position, count)
+					.doOnSuccess(aVoid -> addBytesSent(count));
+		}
+	}
+
+
+	/**
+	 * Inner class to avoid a hard dependency on the Jetty client.
+	 */
+	private static class JettyConnectionHook {
+
+		public static boolean onRequestBegin(ClientHttpRequest request, Runnable callback) {
+			if (!(request instanceof JettyClientHttpRequest)) {
+				return false;
+			}
+			((JettyClientHttpRequest) request).getJettyRequest().onRequestBegin(jettyRequest -> callback.run());
+			return true;
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -145,6 +145,10 @@ class JettyClientHttpRequest extends AbstractClientHttpRequest {
 		}
 	}
 
+	Request getJettyRequest() {
+		return this.jettyRequest;
+	}
+
 	ReactiveRequest getReactiveRequest() {
 		if (this.reactiveRequest == null) {
 			this.reactiveRequest = ReactiveRequest.newBuilder(this.jettyRequest).build();
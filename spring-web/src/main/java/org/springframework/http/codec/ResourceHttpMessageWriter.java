@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,8 @@ package org.springframework.http.codec;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -57,6 +59,10 @@ import org.springframework.util.MimeTypeUtils;
  * for writing one or more {@link ResourceRegion}'s based on the HTTP ranges
  * specified in the request.
  *
+ * <p>File-based resources and regions of them, including the multiple regions
+ * of a "multipart/byteranges" response, are transferred with zero-copy if the
+ * output message is a {@link ZeroCopyHttpOutputMessage}.
+ *
  * <p>For reading to a Resource, use {@link ResourceDecoder} wrapped with
  * {@link DecoderHttpMessageReader}.
  *
@@ -232,7 +238,9 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 				MediaType multipartType = MediaType.parseMediaType("multipart/byteranges;boundary=" + boundary);
 				headers.setContentType(multipartType);
 				Map<String, Object> allHints = Hints.merge(hints, ResourceRegionEncoder.BOUNDARY_STRING_HINT, boundary);
-				return encodeAndWriteRegions(Flux.fromIterable(regions), resourceMediaType, response, allHints);
+				return zeroCopy(resource, regions, resourceMediaType, boundary, response, allHints)
+						.orElseGet(() -> encodeAndWriteRegions(
+								Flux.fromIterable(regions), resourceMediaType, response, allHints));
 			}
 		});
 	}
@@ -248,6 +256,45 @@ public class ResourceHttpMessageWriter implements HttpMessageWriter<Resource> {
 				});
 	}
 
+	private static Optional<Mono<Void>> zeroCopy(Resource resource, List<ResourceRegion> regions,
+			MediaType mediaType, String boundary, ReactiveHttpOutputMessage message, Map<String, Object> hints) {
+
+		if (message instanceof ZeroCopyHttpOutputMessage && resource.isFile()) {
+			try {
+				File file = resource.getFile();
+				long fileLength = file.length();
+				List<DataBuffer> delimiters = new ArrayList<>(regions.size() + 1);
+				long contentLength = 0;
+				for (ResourceRegion region : regions) {
+					long start = region.getPosition();
+					long end = start + region.getCount() - 1;
+					byte[] delimiter = getAsciiBytes("\r\n--" + boundary + "\r\n" +
+							"Content-Type: " + mediaType + "\r\n" +
+							"Content-Range: bytes " + start + '-' + end + '/' + fileLength + "\r\n\r\n");
+					delimiters.add(message.bufferFactory().wrap(delimiter));
+					contentLength += delimiter.length + region.getCount();
+				}
+				byte[] endBoundary = getAsciiBytes("\r\n--" + boundary + "--");
+				delimiters.add(message.bufferFactory().wrap(endBoundary));
+				contentLength += endBoundary.length;
+				message.getHeaders().setContentLength(contentLength);
+				if (logger.isDebugEnabled()) {
+					logger.debug(Hints.getLogPrefix(hints) + "Zero-copy " + regions.size() +
+							" regions of [" + resource + "]");
+				}
+				return Optional.of(((ZeroCopyHttpOutputMessage) message).writeWith(file.toPath(), regions, delimiters));
+			}
+			catch (IOException ex) {
+				// should not happen
+			}
+		}
+		return Optional.empty();
+	}
+
+	private static byte[] getAsciiBytes(String in) {
+		return in.getBytes(StandardCharsets.US_ASCII);
+	}
+
 	private Mono<Void> encodeAndWriteRegions(Publisher<? extends ResourceRegion> publisher,
 			@Nullable MediaType mediaType, ReactiveHttpOutputMessage message, Map<String, Object> hints) {
 
@@ -20,8 +20,10 @@ import java.io.IOException;
 import java.lang.annotation.Annotation;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -44,6 +46,7 @@ import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.MimeType;
 
 /**
@@ -63,6 +66,12 @@ public abstract class AbstractJackson2Decoder extends Jackson2CodecSupport imple
 	 */
 	private final JsonFactory jsonFactory;
 
+	private final boolean bindFromParser;
+
+	private final ConcurrentMap<JavaType, ObjectReader> objectReaderCache = new ConcurrentReferenceHashMap<>(64);
+
+	private int maxInMemorySize = -1;
+
 
 	/**
 	 * Constructor with a Jackson {@link ObjectMapper} to use.
@@ -71,6 +80,32 @@ public abstract class AbstractJackson2Decoder extends Jackson2CodecSupport imple
 		super(mapper, mimeTypes);
 		this.jsonFactory = mapper.getFactory().copy()
 				.disable(JsonFactory.Feature.USE_THREAD_LOCAL_FOR_BUFFER_RECYCLING);
+		// Comments and single quotes may hide the boundaries of values from Jackson2JsonBinder
+		this.bindFromParser = (JsonFactory.FORMAT_NAME_JSON.equals(this.jsonFactory.getFormatName()) &&
+				!this.jsonFactory.isEnabled(JsonParser.Feature.ALLOW_COMMENTS) &&
+				!this.jsonFactory.isEnabled(JsonParser.Feature.ALLOW_YAML_COMMENTS) &&
+				!this.jsonFactory.isEnabled(JsonParser.Feature.ALLOW_SINGLE_QUOTES));
+	}
+
+
+	/**
+	 * Set the max number of bytes that can be buffered for a single value,
+	 * i.e. a single element of a top-level array when decoding to a
+	 * {@code Flux}, or the whole input when decoding to a {@code Mono}.
+	 * <p>By default this is set to -1, i.e. unlimited.
+	 * @param byteCount the max number of bytes to buffer, or -1 for unlimited
+	 * @since 5.2
+	 */
+	public void setMaxInMemorySize(int byteCount) {
+		this.maxInMemorySize = byteCount;
+	}
+
+	/**
+	 * Return the {@link #setMaxInMemorySize configured} byte count limit.
+	 * @since 5.2
+	 */
+	public int getMaxInMemorySize() {
+		return this.maxInMemorySize;
 	}
 
 
@@ -86,56 +121,74 @@ public abstract class AbstractJackson2Decoder extends Jackson2CodecSupport imple
 	public Flux<Object> decode(Publisher<DataBuffer> input, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-		Flux<TokenBuffer> tokens = Jackson2Tokenizer.tokenize(
-				Flux.from(input), this.jsonFactory, getObjectMapper().getDeserializationContext(), true);
-		return decodeInternal(tokens, elementType, mimeType, hints);
+		return decodeInternal(Flux.from(input), elementType, hints, true);
 	}
 
 	@Override
 	public Mono<Object> decodeToMono(Publisher<DataBuffer> input, ResolvableType elementType,
 			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
 
-		Flux<TokenBuffer> tokens = Jackson2Tokenizer.tokenize(
-				Flux.from(input), this.jsonFactory, getObjectMapper().getDeserializationContext(), false);
-		return decodeInternal(tokens, elementType, mimeType, hints).singleOrEmpty();
+		return decodeInternal(Flux.from(input), elementType, hints, false).singleOrEmpty();
 	}
 
-	private Flux<Object> decodeInternal(Flux<TokenBuffer> tokens, ResolvableType elementType,
-			@Nullable MimeType mimeType, @Nullable Map<String, Object> hints) {
+	private Flux<Object> decodeInternal(Flux<DataBuffer> input, ResolvableType elementType,
+			@Nullable Map<String, Object> hints, boolean tokenizeArrayElements) {
 
-		Assert.notNull(tokens, "'tokens' must not be null");
+		Assert.notNull(input, "'input' must not be null");
 		Assert.notNull(elementType, "'elementType' must not be null");
 
+		ObjectReader reader = getObjectReader(elementType, hints);
+
+		Flux<Object> values;
+		if (this.bindFromParser) {
+			// Bind complete values straight from the non-blocking parser
+			values = Jackson2JsonBinder.bind(input, this.jsonFactory, reader,
+					tokenizeArrayElements, this.maxInMemorySize, this::processException);
+		}
+		else {
+			Flux<TokenBuffer> tokens = Jackson2Tokenizer.tokenize(input, this.jsonFactory,
+					getObjectMapper().getDeserializationContext(), tokenizeArrayElements, this.maxInMemorySize);
+			values = tokens.handle((tokenBuffer, sink) -> {
+				try {
+					Object value = reader.readValue(tokenBuffer.asParser(getObjectMapper()));
+					if (value != null) {
+						sink.next(value);
+					}
+				}
+				catch (IOException ex) {
+					sink.error(processException(ex));
+				}
+			});
+		}
+		if (!Hints.isLoggingSuppressed(hints)) {
+			values = values.doOnNext(value -> LogFormatUtils.traceDebug(logger, traceOn -> {
+				String formatted = LogFormatUtils.formatValue(value, !traceOn);
+				return Hints.getLogPrefix(hints) + "Decoded [" + formatted + "]";
+			}));
+		}
+		return values;
+	}
+
+	private ObjectReader getObjectReader(ResolvableType elementType, @Nullable Map<String, Object> hints) {
 		MethodParameter param = getParameter(elementType);
 		Class<?> contextClass = (param != null ? param.getContainingClass() : null);
 		JavaType javaType = getJavaType(elementType.getType(), contextClass);
 		Class<?> jsonView = (hints != null ? (Class<?>) hints.get(Jackson2CodecSupport.JSON_VIEW_HINT) : null);
 
-		ObjectReader reader = (jsonView != null ?
+		return (jsonView != null ?
 				getObjectMapper().readerWithView(jsonView).forType(javaType) :
-				getObjectMapper().readerFor(javaType));
-
-		return tokens.flatMap(tokenBuffer -> {
-			try {
-				Object value = reader.readValue(tokenBuffer.asParser(getObjectMapper()));
-				if (!Hints.isLoggingSuppressed(hints)) {
-					LogFormatUtils.traceDebug(logger, traceOn -> {
-						String formatted = LogFormatUtils.formatValue(value, !traceOn);
-						return Hints.getLogPrefix(hints) + "Decoded [" + formatted + "]";
-					});
-				}
-				return Mono.justOrEmpty(value);
-			}
-			catch (InvalidDefinitionException ex) {
-				return Mono.error(new CodecException("Type definition error: " + ex.getType(), ex));
-			}
-			catch (JsonProcessingException ex) {
-				return Mono.error(new DecodingException("JSON decoding error: " + ex.getOriginalMessage(), ex));
-			}
-			catch (IOException ex) {
-				return Mono.error(new DecodingException("I/O error while parsing input stream", ex));
-			}
-		});
+				this.objectReaderCache.computeIfAbsent(javaType, getObjectMapper()::readerFor));
+	}
+
+	private CodecException processException(IOException ex) {
+		if (ex instanceof InvalidDefinitionException) {
+			return new CodecException("Type definition error: " + ((InvalidDefinitionException) ex).getType(), ex);
+		}
+		if (ex instanceof JsonProcessingException) {
+			String originalMessage = ((JsonProcessingException) ex).getOriginalMessage();
+			return new DecodingException("JSON decoding error: " + originalMessage, ex);
+		}
+		return new DecodingException("I/O error while parsing input stream", ex);
 	}
 
 
@@ -25,6 +25,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
 
 import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonGenerator;
@@ -52,6 +53,7 @@ import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
+import org.springframework.util.ConcurrentReferenceHashMap;
 import org.springframework.util.MimeType;
 
 /**
@@ -78,6 +80,8 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 
 	private final List<MediaType> streamingMediaTypes = new ArrayList<>(1);
 
+	private final ConcurrentMap<JavaType, ObjectWriter> objectWriterCache = new ConcurrentReferenceHashMap<>(64);
+
 
 	/**
 	 * Constructor with a Jackson {@link ObjectMapper} to use.
@@ -157,11 +161,8 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 		JavaType javaType = getJavaType(elementType.getType(), null);
 		Class<?> jsonView = (hints != null ? (Class<?>) hints.get(Jackson2CodecSupport.JSON_VIEW_HINT) : null);
 		ObjectWriter writer = (jsonView != null ?
-				getObjectMapper().writerWithView(jsonView) : getObjectMapper().writer());
-
-		if (javaType.isContainerType()) {
-			writer = writer.forType(javaType);
-		}
+				initWriter(getObjectMapper().writerWithView(jsonView), javaType) :
+				this.objectWriterCache.computeIfAbsent(javaType, type -> initWriter(getObjectMapper().writer(), type)));
 
 		writer = customizeWriter(writer, mimeType, elementType, hints);
 
@@ -172,6 +173,8 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 		try {
 			JsonGenerator generator = getObjectMapper().getFactory().createGenerator(outputStream, encoding);
 			writer.writeValue(generator, value);
+			// Hand the generator's buffers back for recycling
+			generator.close();
 			release = false;
 		}
 		catch (InvalidDefinitionException ex) {
@@ -193,6 +196,10 @@ public abstract class AbstractJackson2Encoder extends Jackson2CodecSupport imple
 		return buffer;
 	}
 
+	private ObjectWriter initWriter(ObjectWriter writer, JavaType javaType) {
+		return (javaType.isContainerType() ? writer.forType(javaType) : writer);
+	}
+
 	protected ObjectWriter customizeWriter(ObjectWriter writer, @Nullable MimeType mimeType,
 			ResolvableType elementType, @Nullable Map<String, Object> hints) {
 
@@ -0,0 +1,395 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.json;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.ObjectCodec;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.fasterxml.jackson.core.util.JsonParserDelegate;
+import com.fasterxml.jackson.databind.ObjectReader;
+import reactor.core.publisher.Flux;
+
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.lang.Nullable;
+
+/**
+ * Binds a UTF-8 JSON stream, received in data buffers of arbitrary size, to a
+ * {@code Flux<Object>} directly from a non-blocking parser.
+ *
+ * <p>Unlike {@link Jackson2Tokenizer}, this does not copy the tokens of each
+ * value into a {@code TokenBuffer} to be parsed a second time. Instead, the
+ * input is scanned for the structural characters that delimit top-level
+ * values (or the elements of a top-level array), and only complete values
+ * are fed to the parser, so that they can be bound straight away with an
+ * {@link ObjectReader}. The bytes of an incomplete value are held back until
+ * the rest of the value is received.
+ *
+ * <p>The scan only knows about standard JSON syntax: it must not be used
+ * when the parser is configured to allow comments or single-quoted strings.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see Jackson2Tokenizer
+ */
+final class Jackson2JsonBinder {
+
+	private static final int MIN_CAPACITY = 256;
+
+
+	private final JsonParser parser;
+
+	private final ByteArrayFeeder inputFeeder;
+
+	private final ObjectReader reader;
+
+	private final boolean tokenizeArrayElements;
+
+	private final int maxInMemorySize;
+
+	private final Function<IOException, ? extends Throwable> exceptionMapper;
+
+	@Nullable
+	private byte[] input;
+
+	// Bytes before this index have been fed to the parser
+	private int fed;
+
+	// Bytes before this index belong to complete values, and can be fed
+	private int complete;
+
+	private int limit;
+
+	private int scanPosition;
+
+	private int valueStart = -1;
+
+	private boolean scalarValue;
+
+	private boolean inString;
+
+	private boolean escaped;
+
+	private int depth;
+
+	// Depth of values: 1 inside a top-level array whose elements are bound, 0 otherwise
+	private int valueDepth;
+
+	private boolean inTopLevelArray;
+
+
+	private Jackson2JsonBinder(JsonParser parser, ObjectReader reader, boolean tokenizeArrayElements,
+			int maxInMemorySize, Function<IOException, ? extends Throwable> exceptionMapper) {
+
+		// The non-blocking parser does not accept a codec, needed by some deserializers
+		this.parser = new CodecAwareParser(parser, reader);
+		this.inputFeeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+		this.reader = reader;
+		this.tokenizeArrayElements = tokenizeArrayElements;
+		this.maxInMemorySize = maxInMemorySize;
+		this.exceptionMapper = exceptionMapper;
+	}
+
+
+	private Flux<Object> bind(DataBuffer dataBuffer) {
+		try {
+			append(dataBuffer);
+		}
+		finally {
+			DataBufferUtils.release(dataBuffer);
+		}
+		try {
+			scan();
+			if (this.complete == this.fed) {
+				return Flux.empty();
+			}
+			this.inputFeeder.feedInput(this.input, this.fed, this.complete);
+			this.fed = this.complete;
+			return Flux.fromIterable(readValues(false));
+		}
+		catch (IOException ex) {
+			return Flux.error(this.exceptionMapper.apply(ex));
+		}
+		catch (DecodingException ex) {
+			return Flux.error(ex);
+		}
+	}
+
+	private Flux<Object> endOfInput() {
+		try {
+			if (this.limit > this.fed) {
+				this.inputFeeder.feedInput(this.input, this.fed, this.limit);
+				this.fed = this.limit;
+			}
+			this.inputFeeder.endOfInput();
+			return Flux.fromIterable(readValues(true));
+		}
+		catch (IOException ex) {
+			return Flux.error(this.exceptionMapper.apply(ex));
+		}
+	}
+
+	private void append(DataBuffer dataBuffer) {
+		int count = dataBuffer.readableByteCount();
+		byte[] input = this.input;
+		if (input == null || input.length - this.limit < count) {
+			// Drop the bytes consumed by the parser
+			int kept = this.limit - this.fed;
+			byte[] newInput = (input != null && kept + count <= input.length ?
+					input : new byte[Math.max((kept + count) * 2, MIN_CAPACITY)]);
+			if (input != null && kept > 0) {
+				System.arraycopy(input, this.fed, newInput, 0, kept);
+			}
+			if (this.valueStart != -1) {
+				this.valueStart -= this.fed;
+			}
+			this.complete -= this.fed;
+			this.scanPosition -= this.fed;
+			this.limit = kept;
+			this.fed = 0;
+			this.input = newInput;
+			input = newInput;
+		}
+		dataBuffer.read(input, this.limit, count);
+		this.limit += count;
+	}
+
+	/**
+	 * Scan the bytes received since the last call, advancing the end of
+	 * complete values.
+	 */
+	private void scan() {
+		byte[] input = this.input;
+		if (input == null) {
+			return;
+		}
+		int limit = this.limit;
+		for (int i = this.scanPosition; i < limit; i++) {
+			byte b = input[i];
+			if (this.inString) {
+				if (this.escaped) {
+					this.escaped = false;
+					continue;
+				}
+				// Fast-forward to the next quote or escape
+				while (b != '"' && b != '\\' && ++i < limit) {
+					b = input[i];
+				}
+				if (i == limit) {
+					break;
+				}
+				if (b == '\\') {
+					this.escaped = true;
+				}
+				else {
+					this.inString = false;
+					if (this.depth == this.valueDepth) {
+						completeValue(i + 1);
+					}
+				}
+				continue;
+			}
+			if (this.scalarValue) {
+				if (!isScalarEnd(b)) {
+					continue;
+				}
+				// Include the delimiter, so that the parser can tell the end of a number
+				this.scalarValue = false;
+				completeValue(b == '"' || b == '{' || b == '[' ? i : i + 1);
+			}
+			switch (b) {
+				case ' ':
+				case '\t':
+				case '\n':
+				case '\r':
+				case ',':
+				case ':':
+					break;
+				case '"':
+					startValue(i);
+					this.inString = true;
+					break;
+				case '[':
+					if (this.tokenizeArrayElements && this.depth == 0) {
+						this.depth = 1;
+						this.valueDepth = 1;
+						break;
+					}
+					startValue(i);
+					this.depth++;
+					break;
+				case '{':
+					startValue(i);
+					this.depth++;
+					break;
+				case ']':
+				case '}':
+					if (this.depth == 0) {
+						// Invalid: let the parser report it
+						this.complete = i + 1;
+						break;
+					}
+					this.depth--;
+					if (this.depth < this.valueDepth) {
+						// End of the top-level array
+						this.valueDepth = 0;
+						this.complete = i + 1;
+					}
+					else if (this.depth == this.valueDepth) {
+						completeValue(i + 1);
+					}
+					break;
+				default:
+					if (this.depth == this.valueDepth) {
+						startValue(i);
+						this.scalarValue = true;
+					}
+			}
+		}
+		this.scanPosition = limit;
+		if (this.valueStart != -1) {
+			checkInMemorySize(limit);
+		}
+	}
+
+	private static boolean isScalarEnd(byte b) {
+		switch (b) {
+			case ' ':
+			case '\t':
+			case '\n':
+			case '\r':
+			case ',':
+			case ']':
+			case '}':
+			case '"':
+			case '{':
+			case '[':
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	private void startValue(int index) {
+		if (this.depth == this.valueDepth) {
+			this.valueStart = index;
+		}
+	}
+
+	private void completeValue(int end) {
+		checkInMemorySize(end);
+		this.valueStart = -1;
+		this.complete = end;
+	}
+
+	private void checkInMemorySize(int end) {
+		if (this.maxInMemorySize >= 0 && this.valueStart != -1 && end - this.valueStart > this.maxInMemorySize) {
+			throw new DecodingException("Exceeded limit on max bytes per JSON value: " + this.maxInMemorySize);
+		}
+	}
+
+	/**
+	 * Read the values fed to the parser so far.
+	 * @param endOfInput whether all input has been fed, in which case the
+	 * parser may still return {@code NOT_AVAILABLE} before the last tokens
+	 */
+	private List<Object> readValues(boolean endOfInput) throws IOException {
+		List<Object> result = new ArrayList<>();
+		JsonToken token;
+		while ((token = this.parser.nextToken()) != null) {
+			if (token == JsonToken.NOT_AVAILABLE) {
+				if (endOfInput) {
+					continue;
+				}
+				break;
+			}
+			if (this.tokenizeArrayElements) {
+				if (!this.inTopLevelArray && token == JsonToken.START_ARRAY) {
+					this.inTopLevelArray = true;
+					continue;
+				}
+				if (this.inTopLevelArray && token == JsonToken.END_ARRAY) {
+					this.inTopLevelArray = false;
+					continue;
+				}
+			}
+			Object value = this.reader.readValue(this.parser);
+			if (value != null) {
+				result.add(value);
+			}
+		}
+		return result;
+	}
+
+
+	/**
+	 * Bind the given JSON data buffers to a {@code Flux<Object>}.
+	 * @param dataBuffers the source data buffers, with UTF-8 encoded JSON
+	 * @param jsonFactory the factory to use, which must support non-blocking parsing
+	 * @param reader the reader to bind values with
+	 * @param tokenizeArrayElements if {@code true} and the "top level" JSON object
+	 * is an array, each element is bound individually
+	 * @param maxInMemorySize maximum number of bytes to buffer for a single
+	 * value, or -1 for unlimited
+	 * @param exceptionMapper the function to map {@code IOException}s raised
+	 * by the parser or while binding with; errors of the source data buffers
+	 * are emitted as they are
+	 * @return the bound values
+	 */
+	public static Flux<Object> bind(Flux<DataBuffer> dataBuffers, JsonFactory jsonFactory,
+			ObjectReader reader, boolean tokenizeArrayElements, int maxInMemorySize,
+			Function<IOException, ? extends Throwable> exceptionMapper) {
+
+		try {
+			JsonParser parser = jsonFactory.createNonBlockingByteArrayParser();
+			Jackson2JsonBinder binder = new Jackson2JsonBinder(
+					parser, reader, tokenizeArrayElements, maxInMemorySize, exceptionMapper);
+			return dataBuffers.flatMap(binder::bind, Flux::error, binder::endOfInput);
+		}
+		catch (IOException ex) {
+			return Flux.error(exceptionMapper.apply(ex));
+		}
+	}
+
+
+	/**
+	 * Parser that exposes the given codec, for use with a non-blocking parser.
+	 */
+	private static class CodecAwareParser extends JsonParserDelegate {
+
+		private final ObjectCodec codec;
+
+		CodecAwareParser(JsonParser parser, ObjectCodec codec) {
+			super(parser);
+			this.codec = codec;
+		}
+
+		@Override
+		public ObjectCodec getCodec() {
+			return this.codec;
+		}
+	}
+
+}
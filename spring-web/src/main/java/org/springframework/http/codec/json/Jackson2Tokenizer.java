@@ -52,8 +52,13 @@ final class Jackson2Tokenizer {
 
 	private final boolean tokenizeArrayElements;
 
+	private final int maxInMemorySize;
+
 	private TokenBuffer tokenBuffer;
 
+	// Bytes received since the last complete value
+	private int byteCount;
+
 	private int objectDepth;
 
 	private int arrayDepth;
@@ -63,12 +68,13 @@ final class Jackson2Tokenizer {
 	private final ByteArrayFeeder inputFeeder;
 
 
-	private Jackson2Tokenizer(
-			JsonParser parser, DeserializationContext deserializationContext, boolean tokenizeArrayElements) {
+	private Jackson2Tokenizer(JsonParser parser, DeserializationContext deserializationContext,
+			boolean tokenizeArrayElements, int maxInMemorySize) {
 
 		this.parser = parser;
 		this.deserializationContext = deserializationContext;
 		this.tokenizeArrayElements = tokenizeArrayElements;
+		this.maxInMemorySize = maxInMemorySize;
 		this.tokenBuffer = new TokenBuffer(parser, deserializationContext);
 		this.inputFeeder = (ByteArrayFeeder) this.parser.getNonBlockingInputFeeder();
 	}
@@ -80,8 +86,11 @@ final class Jackson2Tokenizer {
 		DataBufferUtils.release(dataBuffer);
 
 		try {
+			this.byteCount += bytes.length;
 			this.inputFeeder.feedInput(bytes, 0, bytes.length);
-			return parseTokenBufferFlux();
+			Flux<TokenBuffer> result = parseTokenBufferFlux();
+			checkInMemorySize();
+			return result;
 		}
 		catch (JsonProcessingException ex) {
 			return Flux.error(new DecodingException("JSON decoding error: " + ex.getOriginalMessage(), ex));
@@ -125,6 +134,12 @@ final class Jackson2Tokenizer {
 		return Flux.fromIterable(result);
 	}
 
+	private void checkInMemorySize() {
+		if (this.maxInMemorySize >= 0 && this.byteCount > this.maxInMemorySize) {
+			throw new DecodingException("Exceeded limit on max bytes per JSON element: " + this.maxInMemorySize);
+		}
+	}
+
 	private void updateDepth(JsonToken token) {
 		switch (token) {
 			case START_OBJECT:
@@ -148,6 +163,7 @@ final class Jackson2Tokenizer {
 		if ((token.isStructEnd() || token.isScalarValue()) && this.objectDepth == 0 && this.arrayDepth == 0) {
 			result.add(this.tokenBuffer);
 			this.tokenBuffer = new TokenBuffer(this.parser, this.deserializationContext);
+			this.byteCount = 0;
 		}
 
 	}
@@ -161,6 +177,7 @@ final class Jackson2Tokenizer {
 				(token == JsonToken.END_OBJECT || token.isScalarValue())) {
 			result.add(this.tokenBuffer);
 			this.tokenBuffer = new TokenBuffer(this.parser, this.deserializationContext);
+			this.byteCount = 0;
 		}
 	}
 
@@ -181,9 +198,27 @@ final class Jackson2Tokenizer {
 	public static Flux<TokenBuffer> tokenize(Flux<DataBuffer> dataBuffers, JsonFactory jsonFactory,
 			DeserializationContext deserializationContext, boolean tokenizeArrayElements) {
 
+		return tokenize(dataBuffers, jsonFactory, deserializationContext, tokenizeArrayElements, -1);
+	}
+
+	/**
+	 * Tokenize the given {@code Flux<DataBuffer>} into {@code Flux<TokenBuffer>}.
+	 * @param dataBuffers the source data buffers
+	 * @param jsonFactory the factory to use
+	 * @param tokenizeArrayElements if {@code true} and the "top level" JSON object is
+	 * an array, each element is returned individually immediately after it is received
+	 * @param maxInMemorySize the approximate maximum number of bytes received for
+	 * a single token buffer, or -1 for no limit
+	 * @return the resulting token buffers
+	 * @since 5.2
+	 */
+	public static Flux<TokenBuffer> tokenize(Flux<DataBuffer> dataBuffers, JsonFactory jsonFactory,
+			DeserializationContext deserializationContext, boolean tokenizeArrayElements, int maxInMemorySize) {
+
 		try {
 			JsonParser parser = jsonFactory.createNonBlockingByteArrayParser();
-			Jackson2Tokenizer tokenizer = new Jackson2Tokenizer(parser, deserializationContext, tokenizeArrayElements);
+			Jackson2Tokenizer tokenizer = new Jackson2Tokenizer(
+					parser, deserializationContext, tokenizeArrayElements, maxInMemorySize);
 			return dataBuffers.flatMap(tokenizer::tokenize, Flux::error, tokenizer::endOfInput);
 		}
 		catch (IOException ex) {
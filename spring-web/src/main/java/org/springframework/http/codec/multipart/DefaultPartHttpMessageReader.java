@@ -0,0 +1,670 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.codec.Hints;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.log.LogFormatUtils;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ReactiveHttpInputMessage;
+import org.springframework.http.codec.HttpMessageReader;
+import org.springframework.http.codec.LoggingCodecSupport;
+import org.springframework.lang.Nullable;
+import org.springframework.util.Assert;
+
+/**
+ * Default {@code HttpMessageReader} for parsing {@code "multipart/form-data"}
+ * requests to a stream of {@link Part Parts}, without any third-party
+ * dependency.
+ *
+ * <p>The request body is parsed directly on the {@link DataBuffer DataBuffers}
+ * of the request. The content of a part is kept in memory up to
+ * {@link #setMaxInMemorySize(int) maxInMemorySize} bytes; larger parts are
+ * written to a temporary file as the request buffers come in, without any
+ * intermediate copy. A temporary file is moved, rather than copied, by
+ * {@link FilePart#transferTo(Path)}, and deleted when {@link Part#delete()}
+ * is called, e.g. by the {@link org.springframework.web.server.ServerWebExchange}
+ * at the end of the exchange for all parts read while handling it, through its
+ * multipart data or otherwise (see {@link #CREATED_PARTS_CONTEXT_KEY}). Until
+ * then, the {@link Part#content() content} of a part can be read any number
+ * of times.
+ *
+ * <p>This reader can be provided to {@link MultipartHttpMessageReader} in order
+ * to aggregate all parts into a Map.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @see MultipartHttpMessageReader
+ */
+public class DefaultPartHttpMessageReader extends LoggingCodecSupport implements HttpMessageReader<Part> {
+
+	/**
+	 * Key of a Reactor {@link reactor.util.context.Context Context} entry with
+	 * a thread-safe {@code Collection<Part>} that all parts read by this reader
+	 * are added to, allowing for {@link Part#delete() deleting} them once no
+	 * longer needed, e.g. at the end of an exchange.
+	 */
+	public static final String CREATED_PARTS_CONTEXT_KEY =
+			DefaultPartHttpMessageReader.class.getName() + ".CREATED_PARTS";
+
+	private static final String FILE_PREFIX = "spring-multipart-";
+
+	private final DataBufferFactory bufferFactory = new DefaultDataBufferFactory();
+
+	private int maxHeadersSize = 8 * 1024;
+
+	private int maxInMemorySize = 256 * 1024;
+
+	private long maxDiskUsagePerPart = -1;
+
+	private int maxParts = -1;
+
+	@Nullable
+	private volatile Path fileStorageDirectory;
+
+	private Scheduler blockingOperationScheduler = Schedulers.elastic();
+
+	private Charset headersCharset = StandardCharsets.UTF_8;
+
+
+	/**
+	 * Configure the maximum size, in bytes, of the headers of a single part.
+	 * Parts with larger headers are rejected with a {@link DecodingException}.
+	 * <p>By default this is set to 8 KB.
+	 */
+	public void setMaxHeadersSize(int byteCount) {
+		Assert.isTrue(byteCount > 0, "'maxHeadersSize' must be positive");
+		this.maxHeadersSize = byteCount;
+	}
+
+	/**
+	 * Return the configured maximum size of part headers.
+	 */
+	public int getMaxHeadersSize() {
+		return this.maxHeadersSize;
+	}
+
+	/**
+	 * Configure the maximum number of bytes of a part kept in memory. Larger
+	 * file parts are written to a temporary file, while larger form fields
+	 * are rejected with a {@link DecodingException}.
+	 * <p>By default this is set to 256 KB.
+	 */
+	public void setMaxInMemorySize(int byteCount) {
+		Assert.isTrue(byteCount >= 0, "'maxInMemorySize' must not be negative");
+		this.maxInMemorySize = byteCount;
+	}
+
+	/**
+	 * Return the configured maximum number of bytes of a part kept in memory.
+	 */
+	public int getMaxInMemorySize() {
+		return this.maxInMemorySize;
+	}
+
+	/**
+	 * Configure the maximum amount of disk space, in bytes, a single part may
+	 * use. Larger parts are rejected with a {@link DecodingException}.
+	 * <p>By default this is set to -1, i.e. unlimited.
+	 */
+	public void setMaxDiskUsagePerPart(long byteCount) {
+		this.maxDiskUsagePerPart = byteCount;
+	}
+
+	/**
+	 * Return the configured maximum amount of disk space per part.
+	 */
+	public long getMaxDiskUsagePerPart() {
+		return this.maxDiskUsagePerPart;
+	}
+
+	/**
+	 * Configure the maximum number of parts of a single request. Requests
+	 * with more parts are rejected with a {@link DecodingException}.
+	 * <p>By default this is set to -1, i.e. unlimited.
+	 */
+	public void setMaxParts(int maxParts) {
+		this.maxParts = maxParts;
+	}
+
+	/**
+	 * Return the configured maximum number of parts.
+	 */
+	public int getMaxParts() {
+		return this.maxParts;
+	}
+
+	/**
+	 * Configure the directory in which parts that exceed
+	 * {@link #setMaxInMemorySize(int) maxInMemorySize} are stored.
+	 * <p>By default a new temporary directory is created on first use.
+	 */
+	public void setFileStorageDirectory(Path fileStorageDirectory) {
+		Assert.notNull(fileStorageDirectory, "FileStorageDirectory must not be null");
+		this.fileStorageDirectory = fileStorageDirectory;
+	}
+
+	/**
+	 * Configure the {@link Scheduler} used for the blocking file operations
+	 * performed when storing, reading and transferring parts.
+	 * <p>By default this is {@link Schedulers#elastic()}.
+	 */
+	public void setBlockingOperationScheduler(Scheduler blockingOperationScheduler) {
+		Assert.notNull(blockingOperationScheduler, "Scheduler must not be null");
+		this.blockingOperationScheduler = blockingOperationScheduler;
+	}
+
+	/**
+	 * Configure the charset used to decode part headers.
+	 * <p>By default this is UTF-8.
+	 */
+	public void setHeadersCharset(Charset headersCharset) {
+		Assert.notNull(headersCharset, "HeadersCharset must not be null");
+		this.headersCharset = headersCharset;
+	}
+
+
+	@Override
+	public List<MediaType> getReadableMediaTypes() {
+		return Collections.singletonList(MediaType.MULTIPART_FORM_DATA);
+	}
+
+	@Override
+	public boolean canRead(ResolvableType elementType, @Nullable MediaType mediaType) {
+		return Part.class.equals(elementType.toClass()) &&
+				(mediaType == null || MediaType.MULTIPART_FORM_DATA.isCompatibleWith(mediaType));
+	}
+
+
+	@Override
+	public Flux<Part> read(ResolvableType elementType, ReactiveHttpInputMessage message, Map<String, Object> hints) {
+		MediaType contentType = message.getHeaders().getContentType();
+		byte[] boundary = boundary(contentType);
+		if (boundary == null) {
+			return Flux.error(new DecodingException(
+					"No multipart boundary found in Content-Type: \"" + contentType + "\""));
+		}
+		return Mono.subscriberContext().flatMapMany(context -> {
+			Collection<Part> createdParts = (context.hasKey(CREATED_PARTS_CONTEXT_KEY) ?
+					context.get(CREATED_PARTS_CONTEXT_KEY) : null);
+			PartGenerator generator = new PartGenerator();
+			return MultipartParser.parse(message.getBody(), boundary, this.maxHeadersSize, this.headersCharset)
+					.concatMap(generator::onToken)
+					.concatWith(Mono.defer(generator::complete))
+					.doOnDiscard(MultipartParser.BodyToken.class, MultipartParser.BodyToken::release)
+					.doOnError(ex -> generator.discard())
+					.doOnCancel(generator::discard)
+					.doOnNext(part -> {
+						if (createdParts != null) {
+							createdParts.add(part);
+						}
+					});
+		}).doOnNext(part -> {
+			if (!Hints.isLoggingSuppressed(hints)) {
+				LogFormatUtils.traceDebug(logger, traceOn -> Hints.getLogPrefix(hints) + "Parsed " +
+						(isEnableLoggingRequestDetails() ?
+								LogFormatUtils.formatValue(part, !traceOn) :
+								"parts '" + part.name() + "' (content masked)"));
+			}
+		});
+	}
+
+	@Override
+	public Mono<Part> readMono(ResolvableType elementType, ReactiveHttpInputMessage message, Map<String, Object> hints) {
+		return Mono.error(new UnsupportedOperationException("Cannot read multipart request body into single Part"));
+	}
+
+	@Nullable
+	private static byte[] boundary(@Nullable MediaType contentType) {
+		if (contentType == null) {
+			return null;
+		}
+		String boundary = contentType.getParameter("boundary");
+		if (boundary == null) {
+			return null;
+		}
+		if (boundary.length() > 1 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+			boundary = boundary.substring(1, boundary.length() - 1);
+		}
+		return (!boundary.isEmpty() ? boundary.getBytes(StandardCharsets.ISO_8859_1) : null);
+	}
+
+	private Path fileStorageDirectory() throws IOException {
+		Path directory = this.fileStorageDirectory;
+		if (directory == null) {
+			synchronized (this) {
+				directory = this.fileStorageDirectory;
+				if (directory == null) {
+					directory = Files.createTempDirectory(FILE_PREFIX);
+					this.fileStorageDirectory = directory;
+				}
+			}
+		}
+		return directory;
+	}
+
+
+	/**
+	 * Turns the tokens of a {@link MultipartParser} into {@link Part Parts},
+	 * one part at a time.
+	 */
+	private final class PartGenerator {
+
+		@Nullable
+		private PartBuilder current;
+
+		private int partCount;
+
+		Mono<Part> onToken(MultipartParser.Token token) {
+			if (token instanceof MultipartParser.HeadersToken) {
+				HttpHeaders headers = ((MultipartParser.HeadersToken) token).headers();
+				int limit = maxParts;
+				if (limit != -1 && ++this.partCount > limit) {
+					return Mono.error(new DecodingException("Too many parts (limit is " + limit + ")"));
+				}
+				String name = headers.getContentDisposition().getName();
+				if (name == null) {
+					return Mono.error(new DecodingException("Part has no name in Content-Disposition: " + headers));
+				}
+				Mono<Part> previous = complete();
+				this.current = new PartBuilder(name, headers);
+				return previous;
+			}
+			DataBuffer buffer = ((MultipartParser.BodyToken) token).buffer();
+			PartBuilder builder = this.current;
+			if (builder == null) {
+				DataBufferUtils.release(buffer);
+				return Mono.error(new DecodingException("Part content before part headers"));
+			}
+			return builder.add(buffer).then(Mono.empty());
+		}
+
+		Mono<Part> complete() {
+			PartBuilder builder = this.current;
+			this.current = null;
+			return (builder != null ? builder.build() : Mono.empty());
+		}
+
+		void discard() {
+			PartBuilder builder = this.current;
+			this.current = null;
+			if (builder != null) {
+				builder.discard();
+			}
+		}
+	}
+
+
+	/**
+	 * Collects the content of a single part, in memory or in a temporary file.
+	 */
+	private final class PartBuilder {
+
+		private final String name;
+
+		private final HttpHeaders headers;
+
+		@Nullable
+		private final String filename;
+
+		private final boolean formField;
+
+		private final List<DataBuffer> buffers = new ArrayList<>();
+
+		private long size;
+
+		@Nullable
+		private Path file;
+
+		@Nullable
+		private FileChannel channel;
+
+		PartBuilder(String name, HttpHeaders headers) {
+			this.name = name;
+			this.headers = headers;
+			this.filename = headers.getContentDisposition().getFilename();
+			MediaType contentType = headers.getContentType();
+			this.formField = (this.filename == null &&
+					(contentType == null || "text".equalsIgnoreCase(contentType.getType())));
+		}
+
+		Mono<Void> add(DataBuffer buffer) {
+			this.size += buffer.readableByteCount();
+			if (this.file == null && this.size <= maxInMemorySize) {
+				this.buffers.add(buffer);
+				return Mono.empty();
+			}
+			if (this.formField) {
+				DataBufferUtils.release(buffer);
+				return Mono.error(new DecodingException("Form field '" + this.name +
+						"' exceeded the in-memory limit of " + maxInMemorySize + " bytes"));
+			}
+			long limit = maxDiskUsagePerPart;
+			if (limit != -1 && this.size > limit) {
+				DataBufferUtils.release(buffer);
+				return Mono.error(new DecodingException("Part '" + this.name +
+						"' exceeded the disk usage limit of " + limit + " bytes"));
+			}
+			List<DataBuffer> toWrite;
+			if (this.buffers.isEmpty()) {
+				toWrite = Collections.singletonList(buffer);
+			}
+			else {
+				toWrite = new ArrayList<>(this.buffers);
+				toWrite.add(buffer);
+				this.buffers.clear();
+			}
+			return Mono.<Void>fromCallable(() -> {
+				write(toWrite);
+				return null;
+			}).subscribeOn(blockingOperationScheduler);
+		}
+
+		private void write(List<DataBuffer> toWrite) throws IOException {
+			try {
+				FileChannel channel = this.channel;
+				if (channel == null) {
+					Path file = Files.createTempFile(fileStorageDirectory(), FILE_PREFIX, ".multipart");
+					this.file = file;
+					channel = FileChannel.open(file, StandardOpenOption.WRITE);
+					this.channel = channel;
+				}
+				for (DataBuffer buffer : toWrite) {
+					ByteBuffer byteBuffer = buffer.asByteBuffer();
+					while (byteBuffer.hasRemaining()) {
+						channel.write(byteBuffer);
+					}
+				}
+			}
+			finally {
+				toWrite.forEach(DataBufferUtils::release);
+			}
+		}
+
+		Mono<Part> build() {
+			FileChannel channel = this.channel;
+			Path file = this.file;
+			if (channel != null && file != null) {
+				return Mono.fromCallable(() -> {
+					channel.close();
+					return createPart(new FileContent(file));
+				}).subscribeOn(blockingOperationScheduler);
+			}
+			byte[] bytes = new byte[(int) this.size];
+			int offset = 0;
+			for (DataBuffer buffer : this.buffers) {
+				int count = buffer.readableByteCount();
+				buffer.read(bytes, offset, count);
+				offset += count;
+				DataBufferUtils.release(buffer);
+			}
+			this.buffers.clear();
+			return Mono.just(createPart(new MemoryContent(bytes)));
+		}
+
+		private Part createPart(Content content) {
+			if (this.filename != null) {
+				return new DefaultFilePart(this.name, this.headers, content, this.filename);
+			}
+			else if (this.formField) {
+				MediaType contentType = this.headers.getContentType();
+				Charset charset = (contentType != null && contentType.getCharset() != null ?
+						contentType.getCharset() : StandardCharsets.UTF_8);
+				return new DefaultFormFieldPart(this.name, this.headers, content, content.asString(charset));
+			}
+			else {
+				return new DefaultPart(this.name, this.headers, content);
+			}
+		}
+
+		void discard() {
+			this.buffers.forEach(DataBufferUtils::release);
+			this.buffers.clear();
+			FileChannel channel = this.channel;
+			Path file = this.file;
+			if (channel != null && file != null) {
+				blockingOperationScheduler.schedule(() -> {
+					try {
+						channel.close();
+						Files.deleteIfExists(file);
+					}
+					catch (IOException ex) {
+						// ignore
+					}
+				});
+			}
+		}
+	}
+
+
+	/**
+	 * The content of a part, held in memory or in a file.
+	 */
+	private abstract static class Content {
+
+		abstract Flux<DataBuffer> read();
+
+		abstract Mono<Void> transferTo(Path dest);
+
+		abstract Mono<Void> delete();
+
+		abstract String asString(Charset charset);
+	}
+
+
+	private final class MemoryContent extends Content {
+
+		private final byte[] bytes;
+
+		MemoryContent(byte[] bytes) {
+			this.bytes = bytes;
+		}
+
+		@Override
+		Flux<DataBuffer> read() {
+			return Flux.defer(() -> Flux.just(bufferFactory.wrap(this.bytes)));
+		}
+
+		@Override
+		Mono<Void> transferTo(Path dest) {
+			return Mono.<Void>fromCallable(() -> {
+				Files.write(dest, this.bytes);
+				return null;
+			}).subscribeOn(blockingOperationScheduler);
+		}
+
+		@Override
+		Mono<Void> delete() {
+			return Mono.empty();
+		}
+
+		@Override
+		String asString(Charset charset) {
+			return new String(this.bytes, charset);
+		}
+	}
+
+
+	private final class FileContent extends Content {
+
+		private volatile Path file;
+
+		private volatile boolean temporary = true;
+
+		FileContent(Path file) {
+			this.file = file;
+		}
+
+		@Override
+		Flux<DataBuffer> read() {
+			return Flux.defer(() -> {
+				Path file = this.file;
+				return DataBufferUtils.readByteChannel(
+						() -> FileChannel.open(file, StandardOpenOption.READ), bufferFactory, 4096);
+			}).subscribeOn(blockingOperationScheduler);
+		}
+
+		@Override
+		Mono<Void> transferTo(Path dest) {
+			return Mono.<Void>fromCallable(() -> {
+				if (this.temporary) {
+					this.file = Files.move(this.file, dest, StandardCopyOption.REPLACE_EXISTING);
+					this.temporary = false;
+				}
+				else {
+					// The file already belongs to the application: leave it in place
+					Files.copy(this.file, dest, StandardCopyOption.REPLACE_EXISTING);
+				}
+				return null;
+			}).subscribeOn(blockingOperationScheduler);
+		}
+
+		@Override
+		Mono<Void> delete() {
+			return Mono.<Void>fromCallable(() -> {
+				if (this.temporary) {
+					Files.deleteIfExists(this.file);
+				}
+				return null;
+			}).subscribeOn(blockingOperationScheduler);
+		}
+
+		@Override
+		String asString(Charset charset) {
+			throw new IllegalStateException("Form fields are kept in memory");
+		}
+	}
+
+
+	private static class DefaultPart implements Part {
+
+		private final String name;
+
+		private final HttpHeaders headers;
+
+		private final Content content;
+
+		DefaultPart(String name, HttpHeaders headers, Content content) {
+			this.name = name;
+			this.headers = headers;
+			this.content = content;
+		}
+
+		@Override
+		public String name() {
+			return this.name;
+		}
+
+		@Override
+		public HttpHeaders headers() {
+			return this.headers;
+		}
+
+		@Override
+		public Flux<DataBuffer> content() {
+			return this.content.read();
+		}
+
+		@Override
+		public Mono<Void> delete() {
+			return this.content.delete();
+		}
+
+		Content getContent() {
+			return this.content;
+		}
+
+		@Override
+		public String toString() {
+			return "Part '" + this.name + "', headers=" + this.headers;
+		}
+	}
+
+
+	private static class DefaultFilePart extends DefaultPart implements FilePart {
+
+		private final String filename;
+
+		DefaultFilePart(String name, HttpHeaders headers, Content content, String filename) {
+			super(name, headers, content);
+			this.filename = filename;
+		}
+
+		@Override
+		public String filename() {
+			return this.filename;
+		}
+
+		@Override
+		public Mono<Void> transferTo(Path dest) {
+			return getContent().transferTo(dest);
+		}
+
+		@Override
+		public String toString() {
+			return "Part '" + name() + "', filename='" + this.filename + "'";
+		}
+	}
+
+
+	private static class DefaultFormFieldPart extends DefaultPart implements FormFieldPart {
+
+		private final String value;
+
+		DefaultFormFieldPart(String name, HttpHeaders headers, Content content, String value) {
+			super(name, headers, content);
+			this.value = value;
+		}
+
+		@Override
+		public String value() {
+			return this.value;
+		}
+
+		@Override
+		public String toString() {
+			return "Part '" + name() + "=" + this.value + "'";
+		}
+	}
+
+}
@@ -0,0 +1,386 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.PooledDataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.util.StringUtils;
+
+/**
+ * Streaming parser for multipart content that turns a stream of
+ * {@link DataBuffer DataBuffers} into a stream of {@link Token Tokens}: the
+ * headers of each part, followed by the content of that part.
+ *
+ * <p>The part content is emitted as retained slices of the input buffers, i.e.
+ * without copying, unless the input buffers cannot be retained that way.
+ * Boundaries are found with a Boyer-Moore-Horspool search that also detects
+ * boundaries spanning input buffers. Only the few bytes at the end of a buffer
+ * that could be the start of a boundary are held back until the next buffer
+ * arrives.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ */
+final class MultipartParser {
+
+	private static final byte CR = '\r';
+
+	private static final byte LF = '\n';
+
+	private static final byte HYPHEN = '-';
+
+
+	private final byte[] delimiter;
+
+	private final int[] skipTable = new int[256];
+
+	private final int maxHeadersSize;
+
+	private final Charset headersCharset;
+
+	private State state = State.PREAMBLE;
+
+	// Bytes at the end of the previous buffer that may start a delimiter
+	private final byte[] tail;
+
+	private int tailLength;
+
+	private final byte[] delimiterSuffix = new byte[2];
+
+	private int delimiterSuffixLength;
+
+	private byte[] headerBytes = new byte[256];
+
+	private int headerLength;
+
+
+	private MultipartParser(byte[] boundary, int maxHeadersSize, Charset headersCharset) {
+		this.delimiter = new byte[boundary.length + 4];
+		this.delimiter[0] = CR;
+		this.delimiter[1] = LF;
+		this.delimiter[2] = HYPHEN;
+		this.delimiter[3] = HYPHEN;
+		System.arraycopy(boundary, 0, this.delimiter, 4, boundary.length);
+		Arrays.fill(this.skipTable, this.delimiter.length);
+		for (int i = 0; i < this.delimiter.length - 1; i++) {
+			this.skipTable[this.delimiter[i] & 0xff] = this.delimiter.length - 1 - i;
+		}
+		this.maxHeadersSize = maxHeadersSize;
+		this.headersCharset = headersCharset;
+		// The first boundary is not preceded by CRLF: pretend that it is
+		this.tail = new byte[this.delimiter.length];
+		this.tail[0] = CR;
+		this.tail[1] = LF;
+		this.tailLength = 2;
+	}
+
+
+	/**
+	 * Parse the given stream of buffers into a stream of {@link Token Tokens}.
+	 * @param buffers the input buffers
+	 * @param boundary the multipart boundary
+	 * @param maxHeadersSize the maximum size of the headers of a single part
+	 * @param headersCharset the charset to decode part headers with
+	 * @return the stream of tokens
+	 */
+	public static Flux<Token> parse(Flux<DataBuffer> buffers, byte[] boundary, int maxHeadersSize,
+			Charset headersCharset) {
+
+		return Flux.defer(() -> {
+			MultipartParser parser = new MultipartParser(boundary, maxHeadersSize, headersCharset);
+			return buffers.concatMapIterable(parser::parse, 1)
+					.concatWith(Mono.defer(parser::complete))
+					.doOnDiscard(PooledDataBuffer.class, DataBufferUtils::release)
+					.doOnDiscard(BodyToken.class, BodyToken::release);
+		});
+	}
+
+
+	private List<Token> parse(DataBuffer buffer) {
+		List<Token> tokens = new ArrayList<>(2);
+		try {
+			int position = buffer.readPosition();
+			int end = buffer.writePosition();
+			while (position < end) {
+				switch (this.state) {
+					case PREAMBLE:
+					case BODY:
+						position = parseBody(buffer, position, end, tokens);
+						break;
+					case DELIMITER_SUFFIX:
+						position = parseDelimiterSuffix(buffer, position, end);
+						break;
+					case HEADERS:
+						position = parseHeaders(buffer, position, end, tokens);
+						break;
+					default:
+						// Ignore the epilogue
+						position = end;
+				}
+			}
+		}
+		catch (Throwable ex) {
+			tokens.forEach(Token::release);
+			throw ex;
+		}
+		finally {
+			DataBufferUtils.release(buffer);
+		}
+		return tokens;
+	}
+
+	private Mono<Token> complete() {
+		if (this.state != State.DONE) {
+			return Mono.error(new DecodingException("Could not find end of multipart body"));
+		}
+		return Mono.empty();
+	}
+
+	/**
+	 * Search the held back tail followed by the given buffer for the delimiter,
+	 * emitting all content before it, or before the part that could still turn
+	 * out to be the start of a delimiter.
+	 */
+	private int parseBody(DataBuffer buffer, int position, int end, List<Token> tokens) {
+		int length = this.tailLength + end - position;
+		int index = indexOfDelimiter(buffer, position, length);
+		if (index != -1) {
+			if (this.state == State.BODY) {
+				addBodyTokens(buffer, position, index, tokens);
+			}
+			int delimiterEnd = position + index + this.delimiter.length - this.tailLength;
+			this.tailLength = 0;
+			this.delimiterSuffixLength = 0;
+			this.state = State.DELIMITER_SUFFIX;
+			return delimiterEnd;
+		}
+		int prefixLength = delimiterPrefixLength(buffer, position, length);
+		if (this.state == State.BODY) {
+			addBodyTokens(buffer, position, length - prefixLength, tokens);
+		}
+		byte[] newTail = new byte[prefixLength];
+		for (int i = 0; i < prefixLength; i++) {
+			newTail[i] = byteAt(buffer, position, length - prefixLength + i);
+		}
+		System.arraycopy(newTail, 0, this.tail, 0, prefixLength);
+		this.tailLength = prefixLength;
+		return end;
+	}
+
+	private byte byteAt(DataBuffer buffer, int position, int index) {
+		return (index < this.tailLength ? this.tail[index] : buffer.getByte(position + index - this.tailLength));
+	}
+
+	/**
+	 * Boyer-Moore-Horspool search for the delimiter in the held back tail
+	 * followed by the remaining content of the given buffer.
+	 */
+	private int indexOfDelimiter(DataBuffer buffer, int position, int length) {
+		int last = this.delimiter.length - 1;
+		int i = 0;
+		while (i <= length - this.delimiter.length) {
+			int j = last;
+			while (j >= 0 && byteAt(buffer, position, i + j) == this.delimiter[j]) {
+				j--;
+			}
+			if (j < 0) {
+				return i;
+			}
+			i += this.skipTable[byteAt(buffer, position, i + last) & 0xff];
+		}
+		return -1;
+	}
+
+	/**
+	 * Return the length of the longest suffix of the content that is also a
+	 * prefix of the delimiter, i.e. content that may not be emitted yet.
+	 */
+	private int delimiterPrefixLength(DataBuffer buffer, int position, int length) {
+		for (int prefixLength = Math.min(this.delimiter.length - 1, length); prefixLength > 0; prefixLength--) {
+			int start = length - prefixLength;
+			if (byteAt(buffer, position, start) == CR) {
+				int i = 1;
+				while (i < prefixLength && byteAt(buffer, position, start + i) == this.delimiter[i]) {
+					i++;
+				}
+				if (i == prefixLength) {
+					return prefixLength;
+				}
+			}
+		}
+		return 0;
+	}
+
+	private void addBodyTokens(DataBuffer buffer, int position, int length, List<Token> tokens) {
+		int tailCount = Math.min(length, this.tailLength);
+		if (tailCount > 0) {
+			byte[] bytes = Arrays.copyOf(this.tail, tailCount);
+			tokens.add(new BodyToken(buffer.factory().wrap(bytes)));
+		}
+		int bufferCount = length - tailCount;
+		if (bufferCount > 0) {
+			DataBuffer slice = buffer.slice(position, bufferCount);
+			if (buffer instanceof PooledDataBuffer && !(slice instanceof PooledDataBuffer)) {
+				// The slice cannot be retained, and would not survive the release of the buffer
+				DataBuffer copy = buffer.factory().allocateBuffer(bufferCount);
+				copy.write(slice);
+				slice = copy;
+			}
+			else {
+				slice = DataBufferUtils.retain(slice);
+			}
+			tokens.add(new BodyToken(slice));
+		}
+	}
+
+	private int parseDelimiterSuffix(DataBuffer buffer, int position, int end) {
+		while (this.delimiterSuffixLength < 2 && position < end) {
+			this.delimiterSuffix[this.delimiterSuffixLength++] = buffer.getByte(position++);
+		}
+		if (this.delimiterSuffixLength == 2) {
+			if (this.delimiterSuffix[0] == HYPHEN && this.delimiterSuffix[1] == HYPHEN) {
+				this.state = State.DONE;
+				return end;
+			}
+			else if (this.delimiterSuffix[0] == CR && this.delimiterSuffix[1] == LF) {
+				this.headerLength = 0;
+				this.state = State.HEADERS;
+			}
+			else {
+				throw new DecodingException("Invalid multipart boundary: expected CRLF or '--'");
+			}
+		}
+		return position;
+	}
+
+	private int parseHeaders(DataBuffer buffer, int position, int end, List<Token> tokens) {
+		while (position < end) {
+			if (this.headerLength == this.headerBytes.length) {
+				this.headerBytes = Arrays.copyOf(this.headerBytes, this.headerLength * 2);
+			}
+			this.headerBytes[this.headerLength++] = buffer.getByte(position++);
+			if (this.headerLength > this.maxHeadersSize) {
+				throw new DecodingException(
+						"Part headers exceeded the limit of " + this.maxHeadersSize + " bytes");
+			}
+			int headersEnd = headersEnd();
+			if (headersEnd != -1) {
+				tokens.add(new HeadersToken(parseHeaders(headersEnd)));
+				this.tailLength = 0;
+				this.state = State.BODY;
+				break;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Return the length of the headers if the blank line that terminates them
+	 * has been read, or -1 otherwise.
+	 */
+	private int headersEnd() {
+		int length = this.headerLength;
+		byte[] bytes = this.headerBytes;
+		if (length == 2 && bytes[0] == CR && bytes[1] == LF) {
+			return 0;
+		}
+		if (length >= 4 && bytes[length - 4] == CR && bytes[length - 3] == LF &&
+				bytes[length - 2] == CR && bytes[length - 1] == LF) {
+			return length - 4;
+		}
+		return -1;
+	}
+
+	private HttpHeaders parseHeaders(int length) {
+		HttpHeaders headers = new HttpHeaders();
+		String content = new String(this.headerBytes, 0, length, this.headersCharset);
+		for (String line : StringUtils.delimitedListToStringArray(content, "\r\n")) {
+			int index = line.indexOf(':');
+			if (index > 0) {
+				headers.add(line.substring(0, index).trim(), line.substring(index + 1).trim());
+			}
+		}
+		return headers;
+	}
+
+
+	private enum State {
+
+		PREAMBLE, DELIMITER_SUFFIX, HEADERS, BODY, DONE
+	}
+
+
+	/**
+	 * Represents a token produced by the parser.
+	 */
+	abstract static class Token {
+
+		void release() {
+		}
+	}
+
+
+	/**
+	 * Token containing the headers of a part.
+	 */
+	static final class HeadersToken extends Token {
+
+		private final HttpHeaders headers;
+
+		HeadersToken(HttpHeaders headers) {
+			this.headers = headers;
+		}
+
+		public HttpHeaders headers() {
+			return this.headers;
+		}
+	}
+
+
+	/**
+	 * Token containing content of the current part.
+	 */
+	static final class BodyToken extends Token {
+
+		private final DataBuffer buffer;
+
+		BodyToken(DataBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		public DataBuffer buffer() {
+			return this.buffer;
+		}
+
+		@Override
+		void release() {
+			DataBufferUtils.release(this.buffer);
+		}
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,12 +17,12 @@
 package org.springframework.http.codec.protobuf;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Collectors;
 
+import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.Message;
 import org.reactivestreams.Publisher;
 import reactor.core.publisher.Flux;
@@ -31,6 +31,7 @@ import reactor.core.publisher.Mono;
 import org.springframework.core.ResolvableType;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.HttpMessageEncoder;
 import org.springframework.lang.Nullable;
@@ -79,20 +80,32 @@ public class ProtobufEncoder extends ProtobufCodecSupport implements HttpMessage
 	}
 
 	private DataBuffer encodeMessage(Message message, DataBufferFactory bufferFactory, boolean streaming) {
-		DataBuffer buffer = bufferFactory.allocateBuffer();
-		OutputStream outputStream = buffer.asOutputStream();
+		int size = message.getSerializedSize();
+		int length = (streaming ? CodedOutputStream.computeUInt32SizeNoTag(size) + size : size);
+		DataBuffer buffer = bufferFactory.allocateBuffer(length);
+		boolean release = true;
 		try {
+			// Serialize straight into the buffer, which is allocated with the exact size
+			int writePosition = buffer.writePosition();
+			CodedOutputStream output = CodedOutputStream.newInstance(buffer.asByteBuffer(writePosition, length));
 			if (streaming) {
-				message.writeDelimitedTo(outputStream);
-			}
-			else {
-				message.writeTo(outputStream);
+				output.writeUInt32NoTag(size);
 			}
+			message.writeTo(output);
+			output.flush();
+			output.checkNoSpaceLeft();
+			buffer.writePosition(writePosition + length);
+			release = false;
 			return buffer;
 		}
 		catch (IOException ex) {
 			throw new IllegalStateException("Unexpected I/O error while writing to data buffer", ex);
 		}
+		finally {
+			if (release) {
+				DataBufferUtils.release(buffer);
+			}
+		}
 	}
 
 	@Override
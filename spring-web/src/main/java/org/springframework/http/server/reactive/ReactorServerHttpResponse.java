@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@
 package org.springframework.http.server.reactive;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.handler.codec.http.HttpResponseStatus;
@@ -30,6 +32,7 @@ import reactor.netty.http.server.HttpServerResponse;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferFactory;
 import org.springframework.core.io.buffer.NettyDataBufferFactory;
+import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseCookie;
@@ -121,6 +124,27 @@ class ReactorServerHttpResponse extends AbstractServerHttpResponse implements Ze
 		return doCommit(() -> this.response.sendFile(file, position, count).then());
 	}
 
+	@Override
+	public Mono<Void> writeWith(Path file, List<ResourceRegion> regions, List<DataBuffer> delimiters) {
+		Assert.isTrue(delimiters.size() == regions.size() + 1, "Expected one more delimiter than regions");
+		return doCommit(() -> {
+			List<Mono<Void>> writes = new ArrayList<>(regions.size() * 2 + 1);
+			for (int i = 0; i < regions.size(); i++) {
+				ResourceRegion region = regions.get(i);
+				writes.add(send(delimiters.get(i)));
+				writes.add(Mono.defer(() ->
+						this.response.sendFile(file, region.getPosition(), region.getCount()).then()));
+			}
+			writes.add(send(delimiters.get(regions.size())));
+			return Flux.concat(writes).then();
+		});
+	}
+
+	private Mono<Void> send(DataBuffer dataBuffer) {
+		// Not Mono.just: Reactor Netty sends a single Mono value as the complete body
+		return Mono.defer(() -> this.response.send(Flux.just(NettyDataBufferFactory.toByteBuf(dataBuffer))).then());
+	}
+
 	private Publisher<ByteBuf> toByteBufs(Publisher<? extends DataBuffer> dataBuffers) {
 		return Flux.from(dataBuffers).map(NettyDataBufferFactory::toByteBuf);
 	}
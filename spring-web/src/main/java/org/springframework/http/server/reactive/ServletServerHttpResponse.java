@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.springframework.http.server.reactive;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import javax.servlet.AsyncContext;
 import javax.servlet.AsyncEvent;
@@ -164,6 +165,13 @@ class ServletServerHttpResponse extends AbstractListenerServerHttpResponse {
 	 */
 	protected int writeToOutputStream(DataBuffer dataBuffer) throws IOException {
 		ServletOutputStream outputStream = this.outputStream;
+		ByteBuffer byteBuffer = dataBuffer.asByteBuffer();
+		if (byteBuffer.hasArray()) {
+			// Write straight from the backing array, without an intermediate copy
+			int len = byteBuffer.remaining();
+			outputStream.write(byteBuffer.array(), byteBuffer.arrayOffset() + byteBuffer.position(), len);
+			return len;
+		}
 		InputStream input = dataBuffer.asInputStream();
 		int bytesWritten = 0;
 		byte[] buffer = new byte[this.bufferSize];
@@ -0,0 +1,236 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.method;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.lang.Nullable;
+import org.springframework.util.CollectionUtils;
+import org.springframework.util.StringUtils;
+
+/**
+ * Prefix tree over the leading literal path segments of handler method
+ * mappings, with the mappings at each node bucketed by HTTP method, used
+ * to narrow down the mappings to check for a given request.
+ *
+ * <p>The candidates returned for a request are a superset of the mappings
+ * that can match it, as long as the path prefixes of each mapping are only
+ * made of segments that the mapping's own path matching compares literally
+ * against the same request path. Segments are compared case-insensitively.
+ *
+ * <p>This class is not thread-safe. It is mainly intended for use within
+ * the framework, guarded by the lock of a mapping registry.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ * @since 5.2
+ * @param <T> the mapping type
+ */
+public class HandlerMethodMappingIndex<T> {
+
+	private static final String ANY_METHOD = "";
+
+	private final Node<T> root = new Node<>();
+
+	private final Map<T, List<Node<T>>> nodesByMapping = new HashMap<>();
+
+
+	/**
+	 * Add the given mapping to the index, replacing any previous entry for it.
+	 * @param mapping the mapping to add
+	 * @param pathPrefixes the literal path prefixes of the mapping, or
+	 * {@code null} if the mapping may match any path
+	 * @param httpMethods the HTTP methods of the mapping, or {@code null}
+	 * (or an empty set) if the mapping is not restricted by HTTP method
+	 */
+	public void add(T mapping, @Nullable Collection<List<String>> pathPrefixes,
+			@Nullable Set<String> httpMethods) {
+
+		remove(mapping);
+		List<Node<T>> nodes = new ArrayList<>(1);
+		for (List<String> prefix : getMinimalPrefixes(pathPrefixes)) {
+			Node<T> node = this.root;
+			for (String segment : prefix) {
+				node = node.children.computeIfAbsent(segment, key -> new Node<>());
+			}
+			if (CollectionUtils.isEmpty(httpMethods)) {
+				node.add(ANY_METHOD, mapping);
+			}
+			else {
+				for (String httpMethod : httpMethods) {
+					node.add(httpMethod, mapping);
+				}
+			}
+			nodes.add(node);
+		}
+		this.nodesByMapping.put(mapping, nodes);
+	}
+
+	/**
+	 * Remove the given mapping from the index, if present.
+	 */
+	public void remove(T mapping) {
+		List<Node<T>> nodes = this.nodesByMapping.remove(mapping);
+		if (nodes != null) {
+			for (Node<T> node : nodes) {
+				node.remove(mapping);
+			}
+		}
+	}
+
+	/**
+	 * Return the mappings that may match a request with the given path
+	 * segments and HTTP method, or all HTTP methods for a pre-flight request.
+	 */
+	public List<T> getCandidates(Iterable<String> pathSegments, @Nullable String httpMethod, boolean preFlight) {
+		List<T> candidates = new ArrayList<>();
+		Node<T> node = this.root;
+		node.collect(httpMethod, preFlight, candidates);
+		for (String segment : pathSegments) {
+			String key = normalize(segment);
+			if (key.isEmpty()) {
+				continue;
+			}
+			node = node.children.get(key);
+			if (node == null) {
+				break;
+			}
+			node.collect(httpMethod, preFlight, candidates);
+		}
+		return candidates;
+	}
+
+
+	/**
+	 * Return the leading segments of the given path pattern that do not
+	 * contain any URI variable, wildcard, encoded or matrix variable syntax.
+	 * @param pattern the path pattern
+	 * @param includeLastSegment whether the last segment of the pattern may
+	 * be part of the prefix, i.e. {@code false} if it may be matched with a
+	 * suffix pattern (e.g. "/users" against "/users.json")
+	 * @return the literal prefix, possibly empty
+	 */
+	public static List<String> getLiteralPrefix(String pattern, boolean includeLastSegment) {
+		String[] segments = StringUtils.tokenizeToStringArray(pattern, "/");
+		int end = (includeLastSegment ? segments.length : segments.length - 1);
+		List<String> prefix = new ArrayList<>();
+		for (int i = 0; i < end && isLiteralSegment(segments[i]); i++) {
+			prefix.add(segments[i]);
+		}
+		return prefix;
+	}
+
+	private static boolean isLiteralSegment(String segment) {
+		for (int i = 0; i < segment.length(); i++) {
+			char c = segment.charAt(i);
+			if (c == '{' || c == '}' || c == '*' || c == '?' || c == '%' || c == ';') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Normalize the given prefixes, dropping any prefix that is extended by
+	 * another one so that a mapping is never collected twice for a request.
+	 */
+	private static List<List<String>> getMinimalPrefixes(@Nullable Collection<List<String>> pathPrefixes) {
+		if (CollectionUtils.isEmpty(pathPrefixes)) {
+			return Collections.singletonList(Collections.emptyList());
+		}
+		Set<List<String>> normalized = new LinkedHashSet<>(pathPrefixes.size());
+		for (List<String> prefix : pathPrefixes) {
+			List<String> keys = new ArrayList<>(prefix.size());
+			for (String segment : prefix) {
+				String key = normalize(segment);
+				if (!key.isEmpty()) {
+					keys.add(key);
+				}
+			}
+			normalized.add(keys);
+		}
+		List<List<String>> result = new ArrayList<>(normalized.size());
+		for (List<String> prefix : normalized) {
+			boolean extended = false;
+			for (int i = 0; i < prefix.size() && !extended; i++) {
+				extended = normalized.contains(prefix.subList(0, i));
+			}
+			if (!extended) {
+				result.add(prefix);
+			}
+		}
+		return result;
+	}
+
+	private static String normalize(String segment) {
+		return segment.trim().toLowerCase(Locale.ENGLISH);
+	}
+
+
+	private static class Node<T> {
+
+		private final Map<String, Node<T>> children = new HashMap<>(4);
+
+		private final Map<String, List<T>> mappingsByMethod = new HashMap<>(4);
+
+		public void add(String httpMethod, T mapping) {
+			this.mappingsByMethod.computeIfAbsent(httpMethod, key -> new ArrayList<>(1)).add(mapping);
+		}
+
+		public void remove(T mapping) {
+			this.mappingsByMethod.values().removeIf(mappings -> mappings.remove(mapping) && mappings.isEmpty());
+		}
+
+		public void collect(@Nullable String httpMethod, boolean preFlight, List<T> candidates) {
+			if (this.mappingsByMethod.isEmpty()) {
+				return;
+			}
+			if (preFlight) {
+				for (List<T> mappings : this.mappingsByMethod.values()) {
+					addCandidates(mappings, candidates, true);
+				}
+				return;
+			}
+			addCandidates(this.mappingsByMethod.get(ANY_METHOD), candidates, false);
+			if (httpMethod != null) {
+				addCandidates(this.mappingsByMethod.get(httpMethod), candidates, false);
+				if (HttpMethod.HEAD.matches(httpMethod)) {
+					addCandidates(this.mappingsByMethod.get(HttpMethod.GET.name()), candidates, true);
+				}
+			}
+		}
+
+		private static <T> void addCandidates(@Nullable List<T> mappings, List<T> candidates, boolean checkExisting) {
+			if (mappings != null) {
+				for (T mapping : mappings) {
+					if (!checkExisting || !candidates.contains(mapping)) {
+						candidates.add(mapping);
+					}
+				}
+			}
+		}
+	}
+
+}
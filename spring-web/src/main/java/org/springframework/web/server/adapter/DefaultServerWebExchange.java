@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -22,10 +22,14 @@ import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.function.Function;
 
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
 
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.i18n.LocaleContext;
@@ -38,6 +42,7 @@ import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.codec.HttpMessageReader;
 import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.multipart.DefaultPartHttpMessageReader;
 import org.springframework.http.codec.multipart.Part;
 import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.http.server.reactive.ServerHttpResponse;
@@ -91,6 +96,10 @@ public class DefaultServerWebExchange implements ServerWebExchange {
 
 	private final Mono<MultiValueMap<String, Part>> multipartDataMono;
 
+	private volatile boolean multipartRead;
+
+	private final Queue<Part> createdParts = new ConcurrentLinkedQueue<>();
+
 	@Nullable
 	private final ApplicationContext applicationContext;
 
@@ -156,7 +165,7 @@ public class DefaultServerWebExchange implements ServerWebExchange {
 	}
 
 	@SuppressWarnings("unchecked")
-	private static Mono<MultiValueMap<String, Part>> initMultipartData(ServerHttpRequest request,
+	private Mono<MultiValueMap<String, Part>> initMultipartData(ServerHttpRequest request,
 			ServerCodecConfigurer configurer, String logPrefix) {
 
 		try {
@@ -167,6 +176,7 @@ public class DefaultServerWebExchange implements ServerWebExchange {
 						.findFirst()
 						.orElseThrow(() -> new IllegalStateException("No multipart HttpMessageReader.")))
 						.readMono(MULTIPART_DATA_TYPE, request, Hints.from(Hints.LOG_PREFIX_HINT, logPrefix))
+						.doOnSubscribe(subscription -> this.multipartRead = true)
 						.switchIfEmpty(EMPTY_MULTIPART_DATA)
 						.cache();
 			}
@@ -221,6 +231,37 @@ public class DefaultServerWebExchange implements ServerWebExchange {
 		return this.multipartDataMono;
 	}
 
+	/**
+	 * Expose the parts read by a {@link DefaultPartHttpMessageReader} while
+	 * handling the exchange through the given subscriber context, so that they
+	 * are deleted by {@link #cleanupMultipart()}, however they were read.
+	 * @since 5.2
+	 * @see DefaultPartHttpMessageReader#CREATED_PARTS_CONTEXT_KEY
+	 */
+	Context trackCreatedParts(Context context) {
+		return context.put(DefaultPartHttpMessageReader.CREATED_PARTS_CONTEXT_KEY, this.createdParts);
+	}
+
+	/**
+	 * Delete the underlying storage of the parts of the multipart data, if it
+	 * has been read during the exchange, and of any other parts tracked through
+	 * {@link #trackCreatedParts(Context)}. Errors are ignored.
+	 * @since 5.2
+	 * @see Part#delete()
+	 */
+	Mono<Void> cleanupMultipart() {
+		return Mono.defer(() -> {
+			Flux<Part> multipartParts = (!this.multipartRead ? Flux.empty() : getMultipartData()
+					.onErrorResume(ex -> Mono.empty())
+					.flatMapIterable(Map::values)
+					.flatMapIterable(Function.identity()));
+			return Flux.concat(multipartParts, Flux.fromIterable(this.createdParts))
+					.distinct()
+					.flatMap(part -> part.delete().onErrorResume(ex -> Mono.empty()))
+					.then();
+		});
+	}
+
 	@Override
 	public LocaleContext getLocaleContext() {
 		return this.localeContextResolver.resolveLocaleContext(this);
@@ -23,6 +23,7 @@ import java.util.Set;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
 
 import org.springframework.context.ApplicationContext;
 import org.springframework.core.NestedExceptionUtils;
@@ -232,10 +233,14 @@ public class HttpWebHandlerAdapter extends WebHandlerDecorator implements HttpHa
 				exchange.getLogPrefix() + formatRequest(exchange.getRequest()) +
 						(traceOn ? ", headers=" + formatHeaders(exchange.getRequest().getHeaders()) : ""));
 
-		return getDelegate().handle(exchange)
-				.doOnSuccess(aVoid -> logResponse(exchange))
-				.onErrorResume(ex -> handleUnresolvedError(exchange, ex))
-				.then(Mono.defer(response::setComplete));
+		// Clean up multipart data on completion, error (e.g. after the response is committed) or cancel
+		return Mono.usingWhen(Mono.just(exchange),
+				it -> getDelegate().handle(it)
+						.doOnSuccess(aVoid -> logResponse(it))
+						.onErrorResume(ex -> handleUnresolvedError(it, ex))
+						.then(Mono.defer(response::setComplete))
+						.subscriberContext(context -> trackCreatedParts(it, context)),
+				this::cleanupMultipart, this::cleanupMultipart, this::cleanupMultipart);
 	}
 
 	protected ServerWebExchange createExchange(ServerHttpRequest request, ServerHttpResponse response) {
@@ -243,6 +248,16 @@ public class HttpWebHandlerAdapter extends WebHandlerDecorator implements HttpHa
 				getCodecConfigurer(), getLocaleContextResolver(), this.applicationContext);
 	}
 
+	private Context trackCreatedParts(ServerWebExchange exchange, Context context) {
+		return (exchange instanceof DefaultServerWebExchange ?
+				((DefaultServerWebExchange) exchange).trackCreatedParts(context) : context);
+	}
+
+	private Mono<Void> cleanupMultipart(ServerWebExchange exchange) {
+		return (exchange instanceof DefaultServerWebExchange ?
+				((DefaultServerWebExchange) exchange).cleanupMultipart() : Mono.empty());
+	}
+
 	private String formatRequest(ServerHttpRequest request) {
 		String rawQuery = request.getURI().getRawQuery();
 		String query = StringUtils.hasText(rawQuery) ? "?" + rawQuery : "";
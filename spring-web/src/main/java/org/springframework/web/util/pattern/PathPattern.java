@@ -193,7 +193,7 @@ public class PathPattern implements Comparable<PathPattern> {
 				return false;
 			}
 		}
-		MatchingContext matchingContext = new MatchingContext(pathContainer, false);
+		MatchingContext matchingContext = new MatchingContext(pathContainer, false, this.matchOptionalTrailingSeparator);
 		return this.head.matches(0, matchingContext);
 	}
 
@@ -218,7 +218,7 @@ public class PathPattern implements Comparable<PathPattern> {
 				return null;
 			}
 		}
-		MatchingContext matchingContext = new MatchingContext(pathContainer, true);
+		MatchingContext matchingContext = new MatchingContext(pathContainer, true, this.matchOptionalTrailingSeparator);
 		return this.head.matches(0, matchingContext) ? matchingContext.getPathMatchResult() : null;
 	}
 
@@ -238,7 +238,7 @@ public class PathPattern implements Comparable<PathPattern> {
 			return null;
 		}
 
-		MatchingContext matchingContext = new MatchingContext(pathContainer, true);
+		MatchingContext matchingContext = new MatchingContext(pathContainer, true, this.matchOptionalTrailingSeparator);
 		matchingContext.setMatchAllowExtraPath();
 		boolean matches = this.head.matches(0, matchingContext);
 		if (!matches) {
@@ -619,7 +619,7 @@ public class PathPattern implements Comparable<PathPattern> {
 	 * candidate currently being considered for a match but also some accumulators for
 	 * extracted variables.
 	 */
-	class MatchingContext {
+	static class MatchingContext {
 
 		final PathContainer candidate;
 
@@ -642,11 +642,16 @@ public class PathPattern implements Comparable<PathPattern> {
 		// points to the remaining path that wasn't consumed
 		int remainingPathIndex;
 
-		public MatchingContext(PathContainer pathContainer, boolean extractVariables) {
+		private final boolean matchOptionalTrailingSeparator;
+
+		public MatchingContext(PathContainer pathContainer, boolean extractVariables,
+				boolean matchOptionalTrailingSeparator) {
+
 			this.candidate = pathContainer;
 			this.pathElements = pathContainer.elements();
 			this.pathLength = this.pathElements.size();
 			this.extractingVariables = extractVariables;
+			this.matchOptionalTrailingSeparator = matchOptionalTrailingSeparator;
 		}
 
 		public void setMatchAllowExtraPath() {
@@ -654,7 +659,7 @@ public class PathPattern implements Comparable<PathPattern> {
 		}
 
 		public boolean isMatchOptionalTrailingSeparator() {
-			return matchOptionalTrailingSeparator;
+			return this.matchOptionalTrailingSeparator;
 		}
 
 		public void set(String key, String value, MultiValueMap<String,String> parameters) {
@@ -0,0 +1,203 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.client.reactive;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.client.reactive.test.MockClientHttpRequest;
+import org.springframework.mock.http.client.reactive.test.MockClientHttpResponse;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link InstrumentedClientHttpConnector}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class InstrumentedClientHttpConnectorTests {
+
+	private static final URI URL = URI.create("http://example.org/resource");
+
+	private final List<ClientHttpExchangeMetrics> recorded = new ArrayList<>();
+
+
+	@Test
+	public void recordSuccessfulExchange() {
+		MockClientHttpResponse response = new MockClientHttpResponse(HttpStatus.OK);
+		response.setBody("response");
+		InstrumentedClientHttpConnector connector = createConnector(respondWith(response));
+
+		Mono<Void> result = connector.connect(HttpMethod.POST, URL, request -> request.writeWith(body("request!")))
+				.flatMapMany(ClientHttpResponse::getBody)
+				.then();
+		StepVerifier.create(result).verifyComplete();
+
+		assertEquals(1, this.recorded.size());
+		ClientHttpExchangeMetrics metrics = this.recorded.get(0);
+		assertEquals(HttpMethod.POST, metrics.getMethod());
+		assertEquals(URL, metrics.getUri());
+		assertEquals("example.org:80", metrics.getHost());
+		assertEquals(200, metrics.getStatusCode());
+		assertNotNull(metrics.getConnectionAcquireTime());
+		assertNotNull(metrics.getTimeToFirstByte());
+		assertNotNull(metrics.getResponseBodyTime());
+		assertEquals(8, metrics.getBytesSent());
+		assertEquals(8, metrics.getBytesReceived());
+		assertNull(metrics.getError());
+
+		ClientHttpHostStatistics statistics = connector.getHostStatistics().get("example.org:80");
+		assertEquals(0, statistics.getActiveExchanges());
+		assertEquals(0, statistics.getPendingExchanges());
+		assertEquals(1, statistics.getPeakActiveExchanges());
+		assertEquals(1, statistics.getCompletedExchanges());
+		assertEquals(0, statistics.getFailedExchanges());
+		assertEquals(8, statistics.getBytesSent());
+		assertEquals(8, statistics.getBytesReceived());
+	}
+
+	@Test
+	public void recordFailedConnect() {
+		IllegalStateException failure = new IllegalStateException("Connection refused");
+		InstrumentedClientHttpConnector connector =
+				createConnector((method, uri, requestCallback) -> Mono.error(failure));
+
+		StepVerifier.create(connector.connect(HttpMethod.GET, URL, ClientHttpRequest::setComplete))
+				.expectErrorMatches(ex -> ex == failure)
+				.verify();
+
+		assertEquals(1, this.recorded.size());
+		ClientHttpExchangeMetrics metrics = this.recorded.get(0);
+		assertEquals(-1, metrics.getStatusCode());
+		assertNull(metrics.getConnectionAcquireTime());
+		assertNull(metrics.getTimeToFirstByte());
+		assertSame(failure, metrics.getError());
+
+		ClientHttpHostStatistics statistics = connector.getHostStatistics().get("example.org:80");
+		assertEquals(0, statistics.getActiveExchanges());
+		assertEquals(0, statistics.getPendingExchanges());
+		assertEquals(1, statistics.getFailedExchanges());
+	}
+
+	@Test
+	public void pendingUntilConnectionAcquired() {
+		InstrumentedClientHttpConnector connector =
+				createConnector((method, uri, requestCallback) -> Mono.never());
+
+		Disposable exchange = connector.connect(HttpMethod.GET, URL, ClientHttpRequest::setComplete).subscribe();
+
+		ClientHttpHostStatistics statistics = connector.getHostStatistics().get("example.org:80");
+		assertEquals(1, statistics.getActiveExchanges());
+		assertEquals(1, statistics.getPendingExchanges());
+		assertTrue(this.recorded.isEmpty());
+
+		exchange.dispose();
+
+		assertEquals(0, statistics.getActiveExchanges());
+		assertEquals(0, statistics.getPendingExchanges());
+		assertEquals(1, statistics.getCompletedExchanges());
+		assertEquals(1, this.recorded.size());
+		assertNull(this.recorded.get(0).getConnectionAcquireTime());
+	}
+
+	@Test
+	public void activeUntilResponseBodyCancelled() {
+		MockClientHttpResponse response = new MockClientHttpResponse(HttpStatus.OK);
+		response.setBody(Flux.never());
+		InstrumentedClientHttpConnector connector = createConnector(respondWith(response));
+
+		Disposable body = connector.connect(HttpMethod.GET, URL, ClientHttpRequest::setComplete)
+				.flatMapMany(ClientHttpResponse::getBody)
+				.subscribe();
+
+		ClientHttpHostStatistics statistics = connector.getHostStatistics().get("example.org:80");
+		assertEquals(1, statistics.getActiveExchanges());
+		assertEquals(0, statistics.getPendingExchanges());
+		assertTrue(this.recorded.isEmpty());
+
+		body.dispose();
+
+		assertEquals(0, statistics.getActiveExchanges());
+		assertEquals(1, this.recorded.size());
+		ClientHttpExchangeMetrics metrics = this.recorded.get(0);
+		assertEquals(200, metrics.getStatusCode());
+		assertNotNull(metrics.getResponseBodyTime());
+		assertEquals(0, metrics.getBytesReceived());
+	}
+
+	@Test
+	public void statisticsPerHost() {
+		MockClientHttpResponse response = new MockClientHttpResponse(HttpStatus.NO_CONTENT);
+		InstrumentedClientHttpConnector connector = createConnector(respondWith(response));
+
+		for (String url : new String[] {"https://example.org/a", "https://example.org:443/b", "http://example.org:8080"}) {
+			StepVerifier.create(connector.connect(HttpMethod.GET, URI.create(url), ClientHttpRequest::setComplete)
+					.flatMapMany(ClientHttpResponse::getBody))
+					.verifyComplete();
+		}
+
+		assertEquals(2, connector.getHostStatistics().size());
+		assertEquals(2, connector.getHostStatistics().get("example.org:443").getCompletedExchanges());
+		assertEquals(1, connector.getHostStatistics().get("example.org:8080").getCompletedExchanges());
+	}
+
+	@Test
+	public void recorderFailureIsIgnored() {
+		MockClientHttpResponse response = new MockClientHttpResponse(HttpStatus.OK);
+		response.setBody("response");
+		InstrumentedClientHttpConnector connector = new InstrumentedClientHttpConnector(respondWith(response),
+				metrics -> {
+					throw new IllegalStateException("Recorder failure");
+				},
+				this.recorded::add);
+
+		StepVerifier.create(connector.connect(HttpMethod.GET, URL, ClientHttpRequest::setComplete)
+				.flatMapMany(ClientHttpResponse::getBody))
+				.expectNextCount(1)
+				.verifyComplete();
+
+		assertEquals(1, this.recorded.size());
+	}
+
+
+	private InstrumentedClientHttpConnector createConnector(ClientHttpConnector delegate) {
+		return new InstrumentedClientHttpConnector(delegate, this.recorded::add);
+	}
+
+	private static ClientHttpConnector respondWith(ClientHttpResponse response) {
+		return (method, uri, requestCallback) ->
+				requestCallback.apply(new MockClientHttpRequest(method, uri)).then(Mono.just(response));
+	}
+
+	private static Mono<DataBuffer> body(String content) {
+		byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+		return Mono.just(new DefaultDataBufferFactory().wrap(bytes));
+	}
+
+}
@@ -16,19 +16,30 @@
 
 package org.springframework.http.codec;
 
+import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Collections;
+import java.util.List;
 import java.util.Map;
 
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpRange;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ZeroCopyHttpOutputMessage;
 import org.springframework.mock.http.server.reactive.test.MockServerHttpRequest;
 import org.springframework.mock.http.server.reactive.test.MockServerHttpResponse;
 import org.springframework.util.MimeTypeUtils;
@@ -38,6 +49,7 @@ import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.startsWith;
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.springframework.http.MediaType.TEXT_PLAIN;
 import static org.springframework.mock.http.server.reactive.test.MockServerHttpRequest.get;
@@ -53,6 +65,9 @@ public class ResourceHttpMessageWriterTests {
 	private static final Map<String, Object> HINTS = Collections.emptyMap();
 
 
+	@Rule
+	public final TemporaryFolder tempFolder = new TemporaryFolder();
+
 	private final ResourceHttpMessageWriter writer = new ResourceHttpMessageWriter();
 
 	private final MockServerHttpResponse response = new MockServerHttpResponse();
@@ -131,6 +146,28 @@ public class ResourceHttpMessageWriterTests {
 				.verify();
 	}
 
+	@Test
+	public void writeMultipleRegionsWithZeroCopy() throws Exception {
+		File file = this.tempFolder.newFile("resource.txt");
+		Files.write(file.toPath(), "Spring Framework test resource content.".getBytes(StandardCharsets.UTF_8));
+		ZeroCopyResponse response = new ZeroCopyResponse();
+		MockServerHttpRequest request = get("/").range(of(0, 5), of(7, 15)).build();
+
+		Mono<Void> mono = this.writer.write(Mono.just(new FileSystemResource(file)),
+				null, null, TEXT_PLAIN, request, response, HINTS);
+		StepVerifier.create(mono).expectComplete().verify();
+
+		assertEquals(2, response.regions.size());
+		String boundary = response.getHeaders().getContentType().toString().substring(30);
+		String expected = "\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 0-5/39\r\n\r\n" +
+				"Spring" +
+				"\r\n--" + boundary + "\r\nContent-Type: text/plain\r\nContent-Range: bytes 7-15/39\r\n\r\n" +
+				"Framework" +
+				"\r\n--" + boundary + "--";
+		StepVerifier.create(response.getBodyAsString()).expectNext(expected).expectComplete().verify();
+		assertEquals(expected.length(), response.getHeaders().getContentLength());
+	}
+
 	@Test
 	public void invalidRange() throws Exception {
 
@@ -150,4 +187,22 @@ public class ResourceHttpMessageWriterTests {
 		return HttpRange.createByteRange(first, last);
 	}
 
+
+	private static class ZeroCopyResponse extends MockServerHttpResponse implements ZeroCopyHttpOutputMessage {
+
+		private List<ResourceRegion> regions = Collections.emptyList();
+
+		@Override
+		public Mono<Void> writeWith(Path file, long position, long count) {
+			return writeWith(DataBufferUtils.takeUntilByteCount(
+					DataBufferUtils.read(new FileSystemResource(file), position, bufferFactory(), 1024), count));
+		}
+
+		@Override
+		public Mono<Void> writeWith(Path file, List<ResourceRegion> regions, List<DataBuffer> delimiters) {
+			this.regions = regions;
+			return ZeroCopyHttpOutputMessage.super.writeWith(file, regions, delimiters);
+		}
+	}
+
 }
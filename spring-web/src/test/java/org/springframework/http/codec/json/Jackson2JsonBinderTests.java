@@ -0,0 +1,182 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.json;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.buffer.AbstractLeakCheckingTestCase;
+import org.springframework.core.io.buffer.DataBuffer;
+
+import static java.util.Arrays.*;
+import static java.util.Collections.*;
+
+/**
+ * Unit tests for {@link Jackson2JsonBinder}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class Jackson2JsonBinderTests extends AbstractLeakCheckingTestCase {
+
+	private JsonFactory jsonFactory;
+
+	private ObjectReader reader;
+
+
+	@Before
+	public void setup() {
+		this.jsonFactory = new JsonFactory();
+		this.reader = new ObjectMapper(this.jsonFactory).readerFor(JsonNode.class);
+	}
+
+
+	@Test
+	public void doNotTokenizeArrayElements() {
+		testBind(singletonList("{\"foo\": \"foofoo\", \"bar\": \"barbar\"}"),
+				singletonList("{\"foo\":\"foofoo\",\"bar\":\"barbar\"}"), false);
+
+		testBind(asList("{\"foo\": \"foofoo\"", ", \"bar\": \"barbar\"}"),
+				singletonList("{\"foo\":\"foofoo\",\"bar\":\"barbar\"}"), false);
+
+		testBind(asList("[{\"foo\": \"foofoo\"}, ", "{\"foo\": \"barbar\"}]"),
+				singletonList("[{\"foo\":\"foofoo\"},{\"foo\":\"barbar\"}]"), false);
+
+		testBind(asList("{\"foo\": 1}\n{\"foo\"", ": 2}\n"),
+				asList("{\"foo\":1}", "{\"foo\":2}"), false);
+
+		testBind(asList("4", "2"), singletonList("42"), false);
+	}
+
+	@Test
+	public void tokenizeArrayElements() {
+		testBind(asList("[{\"foo\": \"foofoo\", \"bar\"", ": \"barbar\"},{\"foo\": \"foofoofoo\", ",
+				"\"bar\": \"barbarbar\"}]"),
+				asList("{\"foo\":\"foofoo\",\"bar\":\"barbar\"}", "{\"foo\":\"foofoofoo\",\"bar\":\"barbarbar\"}"),
+				true);
+
+		testBind(singletonList("[{\"foo\": \"x\\\"}]\"}, {\"foo\": [1, {\"bar\": []}]}, [2, 3]]"),
+				asList("{\"foo\":\"x\\\"}]\"}", "{\"foo\":[1,{\"bar\":[]}]}", "[2,3]"), true);
+
+		testBind(asList("[1", ",2,", "3, tr", "ue, \"four\", null, 5.0]"),
+				asList("1", "2", "3", "true", "\"four\"", "null", "5.0"), true);
+
+		testBind(singletonList("{\"foo\": [1, 2]}"), singletonList("{\"foo\":[1,2]}"), true);
+
+		testBind(singletonList("[]"), emptyList(), true);
+	}
+
+	@Test
+	public void singleByteChunks() {
+		String json = "[{\"id\": 1, \"name\": \"n\\\\\\\"ame\\u00e9\"}, {\"nested\": {\"values\": [1, \"]\"]}}, -12]";
+		List<String> chunks = new ArrayList<>();
+		for (char c : json.toCharArray()) {
+			chunks.add(String.valueOf(c));
+		}
+		testBind(chunks, asList("{\"id\":1,\"name\":\"n\\\\\\\"ameé\"}",
+				"{\"nested\":{\"values\":[1,\"]\"]}}", "-12"), true);
+	}
+
+	@Test
+	public void invalidJson() {
+		StepVerifier.create(bind(asList("[1, 2 3]"), true, -1))
+				.expectError(JsonParseException.class)
+				.verify();
+
+		StepVerifier.create(bind(asList("[{\"foo\": 1}, {\"foo\""), true, -1))
+				.expectNextCount(1)
+				.expectError(IOException.class)
+				.verify();
+	}
+
+	@Test
+	public void maxInMemorySize() {
+		StepVerifier.create(bind(asList("[{\"foo\": \"bar\"}, {\"foo\": ", "\"barbarbarbar\"}]"), true, 16))
+				.expectNextCount(1)
+				.expectError(DecodingException.class)
+				.verify();
+
+		StepVerifier.create(bind(asList("[{\"foo\": \"bar\"}, ", "{\"foo\": \"baz\"}]"), true, 16))
+				.expectNextCount(2)
+				.verifyComplete();
+	}
+
+	@Test
+	public void errorInStream() {
+		Flux<DataBuffer> source = Flux.just(stringBuffer("{\"id\":1,\"name\":"))
+				.concatWith(Flux.error(new RuntimeException()));
+
+		StepVerifier.create(Jackson2JsonBinder.bind(source, this.jsonFactory, this.reader, true, -1, Function.identity()))
+				.expectError(RuntimeException.class)
+				.verify();
+	}
+
+	@Test
+	public void exceptionMapperNotAppliedToErrorInStream() {
+		Flux<DataBuffer> source = Flux.just(stringBuffer("{\"id\":1,\"name\":"))
+				.concatWith(Flux.error(new IOException()));
+
+		StepVerifier.create(Jackson2JsonBinder.bind(source, this.jsonFactory, this.reader, true, -1,
+						ex -> new DecodingException("Mapped", ex)))
+				.expectErrorMatches(ex -> ex.getClass() == IOException.class)
+				.verify();
+	}
+
+	@Test
+	public void exceptionMapperAppliedToParserError() {
+		Flux<DataBuffer> source = Flux.just(stringBuffer("[1, 2 3]"));
+
+		StepVerifier.create(Jackson2JsonBinder.bind(source, this.jsonFactory, this.reader, true, -1,
+						ex -> new DecodingException("Mapped", ex)))
+				.expectErrorMatches(ex -> ex instanceof DecodingException && ex.getCause() instanceof JsonParseException)
+				.verify();
+	}
+
+
+	private void testBind(List<String> source, List<String> expected, boolean tokenizeArrayElements) {
+		Flux<String> result = bind(source, tokenizeArrayElements, -1).map(Object::toString);
+		StepVerifier.create(result)
+				.expectNextSequence(expected)
+				.verifyComplete();
+	}
+
+	private Flux<Object> bind(List<String> source, boolean tokenizeArrayElements, int maxInMemorySize) {
+		return Jackson2JsonBinder.bind(Flux.fromIterable(source).map(this::stringBuffer),
+				this.jsonFactory, this.reader, tokenizeArrayElements, maxInMemorySize, Function.identity());
+	}
+
+	private DataBuffer stringBuffer(String value) {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		DataBuffer buffer = this.bufferFactory.allocateBuffer(bytes.length);
+		buffer.write(bytes);
+		return buffer;
+	}
+
+}
@@ -131,6 +131,34 @@ public class Jackson2JsonDecoderTests extends AbstractDecoderTestCase<Jackson2Js
 		testDecode(input, Pojo.class, step -> step.verifyComplete());
 	}
 
+	@Test
+	public void decodeScalarArrayElements() {
+		Flux<DataBuffer> input = Flux.concat(
+				stringBuffer("[1, 2"),
+				stringBuffer("3, null, 4]"));
+
+		testDecode(input, Integer.class, step -> step
+				.expectNext(1)
+				.expectNext(23)
+				.expectNext(4)
+				.verifyComplete());
+	}
+
+	@Test
+	public void decodeExceedsMaxInMemorySize() {
+		Flux<DataBuffer> input = Flux.concat(
+				stringBuffer("[{\"bar\":\"b1\",\"foo\":\"f1\"},"),
+				stringBuffer("{\"bar\":\"b2\",\"foo\":\"f2f2f2f2f2f2f2f2f2f2\"}]"));
+
+		Jackson2JsonDecoder decoder = new Jackson2JsonDecoder();
+		decoder.setMaxInMemorySize(30);
+
+		StepVerifier.create(decoder.decode(input, forClass(Pojo.class), null, emptyMap()))
+				.expectNext(pojo1)
+				.expectError(DecodingException.class)
+				.verify();
+	}
+
 	@Test
 	public void fieldLevelJsonView() {
 		Flux<DataBuffer> input = Flux.from(
@@ -172,6 +200,53 @@ public class Jackson2JsonDecoderTests extends AbstractDecoderTestCase<Jackson2Js
 				.verifyError(DecodingException.class));
 	}
 
+	@Test
+	public void errorInStreamNotWrapped() {
+		Flux<DataBuffer> input = Flux.from(stringBuffer("[{\"foo\": \"f1\","))
+				.concatWith(Flux.error(new IOException()));
+		testDecode(input, Pojo.class, step -> step
+				.expectErrorMatches(ex -> ex.getClass() == IOException.class)
+				.verify());
+	}
+
+	@Test
+	public void decodeWithComments() {
+		ObjectMapper mapper = new ObjectMapper().configure(JsonParser.Feature.ALLOW_COMMENTS, true);
+		Flux<DataBuffer> input = singleByteBuffers("[{\"bar\":\"b1\", /* } */ \"foo\":\"f1\"}, // ]\n" +
+				"{\"bar\":\"b2\", // }\n \"foo\":\"f2\"}]");
+		Flux<Object> result = new Jackson2JsonDecoder(mapper).decode(input, forClass(Pojo.class), null, emptyMap());
+
+		StepVerifier.create(result)
+				.expectNext(pojo1)
+				.expectNext(pojo2)
+				.verifyComplete();
+	}
+
+	@Test
+	public void decodeWithYamlComments() {
+		ObjectMapper mapper = new ObjectMapper().configure(JsonParser.Feature.ALLOW_YAML_COMMENTS, true);
+		Flux<DataBuffer> input = singleByteBuffers("[{\"bar\":\"b1\", # }\n \"foo\":\"f1\"}, # ]\n" +
+				"{\"bar\":\"b2\",\"foo\":\"f2\"}]");
+		Flux<Object> result = new Jackson2JsonDecoder(mapper).decode(input, forClass(Pojo.class), null, emptyMap());
+
+		StepVerifier.create(result)
+				.expectNext(pojo1)
+				.expectNext(pojo2)
+				.verifyComplete();
+	}
+
+	@Test
+	public void decodeWithSingleQuotes() {
+		ObjectMapper mapper = new ObjectMapper().configure(JsonParser.Feature.ALLOW_SINGLE_QUOTES, true);
+		Flux<DataBuffer> input = singleByteBuffers("[{'bar':'b1','foo':'f1}'},{'bar':'b2','foo':'f2'}]");
+		Flux<Object> result = new Jackson2JsonDecoder(mapper).decode(input, forClass(Pojo.class), null, emptyMap());
+
+		StepVerifier.create(result)
+				.expectNext(new Pojo("f1}", "b1"))
+				.expectNext(pojo2)
+				.verifyComplete();
+	}
+
 	@Test // gh-22042
 	public void decodeWithNullLiteral() {
 		Flux<Object> result = this.decoder.decode(Flux.concat(stringBuffer("null")),
@@ -199,6 +274,10 @@ public class Jackson2JsonDecoderTests extends AbstractDecoderTestCase<Jackson2Js
 		);
 	}
 
+	private Flux<DataBuffer> singleByteBuffers(String value) {
+		return Flux.fromArray(value.split("")).concatMap(this::stringBuffer);
+	}
+
 	private Mono<DataBuffer> stringBuffer(String value) {
 		return Mono.defer(() -> {
 			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
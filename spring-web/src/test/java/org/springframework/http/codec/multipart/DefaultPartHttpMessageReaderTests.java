@@ -0,0 +1,335 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.http.codec.multipart;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.DecodingException;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.core.io.buffer.LeakAwareDataBufferFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.MultipartBodyBuilder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.mock.http.client.reactive.test.MockClientHttpRequest;
+import org.springframework.mock.http.server.reactive.test.MockServerHttpRequest;
+import org.springframework.util.MultiValueMap;
+
+import static java.util.Collections.*;
+import static org.junit.Assert.*;
+import static org.springframework.core.ResolvableType.*;
+
+/**
+ * Unit tests for {@link DefaultPartHttpMessageReader}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class DefaultPartHttpMessageReaderTests {
+
+	private static final ResolvableType PARTS_TYPE =
+			forClassWithGenerics(MultiValueMap.class, String.class, Part.class);
+
+	private static final String BOUNDARY = "R8OQ7ne9eh3HZkB7ByNTL6UnlfaFxz";
+
+	private final DefaultPartHttpMessageReader partReader = new DefaultPartHttpMessageReader();
+
+	private final MultipartHttpMessageReader reader = new MultipartHttpMessageReader(this.partReader);
+
+	private final LeakAwareDataBufferFactory bufferFactory = new LeakAwareDataBufferFactory();
+
+
+	@Before
+	public void setup() {
+		// Release buffers before the leak check in the test thread
+		this.partReader.setBlockingOperationScheduler(Schedulers.immediate());
+	}
+
+	@After
+	public void checkForLeaks() {
+		this.bufferFactory.checkForLeaks();
+	}
+
+
+	@Test
+	public void canRead() {
+		assertTrue(this.partReader.canRead(forClass(Part.class), MediaType.MULTIPART_FORM_DATA));
+		assertTrue(this.partReader.canRead(forClass(Part.class), null));
+		assertFalse(this.partReader.canRead(forClass(Part.class), MediaType.APPLICATION_FORM_URLENCODED));
+		assertFalse(this.partReader.canRead(forClass(Object.class), MediaType.MULTIPART_FORM_DATA));
+		assertTrue(this.reader.canRead(PARTS_TYPE, MediaType.MULTIPART_FORM_DATA));
+	}
+
+	@Test
+	public void resolveParts() {
+		MultiValueMap<String, Part> parts = readParts(generateMultipartRequest());
+		assertEquals(2, parts.size());
+
+		Part part = parts.getFirst("fooPart");
+		assertTrue(part instanceof FilePart);
+		assertEquals("fooPart", part.name());
+		assertEquals("foo.txt", ((FilePart) part).filename());
+		assertEquals("Lorem Ipsum.", content(part));
+
+		part = parts.getFirst("barPart");
+		assertTrue(part instanceof FormFieldPart);
+		assertEquals("barPart", part.name());
+		assertEquals("bar", ((FormFieldPart) part).value());
+		assertEquals("bar", content(part));
+	}
+
+	@Test
+	public void resolvePartsFromSingleByteBuffers() {
+		ServerHttpRequest request = multipartRequest(body(), 1);
+		MultiValueMap<String, Part> parts = readParts(request);
+
+		assertEquals("Lorem Ipsum.", content(parts.getFirst("fooPart")));
+		assertEquals("bar", ((FormFieldPart) parts.getFirst("barPart")).value());
+		Part part = parts.getFirst("bazPart");
+		assertFalse(part instanceof FormFieldPart);
+		assertEquals("\r\n--" + BOUNDARY.substring(0, 10) + "\r\n-", content(part));
+	}
+
+	@Test
+	public void resolvePartsFromVariousBufferSizes() {
+		for (int chunkSize = 2; chunkSize < 64; chunkSize++) {
+			MultiValueMap<String, Part> parts = readParts(multipartRequest(body(), chunkSize));
+			assertEquals("Lorem Ipsum.", content(parts.getFirst("fooPart")));
+			assertEquals("bar", ((FormFieldPart) parts.getFirst("barPart")).value());
+			assertEquals("\r\n--" + BOUNDARY.substring(0, 10) + "\r\n-", content(parts.getFirst("bazPart")));
+		}
+	}
+
+	@Test
+	public void transferTo() throws Exception {
+		MultiValueMap<String, Part> parts = readParts(generateMultipartRequest());
+		FilePart part = (FilePart) parts.getFirst("fooPart");
+		assertNotNull(part);
+
+		File dest = File.createTempFile("DefaultPartHttpMessageReaderTests", ".txt");
+		part.transferTo(dest).block(Duration.ofSeconds(5));
+
+		assertEquals(12, dest.length());
+		assertTrue(dest.delete());
+	}
+
+	@Test
+	public void storePartsAboveInMemorySizeOnDisk() throws Exception {
+		Path directory = Files.createTempDirectory("DefaultPartHttpMessageReaderTests");
+		this.partReader.setFileStorageDirectory(directory);
+		this.partReader.setMaxInMemorySize(5);
+
+		MultiValueMap<String, Part> parts = readParts(multipartRequest(body(), 7));
+		assertEquals("bar", ((FormFieldPart) parts.getFirst("barPart")).value());
+		assertEquals(2, directory.toFile().list().length);
+		assertEquals("\r\n--" + BOUNDARY.substring(0, 10) + "\r\n-", content(parts.getFirst("bazPart")));
+		parts.getFirst("bazPart").delete().block(Duration.ofSeconds(5));
+		assertEquals(1, directory.toFile().list().length);
+
+		// Temporary file moved, and kept after the content has been read
+		FilePart part = (FilePart) parts.getFirst("fooPart");
+		Path dest = directory.resolve("foo.txt");
+		part.transferTo(dest).block(Duration.ofSeconds(5));
+		assertEquals("Lorem Ipsum.", new String(Files.readAllBytes(dest), StandardCharsets.UTF_8));
+		assertEquals("Lorem Ipsum.", content(part));
+
+		// Subsequent transfers copy, leaving the first destination in place
+		Path otherDest = directory.resolve("bar.txt");
+		part.transferTo(otherDest).block(Duration.ofSeconds(5));
+		assertEquals("Lorem Ipsum.", new String(Files.readAllBytes(dest), StandardCharsets.UTF_8));
+		assertEquals("Lorem Ipsum.", new String(Files.readAllBytes(otherDest), StandardCharsets.UTF_8));
+		Files.delete(otherDest);
+
+		part.delete().block(Duration.ofSeconds(5));
+		assertArrayEquals(new String[] {"foo.txt"}, directory.toFile().list());
+
+		Files.delete(dest);
+		Files.delete(directory);
+	}
+
+	@Test
+	public void readPartOnDiskTwice() throws Exception {
+		Path directory = Files.createTempDirectory("DefaultPartHttpMessageReaderTests");
+		this.partReader.setFileStorageDirectory(directory);
+		this.partReader.setMaxInMemorySize(5);
+
+		MultiValueMap<String, Part> parts = readParts(multipartRequest(body(), 7));
+		Part part = parts.getFirst("fooPart");
+		assertEquals("Lorem Ipsum.", content(part));
+		assertEquals("Lorem Ipsum.", content(part));
+		assertEquals(2, directory.toFile().list().length);
+
+		Flux.fromIterable(parts.values())
+				.flatMapIterable(list -> list)
+				.concatMap(Part::delete)
+				.blockLast(Duration.ofSeconds(5));
+		Files.delete(directory);
+	}
+
+	@Test
+	public void deletePartsOnDisk() throws Exception {
+		Path directory = Files.createTempDirectory("DefaultPartHttpMessageReaderTests");
+		this.partReader.setFileStorageDirectory(directory);
+		this.partReader.setMaxInMemorySize(5);
+
+		MultiValueMap<String, Part> parts = readParts(multipartRequest(body(), 7));
+		assertEquals(2, directory.toFile().list().length);
+
+		Flux.fromIterable(parts.values())
+				.flatMapIterable(list -> list)
+				.concatMap(Part::delete)
+				.blockLast(Duration.ofSeconds(5));
+		assertEquals(0, directory.toFile().list().length);
+
+		Files.delete(directory);
+	}
+
+	@Test
+	public void formFieldAboveInMemorySize() {
+		this.partReader.setMaxInMemorySize(2);
+		StepVerifier.create(this.reader.readMono(PARTS_TYPE, multipartRequest(body(), 16), emptyMap()))
+				.expectError(DecodingException.class)
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void maxDiskUsagePerPart() {
+		this.partReader.setMaxInMemorySize(2);
+		this.partReader.setMaxDiskUsagePerPart(8);
+		StepVerifier.create(this.reader.readMono(PARTS_TYPE, multipartRequest(body(), 16), emptyMap()))
+				.expectError(DecodingException.class)
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void maxParts() {
+		this.partReader.setMaxParts(2);
+		StepVerifier.create(this.reader.readMono(PARTS_TYPE, multipartRequest(body(), 16), emptyMap()))
+				.expectError(DecodingException.class)
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void maxHeadersSize() {
+		this.partReader.setMaxHeadersSize(32);
+		ServerHttpRequest request = multipartRequest(body(), body().length());
+		StepVerifier.create(this.reader.readMono(PARTS_TYPE, request, emptyMap()))
+				.expectError(DecodingException.class)
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void missingEndBoundary() {
+		String body = body();
+		body = body.substring(0, body.lastIndexOf("--" + BOUNDARY));
+		StepVerifier.create(this.reader.readMono(PARTS_TYPE, multipartRequest(body, 16), emptyMap()))
+				.expectError(DecodingException.class)
+				.verify(Duration.ofSeconds(5));
+	}
+
+	@Test
+	public void bodyError() {
+		ServerHttpRequest request = MockServerHttpRequest.post("/")
+				.contentType(MediaType.MULTIPART_FORM_DATA)
+				.body(Flux.just(new DefaultDataBufferFactory().wrap("invalid content".getBytes())));
+		StepVerifier.create(this.reader.readMono(PARTS_TYPE, request, emptyMap())).verifyError();
+	}
+
+
+	private MultiValueMap<String, Part> readParts(ServerHttpRequest request) {
+		MultiValueMap<String, Part> parts = this.reader.readMono(PARTS_TYPE, request, emptyMap())
+				.block(Duration.ofSeconds(5));
+		assertNotNull(parts);
+		return parts;
+	}
+
+	private static String content(Part part) {
+		DataBuffer buffer = DataBufferUtils.join(part.content()).block(Duration.ofSeconds(5));
+		assertNotNull(buffer);
+		byte[] bytes = new byte[buffer.readableByteCount()];
+		buffer.read(bytes);
+		DataBufferUtils.release(buffer);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private static String body() {
+		return "preamble\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"fooPart\"; filename=\"foo.txt\"\r\n" +
+				"Content-Type: text/plain\r\n" +
+				"\r\n" +
+				"Lorem Ipsum.\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"barPart\"\r\n" +
+				"\r\n" +
+				"bar\r\n" +
+				"--" + BOUNDARY + "\r\n" +
+				"Content-Disposition: form-data; name=\"bazPart\"\r\n" +
+				"Content-Type: application/octet-stream\r\n" +
+				"\r\n" +
+				"\r\n--" + BOUNDARY.substring(0, 10) + "\r\n-\r\n" +
+				"--" + BOUNDARY + "--\r\n" +
+				"epilogue";
+	}
+
+	private ServerHttpRequest multipartRequest(String body, int chunkSize) {
+		byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+		List<DataBuffer> buffers = new ArrayList<>();
+		for (int i = 0; i < bytes.length; i += chunkSize) {
+			int length = Math.min(chunkSize, bytes.length - i);
+			DataBuffer buffer = this.bufferFactory.allocateBuffer(length);
+			buffer.write(bytes, i, length);
+			buffers.add(buffer);
+		}
+		return MockServerHttpRequest.post("/")
+				.contentType(MediaType.parseMediaType("multipart/form-data;boundary=" + BOUNDARY))
+				.body(Flux.fromIterable(buffers));
+	}
+
+	private ServerHttpRequest generateMultipartRequest() {
+		MultipartBodyBuilder partsBuilder = new MultipartBodyBuilder();
+		partsBuilder.part("fooPart", new ClassPathResource("org/springframework/http/codec/multipart/foo.txt"));
+		partsBuilder.part("barPart", "bar");
+
+		MockClientHttpRequest outputMessage = new MockClientHttpRequest(HttpMethod.POST, "/");
+		new MultipartHttpMessageWriter()
+				.write(Mono.just(partsBuilder.build()), null, MediaType.MULTIPART_FORM_DATA, outputMessage, null)
+				.block(Duration.ofSeconds(5));
+
+		return MockServerHttpRequest.post("/")
+				.contentType(outputMessage.getHeaders().getContentType())
+				.body(outputMessage.getBody());
+	}
+
+}
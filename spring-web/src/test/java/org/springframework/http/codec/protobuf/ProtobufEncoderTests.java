@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -21,13 +21,16 @@ import java.io.UncheckedIOException;
 import java.util.function.Consumer;
 
 import com.google.protobuf.Message;
+import io.netty.buffer.PooledByteBufAllocator;
 import org.junit.Test;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
 import org.springframework.core.codec.AbstractEncoderTestCase;
 import org.springframework.core.io.buffer.DataBuffer;
 import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.NettyDataBufferFactory;
 import org.springframework.http.MediaType;
 import org.springframework.protobuf.Msg;
 import org.springframework.protobuf.SecondMsg;
@@ -97,6 +100,24 @@ public class ProtobufEncoderTests extends AbstractEncoderTestCase<ProtobufEncode
 				.verifyComplete());
 	}
 
+	@Test
+	public void encodeToPooledDirectBuffers() {
+		NettyDataBufferFactory bufferFactory = new NettyDataBufferFactory(new PooledByteBufAllocator(true));
+		Flux<DataBuffer> output = this.encoder.encode(Flux.just(this.msg1, this.msg2), bufferFactory,
+				forClass(Msg.class), null, null);
+
+		StepVerifier.create(output)
+				.consumeNextWith(expect(this.msg1))
+				.consumeNextWith(expect(this.msg2))
+				.verifyComplete();
+
+		DataBuffer buffer = this.encoder.encode(Mono.just(this.msg1), bufferFactory,
+				forClass(Msg.class), null, null).blockFirst();
+		assertNotNull(buffer);
+		assertEquals(this.msg1.getSerializedSize(), buffer.readableByteCount());
+		DataBufferUtils.release(buffer);
+	}
+
 	protected final Consumer<DataBuffer> expect(Msg msg) {
 		return dataBuffer -> {
 			try {
@@ -18,12 +18,18 @@ package org.springframework.http.server.reactive;
 
 import java.io.File;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
 
 import org.junit.Test;
 import reactor.core.publisher.Mono;
 
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.support.ResourceRegion;
 import org.springframework.http.MediaType;
 import org.springframework.http.RequestEntity;
 import org.springframework.http.ResponseEntity;
@@ -67,6 +73,39 @@ public class ZeroCopyIntegrationTests extends AbstractHttpHandlerIntegrationTest
 	}
 
 
+	@Test
+	public void zeroCopyRegions() throws Exception {
+		assumeTrue(server instanceof ReactorHttpServer || server instanceof UndertowHttpServer);
+
+		URI url = new URI("http://localhost:" + port + "/regions");
+		RequestEntity<?> request = RequestEntity.get(url).build();
+		ResponseEntity<byte[]> response = new RestTemplate().exchange(request, byte[].class);
+
+		byte[] logo = Files.readAllBytes(
+				new ClassPathResource("spring.png", ZeroCopyIntegrationTests.class).getFile().toPath());
+		byte[] expected = concat("--first--".getBytes(StandardCharsets.US_ASCII),
+				Arrays.copyOfRange(logo, 0, 100), "--second--".getBytes(StandardCharsets.US_ASCII),
+				Arrays.copyOfRange(logo, 500, 800), "--end--".getBytes(StandardCharsets.US_ASCII));
+
+		assertTrue(response.hasBody());
+		assertArrayEquals(expected, response.getBody());
+	}
+
+	private static byte[] concat(byte[]... parts) {
+		int length = 0;
+		for (byte[] part : parts) {
+			length += part.length;
+		}
+		byte[] result = new byte[length];
+		int offset = 0;
+		for (byte[] part : parts) {
+			System.arraycopy(part, 0, result, offset, part.length);
+			offset += part.length;
+		}
+		return result;
+	}
+
+
 	private static class ZeroCopyHandler implements HttpHandler {
 
 		@Override
@@ -75,6 +114,14 @@ public class ZeroCopyIntegrationTests extends AbstractHttpHandlerIntegrationTest
 				ZeroCopyHttpOutputMessage zeroCopyResponse = (ZeroCopyHttpOutputMessage) response;
 				Resource logo = new ClassPathResource("spring.png", ZeroCopyIntegrationTests.class);
 				File logoFile = logo.getFile();
+				if (request.getURI().getPath().equals("/regions")) {
+					List<ResourceRegion> regions = Arrays.asList(
+							new ResourceRegion(logo, 0, 100), new ResourceRegion(logo, 500, 300));
+					List<DataBuffer> delimiters = Arrays.asList(wrap(response, "--first--"),
+							wrap(response, "--second--"), wrap(response, "--end--"));
+					zeroCopyResponse.getHeaders().setContentLength(400 + 26);
+					return zeroCopyResponse.writeWith(logoFile.toPath(), regions, delimiters);
+				}
 				zeroCopyResponse.getHeaders().setContentType(MediaType.IMAGE_PNG);
 				zeroCopyResponse.getHeaders().setContentLength(logoFile.length());
 				return zeroCopyResponse.writeWith(logoFile, 0, logoFile.length());
@@ -83,6 +130,10 @@ public class ZeroCopyIntegrationTests extends AbstractHttpHandlerIntegrationTest
 				return Mono.error(ex);
 			}
 		}
+
+		private static DataBuffer wrap(ServerHttpResponse response, String delimiter) {
+			return response.bufferFactory().wrap(delimiter.getBytes(StandardCharsets.US_ASCII));
+		}
 	}
 
 }
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.method;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link HandlerMethodMappingIndex}.
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+public class HandlerMethodMappingIndexTests {
+
+	private final HandlerMethodMappingIndex<String> index = new HandlerMethodMappingIndex<>();
+
+
+	@Test
+	public void getCandidatesByPathPrefixAndMethod() {
+		this.index.add("getUser", prefixes(Arrays.asList("api", "users")), methods("GET"));
+		this.index.add("postUser", prefixes(Arrays.asList("api", "users")), methods("POST"));
+		this.index.add("getOrder", prefixes(Arrays.asList("api", "orders")), methods("GET"));
+		this.index.add("any", null, null);
+
+		assertCandidates("/api/users/1", "GET", false, "getUser", "any");
+		assertCandidates("/API/Users/1", "HEAD", false, "getUser", "any");
+		assertCandidates("/api/users", "POST", false, "postUser", "any");
+		assertCandidates("/api/orders/1", "GET", false, "getOrder", "any");
+		assertCandidates("/api/orders/1", "DELETE", false, "any");
+		assertCandidates("/other", "GET", false, "any");
+		assertCandidates("/api/users/1", "OPTIONS", true, "getUser", "postUser", "any");
+
+		this.index.remove("getUser");
+		assertCandidates("/api/users/1", "GET", false, "any");
+	}
+
+	@Test
+	public void mappingWithNestedPrefixesCollectedOnce() {
+		this.index.add("users", prefixes(Arrays.asList("api", "users"), Collections.singletonList("api")), null);
+
+		assertCandidates("/api/users/1", "GET", false, "users");
+		assertCandidates("/api/other", "GET", false, "users");
+	}
+
+	@Test
+	public void getLiteralPrefix() {
+		assertEquals(Arrays.asList("api", "users"), HandlerMethodMappingIndex.getLiteralPrefix("/api/users/{id}", true));
+		assertEquals(Arrays.asList("api", "users"), HandlerMethodMappingIndex.getLiteralPrefix("/api/users", true));
+		assertEquals(Collections.singletonList("api"), HandlerMethodMappingIndex.getLiteralPrefix("/api/users", false));
+		assertEquals(Collections.singletonList("api"), HandlerMethodMappingIndex.getLiteralPrefix("/api/u*/list", true));
+		assertEquals(Collections.emptyList(), HandlerMethodMappingIndex.getLiteralPrefix("/caf%C3%A9/menu", true));
+		assertEquals(Collections.emptyList(), HandlerMethodMappingIndex.getLiteralPrefix("/cars;color=red/1", true));
+		assertEquals(Collections.emptyList(), HandlerMethodMappingIndex.getLiteralPrefix("/**", true));
+	}
+
+
+	@SafeVarargs
+	private static List<List<String>> prefixes(List<String>... prefixes) {
+		return Arrays.asList(prefixes);
+	}
+
+	private static HashSet<String> methods(String... methods) {
+		return new HashSet<>(Arrays.asList(methods));
+	}
+
+	private void assertCandidates(String path, String httpMethod, boolean preFlight, String... expected) {
+		List<String> segments = Arrays.asList(path.split("/"));
+		List<String> candidates = this.index.getCandidates(segments, httpMethod, preFlight);
+		assertEquals(expected.length, candidates.size());
+		assertEquals(new HashSet<>(Arrays.asList(expected)), new HashSet<>(candidates));
+	}
+
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -16,9 +16,22 @@
 
 package org.springframework.web.server.adapter;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
 import org.springframework.http.codec.ServerCodecConfigurer;
+import org.springframework.http.codec.multipart.DefaultPartHttpMessageReader;
+import org.springframework.http.codec.multipart.MultipartHttpMessageReader;
+import org.springframework.http.codec.multipart.Part;
 import org.springframework.mock.http.server.reactive.test.MockServerHttpRequest;
 import org.springframework.mock.http.server.reactive.test.MockServerHttpResponse;
 import org.springframework.web.server.ServerWebExchange;
@@ -56,6 +69,64 @@ public class DefaultServerWebExchangeTests {
 		assertEquals("/foo;p=abc?q=123", exchange.transformUrl("/foo"));
 	}
 
+	@Test
+	public void cleanupMultipart() throws Exception {
+		Path directory = Files.createTempDirectory("DefaultServerWebExchangeTests");
+		DefaultServerWebExchange exchange = new DefaultServerWebExchange(multipartRequest(),
+				new MockServerHttpResponse(), new DefaultWebSessionManager(),
+				multipartCodecConfigurer(directory), new AcceptHeaderLocaleContextResolver());
+
+		// Multipart data not read yet
+		exchange.cleanupMultipart().block(Duration.ofSeconds(5));
+		assertEquals(0, directory.toFile().list().length);
+
+		assertNotNull(exchange.getMultipartData().block(Duration.ofSeconds(5)));
+		assertEquals(1, directory.toFile().list().length);
+
+		exchange.cleanupMultipart().block(Duration.ofSeconds(5));
+		assertEquals(0, directory.toFile().list().length);
+		Files.delete(directory);
+	}
+
+	@Test
+	public void cleanupMultipartOnErrorAfterResponseCommitted() throws Exception {
+		Path directory = Files.createTempDirectory("DefaultServerWebExchangeTests");
+		AtomicInteger fileCount = new AtomicInteger();
+		HttpWebHandlerAdapter adapter = new HttpWebHandlerAdapter(exchange -> exchange.getMultipartData()
+				.doOnNext(parts -> fileCount.set(directory.toFile().list().length))
+				.then(exchange.getResponse().setComplete())
+				.then(Mono.error(new IllegalStateException("Error after commit"))));
+		adapter.setCodecConfigurer(multipartCodecConfigurer(directory));
+
+		MockServerHttpResponse response = new MockServerHttpResponse();
+		StepVerifier.create(adapter.handle(multipartRequest(), response))
+				.expectError(IllegalStateException.class)
+				.verify(Duration.ofSeconds(5));
+		assertTrue(response.isCommitted());
+		assertEquals(1, fileCount.get());
+		assertEquals(0, directory.toFile().list().length);
+		Files.delete(directory);
+	}
+
+	@Test
+	public void cleanupPartsReadFromRequestBody() throws Exception {
+		Path directory = Files.createTempDirectory("DefaultServerWebExchangeTests");
+		DefaultPartHttpMessageReader partReader = new DefaultPartHttpMessageReader();
+		partReader.setFileStorageDirectory(directory);
+		partReader.setMaxInMemorySize(0);
+		AtomicInteger fileCount = new AtomicInteger();
+		HttpWebHandlerAdapter adapter = new HttpWebHandlerAdapter(exchange -> partReader
+				.read(ResolvableType.forClass(Part.class), exchange.getRequest(), Collections.emptyMap())
+				.then(Mono.fromRunnable(() -> fileCount.set(directory.toFile().list().length)))
+				.then(exchange.getResponse().setComplete()));
+
+		StepVerifier.create(adapter.handle(multipartRequest(), new MockServerHttpResponse()))
+				.verifyComplete();
+		assertEquals(1, fileCount.get());
+		assertEquals(0, directory.toFile().list().length);
+		Files.delete(directory);
+	}
+
 
 	private DefaultServerWebExchange createExchange() {
 		MockServerHttpRequest request = MockServerHttpRequest.get("https://example.com").build();
@@ -68,4 +139,24 @@ public class DefaultServerWebExchangeTests {
 				new AcceptHeaderLocaleContextResolver());
 	}
 
+	private static MockServerHttpRequest multipartRequest() {
+		return MockServerHttpRequest.post("/")
+				.contentType(MediaType.parseMediaType("multipart/form-data;boundary=abc"))
+				.body("--abc\r\n" +
+						"Content-Disposition: form-data; name=\"file\"; filename=\"foo.txt\"\r\n" +
+						"\r\n" +
+						"Lorem Ipsum.\r\n" +
+						"--abc--\r\n");
+	}
+
+	private static ServerCodecConfigurer multipartCodecConfigurer(Path directory) {
+		DefaultPartHttpMessageReader partReader = new DefaultPartHttpMessageReader();
+		partReader.setFileStorageDirectory(directory);
+		partReader.setMaxInMemorySize(0);
+		ServerCodecConfigurer configurer = ServerCodecConfigurer.create();
+		configurer.registerDefaults(false);
+		configurer.customCodecs().reader(new MultipartHttpMessageReader(partReader));
+		return configurer;
+	}
+
 }
@@ -1133,6 +1133,31 @@ public class PathPatternTests {
 		assertNotNull(result);
 	}
 
+	@Test
+	public void matchingStateIsNotSharedBetweenResults() {
+		PathPattern users = parse("/users/{user}");
+		PathPattern repos = parse("/users/{user}/repos/{repo}");
+		PathContainer path = toPathContainer("/users/jane/repos/spring");
+
+		PathPattern.PathMatchInfo result = repos.matchAndExtract(path);
+		assertNotNull(result);
+		assertFalse(users.matches(path));
+		assertNull(users.matchAndExtract(path));
+		assertNull(repos.matchAndExtract(toPathContainer("/users/jane")));
+		PathPattern.PathMatchInfo other = users.matchAndExtract(toPathContainer("/users/john"));
+
+		assertEquals(2, result.getUriVariables().size());
+		assertEquals("jane", result.getUriVariables().get("user"));
+		assertEquals("spring", result.getUriVariables().get("repo"));
+		assertEquals(1, other.getUriVariables().size());
+		assertEquals("john", other.getUriVariables().get("user"));
+
+		PathRemainingMatchInfo remaining = users.matchStartOfPath(path);
+		assertEquals("/repos/spring", remaining.getPathRemaining().value());
+		assertEquals("jane", remaining.getUriVariables().get("user"));
+		assertTrue(parse("/users/*").matches(toPathContainer("/users/jane")));
+	}
+
 	private PathPattern.PathMatchInfo matchAndExtract(String pattern, String path) {
 		return parse(pattern).matchAndExtract(PathPatternTests.toPathContainer(path));
 	}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2002-2019 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.springframework.web.reactive.result.method.annotation;
+
+import java.lang.reflect.Method;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import org.springframework.mock.http.server.reactive.test.MockServerHttpRequest;
+import org.springframework.mock.web.test.server.MockServerWebExchange;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.reactive.result.method.RequestMappingInfo;
+
+/**
+ * Benchmarks for handler lookups in {@link RequestMappingHandlerMapping} with
+ * a configurable number of registered mappings, for both direct path matches
+ * and patterns with URI variables, as well as for paths matching no mapping.
+ *
+ * <p>Each registered resource contributes four mappings under its own literal
+ * path prefix, so the larger setting registers thousands of mappings while
+ * the literal prefix index only hands the few mappings under the requested
+ * prefix to the matching conditions. Comparing throughput across the
+ * {@code mappingCount} settings shows how much lookups still depend on the
+ * total number of mappings. Run with {@code -Pjmh.profilers=gc} to compare
+ * the allocation rate per lookup ({@code gc.alloc.rate.norm}).
+ *
+ * @author <a href="mailto:agent@local">agent</a>
+ */
+@BenchmarkMode(Mode.Throughput)
+public class RequestMappingHandlerMappingBenchmark {
+
+	@State(Scope.Benchmark)
+	public static class BenchmarkState {
+
+		@Param({"100", "1000"})
+		public int mappingCount;
+
+		public RequestMappingHandlerMapping handlerMapping;
+
+		public String directPath;
+
+		public String patternPath;
+
+		public String unmatchedPath;
+
+		@Setup(Level.Trial)
+		public void setup() throws Exception {
+			this.handlerMapping = new RequestMappingHandlerMapping();
+			Handler handler = new Handler();
+			Method method = Handler.class.getMethod("handle");
+			for (int i = 0; i < this.mappingCount; i++) {
+				register(handler, method, RequestMethod.GET, "/static/resource" + i);
+				register(handler, method, RequestMethod.GET, "/api/resource" + i + "/{id}");
+				register(handler, method, RequestMethod.POST, "/api/resource" + i + "/{id}/items");
+				register(handler, method, RequestMethod.GET, "/api/resource" + i + "/{id}/items/{itemId}");
+			}
+			this.directPath = "/static/resource" + (this.mappingCount - 1);
+			this.patternPath = "/api/resource" + (this.mappingCount - 1) + "/42/items/7";
+			this.unmatchedPath = "/api/unknown/42/items/7";
+		}
+
+		private void register(Handler handler, Method method, RequestMethod requestMethod, String path) {
+			RequestMappingInfo info = RequestMappingInfo.paths(path).methods(requestMethod).build();
+			this.handlerMapping.registerMapping(info, handler, method);
+		}
+	}
+
+
+	@Benchmark
+	public Object directPathLookup(BenchmarkState state) {
+		return state.handlerMapping.getHandler(MockServerWebExchange.from(MockServerHttpRequest.get(state.directPath)))
+				.block();
+	}
+
+	@Benchmark
+	public Object patternPathLookup(BenchmarkState state) {
+		return state.handlerMapping.getHandler(MockServerWebExchange.from(MockServerHttpRequest.get(state.patternPath)))
+				.block();
+	}
+
+	@Benchmark
+	public Object unmatchedPathLookup(BenchmarkState state) {
+		return state.handlerMapping.getHandler(MockServerWebExchange.from(MockServerHttpRequest.get(state.unmatchedPath)))
+				.block();
+	}
+
+
+	public static class Handler {
+
+		public String handle() {
+			return "handled";
+		}
+	}
+
+}
@@ -110,8 +110,8 @@ public final class PatternsRequestCondition extends AbstractRequestCondition<Pat
 	 * Checks if any of the patterns match the given request and returns an instance
 	 * that is guaranteed to contain matching patterns, sorted.
 	 * @param exchange the current exchange
-	 * @return the same instance if the condition contains no patterns;
-	 * or a new condition with sorted matching patterns;
+	 * @return the same instance if the condition contains no patterns or if all
+	 * of its patterns match; or a new condition with sorted matching patterns;
 	 * or {@code null} if no patterns match.
 	 */
 	@Override
@@ -121,7 +121,11 @@ public final class PatternsRequestCondition extends AbstractRequestCondition<Pat
 			return this;
 		}
 		SortedSet<PathPattern> matches = getMatchingPatterns(exchange);
-		return (!matches.isEmpty() ? new PatternsRequestCondition(matches) : null);
+		if (matches == null) {
+			return null;
+		}
+		// Patterns are kept sorted, so a full match is equivalent to this instance
+		return (matches.size() == this.patterns.size() ? this : new PatternsRequestCondition(matches));
 	}
 
 	/**
@@ -131,13 +135,19 @@ public final class PatternsRequestCondition extends AbstractRequestCondition<Pat
 	 * This method is provided as an alternative to be used if no request is available
 	 * (e.g. introspection, tooling, etc).
 	 * @param exchange the current exchange
-	 * @return a sorted set of matching patterns sorted with the closest match first
+	 * @return a sorted set of matching patterns sorted with the closest match first,
+	 * or {@code null} if none match (avoiding a set allocation for the common case
+	 * of a mapping that is not a candidate for the current request)
 	 */
+	@Nullable
 	private SortedSet<PathPattern> getMatchingPatterns(ServerWebExchange exchange) {
 		PathContainer lookupPath = exchange.getRequest().getPath().pathWithinApplication();
-		TreeSet<PathPattern> pathPatterns = new TreeSet<>();
+		TreeSet<PathPattern> pathPatterns = null;
 		for (PathPattern pattern : this.patterns) {
 			if (pattern.matches(lookupPath)) {
+				if (pathPatterns == null) {
+					pathPatterns = new TreeSet<>();
+				}
 				pathPatterns.add(pattern);
 			}
 		}
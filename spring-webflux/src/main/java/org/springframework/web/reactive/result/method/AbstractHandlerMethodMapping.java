@@ -37,6 +37,7 @@ import reactor.core.publisher.Mono;
 import org.springframework.aop.support.AopUtils;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.core.MethodIntrospector;
+import org.springframework.http.server.PathContainer;
 import org.springframework.http.server.RequestPath;
 import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
@@ -44,6 +45,7 @@ import org.springframework.util.ClassUtils;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.reactive.CorsUtils;
 import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.HandlerMethodMappingIndex;
 import org.springframework.web.reactive.HandlerMapping;
 import org.springframework.web.reactive.handler.AbstractHandlerMapping;
 import org.springframework.web.server.ServerWebExchange;
@@ -310,7 +312,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	@Nullable
 	protected HandlerMethod lookupHandlerMethod(ServerWebExchange exchange) throws Exception {
 		List<Match> matches = new ArrayList<>();
-		addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, exchange);
+		addMatchingMappings(this.mappingRegistry.getCandidateMappings(exchange), matches, exchange);
 
 		if (!matches.isEmpty()) {
 			Comparator<Match> comparator = new MatchComparator(getMappingComparator(exchange));
@@ -430,6 +432,38 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	 */
 	protected abstract Comparator<T> getMappingComparator(ServerWebExchange exchange);
 
+	/**
+	 * Return the leading literal segments of the path patterns of the given
+	 * mapping, one list per pattern, allowing the mapping to be skipped for
+	 * requests whose path does not start with any of those segments (compared
+	 * case-insensitively).
+	 * <p>The default implementation returns {@code null}, in which case the
+	 * mapping is checked against every request.
+	 * @param mapping the mapping to introspect
+	 * @return the literal path prefixes, or {@code null} if the mapping may
+	 * match any path
+	 * @since 5.2
+	 */
+	@Nullable
+	protected Collection<List<String>> getMappingPathPrefixes(T mapping) {
+		return null;
+	}
+
+	/**
+	 * Return the HTTP methods the given mapping is restricted to, allowing
+	 * the mapping to be skipped for requests with any other HTTP method.
+	 * <p>The default implementation returns {@code null}, in which case the
+	 * mapping is checked against requests with any HTTP method.
+	 * @param mapping the mapping to introspect
+	 * @return the HTTP method names, or {@code null} (or an empty set) if the
+	 * mapping is not restricted by HTTP method
+	 * @since 5.2
+	 */
+	@Nullable
+	protected Set<String> getMappingHttpMethods(T mapping) {
+		return null;
+	}
+
 
 	/**
 	 * A registry that maintains all mappings to handler methods, exposing methods
@@ -443,6 +477,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final Map<T, HandlerMethod> mappingLookup = new LinkedHashMap<>();
 
+		private final HandlerMethodMappingIndex<T> mappingIndex = new HandlerMethodMappingIndex<>();
+
 		private final Map<HandlerMethod, CorsConfiguration> corsLookup = new ConcurrentHashMap<>();
 
 		private final ReentrantReadWriteLock readWriteLock = new ReentrantReadWriteLock();
@@ -455,6 +491,25 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.mappingLookup;
 		}
 
+		/**
+		 * Return the mappings that may match the given exchange, narrowed down
+		 * by the literal prefix of the request path and by the HTTP method.
+		 * Not thread-safe.
+		 * @since 5.2
+		 * @see #acquireReadLock()
+		 */
+		public List<T> getCandidateMappings(ServerWebExchange exchange) {
+			List<PathContainer.Element> elements = exchange.getRequest().getPath().pathWithinApplication().elements();
+			List<String> pathSegments = new ArrayList<>(elements.size());
+			for (PathContainer.Element element : elements) {
+				if (element instanceof PathContainer.PathSegment) {
+					pathSegments.add(((PathContainer.PathSegment) element).valueToMatch());
+				}
+			}
+			return this.mappingIndex.getCandidates(pathSegments, exchange.getRequest().getMethodValue(),
+					CorsUtils.isPreFlightRequest(exchange.getRequest()));
+		}
+
 		/**
 		 * Return CORS configuration. Thread-safe for concurrent use.
 		 */
@@ -485,6 +540,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				assertUniqueMethodMapping(handlerMethod, mapping);
 
 				this.mappingLookup.put(mapping, handlerMethod);
+				this.mappingIndex.add(mapping, getMappingPathPrefixes(mapping), getMappingHttpMethods(mapping));
 
 				CorsConfiguration corsConfig = initCorsConfiguration(handler, method, mapping);
 				if (corsConfig != null) {
@@ -517,6 +573,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 				}
 
 				this.mappingLookup.remove(definition.getMapping());
+				this.mappingIndex.remove(definition.getMapping());
 				this.corsLookup.remove(definition.getHandlerMethod());
 			}
 			finally {
@@ -18,6 +18,7 @@ package org.springframework.web.reactive.result.method;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.EnumSet;
@@ -33,9 +34,12 @@ import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
 import org.springframework.http.server.PathContainer;
 import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.lang.Nullable;
 import org.springframework.util.Assert;
 import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.HandlerMethodMappingIndex;
 import org.springframework.web.reactive.HandlerMapping;
 import org.springframework.web.reactive.result.condition.NameValueExpression;
 import org.springframework.web.server.MethodNotAllowedException;
@@ -67,6 +71,33 @@ public abstract class RequestMappingInfoHandlerMapping extends AbstractHandlerMe
 	}
 
 
+	/**
+	 * Get the leading literal segments of the URL path patterns associated
+	 * with this {@link RequestMappingInfo}.
+	 */
+	@Override
+	@Nullable
+	protected Collection<List<String>> getMappingPathPrefixes(RequestMappingInfo info) {
+		Set<PathPattern> patterns = info.getPatternsCondition().getPatterns();
+		if (patterns.isEmpty()) {
+			return null;
+		}
+		List<List<String>> prefixes = new ArrayList<>(patterns.size());
+		for (PathPattern pattern : patterns) {
+			prefixes.add(HandlerMethodMappingIndex.getLiteralPrefix(pattern.getPatternString(), true));
+		}
+		return prefixes;
+	}
+
+	/**
+	 * Get the HTTP methods associated with this {@link RequestMappingInfo}.
+	 */
+	@Override
+	protected Set<String> getMappingHttpMethods(RequestMappingInfo info) {
+		return info.getMethodsCondition().getMethods().stream()
+				.map(RequestMethod::name).collect(Collectors.toSet());
+	}
+
 	/**
 	 * Check if the given RequestMappingInfo matches the current request and
 	 * return a (potentially new) instance with conditions that match the
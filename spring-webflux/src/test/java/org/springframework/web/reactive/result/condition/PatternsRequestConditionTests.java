@@ -30,6 +30,7 @@ import org.springframework.web.util.pattern.PathPatternParser;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.springframework.mock.http.server.reactive.test.MockServerHttpRequest.get;
 
 /**
@@ -105,6 +106,15 @@ public class PatternsRequestConditionTests {
 		assertEquals(expected, match);
 	}
 
+	@Test
+	public void matchAllPatternsReturnsSameInstance() throws Exception {
+		PatternsRequestCondition condition = createPatternsCondition("/foo/*", "/foo/bar");
+		MockServerWebExchange exchange = MockServerWebExchange.from(get("/foo/bar"));
+
+		assertSame(condition, condition.getMatchingCondition(exchange));
+		assertNull(condition.getMatchingCondition(MockServerWebExchange.from(get("/bar"))));
+	}
+
 	@Test
 	public void matchTrailingSlash() throws Exception {
 		MockServerWebExchange exchange = MockServerWebExchange.from(get("/foo/"));
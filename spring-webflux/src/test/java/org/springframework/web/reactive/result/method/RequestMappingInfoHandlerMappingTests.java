@@ -22,6 +22,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -86,6 +87,40 @@ public class RequestMappingInfoHandlerMappingTests {
 	}
 
 
+	@Test
+	public void getCandidateMappingsByPathPrefixAndMethod() {
+		RequestMappingInfo getUser = paths("/api/users/{id}").methods(GET).build();
+		RequestMappingInfo postUser = paths("/api/users").methods(POST).build();
+		RequestMappingInfo getOrder = paths("/api/orders/{id}").methods(GET).build();
+		RequestMappingInfo any = paths("/**").build();
+
+		TestRequestMappingInfoHandlerMapping mapping = new TestRequestMappingInfoHandlerMapping();
+		for (RequestMappingInfo info : Arrays.asList(getUser, postUser, getOrder, any)) {
+			mapping.registerMapping(info, handlerMethod.getBean(), handlerMethod.getMethod());
+		}
+
+		assertCandidates(mapping, get("/api/users/1"), getUser, any);
+		assertCandidates(mapping, head("/API/Users/1"), getUser, any);
+		assertCandidates(mapping, post("/api/users"), postUser, any);
+		assertCandidates(mapping, get("/api/orders/1"), getOrder, any);
+		assertCandidates(mapping, get("/other"), any);
+		assertCandidates(mapping, options("/api/users/1")
+				.header(HttpHeaders.ORIGIN, "https://domain.com")
+				.header(HttpHeaders.ACCESS_CONTROL_REQUEST_METHOD, "POST"), getUser, postUser, any);
+
+		mapping.unregisterMapping(getUser);
+		assertCandidates(mapping, get("/api/users/1"), any);
+	}
+
+	private void assertCandidates(TestRequestMappingInfoHandlerMapping mapping,
+			MockServerHttpRequest.BaseBuilder<?> request, RequestMappingInfo... expected) {
+
+		ServerWebExchange exchange = MockServerWebExchange.from(request);
+		List<RequestMappingInfo> candidates = mapping.getMappingRegistry().getCandidateMappings(exchange);
+		assertEquals(expected.length, candidates.size());
+		assertEquals(new HashSet<>(Arrays.asList(expected)), new HashSet<>(candidates));
+	}
+
 	@Test
 	public void getHandlerDirectMatch() {
 		Method expected = on(TestController.class).annot(getMapping("/foo").params()).resolveMethod();
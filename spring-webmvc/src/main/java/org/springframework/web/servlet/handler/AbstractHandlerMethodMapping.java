@@ -43,9 +43,11 @@ import org.springframework.util.Assert;
 import org.springframework.util.ClassUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.StringUtils;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsUtils;
 import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.HandlerMethodMappingIndex;
 import org.springframework.web.servlet.HandlerMapping;
 
 /**
@@ -382,8 +384,7 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			addMatchingMappings(directPathMatches, matches, request);
 		}
 		if (matches.isEmpty()) {
-			// No choice but to go through all mappings...
-			addMatchingMappings(this.mappingRegistry.getMappings().keySet(), matches, request);
+			addMatchingMappings(this.mappingRegistry.getCandidateMappings(lookupPath, request), matches, request);
 		}
 
 		if (!matches.isEmpty()) {
@@ -515,6 +516,41 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 	 */
 	protected abstract Comparator<T> getMappingComparator(HttpServletRequest request);
 
+	/**
+	 * Return the leading literal segments of the path patterns of the given
+	 * mapping, one list per pattern, allowing the mapping to be skipped for
+	 * requests whose path does not start with any of those segments (compared
+	 * case-insensitively).
+	 * <p>The prefixes must only contain segments that the mapping matches
+	 * literally against the lookup path of this handler mapping, since the
+	 * mapping is never checked against requests outside of its prefixes.
+	 * <p>The default implementation returns {@code null}, in which case the
+	 * mapping is checked against every request.
+	 * @param mapping the mapping to introspect
+	 * @return the literal path prefixes, or {@code null} if the mapping may
+	 * match any path
+	 * @since 5.2
+	 */
+	@Nullable
+	protected Collection<List<String>> getMappingPathPrefixes(T mapping) {
+		return null;
+	}
+
+	/**
+	 * Return the HTTP methods the given mapping is restricted to, allowing
+	 * the mapping to be skipped for requests with any other HTTP method.
+	 * <p>The default implementation returns {@code null}, in which case the
+	 * mapping is checked against requests with any HTTP method.
+	 * @param mapping the mapping to introspect
+	 * @return the HTTP method names, or {@code null} (or an empty set) if the
+	 * mapping is not restricted by HTTP method
+	 * @since 5.2
+	 */
+	@Nullable
+	protected Set<String> getMappingHttpMethods(T mapping) {
+		return null;
+	}
+
 
 	/**
 	 * A registry that maintains all mappings to handler methods, exposing methods
@@ -529,6 +565,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 
 		private final MultiValueMap<String, T> urlLookup = new LinkedMultiValueMap<>();
 
+		private final HandlerMethodMappingIndex<T> mappingIndex = new HandlerMethodMappingIndex<>();
+
 		private final Map<String, List<HandlerMethod>> nameLookup = new ConcurrentHashMap<>();
 
 		private final Map<HandlerMethod, CorsConfiguration> corsLookup = new ConcurrentHashMap<>();
@@ -552,6 +590,19 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 			return this.urlLookup.get(urlPath);
 		}
 
+		/**
+		 * Return the mappings that may match the given lookup path, narrowed
+		 * down by its literal prefix and by the HTTP method of the request.
+		 * Not thread-safe.
+		 * @since 5.2
+		 * @see #acquireReadLock()
+		 */
+		public List<T> getCandidateMappings(String lookupPath, HttpServletRequest request) {
+			List<String> pathSegments = Arrays.asList(StringUtils.tokenizeToStringArray(lookupPath, "/"));
+			return this.mappingIndex.getCandidates(pathSegments, request.getMethod(),
+					CorsUtils.isPreFlightRequest(request));
+		}
+
 		/**
 		 * Return handler methods by mapping name. Thread-safe for concurrent use.
 		 */
@@ -594,6 +645,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 					this.urlLookup.add(url, mapping);
 				}
 
+				this.mappingIndex.add(mapping, getMappingPathPrefixes(mapping), getMappingHttpMethods(mapping));
+
 				String name = null;
 				if (getNamingStrategy() != null) {
 					name = getNamingStrategy().getName(handlerMethod, mapping);
@@ -670,6 +723,8 @@ public abstract class AbstractHandlerMethodMapping<T> extends AbstractHandlerMap
 					}
 				}
 
+				this.mappingIndex.remove(definition.getMapping());
+
 				removeMappingName(definition);
 
 				this.corsLookup.remove(definition.getHandlerMethod());
@@ -18,6 +18,7 @@ package org.springframework.web.servlet.mvc.method;
 
 import java.lang.reflect.Method;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
@@ -25,6 +26,7 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 
@@ -32,8 +34,11 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.InvalidMediaTypeException;
 import org.springframework.http.MediaType;
+import org.springframework.lang.Nullable;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.CollectionUtils;
 import org.springframework.util.MultiValueMap;
+import org.springframework.util.PathMatcher;
 import org.springframework.util.StringUtils;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
@@ -41,6 +46,7 @@ import org.springframework.web.HttpRequestMethodNotSupportedException;
 import org.springframework.web.bind.UnsatisfiedServletRequestParameterException;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.method.HandlerMethodMappingIndex;
 import org.springframework.web.servlet.HandlerMapping;
 import org.springframework.web.servlet.handler.AbstractHandlerMethodMapping;
 import org.springframework.web.servlet.mvc.condition.NameValueExpression;
@@ -82,6 +88,44 @@ public abstract class RequestMappingInfoHandlerMapping extends AbstractHandlerMe
 		return info.getPatternsCondition().getPatterns();
 	}
 
+	/**
+	 * Get the leading literal segments of the URL path patterns associated
+	 * with this {@link RequestMappingInfo}, if matched with a plain
+	 * {@link AntPathMatcher} using "/" as path separator.
+	 * The last segment of a pattern is never included since it may be matched
+	 * with a suffix pattern (e.g. "/users" against "/users.json").
+	 * <p>A match is only handled if its pattern also matches the lookup path
+	 * with the {@link #getPathMatcher() PathMatcher} of this handler mapping
+	 * (see {@link #handleMatch}), so the prefixes are valid even for mappings
+	 * created with another path matching configuration.
+	 */
+	@Override
+	@Nullable
+	protected Collection<List<String>> getMappingPathPrefixes(RequestMappingInfo info) {
+		Set<String> patterns = info.getPatternsCondition().getPatterns();
+		if (patterns.isEmpty() || !isDefaultAntPathMatcher(getPathMatcher())) {
+			return null;
+		}
+		List<List<String>> prefixes = new ArrayList<>(patterns.size());
+		for (String pattern : patterns) {
+			prefixes.add(HandlerMethodMappingIndex.getLiteralPrefix(pattern, false));
+		}
+		return prefixes;
+	}
+
+	private static boolean isDefaultAntPathMatcher(PathMatcher pathMatcher) {
+		return (pathMatcher.getClass() == AntPathMatcher.class && "/a/b".equals(pathMatcher.combine("/a", "b")));
+	}
+
+	/**
+	 * Get the HTTP methods associated with this {@link RequestMappingInfo}.
+	 */
+	@Override
+	protected Set<String> getMappingHttpMethods(RequestMappingInfo info) {
+		return info.getMethodsCondition().getMethods().stream()
+				.map(RequestMethod::name).collect(Collectors.toSet());
+	}
+
 	/**
 	 * Check if the given RequestMappingInfo matches the current request and
 	 * return a (potentially new) instance with conditions that match the
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,7 +17,9 @@
 package org.springframework.web.servlet.mvc.method;
 
 import java.lang.reflect.Method;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
@@ -33,6 +35,7 @@ import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.test.MockHttpServletRequest;
 import org.springframework.stereotype.Controller;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.util.MultiValueMap;
 import org.springframework.web.HttpMediaTypeNotAcceptableException;
 import org.springframework.web.HttpMediaTypeNotSupportedException;
@@ -105,6 +108,59 @@ public class RequestMappingInfoHandlerMappingTests {
 		assertEquals(new HashSet<>(Arrays.asList(patterns)), actual);
 	}
 
+	@Test
+	public void getMappingPathPrefixes() throws Exception {
+		RequestMappingInfo info = RequestMappingInfo.paths("/api/users/{id}", "/api/orders", "/*/items").build();
+		Collection<List<String>> prefixes = this.handlerMapping.getMappingPathPrefixes(info);
+
+		assertEquals(new HashSet<>(Arrays.asList(Arrays.asList("api", "users"),
+				Collections.singletonList("api"), Collections.emptyList())), new HashSet<>(prefixes));
+	}
+
+	@Test
+	public void getHandlerPatternMatchNarrowedByPathPrefix() throws Exception {
+		RequestMappingInfo info = RequestMappingInfo.paths("/api/users/{id}").methods(RequestMethod.GET).build();
+		this.handlerMapping.registerMapping(info, this.fooMethod.getBean(), this.fooMethod.getMethod());
+
+		HandlerMethod handlerMethod = getHandler(new MockHttpServletRequest("GET", "/api/users/1"));
+		assertEquals(this.fooMethod.getMethod(), handlerMethod.getMethod());
+
+		handlerMethod = getHandler(new MockHttpServletRequest("HEAD", "/api/users/1.json"));
+		assertEquals(this.fooMethod.getMethod(), handlerMethod.getMethod());
+
+		this.handlerMapping.unregisterMapping(info);
+		assertNull(this.handlerMapping.getHandler(new MockHttpServletRequest("GET", "/api/users/1")));
+	}
+
+	@Test
+	public void getHandlerOnlyChecksMappingsUnderPathPrefix() throws Exception {
+		ApiController controller = new ApiController();
+		this.handlerMapping.registerHandler(controller);
+
+		this.handlerMapping.checkedPatterns.clear();
+		HandlerMethod handlerMethod = getHandler(new MockHttpServletRequest("GET", "/api/users/1"));
+		assertEquals(new HandlerMethod(controller, "user").getMethod(), handlerMethod.getMethod());
+		assertThat(this.handlerMapping.checkedPatterns, not(hasItem("/api/orders/{id}")));
+
+		this.handlerMapping.checkedPatterns.clear();
+		assertNull(this.handlerMapping.getHandler(new MockHttpServletRequest("GET", "/other/users/1")));
+		assertThat(this.handlerMapping.checkedPatterns, not(hasItem(startsWith("/api"))));
+	}
+
+	@Test
+	public void getHandlerPathPrefixMatchedCaseInsensitively() throws Exception {
+		AntPathMatcher pathMatcher = new AntPathMatcher();
+		pathMatcher.setCaseSensitive(false);
+		this.handlerMapping.setPathMatcher(pathMatcher);
+		RequestMappingInfo.BuilderConfiguration config = new RequestMappingInfo.BuilderConfiguration();
+		config.setPathMatcher(pathMatcher);
+		RequestMappingInfo info = RequestMappingInfo.paths("/API/Users/{id}").options(config).build();
+		this.handlerMapping.registerMapping(info, this.fooMethod.getBean(), this.fooMethod.getMethod());
+
+		HandlerMethod handlerMethod = getHandler(new MockHttpServletRequest("GET", "/api/users/1"));
+		assertEquals(this.fooMethod.getMethod(), handlerMethod.getMethod());
+	}
+
 	@Test
 	public void getHandlerDirectMatch() throws Exception {
 		MockHttpServletRequest request = new MockHttpServletRequest("GET", "/foo");
@@ -521,12 +577,33 @@ public class RequestMappingInfoHandlerMappingTests {
 	}
 
 
+	@Controller
+	private static class ApiController {
+
+		@RequestMapping(value = "/api/users/{id}", method = RequestMethod.GET)
+		public void user() {
+		}
+
+		@RequestMapping(value = "/api/orders/{id}", method = RequestMethod.GET)
+		public void order() {
+		}
+	}
+
+
 	private static class TestRequestMappingInfoHandlerMapping extends RequestMappingInfoHandlerMapping {
 
+		private final List<String> checkedPatterns = new ArrayList<>();
+
 		public void registerHandler(Object handler) {
 			super.detectHandlerMethods(handler);
 		}
 
+		@Override
+		protected RequestMappingInfo getMatchingMapping(RequestMappingInfo info, HttpServletRequest request) {
+			this.checkedPatterns.addAll(info.getPatternsCondition().getPatterns());
+			return super.getMatchingMapping(info, request);
+		}
+
 		@Override
 		protected boolean isHandler(Class<?> beanType) {
 			return AnnotationUtils.findAnnotation(beanType, RequestMapping.class) != null;
@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -80,6 +80,9 @@ public class WebMvcStompEndpointRegistry implements StompEndpointRegistry {
 		if (transportRegistration.getTimeToFirstMessage() != null) {
 			this.subProtocolWebSocketHandler.setTimeToFirstMessage(transportRegistration.getTimeToFirstMessage());
 		}
+		if (transportRegistration.getCoalesceMessages() != null) {
+			this.subProtocolWebSocketHandler.setCoalesceMessages(transportRegistration.getCoalesceMessages());
+		}
 
 		this.stompHandler = new StompSubProtocolHandler();
 		if (transportRegistration.getMessageSizeLimit() != null) {
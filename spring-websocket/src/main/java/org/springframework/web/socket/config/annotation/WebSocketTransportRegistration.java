@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -43,6 +43,9 @@ public class WebSocketTransportRegistration {
 	@Nullable
 	private Integer timeToFirstMessage;
 
+	@Nullable
+	private Boolean coalesceMessages;
+
 	private final List<WebSocketHandlerDecoratorFactory> decoratorFactories = new ArrayList<>(2);
 
 
@@ -170,6 +173,31 @@ public class WebSocketTransportRegistration {
 		return this.timeToFirstMessage;
 	}
 
+	/**
+	 * Configure whether messages buffered for a WebSocket session, while a
+	 * previous send is in progress, should be coalesced into fewer transport
+	 * writes. Complete text messages are joined with text messages, and
+	 * binary messages with binary messages, up to the
+	 * {@link #setSendBufferSizeLimit send buffer size limit}.
+	 * <p>Since this changes the boundaries of WebSocket messages, it should
+	 * only be enabled for sub-protocols that delimit their own frames, such
+	 * as STOMP, and with clients able to handle several frames per message.
+	 * <p>By default this is set to {@code false}.
+	 * @since 5.2
+	 */
+	public WebSocketTransportRegistration setCoalesceMessages(boolean coalesceMessages) {
+		this.coalesceMessages = coalesceMessages;
+		return this;
+	}
+
+	/**
+	 * Protected accessor for internal use.
+	 */
+	@Nullable
+	protected Boolean getCoalesceMessages() {
+		return this.coalesceMessages;
+	}
+
 	/**
 	 * Configure one or more factories to decorate the handler used to process
 	 * WebSocket messages. This may be useful in some advanced use cases, for
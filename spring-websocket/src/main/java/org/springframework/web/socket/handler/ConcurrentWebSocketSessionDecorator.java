@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,16 +17,23 @@
 package org.springframework.web.socket.handler;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
+import org.springframework.lang.Nullable;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
 
@@ -39,6 +46,12 @@ import org.springframework.web.socket.WebSocketSession;
  * At that time, the specified buffer-size limit and send-time limit will be checked
  * and the session will be closed if the limits are exceeded.
  *
+ * <p>As of 5.2, buffered text or binary messages may optionally be
+ * {@link #setCoalesceMessages coalesced} into fewer transport writes, and
+ * per-session statistics such as the number of buffered messages, send
+ * durations and buffer overflows are exposed, which helps to spot slow
+ * consumers before the configured limits are reached.
+ *
  * @author Rossen Stoyanchev
  * @author Juergen Hoeller
  * @since 4.0.3
@@ -68,6 +81,28 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 
 	private final Lock closeLock = new ReentrantLock();
 
+	private volatile boolean coalesceMessages;
+
+	// Message taken from the buffer but left for the next write, guarded by the flush lock
+	@Nullable
+	private volatile WebSocketMessage<?> pendingMessage;
+
+	// Send statistics, updated while holding the flush lock
+
+	private volatile long sentMessageCount;
+
+	private volatile long transportWriteCount;
+
+	private volatile long lastSendDuration;
+
+	private volatile long maxSendDuration;
+
+	// Overflow statistics, updated while holding the close lock
+
+	private final AtomicLong overflowCount = new AtomicLong();
+
+	private final AtomicLong droppedMessageCount = new AtomicLong();
+
 
 	/**
 	 * Basic constructor.
@@ -114,6 +149,29 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 		return this.bufferSizeLimit;
 	}
 
+	/**
+	 * Whether consecutive buffered messages should be coalesced into a single
+	 * message, and hence a single transport write, when flushing the buffer.
+	 * <p>Only complete (i.e. not partial) text messages are combined with
+	 * text messages, and binary messages with binary messages, up to the
+	 * configured {@link #getBufferSizeLimit() buffer-size limit}. Since this
+	 * changes message boundaries, it should only be enabled for protocols
+	 * that delimit their own frames, such as STOMP.
+	 * <p>By default this is set to {@code false}.
+	 * @since 5.2
+	 */
+	public void setCoalesceMessages(boolean coalesceMessages) {
+		this.coalesceMessages = coalesceMessages;
+	}
+
+	/**
+	 * Whether buffered messages are coalesced into fewer transport writes.
+	 * @since 5.2
+	 */
+	public boolean isCoalesceMessages() {
+		return this.coalesceMessages;
+	}
+
 	/**
 	 * Return the current buffer size (number of bytes).
 	 */
@@ -121,6 +179,67 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 		return this.bufferSize.get();
 	}
 
+	/**
+	 * Return the number of messages currently waiting in the buffer.
+	 * @since 5.2
+	 */
+	public int getBufferedMessageCount() {
+		return this.buffer.size() + (this.pendingMessage != null ? 1 : 0);
+	}
+
+	/**
+	 * Return the total number of messages sent so far, including messages
+	 * that were coalesced with others.
+	 * @since 5.2
+	 */
+	public long getSentMessageCount() {
+		return this.sentMessageCount;
+	}
+
+	/**
+	 * Return the total number of messages passed to the underlying session,
+	 * which is lower than the {@link #getSentMessageCount() sent message count}
+	 * when messages are coalesced.
+	 * @since 5.2
+	 */
+	public long getTransportWriteCount() {
+		return this.transportWriteCount;
+	}
+
+	/**
+	 * Return the time (milliseconds) the most recent completed send took.
+	 * @since 5.2
+	 */
+	public long getLastSendDuration() {
+		return this.lastSendDuration;
+	}
+
+	/**
+	 * Return the longest time (milliseconds) a completed send took so far.
+	 * @since 5.2
+	 */
+	public long getMaxSendDuration() {
+		return this.maxSendDuration;
+	}
+
+	/**
+	 * Return how many times the buffer was found to exceed the configured
+	 * {@link #getBufferSizeLimit() buffer-size limit}.
+	 * @since 5.2
+	 */
+	public long getOverflowCount() {
+		return this.overflowCount.get();
+	}
+
+	/**
+	 * Return the number of messages dropped from the buffer with
+	 * {@link OverflowStrategy#DROP}.
+	 * @since 5.2
+	 */
+	public long getDroppedMessageCount() {
+		return this.droppedMessageCount.get();
+	}
+
 	/**
 	 * Return the time (milliseconds) since the current send started,
 	 * or 0 if no send is currently in progress.
@@ -151,7 +270,7 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 				break;
 			}
 		}
-		while (!this.buffer.isEmpty() && !shouldNotSend());
+		while ((this.pendingMessage != null || !this.buffer.isEmpty()) && !shouldNotSend());
 	}
 
 	private boolean shouldNotSend() {
@@ -161,15 +280,41 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 	private boolean tryFlushMessageBuffer() throws IOException {
 		if (this.flushLock.tryLock()) {
 			try {
-				while (true) {
-					WebSocketMessage<?> message = this.buffer.poll();
-					if (message == null || shouldNotSend()) {
+				while (!shouldNotSend()) {
+					WebSocketMessage<?> message = pollMessage();
+					if (message == null) {
 						break;
 					}
-					this.bufferSize.addAndGet(-message.getPayloadLength());
-					this.sendStartTime = System.currentTimeMillis();
+					int messageCount = 1;
+					if (this.coalesceMessages && isCoalescible(message)) {
+						List<WebSocketMessage<?>> messages = null;
+						int size = message.getPayloadLength();
+						WebSocketMessage<?> next;
+						while ((next = pollMessage()) != null) {
+							if (!isCoalescible(next) || next.getClass() != message.getClass() ||
+									size + next.getPayloadLength() > getBufferSizeLimit()) {
+								// Leave it for the next write, ahead of the buffer
+								this.pendingMessage = next;
+								this.bufferSize.addAndGet(next.getPayloadLength());
+								break;
+							}
+							if (messages == null) {
+								messages = new ArrayList<>();
+								messages.add(message);
+							}
+							messages.add(next);
+							size += next.getPayloadLength();
+						}
+						if (messages != null) {
+							message = coalesce(messages, size);
+							messageCount = messages.size();
+						}
+					}
+					long startTime = System.currentTimeMillis();
+					this.sendStartTime = startTime;
 					getDelegate().sendMessage(message);
 					this.sendStartTime = 0;
+					recordSend(messageCount, System.currentTimeMillis() - startTime);
 				}
 			}
 			finally {
@@ -181,6 +326,56 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 		return false;
 	}
 
+	/**
+	 * Take the next message to send: the message left over from coalescing,
+	 * if any, or else the head of the buffer. To be called with the flush lock.
+	 */
+	@Nullable
+	private WebSocketMessage<?> pollMessage() {
+		WebSocketMessage<?> message = this.pendingMessage;
+		if (message != null) {
+			this.pendingMessage = null;
+		}
+		else {
+			message = this.buffer.poll();
+		}
+		if (message != null) {
+			this.bufferSize.addAndGet(-message.getPayloadLength());
+		}
+		return message;
+	}
+
+	private static boolean isCoalescible(WebSocketMessage<?> message) {
+		return ((message instanceof TextMessage || message instanceof BinaryMessage) && message.isLast());
+	}
+
+	private static WebSocketMessage<?> coalesce(List<WebSocketMessage<?>> messages, int size) {
+		if (messages.get(0) instanceof TextMessage) {
+			StringBuilder sb = new StringBuilder(size);
+			for (WebSocketMessage<?> message : messages) {
+				sb.append(((TextMessage) message).getPayload());
+			}
+			return new TextMessage(sb);
+		}
+		else {
+			ByteBuffer buffer = ByteBuffer.allocate(size);
+			for (WebSocketMessage<?> message : messages) {
+				buffer.put(((BinaryMessage) message).getPayload().duplicate());
+			}
+			buffer.flip();
+			return new BinaryMessage(buffer);
+		}
+	}
+
+	private void recordSend(int messageCount, long duration) {
+		this.sentMessageCount += messageCount;
+		this.transportWriteCount++;
+		this.lastSendDuration = duration;
+		if (duration > this.maxSendDuration) {
+			this.maxSendDuration = duration;
+		}
+	}
+
 	private void checkSessionLimits() {
 		if (!shouldNotSend() && this.closeLock.tryLock()) {
 			try {
@@ -190,6 +385,7 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 					limitExceeded(reason);
 				}
 				else if (getBufferSize() > getBufferSizeLimit()) {
+					this.overflowCount.incrementAndGet();
 					switch (this.overflowStrategy) {
 						case TERMINATE:
 							String format = "Buffer size %d bytes for session '%s' exceeds the allowed limit %d";
@@ -206,6 +402,7 @@ public class ConcurrentWebSocketSessionDecorator extends WebSocketSessionDecorat
 								this.bufferSize.addAndGet(-message.getPayloadLength());
 								i++;
 							}
+							this.droppedMessageCount.addAndGet(i);
 							if (logger.isDebugEnabled()) {
 								logger.debug("Dropped " + i + " messages, buffer size: " + getBufferSize());
 							}
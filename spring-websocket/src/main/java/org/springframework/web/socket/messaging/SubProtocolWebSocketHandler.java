@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -93,6 +93,8 @@ public class SubProtocolWebSocketHandler
 
 	private int sendBufferSizeLimit = 512 * 1024;
 
+	private boolean coalesceMessages = false;
+
 	private int timeToFirstMessage = DEFAULT_TIME_TO_FIRST_MESSAGE;
 
 	private volatile long lastSessionCheckTime = System.currentTimeMillis();
@@ -221,6 +223,25 @@ public class SubProtocolWebSocketHandler
 		return this.sendBufferSizeLimit;
 	}
 
+	/**
+	 * Specify whether buffered messages should be coalesced into fewer
+	 * transport writes.
+	 * <p>By default this is set to {@code false}.
+	 * @since 5.2
+	 * @see ConcurrentWebSocketSessionDecorator#setCoalesceMessages
+	 */
+	public void setCoalesceMessages(boolean coalesceMessages) {
+		this.coalesceMessages = coalesceMessages;
+	}
+
+	/**
+	 * Return whether buffered messages are coalesced into fewer transport writes.
+	 * @since 5.2
+	 */
+	public boolean isCoalesceMessages() {
+		return this.coalesceMessages;
+	}
+
 	/**
 	 * Set the maximum time allowed in milliseconds after the WebSocket connection
 	 * is established and before the first sub-protocol message is received.
@@ -394,14 +415,18 @@ public class SubProtocolWebSocketHandler
 	/**
 	 * Decorate the given {@link WebSocketSession}, if desired.
 	 * <p>The default implementation builds a {@link ConcurrentWebSocketSessionDecorator}
-	 * with the configured {@link #getSendTimeLimit() send-time limit} and
-	 * {@link #getSendBufferSizeLimit() buffer-size limit}.
+	 * with the configured {@link #getSendTimeLimit() send-time limit},
+	 * {@link #getSendBufferSizeLimit() buffer-size limit} and
+	 * {@link #isCoalesceMessages() coalesceMessages} flag.
 	 * @param session the original {@code WebSocketSession}
 	 * @return the decorated {@code WebSocketSession}, or potentially the given session as-is
 	 * @since 4.3.13
 	 */
 	protected WebSocketSession decorateSession(WebSocketSession session) {
-		return new ConcurrentWebSocketSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit());
+		ConcurrentWebSocketSessionDecorator decorator =
+				new ConcurrentWebSocketSessionDecorator(session, getSendTimeLimit(), getSendBufferSizeLimit());
+		decorator.setCoalesceMessages(isCoalesceMessages());
+		return decorator;
 	}
 
 	/**
@@ -140,6 +140,7 @@ public class WebSocketMessageBrokerConfigurationSupportTests {
 		assertEquals(1024 * 1024, subWsHandler.getSendBufferSizeLimit());
 		assertEquals(25 * 1000, subWsHandler.getSendTimeLimit());
 		assertEquals(30 * 1000, subWsHandler.getTimeToFirstMessage());
+		assertTrue(subWsHandler.isCoalesceMessages());
 
 		Map<String, SubProtocolHandler> handlerMap = subWsHandler.getProtocolHandlerMap();
 		StompSubProtocolHandler protocolHandler = (StompSubProtocolHandler) handlerMap.get("v12.stomp");
@@ -236,6 +237,7 @@ public class WebSocketMessageBrokerConfigurationSupportTests {
 			registration.setSendTimeLimit(25 * 1000);
 			registration.setSendBufferSizeLimit(1024 * 1024);
 			registration.setTimeToFirstMessage(30 * 1000);
+			registration.setCoalesceMessages(true);
 		}
 
 		@Override
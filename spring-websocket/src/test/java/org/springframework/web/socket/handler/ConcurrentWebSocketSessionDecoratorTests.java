@@ -1,5 +1,5 @@
 /*
- * Copyright 2002-2018 the original author or authors.
+ * Copyright 2002-2019 the original author or authors.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -17,13 +17,17 @@
 package org.springframework.web.socket.handler;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.Test;
 
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketMessage;
@@ -169,10 +173,125 @@ public class ConcurrentWebSocketSessionDecoratorTests {
 		}
 
 		assertEquals(1023, decorator.getBufferSize());
+		assertEquals(1, decorator.getBufferedMessageCount());
+		assertEquals(4, decorator.getOverflowCount());
+		assertEquals(4, decorator.getDroppedMessageCount());
 		assertTrue(session.isOpen());
 
 	}
 
+	@Test
+	public void coalesceMessages() throws Exception {
+		ConcurrentSendSession session = new ConcurrentSendSession(
+				new TextMessage("b"), new TextMessage("c"), new BinaryMessage(new byte[] {1, 2}),
+				new BinaryMessage(new byte[] {3}), new TextMessage("d"), new TextMessage("e", false),
+				new TextMessage("f"));
+		session.setOpen(true);
+
+		ConcurrentWebSocketSessionDecorator decorator =
+				new ConcurrentWebSocketSessionDecorator(session, 10 * 1000, 1024);
+		decorator.setCoalesceMessages(true);
+		session.setDecorator(decorator);
+
+		decorator.sendMessage(new TextMessage("a"));
+
+		List<WebSocketMessage<?>> messages = session.getSentMessages();
+		assertEquals(6, messages.size());
+		assertEquals(new TextMessage("a"), messages.get(0));
+		assertEquals(new TextMessage("bc"), messages.get(1));
+		assertEquals(ByteBuffer.wrap(new byte[] {1, 2, 3}), messages.get(2).getPayload());
+		assertEquals(new TextMessage("d"), messages.get(3));
+		assertEquals(new TextMessage("e", false), messages.get(4));
+		assertEquals(new TextMessage("f"), messages.get(5));
+
+		assertEquals(8, decorator.getSentMessageCount());
+		assertEquals(6, decorator.getTransportWriteCount());
+		assertEquals(0, decorator.getBufferSize());
+		assertEquals(0, decorator.getBufferedMessageCount());
+	}
+
+	@Test
+	public void coalesceMessagesKeepsLookAheadAfterFailedSend() throws Exception {
+		AtomicBoolean failed = new AtomicBoolean();
+		ConcurrentSendSession session = new ConcurrentSendSession(
+				new TextMessage("b"), new BinaryMessage(new byte[] {1})) {
+			@Override
+			public void sendMessage(WebSocketMessage<?> message) throws IOException {
+				if (!getSentMessages().isEmpty() && failed.compareAndSet(false, true)) {
+					throw new IOException("Send failed");
+				}
+				super.sendMessage(message);
+			}
+		};
+		session.setOpen(true);
+
+		ConcurrentWebSocketSessionDecorator decorator =
+				new ConcurrentWebSocketSessionDecorator(session, 10 * 1000, 1024);
+		decorator.setCoalesceMessages(true);
+		session.setDecorator(decorator);
+
+		try {
+			decorator.sendMessage(new TextMessage("a"));
+			fail("Expected IOException");
+		}
+		catch (IOException ex) {
+			// expected
+		}
+		assertEquals(1, decorator.getBufferedMessageCount());
+		assertEquals(1, decorator.getBufferSize());
+
+		decorator.sendMessage(new BinaryMessage(new byte[] {2}));
+
+		List<WebSocketMessage<?>> messages = session.getSentMessages();
+		assertEquals(2, messages.size());
+		assertEquals(new TextMessage("a"), messages.get(0));
+		assertEquals(ByteBuffer.wrap(new byte[] {1, 2}), messages.get(1).getPayload());
+		assertEquals(0, decorator.getBufferedMessageCount());
+		assertEquals(0, decorator.getBufferSize());
+	}
+
+	@Test
+	public void closeWhileSendingLeavesBufferedMessages() throws Exception {
+		AtomicReference<ConcurrentWebSocketSessionDecorator> decoratorRef = new AtomicReference<>();
+		ConcurrentSendSession session = new ConcurrentSendSession(new TextMessage("b"), new TextMessage("c")) {
+			@Override
+			public void sendMessage(WebSocketMessage<?> message) throws IOException {
+				super.sendMessage(message);
+				decoratorRef.get().close(CloseStatus.GOING_AWAY);
+			}
+		};
+		session.setOpen(true);
+
+		ConcurrentWebSocketSessionDecorator decorator =
+				new ConcurrentWebSocketSessionDecorator(session, 10 * 1000, 1024);
+		decoratorRef.set(decorator);
+		session.setDecorator(decorator);
+
+		decorator.sendMessage(new TextMessage("a"));
+
+		assertEquals(1, session.getSentMessages().size());
+		assertEquals(2, decorator.getBufferedMessageCount());
+		assertEquals(2, decorator.getBufferSize());
+		assertEquals(CloseStatus.GOING_AWAY, session.getCloseStatus());
+	}
+
+	@Test
+	public void sendWithoutCoalescing() throws Exception {
+		ConcurrentSendSession session = new ConcurrentSendSession(new TextMessage("b"), new TextMessage("c"));
+		session.setOpen(true);
+
+		ConcurrentWebSocketSessionDecorator decorator =
+				new ConcurrentWebSocketSessionDecorator(session, 10 * 1000, 1024);
+		session.setDecorator(decorator);
+
+		decorator.sendMessage(new TextMessage("a"));
+
+		assertEquals(3, session.getSentMessages().size());
+		assertEquals(3, decorator.getSentMessageCount());
+		assertEquals(3, decorator.getTransportWriteCount());
+		assertTrue(decorator.getMaxSendDuration() >= decorator.getLastSendDuration());
+	}
+
 	@Test
 	public void closeStatusNormal() throws Exception {
 
@@ -238,6 +357,52 @@ public class ConcurrentWebSocketSessionDecoratorTests {
 
 
 
+	/**
+	 * Sends the given messages from another thread through the decorator
+	 * while the first message is being sent, so that they get buffered.
+	 */
+	private static class ConcurrentSendSession extends TestWebSocketSession {
+
+		private final WebSocketMessage<?>[] concurrentMessages;
+
+		private ConcurrentWebSocketSessionDecorator decorator;
+
+
+		public ConcurrentSendSession(WebSocketMessage<?>... concurrentMessages) {
+			this.concurrentMessages = concurrentMessages;
+		}
+
+
+		public void setDecorator(ConcurrentWebSocketSessionDecorator decorator) {
+			this.decorator = decorator;
+		}
+
+		@Override
+		public void sendMessage(WebSocketMessage<?> message) throws IOException {
+			super.sendMessage(message);
+			if (getSentMessages().size() == 1) {
+				Thread thread = new Thread(() -> {
+					try {
+						for (WebSocketMessage<?> concurrentMessage : this.concurrentMessages) {
+							this.decorator.sendMessage(concurrentMessage);
+						}
+					}
+					catch (IOException ex) {
+						throw new IllegalStateException(ex);
+					}
+				});
+				thread.start();
+				try {
+					thread.join();
+				}
+				catch (InterruptedException ex) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+
 	private static class BlockingSession extends TestWebSocketSession {
 
 		private AtomicReference<CountDownLatch> nextMessageLatch = new AtomicReference<>();